@@ -1,5 +1,7 @@
 package pl.psnc.dl.wf4ever;
 
+import static pl.psnc.dl.wf4ever.util.PropertiesUtil.getInt;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Properties;
@@ -34,6 +36,78 @@ public final class ApplicationProperties {
     /** context path, may be null for URIs with no path (i.e. http://localhost:8082). */
     private static String contextPath;
 
+    /** default maximum number of research objects kept in memory between requests. */
+    public static final int DEFAULT_RESEARCH_OBJECT_CACHE_SIZE = 1000;
+
+    /** maximum number of research objects kept in memory between requests. */
+    private static int researchObjectCacheSize = DEFAULT_RESEARCH_OBJECT_CACHE_SIZE;
+
+    /** default maximum size in megabytes of the serialized named graphs kept between requests. */
+    public static final int DEFAULT_GRAPH_CACHE_SIZE = 0;
+
+    /** maximum size in megabytes of the serialized named graphs kept between requests, 0 to disable. */
+    private static int graphCacheSize = DEFAULT_GRAPH_CACHE_SIZE;
+
+    /** directory for the serialized named graphs, null if they are kept in memory. */
+    private static String graphCacheDirectory;
+
+    /** default number of seconds for which user names are kept. */
+    public static final int DEFAULT_USER_NAME_CACHE_TIME_TO_LIVE = 300;
+
+    /** number of seconds for which user names are kept. */
+    private static int userNameCacheTimeToLive = DEFAULT_USER_NAME_CACHE_TIME_TO_LIVE;
+
+    /** default maximum number of ZIP archives created at the same time. */
+    public static final int DEFAULT_ZIP_THREADS = 4;
+
+    /** maximum number of ZIP archives created at the same time. */
+    private static int zipThreads = DEFAULT_ZIP_THREADS;
+
+    /** default maximum number of ZIP archives waiting to be created. */
+    public static final int DEFAULT_ZIP_QUEUE_SIZE = 16;
+
+    /** maximum number of ZIP archives waiting to be created. */
+    private static int zipQueueSize = DEFAULT_ZIP_QUEUE_SIZE;
+
+    /** default maximum size in megabytes of the ZIP archives of snapshots and archives kept on disk. */
+    public static final int DEFAULT_ARCHIVE_CACHE_SIZE = 1024;
+
+    /** maximum size in megabytes of the ZIP archives of snapshots and archives kept on disk. */
+    private static int archiveCacheSize = DEFAULT_ARCHIVE_CACHE_SIZE;
+
+    /** directory for the ZIP archives of snapshots and archives, null if they are not kept. */
+    private static String archiveCacheDirectory;
+
+    /** default maximum number of access tokens kept between requests. */
+    public static final int DEFAULT_ACCESS_TOKEN_CACHE_SIZE = 10000;
+
+    /** maximum number of access tokens kept between requests. */
+    private static int accessTokenCacheSize = DEFAULT_ACCESS_TOKEN_CACHE_SIZE;
+
+    /** default number of seconds for which access tokens are kept. */
+    public static final int DEFAULT_ACCESS_TOKEN_CACHE_TIME_TO_LIVE = 300;
+
+    /** number of seconds for which access tokens are kept. */
+    private static int accessTokenCacheTimeToLive = DEFAULT_ACCESS_TOKEN_CACHE_TIME_TO_LIVE;
+
+    /** default number of seconds between saving the last usage dates of access tokens. */
+    public static final int DEFAULT_ACCESS_TOKEN_FLUSH_INTERVAL = 60;
+
+    /** number of seconds between saving the last usage dates of access tokens. */
+    private static int accessTokenFlushInterval = DEFAULT_ACCESS_TOKEN_FLUSH_INTERVAL;
+
+    /** default maximum number of research object access control lists kept between requests. */
+    public static final int DEFAULT_ACCESS_CONTROL_CACHE_SIZE = 10000;
+
+    /** maximum number of research object access control lists kept between requests. */
+    private static int accessControlCacheSize = DEFAULT_ACCESS_CONTROL_CACHE_SIZE;
+
+    /** default number of seconds for which research object access control lists are kept. */
+    public static final int DEFAULT_ACCESS_CONTROL_CACHE_TIME_TO_LIVE = 600;
+
+    /** number of seconds for which research object access control lists are kept. */
+    private static int accessControlCacheTimeToLive = DEFAULT_ACCESS_CONTROL_CACHE_TIME_TO_LIVE;
+
 
     /**
      * Private constructor.
@@ -80,6 +154,27 @@ public final class ApplicationProperties {
         name = properties.getProperty("application.name");
         version = properties.getProperty("application.version");
         adminTokenHash = properties.getProperty("adminToken");
+        researchObjectCacheSize = getInt(properties, "cache.researchObjects.size", DEFAULT_RESEARCH_OBJECT_CACHE_SIZE);
+        graphCacheSize = getInt(properties, "cache.graphs.size", DEFAULT_GRAPH_CACHE_SIZE);
+        graphCacheDirectory = properties.getProperty("cache.graphs.directory");
+        if (graphCacheDirectory != null && graphCacheDirectory.trim().isEmpty()) {
+            graphCacheDirectory = null;
+        }
+        userNameCacheTimeToLive = getInt(properties, "cache.userNames.ttl", DEFAULT_USER_NAME_CACHE_TIME_TO_LIVE);
+        zipThreads = Math.max(getInt(properties, "zip.threads", DEFAULT_ZIP_THREADS), 1);
+        zipQueueSize = Math.max(getInt(properties, "zip.queue", DEFAULT_ZIP_QUEUE_SIZE), 1);
+        archiveCacheSize = getInt(properties, "cache.archives.size", DEFAULT_ARCHIVE_CACHE_SIZE);
+        archiveCacheDirectory = properties.getProperty("cache.archives.directory");
+        if (archiveCacheDirectory != null && archiveCacheDirectory.trim().isEmpty()) {
+            archiveCacheDirectory = null;
+        }
+        accessTokenCacheSize = getInt(properties, "cache.accessTokens.size", DEFAULT_ACCESS_TOKEN_CACHE_SIZE);
+        accessTokenCacheTimeToLive = getInt(properties, "cache.accessTokens.ttl",
+            DEFAULT_ACCESS_TOKEN_CACHE_TIME_TO_LIVE);
+        accessTokenFlushInterval = getInt(properties, "cache.accessTokens.flush", DEFAULT_ACCESS_TOKEN_FLUSH_INTERVAL);
+        accessControlCacheSize = getInt(properties, "cache.accessControl.size", DEFAULT_ACCESS_CONTROL_CACHE_SIZE);
+        accessControlCacheTimeToLive = getInt(properties, "cache.accessControl.ttl",
+            DEFAULT_ACCESS_CONTROL_CACHE_TIME_TO_LIVE);
     }
 
 
@@ -98,6 +193,71 @@ public final class ApplicationProperties {
     }
 
 
+    public static int getResearchObjectCacheSize() {
+        return researchObjectCacheSize;
+    }
+
+
+    public static int getGraphCacheSize() {
+        return graphCacheSize;
+    }
+
+
+    public static String getGraphCacheDirectory() {
+        return graphCacheDirectory;
+    }
+
+
+    public static int getUserNameCacheTimeToLive() {
+        return userNameCacheTimeToLive;
+    }
+
+
+    public static int getZipThreads() {
+        return zipThreads;
+    }
+
+
+    public static int getZipQueueSize() {
+        return zipQueueSize;
+    }
+
+
+    public static int getArchiveCacheSize() {
+        return archiveCacheSize;
+    }
+
+
+    public static String getArchiveCacheDirectory() {
+        return archiveCacheDirectory;
+    }
+
+
+    public static int getAccessTokenCacheSize() {
+        return accessTokenCacheSize;
+    }
+
+
+    public static int getAccessTokenCacheTimeToLive() {
+        return accessTokenCacheTimeToLive;
+    }
+
+
+    public static int getAccessTokenFlushInterval() {
+        return accessTokenFlushInterval;
+    }
+
+
+    public static int getAccessControlCacheSize() {
+        return accessControlCacheSize;
+    }
+
+
+    public static int getAccessControlCacheTimeToLive() {
+        return accessControlCacheTimeToLive;
+    }
+
+
     public static String getContextPath() {
         return contextPath;
     }
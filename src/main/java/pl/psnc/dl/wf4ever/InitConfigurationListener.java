@@ -1,54 +1,67 @@
-/*
- * Copyright (c) 2011 Poznan Supercomputing and Networking Center
- * 10 Noskowskiego Street, Poznan, Wielkopolska 61-704, Poland
- * All rights reserved.
- *
- * This software is the confidential and proprietary information of
- * Poznan Supercomputing and Networking Center ("Confidential Information").
- * You shall not disclose such Confidential Information and shall use it only
- * in accordance with the terms of the license agreement you entered into
- * with PSNC.
- */
-package pl.psnc.dl.wf4ever;
-
-import javax.servlet.ServletContextEvent;
-import javax.servlet.ServletContextListener;
-
-import org.apache.log4j.Logger;
-import org.quartz.SchedulerException;
-
-import pl.psnc.dl.wf4ever.monitoring.MonitoringScheduler;
-
-/**
- * Initialize RODL on startup.
- * 
- * @author piotrekhol
- * 
- */
-public class InitConfigurationListener implements ServletContextListener {
-
-    /** Logger. */
-    private static final Logger LOGGER = Logger.getLogger(InitConfigurationListener.class);
-
-
-    @Override
-    public void contextInitialized(ServletContextEvent sce) {
-        ApplicationProperties.load(sce.getServletContext().getContextPath());
-        try {
-            MonitoringScheduler.getInstance().start();
-        } catch (SchedulerException e) {
-            LOGGER.error("Can't start the RO monitoring scheduler", e);
-        }
-    }
-
-
-    @Override
-    public void contextDestroyed(ServletContextEvent sce) {
-        try {
-            MonitoringScheduler.getInstance().stop();
-        } catch (SchedulerException e) {
-            LOGGER.error("Can't stop the RO monitoring scheduler", e);
-        }
-    }
-
-}
+/*
+ * Copyright (c) 2011 Poznan Supercomputing and Networking Center
+ * 10 Noskowskiego Street, Poznan, Wielkopolska 61-704, Poland
+ * All rights reserved.
+ *
+ * This software is the confidential and proprietary information of
+ * Poznan Supercomputing and Networking Center ("Confidential Information").
+ * You shall not disclose such Confidential Information and shall use it only
+ * in accordance with the terms of the license agreement you entered into
+ * with PSNC.
+ */
+package pl.psnc.dl.wf4ever;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+import org.apache.log4j.Logger;
+import org.quartz.SchedulerException;
+
+import pl.psnc.dl.wf4ever.admin.RegistrySynchronization;
+import pl.psnc.dl.wf4ever.auth.AccessTokenCache;
+import pl.psnc.dl.wf4ever.model.Builder;
+import pl.psnc.dl.wf4ever.monitoring.MonitoringScheduler;
+import pl.psnc.dl.wf4ever.storage.ZipExporter;
+
+/**
+ * Initialize RODL on startup.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public class InitConfigurationListener implements ServletContextListener {
+
+    /** Logger. */
+    private static final Logger LOGGER = Logger.getLogger(InitConfigurationListener.class);
+
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        ApplicationProperties.load(sce.getServletContext().getContextPath());
+        Builder.openDefaultDataset();
+        try {
+            RegistrySynchronization.synchronizeIfEmpty();
+        } catch (RuntimeException e) {
+            LOGGER.error("Can't fill the registry of research objects, use POST admin/registry/synchronize", e);
+        }
+        try {
+            MonitoringScheduler.getInstance().start();
+        } catch (SchedulerException e) {
+            LOGGER.error("Can't start the RO monitoring scheduler", e);
+        }
+    }
+
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        try {
+            MonitoringScheduler.getInstance().stop();
+        } catch (SchedulerException e) {
+            LOGGER.error("Can't stop the RO monitoring scheduler", e);
+        }
+        ZipExporter.shutdown();
+        AccessTokenCache.shutdown();
+        Builder.closeDefaultDataset();
+    }
+
+}
@@ -0,0 +1,185 @@
+package pl.psnc.dl.wf4ever.accesscontrol;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import pl.psnc.dl.wf4ever.ApplicationProperties;
+import pl.psnc.dl.wf4ever.accesscontrol.model.dao.PermissionDAO;
+import pl.psnc.dl.wf4ever.db.hibernate.HibernateUtil;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Access control lists of research objects, kept between requests so that access to a research object can be checked
+ * without the database. A list is loaded in one query and removed when the mode or the permissions of the research
+ * object change, or after the time to live in case a change made elsewhere is not noticed.
+ * 
+ * @author pejot
+ * 
+ */
+public final class AccessControlCache {
+
+    /** Number of generation counters, each shared by the research objects with the same URI hash modulo this number. */
+    private static final int GENERATION_STRIPES = 1024;
+
+    /** The only instance. */
+    private static AccessControlCache instance;
+
+    /** Access control lists by research object URI. */
+    private final Cache<String, AccessControlList> lists;
+
+    /**
+     * Generations of research objects, increased when their lists are invalidated, so that a list loaded before is not
+     * kept.
+     */
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    /** Generation of all research objects, increased when all lists are invalidated. */
+    private final AtomicLong allGenerations = new AtomicLong();
+
+    /** Number of lists found in the cache. */
+    private final AtomicLong hits = new AtomicLong();
+
+    /** Number of lists loaded from the database. */
+    private final AtomicLong misses = new AtomicLong();
+
+
+    /**
+     * Constructor.
+     * 
+     * @param maximumSize
+     *            maximum number of research objects
+     * @param timeToLive
+     *            number of seconds for which a list is kept
+     */
+    AccessControlCache(int maximumSize, int timeToLive) {
+        lists = CacheBuilder.newBuilder().maximumSize(Math.max(maximumSize, 0))
+                .expireAfterWrite(Math.max(timeToLive, 0), TimeUnit.SECONDS).build();
+    }
+
+
+    /**
+     * Get the only instance, with the size set in the application properties.
+     * 
+     * @return the access control cache
+     */
+    public static synchronized AccessControlCache getInstance() {
+        if (instance == null) {
+            instance = new AccessControlCache(ApplicationProperties.getAccessControlCacheSize(),
+                    ApplicationProperties.getAccessControlCacheTimeToLive());
+        }
+        return instance;
+    }
+
+
+    /**
+     * Get the access control list of a research object, loading it from the database if it is not in the cache.
+     * 
+     * @param researchObjectUri
+     *            research object URI
+     * @return the access control list, {@link AccessControlList#UNKNOWN} if the research object has no mode or no
+     *         permissions
+     */
+    public AccessControlList get(String researchObjectUri) {
+        AccessControlList list = lists.getIfPresent(researchObjectUri);
+        if (list != null) {
+            hits.incrementAndGet();
+            return list;
+        }
+        misses.incrementAndGet();
+        long generation = getGeneration(researchObjectUri);
+        list = AccessControlList.create(new PermissionDAO().findModeAndRolesByResearchObject(researchObjectUri));
+        lists.put(researchObjectUri, list);
+        // checked after the list is put, so that an invalidation either sees it or changes the generation first
+        if (getGeneration(researchObjectUri) != generation) {
+            lists.invalidate(researchObjectUri);
+        }
+        return list;
+    }
+
+
+    /**
+     * Get the current generation of a research object.
+     * 
+     * @param researchObjectUri
+     *            research object URI
+     * @return a number that increases when the list of the research object is invalidated
+     */
+    private long getGeneration(String researchObjectUri) {
+        return allGenerations.get() + generations.get(getStripe(researchObjectUri));
+    }
+
+
+    /**
+     * Get the generation counter of a research object.
+     * 
+     * @param researchObjectUri
+     *            research object URI
+     * @return the index of the counter
+     */
+    private static int getStripe(String researchObjectUri) {
+        return (researchObjectUri.hashCode() & Integer.MAX_VALUE) % GENERATION_STRIPES;
+    }
+
+
+    /**
+     * Forget the access control list of a research object, because its mode or permissions have changed. The list is
+     * forgotten again when the current transaction completes, and a list being loaded by a concurrent request in the
+     * meantime is not kept.
+     * 
+     * @param researchObjectUri
+     *            research object URI
+     */
+    public void invalidate(final String researchObjectUri) {
+        final int stripe = getStripe(researchObjectUri);
+        generations.incrementAndGet(stripe);
+        lists.invalidate(researchObjectUri);
+        HibernateUtil.afterCompletion(new Runnable() {
+
+            @Override
+            public void run() {
+                generations.incrementAndGet(stripe);
+                lists.invalidate(researchObjectUri);
+            }
+        });
+    }
+
+
+    /**
+     * Forget all access control lists.
+     */
+    public void invalidateAll() {
+        allGenerations.incrementAndGet();
+        lists.invalidateAll();
+        HibernateUtil.afterCompletion(new Runnable() {
+
+            @Override
+            public void run() {
+                allGenerations.incrementAndGet();
+                lists.invalidateAll();
+            }
+        });
+    }
+
+
+    public long getHits() {
+        return hits.get();
+    }
+
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+
+    /**
+     * Get the number of research objects in the cache.
+     * 
+     * @return the number of access control lists
+     */
+    public long getSize() {
+        return lists.size();
+    }
+}
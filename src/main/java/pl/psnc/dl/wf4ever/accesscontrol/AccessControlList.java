@@ -0,0 +1,111 @@
+package pl.psnc.dl.wf4ever.accesscontrol;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import pl.psnc.dl.wf4ever.accesscontrol.dicts.Mode;
+import pl.psnc.dl.wf4ever.accesscontrol.dicts.Role;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
+
+/**
+ * The access mode of a research object and the users granted each role, as read from the database at one moment.
+ * 
+ * @author pejot
+ * 
+ */
+public final class AccessControlList {
+
+    /** The list of a research object that has no mode or no permissions. */
+    public static final AccessControlList UNKNOWN = new AccessControlList(null,
+            Collections.<Role, Multiset<String>> emptyMap());
+
+    /** Access mode, null if unknown. */
+    private final Mode mode;
+
+    /** User logins by role, a login is counted once for each permission. */
+    private final Map<Role, Multiset<String>> users;
+
+
+    /**
+     * Constructor.
+     * 
+     * @param mode
+     *            access mode, null if unknown
+     * @param users
+     *            user logins by role
+     */
+    private AccessControlList(Mode mode, Map<Role, Multiset<String>> users) {
+        this.mode = mode;
+        this.users = users;
+    }
+
+
+    /**
+     * Create a list from the rows returned by the permission DAO.
+     * 
+     * @param rows
+     *            rows of the access mode, the role and the user login
+     * @return the access control list, {@link #UNKNOWN} if there are no rows
+     */
+    public static AccessControlList create(List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return UNKNOWN;
+        }
+        Map<Role, Multiset<String>> users = new EnumMap<>(Role.class);
+        for (Role role : Role.values()) {
+            users.put(role, HashMultiset.<String> create());
+        }
+        for (Object[] row : rows) {
+            users.get(row[1]).add((String) row[2]);
+        }
+        return new AccessControlList((Mode) rows.get(0)[0], users);
+    }
+
+
+    /**
+     * Check if the access mode and the permissions of the research object are known.
+     * 
+     * @return true if the research object has a mode and at least one permission
+     */
+    public boolean isKnown() {
+        return mode != null;
+    }
+
+
+    public Mode getMode() {
+        return mode;
+    }
+
+
+    /**
+     * Check if a user has been granted a role.
+     * 
+     * @param login
+     *            user login
+     * @param role
+     *            the role
+     * @return true if the user has the role
+     */
+    public boolean hasRole(String login, Role role) {
+        return countPermissions(login, role) > 0;
+    }
+
+
+    /**
+     * Count the permissions granting a role to a user. There should be at most one.
+     * 
+     * @param login
+     *            user login
+     * @param role
+     *            the role
+     * @return the number of permissions
+     */
+    public int countPermissions(String login, Role role) {
+        Multiset<String> logins = users.get(role);
+        return logins != null ? logins.count(login) : 0;
+    }
+}
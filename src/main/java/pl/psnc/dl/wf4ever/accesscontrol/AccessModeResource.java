@@ -93,6 +93,7 @@ public class AccessModeResource {
 		
         storedMode.setMode(mode.getMode());
         dao.save(storedMode);
+        AccessControlCache.getInstance().invalidate(storedMode.getRo());
         //if storedmode == 0
         storedMode.setUri(uriInfo.getRequestUri().resolve(storedMode.getId().toString()));
         return Response.created(uriInfo.getRequestUri().resolve(storedMode.getId().toString())).entity(storedMode)
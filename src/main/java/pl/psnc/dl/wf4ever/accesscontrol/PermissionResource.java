@@ -92,6 +92,7 @@ public class PermissionResource {
 					"Given user login doesn't exist"); 
 		}
 		dao.save(permission);
+		AccessControlCache.getInstance().invalidate(permission.getRo());
 		permission.setUri(uriInfo.getRequestUri().resolve("")
 				.resolve(permission.getId().toString()));
 		return Response
@@ -129,6 +130,7 @@ public class PermissionResource {
 			throw new BadRequestException("Can't remove owner Role");
 		}
 		dao.delete(permission);
+		AccessControlCache.getInstance().invalidate(permission.getRo());
 		return Response.noContent().build();
 	}
 
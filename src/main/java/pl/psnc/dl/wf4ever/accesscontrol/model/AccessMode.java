@@ -13,6 +13,9 @@ import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlTransient;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 /**
  * Mode model produced and consumed by Resource Mode API.
  * 
@@ -21,6 +24,7 @@ import javax.xml.bind.annotation.XmlTransient;
  */
 @Entity
 @Table(name = "modes")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "accessModes")
 @XmlRootElement(name = "mode")
 public class AccessMode {
 
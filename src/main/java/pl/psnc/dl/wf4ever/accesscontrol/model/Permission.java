@@ -15,6 +15,9 @@ import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlTransient;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import pl.psnc.dl.wf4ever.accesscontrol.dicts.Role;
 import pl.psnc.dl.wf4ever.db.UserProfile;
 import pl.psnc.dl.wf4ever.db.dao.UserProfileDAO;
@@ -27,6 +30,7 @@ import pl.psnc.dl.wf4ever.db.dao.UserProfileDAO;
  */
 @Entity
 @Table(name = "permissions")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "permissions")
 @XmlRootElement(name = "permission")
 public class Permission {
 
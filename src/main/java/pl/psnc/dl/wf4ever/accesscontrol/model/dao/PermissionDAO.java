@@ -22,6 +22,9 @@ public final class PermissionDAO extends AbstractDAO<Permission> {
 	/** id. */
 	private static final long serialVersionUID = -4468344863067565271L;
 
+	/** Cache region of the access control queries. */
+	public static final String QUERY_CACHE_REGION = "accessControlQueries";
+
 	/**
 	 * Find permission by id.
 	 * 
@@ -45,6 +48,7 @@ public final class PermissionDAO extends AbstractDAO<Permission> {
 		Criteria criteria = HibernateUtil.getSessionFactory()
 				.getCurrentSession().createCriteria(Permission.class);
 		criteria.add(Restrictions.eq("ro", ro));
+		criteria.setCacheable(true).setCacheRegion(QUERY_CACHE_REGION);
 		return criteria.list();
 
 	}
@@ -68,6 +72,7 @@ public final class PermissionDAO extends AbstractDAO<Permission> {
 		criteria.add(Restrictions.eq("ro", ro));
 		criteria.add(Restrictions.eq("user", user));
 		criteria.add(Restrictions.eq("role", role));
+		criteria.setCacheable(true).setCacheRegion(QUERY_CACHE_REGION);
 		return criteria.list();
 	}
 
@@ -86,7 +91,29 @@ public final class PermissionDAO extends AbstractDAO<Permission> {
 				.getCurrentSession().createCriteria(Permission.class);
 		criteria.add(Restrictions.eq("ro", ro));
 		criteria.add(Restrictions.eq("role", role));
+		criteria.setCacheable(true).setCacheRegion(QUERY_CACHE_REGION);
 		return criteria.list();
 	}
 
+	/**
+	 * Find the access mode and all granted roles of a research object in one
+	 * query.
+	 * 
+	 * @param ro
+	 *            research object uri
+	 * @return rows of the access mode, the role and the user login, empty if
+	 *         the research object has no mode or no permissions
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Object[]> findModeAndRolesByResearchObject(String ro) {
+		return HibernateUtil
+				.getSessionFactory()
+				.getCurrentSession()
+				.createQuery(
+						"select m.mode, p.role, p.user.login from AccessMode m, Permission p"
+								+ " where m.ro = :ro and p.ro = :ro")
+				.setString("ro", ro).setCacheable(true)
+				.setCacheRegion(QUERY_CACHE_REGION).list();
+	}
+
 }
@@ -1,33 +1,56 @@
 package pl.psnc.dl.wf4ever.admin;
 
 import java.net.URI;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.UriInfo;
 
 import org.apache.log4j.Logger;
+import org.hibernate.Cache;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
 import org.quartz.SchedulerException;
 
+import pl.psnc.dl.wf4ever.accesscontrol.AccessControlCache;
 import pl.psnc.dl.wf4ever.accesscontrol.dicts.Mode;
 import pl.psnc.dl.wf4ever.accesscontrol.dicts.Role;
 import pl.psnc.dl.wf4ever.accesscontrol.model.AccessMode;
 import pl.psnc.dl.wf4ever.accesscontrol.model.Permission;
 import pl.psnc.dl.wf4ever.accesscontrol.model.dao.ModeDAO;
 import pl.psnc.dl.wf4ever.accesscontrol.model.dao.PermissionDAO;
+import pl.psnc.dl.wf4ever.auth.AccessTokenCache;
 import pl.psnc.dl.wf4ever.auth.RequestAttribute;
 import pl.psnc.dl.wf4ever.db.ResearchObjectId;
 import pl.psnc.dl.wf4ever.db.UserProfile;
 import pl.psnc.dl.wf4ever.db.dao.ResearchObjectIdDAO;
 import pl.psnc.dl.wf4ever.db.dao.UserProfileDAO;
+import pl.psnc.dl.wf4ever.db.hibernate.ConnectionPool;
+import pl.psnc.dl.wf4ever.db.hibernate.HibernateUtil;
 import pl.psnc.dl.wf4ever.dl.UserMetadata;
+import pl.psnc.dl.wf4ever.job.Job;
+import pl.psnc.dl.wf4ever.job.JobsContainer;
 import pl.psnc.dl.wf4ever.model.Builder;
+import pl.psnc.dl.wf4ever.model.RDF.GraphCache;
+import pl.psnc.dl.wf4ever.model.RO.ArchiveCache;
 import pl.psnc.dl.wf4ever.model.RO.ResearchObject;
+import pl.psnc.dl.wf4ever.model.RO.ResearchObjectCache;
 import pl.psnc.dl.wf4ever.monitoring.MonitoringScheduler;
 
+import com.sun.jersey.api.NotFoundException;
+
 /**
  * The admin namespace for protected functions provided via API.
  * 
@@ -35,15 +58,25 @@ import pl.psnc.dl.wf4ever.monitoring.MonitoringScheduler;
  * 
  */
 @Path("admin/")
-public class AdminResource {
+public class AdminResource implements JobsContainer {
 
 	/** Resource builder. */
 	@RequestAttribute("Builder")
 	private Builder builder;
 
+	/** URI info. */
+	@Context
+	private UriInfo uriInfo;
+
 	/** logger. */
 	private static final Logger LOGGER = Logger.getLogger(AdminResource.class);
 
+	/** The running or the last finished namespace prefix migration. */
+	private static Job prefixMigrationJob;
+
+	/** The running or the last finished storage layout migration. */
+	private static Job storageMigrationJob;
+
 	/**
      * 
      */
@@ -97,6 +130,7 @@ public class AdminResource {
 			}
 
 		}
+		AccessControlCache.getInstance().invalidateAll();
 		return "Operation finished successfully";
 	}
 
@@ -114,6 +148,289 @@ public class AdminResource {
 		return "Operation finished successfully";
 	}
 
+	/**
+	 * Start adding the default namespace prefixes to all named graphs that
+	 * miss them. Only one migration may run at a time, running it again after
+	 * a failure resumes it.
+	 * 
+	 * @return 201 Created with the job status, or 409 Conflict if a migration
+	 *         is already running
+	 */
+	@POST
+	@Path("migration/prefixes/")
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response migratePrefixes() {
+		synchronized (AdminResource.class) {
+			if (prefixMigrationJob != null && prefixMigrationJob.isAlive()) {
+				return Response.status(Status.CONFLICT)
+						.entity(prefixMigrationJob.getStatus()).build();
+			}
+			prefixMigrationJob = new Job(UUID.randomUUID(),
+					new PrefixMigrationJobStatus(), this,
+					new PrefixMigrationOperation(builder));
+			prefixMigrationJob.start();
+			return Response.created(uriInfo.getAbsolutePath())
+					.entity(prefixMigrationJob.getStatus()).build();
+		}
+	}
+
+	/**
+	 * Get the progress of the namespace prefix migration.
+	 * 
+	 * @return the status of the running or the last finished migration
+	 */
+	@GET
+	@Path("migration/prefixes/")
+	@Produces(MediaType.APPLICATION_JSON)
+	public PrefixMigrationJobStatus getPrefixMigration() {
+		synchronized (AdminResource.class) {
+			if (prefixMigrationJob == null) {
+				throw new NotFoundException("No prefix migration has been started");
+			}
+			return (PrefixMigrationJobStatus) prefixMigrationJob.getStatus();
+		}
+	}
+
+	/**
+	 * Start moving all research objects to the sharded storage layout. Only
+	 * one migration may run at a time, running it again after a failure
+	 * resumes it.
+	 * 
+	 * @return 201 Created with the job status, or 409 Conflict if a migration
+	 *         is already running
+	 */
+	@POST
+	@Path("migration/storage/")
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response migrateStorage() {
+		synchronized (AdminResource.class) {
+			if (storageMigrationJob != null && storageMigrationJob.isAlive()) {
+				return Response.status(Status.CONFLICT)
+						.entity(storageMigrationJob.getStatus()).build();
+			}
+			storageMigrationJob = new Job(UUID.randomUUID(),
+					new StorageMigrationJobStatus(), this,
+					new StorageMigrationOperation(builder));
+			storageMigrationJob.start();
+			return Response.created(uriInfo.getAbsolutePath())
+					.entity(storageMigrationJob.getStatus()).build();
+		}
+	}
+
+	/**
+	 * Get the progress of the storage layout migration.
+	 * 
+	 * @return the status of the running or the last finished migration
+	 */
+	@GET
+	@Path("migration/storage/")
+	@Produces(MediaType.APPLICATION_JSON)
+	public StorageMigrationJobStatus getStorageMigration() {
+		synchronized (AdminResource.class) {
+			if (storageMigrationJob == null) {
+				throw new NotFoundException("No storage migration has been started");
+			}
+			return (StorageMigrationJobStatus) storageMigrationJob.getStatus();
+		}
+	}
+
+	@Override
+	public void onJobDone(Job job) {
+		LOGGER.info("Job " + job.getUUID() + " finished: "
+				+ job.getStatus().getState());
+	}
+
+	/**
+	 * Get the usage of the cache of research objects.
+	 * 
+	 * @return the cache statistics
+	 */
+	@GET
+	@Path("cache/researchobjects/")
+	@Produces(MediaType.APPLICATION_JSON)
+	public CacheStatistics getResearchObjectCache() {
+		ResearchObjectCache cache = ResearchObjectCache.getInstance();
+		return new CacheStatistics("researchobjects", cache.getSize(),
+				cache.getHits(), cache.getMisses());
+	}
+
+	/**
+	 * Empty the cache of research objects.
+	 * 
+	 * @return 204 No Content
+	 */
+	@DELETE
+	@Path("cache/researchobjects/")
+	public Response clearResearchObjectCache() {
+		ResearchObjectCache.getInstance().invalidateAll();
+		return Response.noContent().build();
+	}
+
+	/**
+	 * Get the usage of the cache of serialized RDF graphs.
+	 * 
+	 * @return the cache statistics
+	 */
+	@GET
+	@Path("cache/graphs/")
+	@Produces(MediaType.APPLICATION_JSON)
+	public CacheStatistics getGraphCache() {
+		GraphCache cache = GraphCache.getInstance();
+		return new CacheStatistics("graphs", cache.getSize(), cache.getHits(),
+				cache.getMisses());
+	}
+
+	/**
+	 * Empty the cache of serialized RDF graphs.
+	 * 
+	 * @return 204 No Content
+	 */
+	@DELETE
+	@Path("cache/graphs/")
+	public Response clearGraphCache() {
+		GraphCache.getInstance().invalidateAll();
+		return Response.noContent().build();
+	}
+
+	/**
+	 * Get the usage of the cache of ZIP archives of snapshots and archives.
+	 * 
+	 * @return the cache statistics
+	 */
+	@GET
+	@Path("cache/archives/")
+	@Produces(MediaType.APPLICATION_JSON)
+	public CacheStatistics getArchiveCache() {
+		ArchiveCache cache = ArchiveCache.getInstance();
+		return new CacheStatistics("archives", cache.getSize(),
+				cache.getHits(), cache.getMisses());
+	}
+
+	/**
+	 * Empty the cache of ZIP archives of snapshots and archives.
+	 * 
+	 * @return 204 No Content
+	 */
+	@DELETE
+	@Path("cache/archives/")
+	public Response clearArchiveCache() {
+		ArchiveCache.getInstance().invalidateAll();
+		return Response.noContent().build();
+	}
+
+	/**
+	 * Get the usage of the cache of access tokens.
+	 * 
+	 * @return the cache statistics
+	 */
+	@GET
+	@Path("cache/accesstokens/")
+	@Produces(MediaType.APPLICATION_JSON)
+	public CacheStatistics getAccessTokenCache() {
+		AccessTokenCache cache = AccessTokenCache.getInstance();
+		return new CacheStatistics("accesstokens", cache.getSize(),
+				cache.getHits(), cache.getMisses());
+	}
+
+	/**
+	 * Empty the cache of access tokens.
+	 * 
+	 * @return 204 No Content
+	 */
+	@DELETE
+	@Path("cache/accesstokens/")
+	public Response clearAccessTokenCache() {
+		AccessTokenCache.getInstance().invalidateAll();
+		return Response.noContent().build();
+	}
+
+	/**
+	 * Get the usage of the cache of research object access modes and
+	 * permissions.
+	 * 
+	 * @return the cache statistics
+	 */
+	@GET
+	@Path("cache/accesscontrol/")
+	@Produces(MediaType.APPLICATION_JSON)
+	public CacheStatistics getAccessControlCache() {
+		AccessControlCache cache = AccessControlCache.getInstance();
+		return new CacheStatistics("accesscontrol", cache.getSize(),
+				cache.getHits(), cache.getMisses());
+	}
+
+	/**
+	 * Empty the cache of research object access modes and permissions.
+	 * 
+	 * @return 204 No Content
+	 */
+	@DELETE
+	@Path("cache/accesscontrol/")
+	public Response clearAccessControlCache() {
+		AccessControlCache.getInstance().invalidateAll();
+		return Response.noContent().build();
+	}
+
+	/**
+	 * Get the usage of the regions of the Hibernate second-level and query
+	 * cache.
+	 * 
+	 * @return the statistics of each region
+	 */
+	@GET
+	@Path("cache/hibernate/")
+	@Produces(MediaType.APPLICATION_JSON)
+	public List<CacheStatistics> getHibernateCache() {
+		Statistics statistics = HibernateUtil.getSessionFactory()
+				.getStatistics();
+		List<CacheStatistics> regions = new ArrayList<>();
+		for (String name : statistics.getSecondLevelCacheRegionNames()) {
+			SecondLevelCacheStatistics region = statistics
+					.getSecondLevelCacheStatistics(name);
+			regions.add(new CacheStatistics(name, region
+					.getElementCountInMemory(), region.getHitCount(), region
+					.getMissCount()));
+		}
+		return regions;
+	}
+
+	/**
+	 * Empty all regions of the Hibernate second-level and query cache.
+	 * 
+	 * @return 204 No Content
+	 */
+	@DELETE
+	@Path("cache/hibernate/")
+	public Response clearHibernateCache() {
+		Cache cache = HibernateUtil.getSessionFactory().getCache();
+		cache.evictEntityRegions();
+		cache.evictCollectionRegions();
+		cache.evictDefaultQueryRegion();
+		cache.evictQueryRegions();
+		return Response.noContent().build();
+	}
+
+	/**
+	 * Get the usage of the pool of database connections.
+	 * 
+	 * @return the numbers of active and idle connections and of threads
+	 *         waiting for a connection
+	 * @throws SQLException
+	 *             the pool could not be queried
+	 */
+	@GET
+	@Path("pool/")
+	@Produces(MediaType.APPLICATION_JSON)
+	public ConnectionPoolStatistics getConnectionPool() throws SQLException {
+		ConnectionPool.Usage usage = ConnectionPool.getUsage();
+		if (usage == null) {
+			throw new NotFoundException(
+					"The database connections don't come from a pool of RODL");
+		}
+		return new ConnectionPoolStatistics(usage.getBusy(), usage.getIdle(),
+				usage.getWaiting());
+	}
+
 	/**
 	 * Schedule all monitoring jobs now.
 	 * 
@@ -178,4 +495,21 @@ public class AdminResource {
 		}
 		return "Operation succeed";
 	}
+
+	/**
+	 * Add the research objects missing in the registry of research objects
+	 * and remove the entries of research objects that don't exist, for
+	 * example when the registry is used for the first time.
+	 * 
+	 * @return the numbers of entries added and removed
+	 */
+	@POST
+	@Path("registry/synchronize")
+	public String synchronizeRegistry() {
+		RegistrySynchronization synchronization = new RegistrySynchronization(
+				builder);
+		synchronization.run();
+		return "Added " + synchronization.getAdded() + " and removed "
+				+ synchronization.getRemoved() + " research objects";
+	}
 }
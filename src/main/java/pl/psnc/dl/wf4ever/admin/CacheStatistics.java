@@ -0,0 +1,95 @@
+package pl.psnc.dl.wf4ever.admin;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Usage statistics of an in-memory cache, returned by the admin API.
+ * 
+ * @author piotrekhol
+ * 
+ */
+@XmlRootElement(name = "cache")
+public class CacheStatistics {
+
+    /** Cache name. */
+    private String name;
+
+    /** Number of entries. */
+    private long size;
+
+    /** Number of lookups that found an entry. */
+    private long hits;
+
+    /** Number of lookups that didn't find an entry. */
+    private long misses;
+
+
+    /** Constructor. */
+    public CacheStatistics() {
+    }
+
+
+    /**
+     * Constructor.
+     * 
+     * @param name
+     *            cache name
+     * @param size
+     *            number of entries
+     * @param hits
+     *            number of lookups that found an entry
+     * @param misses
+     *            number of lookups that didn't find an entry
+     */
+    public CacheStatistics(String name, long size, long hits, long misses) {
+        this.name = name;
+        this.size = size;
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+
+    @XmlElement(name = "name")
+    public String getName() {
+        return name;
+    }
+
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+
+    @XmlElement(name = "size")
+    public long getSize() {
+        return size;
+    }
+
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+
+    @XmlElement(name = "hits")
+    public long getHits() {
+        return hits;
+    }
+
+
+    public void setHits(long hits) {
+        this.hits = hits;
+    }
+
+
+    @XmlElement(name = "misses")
+    public long getMisses() {
+        return misses;
+    }
+
+
+    public void setMisses(long misses) {
+        this.misses = misses;
+    }
+}
@@ -0,0 +1,78 @@
+package pl.psnc.dl.wf4ever.admin;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Usage of the pool of database connections, returned by the admin API.
+ * 
+ * @author piotrekhol
+ * 
+ */
+@XmlRootElement(name = "pool")
+public class ConnectionPoolStatistics {
+
+    /** Number of connections in use. */
+    private int active;
+
+    /** Number of connections waiting in the pool. */
+    private int idle;
+
+    /** Number of threads waiting for a connection. */
+    private int waiting;
+
+
+    /** Constructor. */
+    public ConnectionPoolStatistics() {
+    }
+
+
+    /**
+     * Constructor.
+     * 
+     * @param active
+     *            number of connections in use
+     * @param idle
+     *            number of connections waiting in the pool
+     * @param waiting
+     *            number of threads waiting for a connection
+     */
+    public ConnectionPoolStatistics(int active, int idle, int waiting) {
+        this.active = active;
+        this.idle = idle;
+        this.waiting = waiting;
+    }
+
+
+    @XmlElement(name = "active")
+    public int getActive() {
+        return active;
+    }
+
+
+    public void setActive(int active) {
+        this.active = active;
+    }
+
+
+    @XmlElement(name = "idle")
+    public int getIdle() {
+        return idle;
+    }
+
+
+    public void setIdle(int idle) {
+        this.idle = idle;
+    }
+
+
+    @XmlElement(name = "waiting")
+    public int getWaiting() {
+        return waiting;
+    }
+
+
+    public void setWaiting(int waiting) {
+        this.waiting = waiting;
+    }
+}
@@ -0,0 +1,87 @@
+package pl.psnc.dl.wf4ever.admin;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import pl.psnc.dl.wf4ever.job.JobStatus;
+
+/**
+ * The status of the job adding the default namespace prefixes to all named graphs.
+ * 
+ * @author piotrekhol
+ * 
+ */
+@XmlRootElement
+public class PrefixMigrationJobStatus extends JobStatus {
+
+    /** Number of named graphs in the triple store. */
+    private int totalGraphs;
+
+    /** Number of named graphs that had the prefixes before the job started. */
+    private int skippedGraphs;
+
+    /** Number of named graphs updated so far. */
+    private int migratedGraphs;
+
+    /** The named graph updated most recently. */
+    private String lastGraph;
+
+
+    /** Constructor. */
+    public PrefixMigrationJobStatus() {
+        super();
+    }
+
+
+    @XmlElement(name = "total_graphs")
+    public synchronized int getTotalGraphs() {
+        return totalGraphs;
+    }
+
+
+    public synchronized void setTotalGraphs(int totalGraphs) {
+        this.totalGraphs = totalGraphs;
+    }
+
+
+    @XmlElement(name = "skipped_graphs")
+    public synchronized int getSkippedGraphs() {
+        return skippedGraphs;
+    }
+
+
+    public synchronized void setSkippedGraphs(int skippedGraphs) {
+        this.skippedGraphs = skippedGraphs;
+    }
+
+
+    @XmlElement(name = "migrated_graphs")
+    public synchronized int getMigratedGraphs() {
+        return migratedGraphs;
+    }
+
+
+    public synchronized void setMigratedGraphs(int migratedGraphs) {
+        this.migratedGraphs = migratedGraphs;
+    }
+
+
+    @XmlElement(name = "last_graph")
+    public synchronized String getLastGraph() {
+        return lastGraph;
+    }
+
+
+    /**
+     * Record that a batch of named graphs has been updated.
+     * 
+     * @param count
+     *            number of graphs in the batch
+     * @param graph
+     *            the last graph in the batch
+     */
+    public synchronized void addMigratedGraphs(int count, String graph) {
+        this.migratedGraphs += count;
+        this.lastGraph = graph;
+    }
+}
@@ -0,0 +1,128 @@
+package pl.psnc.dl.wf4ever.admin;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import pl.psnc.dl.wf4ever.job.JobStatus;
+import pl.psnc.dl.wf4ever.job.Operation;
+import pl.psnc.dl.wf4ever.job.OperationFailedException;
+import pl.psnc.dl.wf4ever.model.Builder;
+import pl.psnc.dl.wf4ever.model.DefaultPrefixMapping;
+
+import com.hp.hpl.jena.query.Dataset;
+import com.hp.hpl.jena.query.ReadWrite;
+import com.hp.hpl.jena.rdf.model.Model;
+
+/**
+ * Add the default namespace prefixes to all named graphs that miss them, so that reading a graph never needs a write
+ * transaction. Graphs are updated in small write transactions. Graphs that already have the prefixes are skipped, so
+ * running the operation again resumes an interrupted migration.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public class PrefixMigrationOperation implements Operation {
+
+    /** logger. */
+    private static final Logger LOGGER = Logger.getLogger(PrefixMigrationOperation.class);
+
+    /** Number of graphs updated in one write transaction. */
+    public static final int BATCH_SIZE = 100;
+
+    /** resource builder. */
+    private Builder builder;
+
+
+    /**
+     * Constructor.
+     * 
+     * @param builder
+     *            model instance builder
+     */
+    public PrefixMigrationOperation(Builder builder) {
+        this.builder = builder;
+    }
+
+
+    @Override
+    public void execute(JobStatus status)
+            throws OperationFailedException {
+        if (!(status instanceof PrefixMigrationJobStatus)) {
+            throw new OperationFailedException("Given JobStatus is not a instance of PrefixMigrationJobStatus");
+        }
+        PrefixMigrationJobStatus migrationStatus = (PrefixMigrationJobStatus) status;
+        List<String> graphs = findGraphsToMigrate(migrationStatus);
+        LOGGER.info("Adding default prefixes to " + graphs.size() + " named graphs");
+        Iterator<String> it = graphs.iterator();
+        while (it.hasNext()) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new OperationFailedException("Interrupted after " + migrationStatus.getMigratedGraphs()
+                        + " graphs, run again to resume");
+            }
+            List<String> batch = new ArrayList<>(BATCH_SIZE);
+            while (it.hasNext() && batch.size() < BATCH_SIZE) {
+                batch.add(it.next());
+            }
+            migrateBatch(batch);
+            migrationStatus.addMigratedGraphs(batch.size(), batch.get(batch.size() - 1));
+        }
+        LOGGER.info("Default prefixes added to " + migrationStatus.getMigratedGraphs() + " named graphs");
+    }
+
+
+    /**
+     * List the named graphs that miss the default prefixes.
+     * 
+     * @param status
+     *            job status to update with the number of graphs found
+     * @return graph names
+     */
+    private List<String> findGraphsToMigrate(PrefixMigrationJobStatus status) {
+        Dataset dataset = builder.getDataset();
+        boolean transactionStarted = builder.beginTransaction(ReadWrite.READ);
+        try {
+            List<String> graphs = new ArrayList<>();
+            int total = 0;
+            Iterator<String> names = dataset.listNames();
+            while (names.hasNext()) {
+                String name = names.next();
+                total++;
+                if (!DefaultPrefixMapping.isSet(dataset.getNamedModel(name))) {
+                    graphs.add(name);
+                }
+            }
+            status.setTotalGraphs(total);
+            status.setSkippedGraphs(total - graphs.size());
+            return graphs;
+        } finally {
+            builder.endTransaction(transactionStarted);
+        }
+    }
+
+
+    /**
+     * Add the default prefixes to a batch of named graphs in one write transaction.
+     * 
+     * @param batch
+     *            graph names
+     */
+    private void migrateBatch(List<String> batch) {
+        Dataset dataset = builder.getDataset();
+        boolean transactionStarted = builder.beginTransaction(ReadWrite.WRITE);
+        try {
+            for (String name : batch) {
+                Model model = dataset.getNamedModel(name);
+                if (!DefaultPrefixMapping.isSet(model)) {
+                    model.setNsPrefixes(DefaultPrefixMapping.get());
+                    builder.getTransactionContext().markModified(name);
+                }
+            }
+            builder.commitTransaction(transactionStarted);
+        } finally {
+            builder.endTransaction(transactionStarted);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package pl.psnc.dl.wf4ever.admin;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.hibernate.Transaction;
+
+import pl.psnc.dl.wf4ever.ApplicationProperties;
+import pl.psnc.dl.wf4ever.db.ResearchObjectEntry;
+import pl.psnc.dl.wf4ever.db.dao.ResearchObjectEntryDAO;
+import pl.psnc.dl.wf4ever.db.hibernate.HibernateUtil;
+import pl.psnc.dl.wf4ever.dl.UserMetadata;
+import pl.psnc.dl.wf4ever.dl.UserMetadata.Role;
+import pl.psnc.dl.wf4ever.evo.EvoType;
+import pl.psnc.dl.wf4ever.model.Builder;
+import pl.psnc.dl.wf4ever.model.RO.ResearchObject;
+import pl.psnc.dl.wf4ever.model.ROEVO.EvoInfo;
+import pl.psnc.dl.wf4ever.vocabulary.ROEVO;
+
+import com.hp.hpl.jena.vocabulary.RDF;
+
+/**
+ * Add the research objects missing in the registry of research objects and remove the entries of research objects that
+ * don't exist, reading the research objects from the triple store.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public class RegistrySynchronization {
+
+    /** logger. */
+    private static final Logger LOGGER = Logger.getLogger(RegistrySynchronization.class);
+
+    /** resource builder. */
+    private final Builder builder;
+
+    /** number of entries added. */
+    private int added;
+
+    /** number of entries removed. */
+    private int removed;
+
+
+    /**
+     * Constructor.
+     * 
+     * @param builder
+     *            model instance builder
+     */
+    public RegistrySynchronization(Builder builder) {
+        this.builder = builder;
+    }
+
+
+    /**
+     * Fill the registry if it is empty, for example when the registry is used for the first time after an upgrade, so
+     * that the research objects created before are listed. Called at startup.
+     */
+    public static void synchronizeIfEmpty() {
+        Transaction transaction = HibernateUtil.getSessionFactory().getCurrentSession().getTransaction();
+        transaction.begin();
+        try {
+            if (new ResearchObjectEntryDAO().isEmpty()) {
+                UserMetadata userMetadata = new UserMetadata("rodl", "RODL registry", Role.ADMIN,
+                        URI.create(ApplicationProperties.getContextPath()));
+                RegistrySynchronization synchronization = new RegistrySynchronization(new Builder(userMetadata));
+                synchronization.run();
+                LOGGER.info("Added " + synchronization.getAdded() + " research objects to the empty registry");
+            }
+            transaction.commit();
+        } finally {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+        }
+    }
+
+
+    /**
+     * Synchronize the registry with the triple store in the current transaction.
+     */
+    public void run() {
+        ResearchObjectEntryDAO dao = new ResearchObjectEntryDAO();
+        Set<URI> stored = new HashSet<>();
+        for (ResearchObject ro : ResearchObject.getAll(builder, null)) {
+            stored.add(ro.getUri());
+            if (dao.findByUri(ro.getUri()) == null) {
+                URI creator = ro.getCreator() != null ? ro.getCreator().getUri() : null;
+                dao.save(new ResearchObjectEntry(ro.getUri(), creator, ro.getCreated(), getEvoType(ro)));
+                added++;
+            }
+        }
+        for (ResearchObjectEntry entry : dao.all()) {
+            if (!stored.contains(entry.getUri())) {
+                dao.delete(entry);
+                removed++;
+            }
+        }
+    }
+
+
+    /**
+     * Find the evolution type of a research object in its evolution information.
+     * 
+     * @param researchObject
+     *            the research object
+     * @return the evolution type, live if it is not a snapshot or an archive
+     */
+    private static EvoType getEvoType(ResearchObject researchObject) {
+        EvoInfo evoInfo = researchObject.getEvoInfo();
+        if (evoInfo == null) {
+            return EvoType.LIVE;
+        }
+        Collection<Object> types = evoInfo.getDescriptionFor(researchObject.getUri()).get(
+            URI.create(RDF.type.getURI()));
+        if (types.contains(ROEVO.SnapshotRO)) {
+            return EvoType.SNAPSHOT;
+        } else if (types.contains(ROEVO.ArchivedRO)) {
+            return EvoType.ARCHIVE;
+        }
+        return EvoType.LIVE;
+    }
+
+
+    public int getAdded() {
+        return added;
+    }
+
+
+    public int getRemoved() {
+        return removed;
+    }
+}
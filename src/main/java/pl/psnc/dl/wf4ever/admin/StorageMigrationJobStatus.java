@@ -0,0 +1,83 @@
+package pl.psnc.dl.wf4ever.admin;
+
+import java.net.URI;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import pl.psnc.dl.wf4ever.job.JobStatus;
+
+/**
+ * The status of the job moving research objects from the flat to the sharded storage layout.
+ * 
+ * @author piotrekhol
+ * 
+ */
+@XmlRootElement
+public class StorageMigrationJobStatus extends JobStatus {
+
+    /** Number of research objects found. */
+    private int totalResearchObjects;
+
+    /** Number of research objects that were already in the sharded layout. */
+    private int skippedResearchObjects;
+
+    /** Number of research objects moved so far. */
+    private int migratedResearchObjects;
+
+    /** The research object moved most recently. */
+    private URI lastResearchObject;
+
+
+    /** Constructor. */
+    public StorageMigrationJobStatus() {
+        super();
+    }
+
+
+    @XmlElement(name = "total_research_objects")
+    public synchronized int getTotalResearchObjects() {
+        return totalResearchObjects;
+    }
+
+
+    public synchronized void setTotalResearchObjects(int totalResearchObjects) {
+        this.totalResearchObjects = totalResearchObjects;
+    }
+
+
+    @XmlElement(name = "skipped_research_objects")
+    public synchronized int getSkippedResearchObjects() {
+        return skippedResearchObjects;
+    }
+
+
+    @XmlElement(name = "migrated_research_objects")
+    public synchronized int getMigratedResearchObjects() {
+        return migratedResearchObjects;
+    }
+
+
+    @XmlElement(name = "last_research_object")
+    public synchronized URI getLastResearchObject() {
+        return lastResearchObject;
+    }
+
+
+    /**
+     * Record that a research object has been processed.
+     * 
+     * @param researchObject
+     *            research object URI
+     * @param migrated
+     *            true if it has been moved, false if it was already in the sharded layout
+     */
+    public synchronized void addResearchObject(URI researchObject, boolean migrated) {
+        if (migrated) {
+            this.migratedResearchObjects++;
+            this.lastResearchObject = researchObject;
+        } else {
+            this.skippedResearchObjects++;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package pl.psnc.dl.wf4ever.admin;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.hibernate.Transaction;
+
+import pl.psnc.dl.wf4ever.db.hibernate.HibernateUtil;
+import pl.psnc.dl.wf4ever.dl.DigitalLibraryException;
+import pl.psnc.dl.wf4ever.job.JobStatus;
+import pl.psnc.dl.wf4ever.job.Operation;
+import pl.psnc.dl.wf4ever.job.OperationFailedException;
+import pl.psnc.dl.wf4ever.model.Builder;
+import pl.psnc.dl.wf4ever.model.RO.ResearchObject;
+import pl.psnc.dl.wf4ever.storage.FilesystemDL;
+
+/**
+ * Move all research objects from the flat to the sharded storage layout, each in a separate database transaction. The
+ * storage finds the research objects in both layouts, so they can be used while the migration is running, except that
+ * a research object can't be written while it is moved. Research objects that have already been moved are skipped,
+ * so running the operation again resumes an interrupted migration.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public class StorageMigrationOperation implements Operation {
+
+    /** logger. */
+    private static final Logger LOGGER = Logger.getLogger(StorageMigrationOperation.class);
+
+    /** resource builder. */
+    private Builder builder;
+
+
+    /**
+     * Constructor.
+     * 
+     * @param builder
+     *            model instance builder
+     */
+    public StorageMigrationOperation(Builder builder) {
+        this.builder = builder;
+    }
+
+
+    @Override
+    public void execute(JobStatus status)
+            throws OperationFailedException {
+        if (!(status instanceof StorageMigrationJobStatus)) {
+            throw new OperationFailedException("Given JobStatus is not a instance of StorageMigrationJobStatus");
+        }
+        if (!(builder.getDigitalLibrary() instanceof FilesystemDL)
+                || ((FilesystemDL) builder.getDigitalLibrary()).getShardLevels() == 0) {
+            throw new OperationFailedException("The storage doesn't use the sharded layout, set filesystemShardLevels");
+        }
+        StorageMigrationJobStatus migrationStatus = (StorageMigrationJobStatus) status;
+        FilesystemDL dl = (FilesystemDL) builder.getDigitalLibrary();
+        List<URI> researchObjects = new ArrayList<>();
+        for (ResearchObject researchObject : ResearchObject.getAll(builder, null)) {
+            researchObjects.add(researchObject.getUri());
+        }
+        migrationStatus.setTotalResearchObjects(researchObjects.size());
+        LOGGER.info("Moving " + researchObjects.size() + " research objects to the sharded layout");
+        for (URI researchObject : researchObjects) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new OperationFailedException("Interrupted after "
+                        + migrationStatus.getMigratedResearchObjects() + " research objects, run again to resume");
+            }
+            migrationStatus.addResearchObject(researchObject, migrate(dl, researchObject));
+        }
+        LOGGER.info("Moved " + migrationStatus.getMigratedResearchObjects()
+                + " research objects to the sharded layout");
+    }
+
+
+    /**
+     * Move one research object in a separate transaction.
+     * 
+     * @param dl
+     *            the storage
+     * @param researchObject
+     *            research object URI
+     * @return true if the research object has been moved
+     * @throws OperationFailedException
+     *             the research object could not be moved
+     */
+    private boolean migrate(FilesystemDL dl, URI researchObject)
+            throws OperationFailedException {
+        Transaction transaction = HibernateUtil.getSessionFactory().getCurrentSession().getTransaction();
+        transaction.begin();
+        try {
+            boolean migrated = dl.migrateResearchObject(researchObject);
+            transaction.commit();
+            return migrated;
+        } catch (DigitalLibraryException e) {
+            throw new OperationFailedException("Failed to move " + researchObject + ", run again to resume", e);
+        } finally {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+        }
+    }
+}
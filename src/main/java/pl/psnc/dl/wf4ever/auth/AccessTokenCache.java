@@ -0,0 +1,302 @@
+package pl.psnc.dl.wf4ever.auth;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.hibernate.HibernateException;
+import org.hibernate.Query;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+
+import pl.psnc.dl.wf4ever.ApplicationProperties;
+import pl.psnc.dl.wf4ever.db.AccessToken;
+import pl.psnc.dl.wf4ever.db.UserProfile;
+import pl.psnc.dl.wf4ever.db.dao.AccessTokenDAO;
+import pl.psnc.dl.wf4ever.db.hibernate.HibernateUtil;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Owners of access tokens, kept between requests so that authenticating a request doesn't need the database. A token
+ * is kept for a limited time and removed when it is deleted or its owner is changed. The last usage dates of the
+ * tokens are not saved by the requests, they are collected in memory and saved periodically in one transaction.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public final class AccessTokenCache {
+
+    /** Logger. */
+    private static final Logger LOGGER = Logger.getLogger(AccessTokenCache.class);
+
+    /** The only instance. */
+    private static AccessTokenCache instance;
+
+    /** Copies of the token owners, by token. */
+    private final Cache<String, UserProfile> users;
+
+    /** Last usage dates not saved yet, by token. */
+    private final ConcurrentMap<String, Date> lastUsed = new ConcurrentHashMap<>();
+
+    /** Thread saving the last usage dates, null if they are saved only when the cache is closed. */
+    private final ScheduledExecutorService flusher;
+
+    /** Number of tokens found in the cache. */
+    private final AtomicLong hits = new AtomicLong();
+
+    /** Number of tokens looked up in the database. */
+    private final AtomicLong misses = new AtomicLong();
+
+
+    /**
+     * Constructor.
+     * 
+     * @param maximumSize
+     *            maximum number of tokens
+     * @param timeToLive
+     *            how many seconds a token is kept
+     * @param flushInterval
+     *            how often, in seconds, the last usage dates are saved, 0 to save them only when the cache is closed
+     */
+    AccessTokenCache(int maximumSize, long timeToLive, long flushInterval) {
+        users = CacheBuilder.newBuilder().maximumSize(Math.max(maximumSize, 0))
+                .expireAfterWrite(timeToLive, TimeUnit.SECONDS).build();
+        if (flushInterval > 0) {
+            flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "access token usage");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            flusher.scheduleWithFixedDelay(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        flush();
+                    } catch (RuntimeException e) {
+                        LOGGER.error("Could not save the last usage dates of access tokens", e);
+                    }
+                }
+            }, flushInterval, flushInterval, TimeUnit.SECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+
+    /**
+     * Get the only instance, with the limits set in the application properties.
+     * 
+     * @return the access token cache
+     */
+    public static synchronized AccessTokenCache getInstance() {
+        if (instance == null) {
+            instance = new AccessTokenCache(ApplicationProperties.getAccessTokenCacheSize(),
+                    ApplicationProperties.getAccessTokenCacheTimeToLive(),
+                    ApplicationProperties.getAccessTokenFlushInterval());
+        }
+        return instance;
+    }
+
+
+    /**
+     * Stop saving the last usage dates periodically and save the remaining ones, if the cache has been used.
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            if (instance.flusher != null) {
+                instance.flusher.shutdownNow();
+            }
+            try {
+                instance.flush();
+            } catch (RuntimeException e) {
+                LOGGER.error("Could not save the last usage dates of access tokens", e);
+            }
+            instance = null;
+        }
+    }
+
+
+    /**
+     * Find the owner of an access token and note that the token has been used.
+     * 
+     * @param token
+     *            access token value
+     * @return a copy of the token owner, not attached to any session, or null if the token doesn't exist
+     */
+    public UserProfile getUser(String token) {
+        UserProfile user = users.getIfPresent(token);
+        if (user != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            AccessToken accessToken = new AccessTokenDAO().findByValue(token);
+            if (accessToken == null) {
+                return null;
+            }
+            user = copy(accessToken.getUser());
+            users.put(token, user);
+        }
+        lastUsed.put(token, new Date());
+        return user;
+    }
+
+
+    /**
+     * Copy a user profile, so that the copy can be shared by requests.
+     * 
+     * @param user
+     *            user profile
+     * @return a new user profile with the same properties
+     */
+    private static UserProfile copy(UserProfile user) {
+        UserProfile copy = new UserProfile(user.getLogin(), user.getName(), user.getRole());
+        copy.setUri(user.getUri());
+        copy.setHomePage(user.getHomePage());
+        return copy;
+    }
+
+
+    /**
+     * Forget an access token, because it has been deleted. The token is forgotten again when the current transaction
+     * completes, in case a concurrent request has found it in the meantime.
+     * 
+     * @param token
+     *            access token value
+     */
+    public void invalidate(final String token) {
+        users.invalidate(token);
+        HibernateUtil.afterCompletion(new Runnable() {
+
+            @Override
+            public void run() {
+                users.invalidate(token);
+            }
+        });
+    }
+
+
+    /**
+     * Forget all access tokens of a user, because the user has been updated or deleted. The tokens are forgotten again
+     * when the current transaction completes.
+     * 
+     * @param login
+     *            user login
+     */
+    public void invalidateUser(final String login) {
+        removeUser(login);
+        HibernateUtil.afterCompletion(new Runnable() {
+
+            @Override
+            public void run() {
+                removeUser(login);
+            }
+        });
+    }
+
+
+    /**
+     * Forget all access tokens, for example because a client has been deleted with its tokens. The tokens are
+     * forgotten again when the current transaction completes.
+     */
+    public void invalidateAll() {
+        users.invalidateAll();
+        HibernateUtil.afterCompletion(new Runnable() {
+
+            @Override
+            public void run() {
+                users.invalidateAll();
+            }
+        });
+    }
+
+
+    /**
+     * Remove the tokens of a user.
+     * 
+     * @param login
+     *            user login
+     */
+    private void removeUser(String login) {
+        Iterator<UserProfile> it = users.asMap().values().iterator();
+        while (it.hasNext()) {
+            if (it.next().getLogin().equals(login)) {
+                it.remove();
+            }
+        }
+    }
+
+
+    /**
+     * Save the last usage dates collected so far, in a separate transaction. This method must not be called in a
+     * thread that has a transaction open.
+     * 
+     * @return the number of tokens updated
+     */
+    public synchronized int flush() {
+        if (lastUsed.isEmpty()) {
+            return 0;
+        }
+        Map<String, Date> dates = new HashMap<>(lastUsed);
+        Session session = HibernateUtil.getSessionFactory().getCurrentSession();
+        Transaction transaction = session.getTransaction();
+        transaction.begin();
+        int updated = 0;
+        try {
+            Query query = session.createQuery("update AccessToken set lastUsed = :lastUsed where token = :token");
+            for (Map.Entry<String, Date> entry : dates.entrySet()) {
+                updated += query.setTimestamp("lastUsed", entry.getValue()).setString("token", entry.getKey())
+                        .executeUpdate();
+            }
+            transaction.commit();
+        } catch (HibernateException e) {
+            LOGGER.warn("Could not save the last usage dates of " + dates.size() + " access tokens", e);
+            return 0;
+        } finally {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+        }
+        for (Map.Entry<String, Date> entry : dates.entrySet()) {
+            // a token used again in the meantime is saved next time
+            lastUsed.remove(entry.getKey(), entry.getValue());
+        }
+        LOGGER.debug("Saved the last usage dates of " + updated + " access tokens");
+        return updated;
+    }
+
+
+    public long getHits() {
+        return hits.get();
+    }
+
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+
+    /**
+     * Get the number of access tokens in the cache.
+     * 
+     * @return the number of tokens
+     */
+    public long getSize() {
+        return users.size();
+    }
+}
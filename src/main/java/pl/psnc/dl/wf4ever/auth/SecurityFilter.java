@@ -1,7 +1,5 @@
 package pl.psnc.dl.wf4ever.auth;
 
-import java.util.Date;
-
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.UriInfo;
@@ -10,9 +8,7 @@ import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.log4j.Logger;
 
 import pl.psnc.dl.wf4ever.ApplicationProperties;
-import pl.psnc.dl.wf4ever.db.AccessToken;
 import pl.psnc.dl.wf4ever.db.UserProfile;
-import pl.psnc.dl.wf4ever.db.dao.AccessTokenDAO;
 import pl.psnc.dl.wf4ever.dl.DigitalLibraryException;
 import pl.psnc.dl.wf4ever.dl.NotFoundException;
 import pl.psnc.dl.wf4ever.dl.UserMetadata;
@@ -98,7 +94,8 @@ public class SecurityFilter implements ContainerRequestFilter {
 
 
     /**
-     * Find user credentials for a OAuth Bearer token.
+     * Find user credentials for a OAuth Bearer token. The token is usually found in the cache and its last usage date
+     * is saved later, so that authenticating a request doesn't write to the database.
      * 
      * @param tokenValue
      *            access token
@@ -108,12 +105,9 @@ public class SecurityFilter implements ContainerRequestFilter {
         if (DigestUtils.md5Hex(tokenValue).equalsIgnoreCase(ApplicationProperties.getAdminTokenHash())) {
             return UserProfile.ADMIN;
         }
-        AccessTokenDAO accessTokenDAO = new AccessTokenDAO();
-        AccessToken accessToken = accessTokenDAO.findByValue(tokenValue);
-        if (accessToken != null) {
-            accessToken.setLastUsed(new Date());
-            accessTokenDAO.save(accessToken);
-            return accessToken.getUser();
+        UserProfile user = AccessTokenCache.getInstance().getUser(tokenValue);
+        if (user != null) {
+            return user;
         } else {
             throw new MappableContainerException(new AuthenticationException("Incorrect access token\r\n", REALM));
         }
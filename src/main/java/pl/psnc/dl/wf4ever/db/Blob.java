@@ -0,0 +1,75 @@
+package pl.psnc.dl.wf4ever.db;
+
+import java.io.Serializable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * File content kept once in a content-addressable store, no matter how many research objects aggregate it.
+ * 
+ * @author piotrekhol
+ * 
+ */
+@Entity
+@Table(name = "blobs")
+public class Blob implements Serializable {
+
+    /** Serialization. */
+    private static final long serialVersionUID = 1L;
+
+    /** SHA-256 checksum of the content, hex encoded. */
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    /** Size in bytes. */
+    private long sizeInBytes;
+
+    /** Number of files with this content. */
+    private long refs;
+
+
+    /**
+     * Constructor.
+     */
+    public Blob() {
+        //nope
+    }
+
+
+    /**
+     * Constructor.
+     * 
+     * @param hash
+     *            SHA-256 checksum of the content, hex encoded
+     * @param sizeInBytes
+     *            size in bytes
+     */
+    public Blob(String hash, long sizeInBytes) {
+        this.hash = hash;
+        this.sizeInBytes = sizeInBytes;
+    }
+
+
+    public String getHash() {
+        return hash;
+    }
+
+
+    public long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+
+    public long getRefs() {
+        return refs;
+    }
+
+
+    public void setRefs(long refs) {
+        this.refs = refs;
+    }
+}
@@ -0,0 +1,101 @@
+package pl.psnc.dl.wf4ever.db;
+
+import java.io.Serializable;
+import java.net.URI;
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+import org.hibernate.annotations.Index;
+import org.joda.time.DateTime;
+
+import pl.psnc.dl.wf4ever.evo.EvoType;
+
+/**
+ * A research object in the registry of research objects, which lists them without querying the triple store. The
+ * entries are created and deleted together with the research objects.
+ * 
+ * @author piotrekhol
+ * 
+ */
+@Entity
+@Table(name = "research_objects")
+public class ResearchObjectEntry implements Serializable {
+
+    /** Serialization. */
+    private static final long serialVersionUID = 1L;
+
+    /** Research object URI. */
+    @Id
+    private String uri;
+
+    /** URI of the research object creator, may be null. */
+    @Index(name = "research_objects_creator")
+    private String creator;
+
+    /** Creation date, or the registration date if the creation date is unknown. */
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(nullable = false)
+    @Index(name = "research_objects_created")
+    private Date created;
+
+    /** Evolution type. */
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private EvoType evoType;
+
+
+    /**
+     * Constructor.
+     */
+    public ResearchObjectEntry() {
+        //nope
+    }
+
+
+    /**
+     * Constructor.
+     * 
+     * @param uri
+     *            research object URI
+     * @param creator
+     *            URI of the research object creator or null
+     * @param created
+     *            creation date or null if unknown
+     * @param evoType
+     *            evolution type
+     */
+    public ResearchObjectEntry(URI uri, URI creator, DateTime created, EvoType evoType) {
+        this.uri = uri.toString();
+        this.creator = creator != null ? creator.toString() : null;
+        this.created = created != null ? created.toDate() : new Date();
+        this.evoType = evoType;
+    }
+
+
+    public URI getUri() {
+        return URI.create(uri);
+    }
+
+
+    public URI getCreator() {
+        return creator != null ? URI.create(creator) : null;
+    }
+
+
+    public DateTime getCreated() {
+        return new DateTime(created);
+    }
+
+
+    public EvoType getEvoType() {
+        return evoType;
+    }
+}
@@ -1,14 +1,22 @@
 package pl.psnc.dl.wf4ever.db;
 
 import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
 
 import javax.persistence.Basic;
+import javax.persistence.CollectionTable;
 import javax.persistence.Column;
+import javax.persistence.ElementCollection;
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.MapKeyColumn;
 import javax.persistence.Table;
 import javax.persistence.Transient;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.joda.time.DateTime;
 
 import pl.psnc.dl.wf4ever.dl.ResourceMetadata;
@@ -21,11 +29,15 @@ import pl.psnc.dl.wf4ever.dl.ResourceMetadata;
  */
 @Entity
 @Table(name = "resource_infos")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "resourceInfos")
 public final class ResourceInfo extends ResourceMetadata implements Serializable {
 
     /** id. */
     private static final long serialVersionUID = 6130642871779327154L;
 
+    /** Checksums calculated with other digest methods than the main one, by digest method. */
+    private Map<String, String> digests = new HashMap<>();
+
 
     /**
      * Constructor.
@@ -118,4 +130,19 @@ public final class ResourceInfo extends ResourceMetadata implements Serializable
         return super.getPath();
     }
 
+
+    @ElementCollection
+    @CollectionTable(name = "resource_info_digests", joinColumns = @JoinColumn(name = "path"))
+    @MapKeyColumn(name = "digestMethod")
+    @Column(name = "checksum")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "resourceInfoDigests")
+    public Map<String, String> getDigests() {
+        return digests;
+    }
+
+
+    public void setDigests(Map<String, String> digests) {
+        this.digests = digests;
+    }
+
 }
@@ -21,6 +21,8 @@ import javax.persistence.Table;
 import javax.persistence.Transient;
 import javax.xml.bind.annotation.XmlTransient;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.openrdf.rio.RDFFormat;
 
 import pl.psnc.dl.wf4ever.dl.UserMetadata;
@@ -39,6 +41,7 @@ import com.hp.hpl.jena.rdf.model.ModelFactory;
  */
 @Entity
 @Table(name = "user_profiles")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "userProfiles")
 public final class UserProfile extends UserMetadata implements Serializable {
 
     /** id. */
@@ -0,0 +1,92 @@
+package pl.psnc.dl.wf4ever.db.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+
+import org.hibernate.LockOptions;
+import org.hibernate.Session;
+import org.hibernate.jdbc.ReturningWork;
+
+import pl.psnc.dl.wf4ever.db.Blob;
+import pl.psnc.dl.wf4ever.db.hibernate.HibernateUtil;
+
+/**
+ * Blob DAO.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public final class BlobDAO extends AbstractDAO<Blob> {
+
+    /** Serialization. */
+    private static final long serialVersionUID = 1L;
+
+
+    /**
+     * Find by the content checksum.
+     * 
+     * @param hash
+     *            SHA-256 checksum, hex encoded
+     * @return the blob or null
+     */
+    public Blob findByHash(String hash) {
+        return findByPrimaryKey(Blob.class, hash);
+    }
+
+
+    /**
+     * Find by the content checksum and lock the row until the end of the transaction. A missing row is not locked, use
+     * {@link #insert(String, long)} to create it.
+     * 
+     * @param hash
+     *            SHA-256 checksum, hex encoded
+     * @return the blob or null
+     */
+    public Blob findByHashForUpdate(String hash) {
+        return (Blob) HibernateUtil.getSessionFactory().getCurrentSession()
+                .get(Blob.class, hash, LockOptions.UPGRADE);
+    }
+
+
+    /**
+     * Insert a blob with one reference, rolling back to a savepoint if it already exists, so that the current
+     * transaction and session can still be used. If another transaction is inserting or deleting the same blob, this
+     * waits until that transaction ends.
+     * 
+     * @param hash
+     *            SHA-256 checksum, hex encoded
+     * @param sizeInBytes
+     *            size in bytes
+     * @return true if the blob has been inserted, false if it already exists
+     */
+    public boolean insert(final String hash, final long sizeInBytes) {
+        Session session = HibernateUtil.getSessionFactory().getCurrentSession();
+        // the pending changes, such as a deleted blob, must be visible to the statement
+        session.flush();
+        return session.doReturningWork(new ReturningWork<Boolean>() {
+
+            @Override
+            public Boolean execute(Connection connection)
+                    throws SQLException {
+                Savepoint savepoint = connection.setSavepoint();
+                try (PreparedStatement statement = connection
+                        .prepareStatement("insert into blobs (hash, sizeInBytes, refs) values (?, ?, 1)")) {
+                    statement.setString(1, hash);
+                    statement.setLong(2, sizeInBytes);
+                    statement.executeUpdate();
+                } catch (SQLException e) {
+                    connection.rollback(savepoint);
+                    // SQL state class 23 is an integrity constraint violation
+                    if (e.getSQLState() != null && e.getSQLState().startsWith("23")) {
+                        return false;
+                    }
+                    throw e;
+                }
+                connection.releaseSavepoint(savepoint);
+                return true;
+            }
+        });
+    }
+}
@@ -0,0 +1,144 @@
+package pl.psnc.dl.wf4ever.db.dao;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+
+import pl.psnc.dl.wf4ever.db.ResearchObjectEntry;
+import pl.psnc.dl.wf4ever.db.hibernate.HibernateUtil;
+import pl.psnc.dl.wf4ever.dl.UserMetadata;
+import pl.psnc.dl.wf4ever.evo.EvoType;
+
+/**
+ * Registry of research objects DAO.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public final class ResearchObjectEntryDAO extends AbstractDAO<ResearchObjectEntry> {
+
+    /** id. */
+    private static final long serialVersionUID = 6018472539371206233L;
+
+    /**
+     * Number of rows read from the database at once when the URIs are scrolled. MySQL Connector/J ignores it and reads
+     * the whole result unless useCursorFetch=true is set in the connection URL, so otherwise the memory used depends
+     * on the limit of the page.
+     */
+    private static final int FETCH_SIZE = 500;
+
+
+    /**
+     * Order of the listed research objects.
+     * 
+     * @author piotrekhol
+     * 
+     */
+    public enum Sort {
+        /** By URI. */
+        URI,
+        /** By creation date, and by URI if the dates are equal. */
+        CREATED
+    }
+
+
+    /**
+     * Find by URI.
+     * 
+     * @param uri
+     *            research object URI
+     * @return the registry entry or null
+     */
+    public ResearchObjectEntry findByUri(URI uri) {
+        return findByPrimaryKey(ResearchObjectEntry.class, uri.toString());
+    }
+
+
+    /**
+     * Get all entries.
+     * 
+     * @return all research objects in the registry
+     */
+    public List<ResearchObjectEntry> all() {
+        return findAll(ResearchObjectEntry.class);
+    }
+
+
+    /**
+     * Check if the registry has no entries.
+     * 
+     * @return true if no research object is in the registry
+     */
+    public boolean isEmpty() {
+        return HibernateUtil.getSessionFactory().getCurrentSession()
+                .createQuery("select r.uri from ResearchObjectEntry r").setMaxResults(1).list().isEmpty();
+    }
+
+
+    /**
+     * Scroll through the URIs of research objects, in pages that start after a given research object, so that a page
+     * is read from the index without skipping the previous pages.
+     * 
+     * @param user
+     *            if not null, only the research objects created by this user or for which this user has a permission
+     *            are listed
+     * @param evoType
+     *            if not null, only the research objects of this evolution type are listed
+     * @param sort
+     *            the order
+     * @param descending
+     *            true to reverse the order
+     * @param after
+     *            the last research object of the previous page, or null to start from the beginning
+     * @param limit
+     *            maximum number of research objects, 0 for no limit
+     * @return the URIs as strings, the results must be closed
+     */
+    public ScrollableResults scrollUris(UserMetadata user, EvoType evoType, Sort sort, boolean descending,
+            ResearchObjectEntry after, int limit) {
+        List<String> conditions = new ArrayList<>();
+        if (user != null) {
+            conditions.add("(r.creator = :creator or exists (select p.id from Permission p "
+                    + "where p.ro = r.uri and p.user.login = :login))");
+        }
+        if (evoType != null) {
+            conditions.add("r.evoType = :evoType");
+        }
+        String comparison = descending ? "<" : ">";
+        if (after != null) {
+            if (sort == Sort.CREATED) {
+                conditions.add("(r.created " + comparison + " :afterCreated or (r.created = :afterCreated and r.uri "
+                        + comparison + " :afterUri))");
+            } else {
+                conditions.add("r.uri " + comparison + " :afterUri");
+            }
+        }
+        String direction = descending ? " desc" : " asc";
+        String queryString = "select r.uri from ResearchObjectEntry r"
+                + (conditions.isEmpty() ? "" : " where " + StringUtils.join(conditions, " and ")) + " order by "
+                + (sort == Sort.CREATED ? "r.created" + direction + ", " : "") + "r.uri" + direction;
+        Query query = HibernateUtil.getSessionFactory().getCurrentSession().createQuery(queryString);
+        if (user != null) {
+            query.setString("creator", user.getUri() != null ? user.getUri().toString() : null);
+            query.setString("login", user.getLogin());
+        }
+        if (evoType != null) {
+            query.setParameter("evoType", evoType);
+        }
+        if (after != null) {
+            if (sort == Sort.CREATED) {
+                query.setTimestamp("afterCreated", after.getCreated().toDate());
+            }
+            query.setString("afterUri", after.getUri().toString());
+        }
+        if (limit > 0) {
+            query.setMaxResults(limit);
+        }
+        return query.setReadOnly(true).setFetchSize(FETCH_SIZE).scroll(ScrollMode.FORWARD_ONLY);
+    }
+}
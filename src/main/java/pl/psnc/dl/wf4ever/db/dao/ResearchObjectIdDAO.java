@@ -1,11 +1,20 @@
 package pl.psnc.dl.wf4ever.db.dao;
 
 import java.net.URI;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
+import org.hibernate.jdbc.ReturningWork;
 
 import pl.psnc.dl.wf4ever.db.ResearchObjectId;
+import pl.psnc.dl.wf4ever.db.hibernate.HibernateUtil;
 
 /**
  * Research Object Id DAO.
@@ -19,9 +28,11 @@ public class ResearchObjectIdDAO extends AbstractDAO<ResearchObjectId> {
     private static final long serialVersionUID = 1L;
 
     /** Logger. */
-    @SuppressWarnings("unused")
     private static final Logger LOGGER = Logger.getLogger(ResearchObjectIdDAO.class);
 
+    /** How many times an id is looked for when the ids found are taken by other transactions. */
+    private static final int MAX_ATTEMPTS = 10;
+
 
     /**
      * Find by URI.
@@ -36,7 +47,7 @@ public class ResearchObjectIdDAO extends AbstractDAO<ResearchObjectId> {
 
 
     /**
-     * <<<<<<< HEAD Get all URIs stored.
+     * Get all URIs stored.
      * 
      * @return list of stored uris
      */
@@ -64,36 +75,101 @@ public class ResearchObjectIdDAO extends AbstractDAO<ResearchObjectId> {
      * Save the given instance with the first available id. Note, the instance id may be changed. Check the id of the
      * returned instance.
      * 
+     * The id is inserted directly, so that if another transaction has taken it in the meantime the primary key is
+     * violated and the next free id is tried, instead of both transactions using the same id.
+     * 
      * @param instance
      *            given ResearchObjectID
      * @return the saved instance
      */
     public ResearchObjectId assignId(ResearchObjectId instance) {
-        ResearchObjectId firstFree = firstFree(instance);
-        save(firstFree);
-        return firstFree;
+        for (int attempt = 1;; attempt++) {
+            ResearchObjectId firstFree = firstFree(instance);
+            if (insert(firstFree.getId())) {
+                return firstFree;
+            }
+            if (attempt == MAX_ATTEMPTS) {
+                throw new IllegalStateException("Could not assign an id similar to " + instance.getId() + " in "
+                        + MAX_ATTEMPTS + " attempts");
+            }
+            LOGGER.debug("Research Object id " + firstFree.getId() + " has been taken in the meantime");
+        }
+    }
+
+
+    /**
+     * Insert an id, rolling back to a savepoint if it already exists, so that the current transaction and session can
+     * still be used.
+     * 
+     * @param id
+     *            the id
+     * @return true if the id has been inserted, false if it already exists
+     */
+    private boolean insert(final URI id) {
+        return HibernateUtil.getSessionFactory().getCurrentSession().doReturningWork(new ReturningWork<Boolean>() {
+
+            @Override
+            public Boolean execute(Connection connection)
+                    throws SQLException {
+                Savepoint savepoint = connection.setSavepoint();
+                try (PreparedStatement statement = connection
+                        .prepareStatement("insert into research_object_ids (id) values (?)")) {
+                    statement.setString(1, id.toString());
+                    statement.executeUpdate();
+                } catch (SQLException e) {
+                    connection.rollback(savepoint);
+                    // SQL state class 23 is an integrity constraint violation
+                    if (e.getSQLState() != null && e.getSQLState().startsWith("23")) {
+                        return false;
+                    }
+                    throw e;
+                }
+                connection.releaseSavepoint(savepoint);
+                return true;
+            }
+        });
     }
 
 
     /**
-     * Find first available id for given instance.
+     * Find first available id for given instance. All ids with the same prefix are read with one query and the first
+     * free counter is found in memory. The ids are compared ignoring case, like the database key does.
      * 
      * @param instance
      *            Research Object instance
      * @return saveable Research Object id.
      */
     public ResearchObjectId firstFree(ResearchObjectId instance) {
-        if (findByPrimaryKey(instance.getId()) == null) {
-            return new ResearchObjectId(instance.getId());
+        URI id = instance.getId();
+        String base = id.toString().endsWith("/") ? id.toString().substring(0, id.toString().length() - 1) : id
+                .toString();
+        String suffix = id.toString().endsWith("/") ? "/" : "";
+        String pattern = base.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "-%" + suffix;
+        @SuppressWarnings("unchecked")
+        List<String> taken = HibernateUtil.getSessionFactory().getCurrentSession()
+                .createQuery("select r.id from ResearchObjectId r where r.id = :id or r.id like :pattern escape '!'")
+                .setString("id", id.toString()).setString("pattern", pattern).list();
+        Set<Integer> counters = new HashSet<>();
+        boolean idTaken = false;
+        for (String takenId : taken) {
+            if (takenId.equalsIgnoreCase(id.toString())) {
+                idTaken = true;
+                continue;
+            }
+            String counter = takenId.substring(base.length() + 1, takenId.length() - suffix.length());
+            // the pattern also matches ids such as base-x-1
+            if (!counter.isEmpty() && counter.length() < 10 && StringUtils.isNumeric(counter)) {
+                counters.add(Integer.valueOf(counter));
+            }
+        }
+        if (!idTaken) {
+            return new ResearchObjectId(id);
         }
         int counter = 1;
-        URI searchUri = buildID(instance.getId(), counter);
-        while (findByPrimaryKey(searchUri) != null) {
+        while (counters.contains(counter)) {
             counter++;
-            searchUri = buildID(instance.getId(), counter);
         }
-        return new ResearchObjectId(searchUri);
-
+        return new ResearchObjectId(buildID(id, counter));
     }
 
 
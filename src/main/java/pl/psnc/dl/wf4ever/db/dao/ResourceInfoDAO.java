@@ -3,13 +3,19 @@
  */
 package pl.psnc.dl.wf4ever.db.dao;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 
+import org.hibernate.Session;
+import org.hibernate.engine.spi.EntityKey;
 import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.MatchMode;
 import org.hibernate.criterion.Restrictions;
 import org.joda.time.DateTime;
 
 import pl.psnc.dl.wf4ever.db.ResourceInfo;
+import pl.psnc.dl.wf4ever.db.hibernate.HibernateUtil;
 
 /**
  * RODL user model.
@@ -84,6 +90,126 @@ public final class ResourceInfoDAO extends AbstractDAO<ResourceInfo> {
     }
 
 
+    /**
+     * Find all resources that have a path starting with the specified prefix.
+     * 
+     * @param prefix
+     *            the prefix, i.e. a folder path with the trailing separator
+     * @return a list of resources that have a matching path
+     */
+    public List<ResourceInfo> findByPathPrefix(String prefix) {
+        Criterion criterion = Restrictions.like("path", prefix, MatchMode.START);
+        List<ResourceInfo> result = new ArrayList<>();
+        for (ResourceInfo res : findByCriteria(ResourceInfo.class, criterion)) {
+            // _ and % in the prefix are wildcards
+            if (res.getPath().startsWith(prefix)) {
+                result.add(res);
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * Delete a folder and all resources in it, including their checksums, with one statement for each table. The
+     * resources already loaded in the current session are evicted from it.
+     * 
+     * @param folder
+     *            the folder path, without the trailing separator
+     * @param separator
+     *            the path separator
+     * @return the number of resources deleted
+     */
+    public int deleteFolder(String folder, String separator) {
+        Session session = HibernateUtil.getSessionFactory().getCurrentSession();
+        // pending changes must be written before the rows are deleted
+        session.flush();
+        String pattern = getFolderPattern(folder, separator);
+        // only the cached checksums are evicted, not the whole second-level cache
+        session.createSQLQuery("delete from resource_info_digests where path = :path or path like :pattern escape '!'")
+                .addSynchronizedQuerySpace("resource_info_digests").setString("path", folder)
+                .setString("pattern", pattern).executeUpdate();
+        int deleted = session
+                .createQuery("delete from ResourceInfo where path = :path or path like :pattern escape '!'")
+                .setString("path", folder).setString("pattern", pattern).executeUpdate();
+        for (Object key : new ArrayList<>(session.getStatistics().getEntityKeys())) {
+            EntityKey entityKey = (EntityKey) key;
+            if (entityKey.getEntityName().equals(ResourceInfo.class.getName())) {
+                String path = (String) entityKey.getIdentifier();
+                if (path.equals(folder) || path.startsWith(folder + separator)) {
+                    session.evict(session.load(ResourceInfo.class, path));
+                }
+            }
+        }
+        return deleted;
+    }
+
+
+    /**
+     * Check if there are any resources in a folder.
+     * 
+     * @param folder
+     *            the folder path, without the trailing separator
+     * @param separator
+     *            the path separator
+     * @return true if the folder or any resource in it has been found
+     */
+    public boolean existsFolder(String folder, String separator) {
+        Session session = HibernateUtil.getSessionFactory().getCurrentSession();
+        return !session.createQuery("select path from ResourceInfo where path = :path or path like :pattern escape '!'")
+                .setString("path", folder).setString("pattern", getFolderPattern(folder, separator))
+                .setMaxResults(1).list().isEmpty();
+    }
+
+
+    /**
+     * Create a LIKE pattern matching all paths in a folder, with '!' as the escape character.
+     * 
+     * @param folder
+     *            the folder path, without the trailing separator
+     * @param separator
+     *            the path separator
+     * @return the pattern
+     */
+    private static String getFolderPattern(String folder, String separator) {
+        return folder.replace("!", "!!").replace("%", "!%").replace("_", "!_") + separator + "%";
+    }
+
+
+    /**
+     * Move a folder and all resources in it to a new path. The path is the primary key, so each resource is saved
+     * under the new path and deleted. A resource that already exists under the new path is kept.
+     * 
+     * @param folder
+     *            the folder path, without the trailing separator
+     * @param target
+     *            the new folder path, without the trailing separator
+     * @param separator
+     *            the path separator
+     * @return the number of resources moved
+     */
+    public int moveFolder(String folder, String target, String separator) {
+        List<ResourceInfo> resources = findByPathPrefix(folder + separator);
+        ResourceInfo folderInfo = findByPath(folder);
+        if (folderInfo != null) {
+            resources.add(folderInfo);
+        }
+        int moved = 0;
+        for (ResourceInfo res : resources) {
+            String path = target + res.getPath().substring(folder.length());
+            if (findByPath(path) == null) {
+                ResourceInfo copy = new ResourceInfo(path, res.getName(), res.getChecksum(), res.getSizeInBytes(),
+                        res.getDigestMethod(), res.getLastModified(), res.getMimeType());
+                copy.setDigests(new HashMap<>(res.getDigests()));
+                save(copy);
+                moved++;
+            }
+            delete(res);
+        }
+        return moved;
+    }
+
+
     /**
      * Get all resources stored.
      * 
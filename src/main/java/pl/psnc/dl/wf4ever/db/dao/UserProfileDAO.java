@@ -3,7 +3,15 @@
  */
 package pl.psnc.dl.wf4ever.db.dao;
 
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.hibernate.Session;
+import org.hibernate.criterion.Restrictions;
+
 import pl.psnc.dl.wf4ever.db.UserProfile;
+import pl.psnc.dl.wf4ever.db.hibernate.HibernateUtil;
 import pl.psnc.dl.wf4ever.dl.UserMetadata.Role;
 
 /**
@@ -17,6 +25,9 @@ public final class UserProfileDAO extends AbstractDAO<UserProfile> {
     /** id. */
     private static final long serialVersionUID = -4468344863067565271L;
 
+    /** Logger. */
+    private static final Logger LOGGER = Logger.getLogger(UserProfileDAO.class);
+
 
     /**
      * Find by user login.
@@ -30,6 +41,23 @@ public final class UserProfileDAO extends AbstractDAO<UserProfile> {
     }
 
 
+    /**
+     * Find many users in one query.
+     * 
+     * @param logins
+     *            user logins
+     * @return user profiles found, or null if there is no active transaction
+     */
+    public List<UserProfile> findByLogins(Collection<String> logins) {
+        Session session = HibernateUtil.getSessionFactory().getCurrentSession();
+        if (!session.getTransaction().isActive()) {
+            LOGGER.warn("Transaction is not active");
+            return null;
+        }
+        return findByCriteria(UserProfile.class, Restrictions.in("login", logins));
+    }
+
+
     /**
      * Load from database or create a new instance.
      * 
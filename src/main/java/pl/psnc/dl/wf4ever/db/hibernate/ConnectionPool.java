@@ -0,0 +1,206 @@
+package pl.psnc.dl.wf4ever.db.hibernate;
+
+import static pl.psnc.dl.wf4ever.util.PropertiesUtil.getInt;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLException;
+import java.util.Properties;
+
+import org.apache.log4j.Logger;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.cfg.Environment;
+
+import com.mchange.v2.c3p0.C3P0Registry;
+import com.mchange.v2.c3p0.PooledDataSource;
+
+/**
+ * The pool of JDBC connections used by Hibernate. If the database URL is set in the database properties, the
+ * connections are opened by a c3p0 pool configured with these properties, instead of the data source set in
+ * hibernate.cfg.xml.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public final class ConnectionPool {
+
+    /** Logger. */
+    private static final Logger LOGGER = Logger.getLogger(ConnectionPool.class);
+
+    /** Database properties file name. */
+    private static final String PROPERTIES_FILE = "database.properties";
+
+    /** Default minimum number of connections. */
+    public static final int DEFAULT_MIN_SIZE = 5;
+
+    /** Default maximum number of connections. */
+    public static final int DEFAULT_MAX_SIZE = 50;
+
+    /** Default number of cached prepared statements. */
+    public static final int DEFAULT_STATEMENTS = 200;
+
+    /** Default number of seconds a connection may be used before it is considered leaked, 0 for no limit. */
+    public static final int DEFAULT_LEAK_TIMEOUT = 0;
+
+    /** Default number of seconds to wait for a connection, 0 for no limit. */
+    public static final int DEFAULT_CHECKOUT_TIMEOUT = 30;
+
+    /** Default number of seconds between tests of idle connections. */
+    public static final int DEFAULT_IDLE_TEST_PERIOD = 300;
+
+
+    /**
+     * Constructor.
+     */
+    private ConnectionPool() {
+        //nope
+    }
+
+
+    /**
+     * Configure the connection pool of a Hibernate configuration, if the database URL is set in the database
+     * properties.
+     * 
+     * @param configuration
+     *            Hibernate configuration read from hibernate.cfg.xml
+     */
+    static void configure(Configuration configuration) {
+        InputStream inputStream = ConnectionPool.class.getClassLoader().getResourceAsStream(PROPERTIES_FILE);
+        if (inputStream == null) {
+            return;
+        }
+        Properties properties = new Properties();
+        try {
+            properties.load(inputStream);
+        } catch (IOException e) {
+            LOGGER.error("Unable to read database properties, using the connections from hibernate.cfg.xml", e);
+            return;
+        } finally {
+            try {
+                inputStream.close();
+            } catch (IOException e) {
+                LOGGER.warn("Exception when closing the properties input stream", e);
+            }
+        }
+        configure(configuration, properties);
+    }
+
+
+    /**
+     * Configure the connection pool of a Hibernate configuration, if the database URL is set.
+     * 
+     * @param configuration
+     *            Hibernate configuration
+     * @param properties
+     *            database properties
+     */
+    static void configure(Configuration configuration, Properties properties) {
+        String url = properties.getProperty("connection.url");
+        if (url == null || url.trim().isEmpty()) {
+            return;
+        }
+        // the data source would be used instead of the pool
+        configuration.getProperties().remove(Environment.DATASOURCE);
+        configuration.getProperties().remove("connection.datasource");
+        configuration.setProperty(Environment.URL, url.trim());
+        setIfPresent(configuration, Environment.DRIVER, properties, "connection.driver_class");
+        setIfPresent(configuration, Environment.USER, properties, "connection.username");
+        setIfPresent(configuration, Environment.PASS, properties, "connection.password");
+        configuration.setProperty(Environment.CONNECTION_PROVIDER,
+            "org.hibernate.service.jdbc.connections.internal.C3P0ConnectionProvider");
+        int minSize = Math.max(getInt(properties, "pool.minSize", DEFAULT_MIN_SIZE), 0);
+        int maxSize = Math.max(getInt(properties, "pool.maxSize", DEFAULT_MAX_SIZE), Math.max(minSize, 1));
+        configuration.setProperty(Environment.C3P0_MIN_SIZE, Integer.toString(minSize));
+        configuration.setProperty(Environment.C3P0_MAX_SIZE, Integer.toString(maxSize));
+        configuration.setProperty(Environment.C3P0_MAX_STATEMENTS,
+            Integer.toString(getInt(properties, "pool.statements", DEFAULT_STATEMENTS)));
+        configuration.setProperty(Environment.C3P0_IDLE_TEST_PERIOD,
+            Integer.toString(getInt(properties, "pool.idleTestPeriod", DEFAULT_IDLE_TEST_PERIOD)));
+        // c3p0 settings that Hibernate doesn't name are passed with the hibernate.c3p0 prefix
+        configuration.setProperty("hibernate.c3p0.checkoutTimeout",
+            Integer.toString(getInt(properties, "pool.checkoutTimeout", DEFAULT_CHECKOUT_TIMEOUT) * 1000));
+        int leakTimeout = getInt(properties, "pool.leakTimeout", DEFAULT_LEAK_TIMEOUT);
+        if (leakTimeout > 0) {
+            configuration.setProperty("hibernate.c3p0.unreturnedConnectionTimeout", Integer.toString(leakTimeout));
+            configuration.setProperty("hibernate.c3p0.debugUnreturnedConnectionStackTraces", "true");
+        }
+        LOGGER.info("Using a pool of " + minSize + " to " + maxSize + " connections to " + url);
+    }
+
+
+    /**
+     * Copy a property to the Hibernate configuration.
+     * 
+     * @param configuration
+     *            Hibernate configuration
+     * @param name
+     *            Hibernate property name
+     * @param properties
+     *            database properties
+     * @param key
+     *            database property name
+     */
+    private static void setIfPresent(Configuration configuration, String name, Properties properties, String key) {
+        String value = properties.getProperty(key);
+        if (value != null && !value.trim().isEmpty()) {
+            configuration.setProperty(name, value.trim());
+        }
+    }
+
+
+    /**
+     * Get the numbers of connections of the pool.
+     * 
+     * @return the pool usage, or null if the connections don't come from the pool
+     * @throws SQLException
+     *             the pool could not be queried
+     */
+    public static Usage getUsage()
+            throws SQLException {
+        Usage usage = null;
+        for (Object source : C3P0Registry.getPooledDataSources()) {
+            PooledDataSource dataSource = (PooledDataSource) source;
+            if (usage == null) {
+                usage = new Usage();
+            }
+            usage.busy += dataSource.getNumBusyConnectionsDefaultUser();
+            usage.idle += dataSource.getNumIdleConnectionsDefaultUser();
+            usage.waiting += dataSource.getNumThreadsAwaitingCheckoutDefaultUser();
+        }
+        return usage;
+    }
+
+
+    /**
+     * Numbers of connections of the pool.
+     * 
+     * @author piotrekhol
+     * 
+     */
+    public static final class Usage {
+
+        /** Number of connections in use. */
+        private int busy;
+
+        /** Number of connections waiting in the pool. */
+        private int idle;
+
+        /** Number of threads waiting for a connection. */
+        private int waiting;
+
+
+        public int getBusy() {
+            return busy;
+        }
+
+
+        public int getIdle() {
+            return idle;
+        }
+
+
+        public int getWaiting() {
+            return waiting;
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package pl.psnc.dl.wf4ever.db.hibernate;
 
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+
 import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
 import org.hibernate.cfg.Configuration;
 import org.hibernate.service.ServiceRegistry;
 import org.hibernate.service.ServiceRegistryBuilder;
@@ -35,6 +39,7 @@ public final class HibernateUtil {
             // Create the SessionFactory from hibernate.cfg.xml
             Configuration configuration = new Configuration();
             configuration.configure();
+            ConnectionPool.configure(configuration);
             ServiceRegistry serviceRegistry = new ServiceRegistryBuilder().applySettings(configuration.getProperties())
                     .buildServiceRegistry();
             SessionFactory sessionFactory2 = configuration.buildSessionFactory(serviceRegistry);
@@ -51,4 +56,49 @@ public final class HibernateUtil {
         return SESSION_FACTORY;
     }
 
+
+    /**
+     * Run an action when the transaction of the current session completes, either committed or rolled back. Nothing
+     * happens if there is no active transaction.
+     * 
+     * @param action
+     *            the action
+     */
+    public static void afterCompletion(Runnable action) {
+        afterCompletion(action, action);
+    }
+
+
+    /**
+     * Run one action when the transaction of the current session is committed and another one when it is rolled back.
+     * Nothing happens if there is no active transaction.
+     * 
+     * @param onCommit
+     *            the action run if the transaction is committed, or null
+     * @param onRollback
+     *            the action run if the transaction is rolled back, or null
+     */
+    public static void afterCompletion(final Runnable onCommit, final Runnable onRollback) {
+        Transaction transaction = SESSION_FACTORY.getCurrentSession().getTransaction();
+        if (!transaction.isActive()) {
+            return;
+        }
+        transaction.registerSynchronization(new Synchronization() {
+
+            @Override
+            public void beforeCompletion() {
+                //nope
+            }
+
+
+            @Override
+            public void afterCompletion(int status) {
+                Runnable action = status == Status.STATUS_COMMITTED ? onCommit : onRollback;
+                if (action != null) {
+                    action.run();
+                }
+            }
+        });
+    }
+
 }
@@ -3,6 +3,8 @@ package pl.psnc.dl.wf4ever.eventbus;
 import pl.psnc.dl.wf4ever.eventbus.listeners.ModesListener;
 import pl.psnc.dl.wf4ever.eventbus.listeners.NotificationsListener;
 import pl.psnc.dl.wf4ever.eventbus.listeners.PreservationListener;
+import pl.psnc.dl.wf4ever.eventbus.listeners.ResearchObjectCacheListener;
+import pl.psnc.dl.wf4ever.eventbus.listeners.ResearchObjectRegistryListener;
 import pl.psnc.dl.wf4ever.eventbus.listeners.SimpleSerializationListener;
 import pl.psnc.dl.wf4ever.eventbus.listeners.SolrListener;
 
@@ -30,6 +32,8 @@ public class SimpleEventBusModule implements EventBusModule {
         new PreservationListener(eventBus);
         new SimpleSerializationListener(eventBus);
         new ModesListener(eventBus);
+        new ResearchObjectCacheListener(eventBus);
+        new ResearchObjectRegistryListener(eventBus);
 
     }
 
@@ -7,6 +7,8 @@ import pl.psnc.dl.wf4ever.eventbus.listeners.ModesListener;
 import pl.psnc.dl.wf4ever.eventbus.listeners.NotificationsListener;
 import pl.psnc.dl.wf4ever.eventbus.listeners.PermissionsListener;
 import pl.psnc.dl.wf4ever.eventbus.listeners.PreservationListener;
+import pl.psnc.dl.wf4ever.eventbus.listeners.ResearchObjectCacheListener;
+import pl.psnc.dl.wf4ever.eventbus.listeners.ResearchObjectRegistryListener;
 
 import com.google.common.eventbus.EventBus;
 
@@ -39,6 +41,8 @@ public class LazyEventBusModule implements EventBusModule {
         new PreservationListener(eventBus);
         new ModesListener(eventBus);
         new PermissionsListener(eventBus);
+        new ResearchObjectCacheListener(eventBus);
+        new ResearchObjectRegistryListener(eventBus);
 
     }
 
@@ -4,6 +4,7 @@ import java.net.URI;
 
 import org.apache.log4j.Logger;
 
+import pl.psnc.dl.wf4ever.accesscontrol.AccessControlCache;
 import pl.psnc.dl.wf4ever.accesscontrol.model.AccessMode;
 import pl.psnc.dl.wf4ever.accesscontrol.model.dao.ModeDAO;
 import pl.psnc.dl.wf4ever.eventbus.events.ROAfterCreateEvent;
@@ -56,6 +57,7 @@ public class ModesListener {
             mode.setMode(pl.psnc.dl.wf4ever.accesscontrol.dicts.Mode.PUBLIC);
             mode.setRo(roUri.toString());
             dao.save(mode);
+            AccessControlCache.getInstance().invalidate(roUri.toString());
         }
     }
 
@@ -72,6 +74,7 @@ public class ModesListener {
         AccessMode mode = dao.findByResearchObject(roUri.toString());
         if (mode != null) {
             dao.delete(mode);
+            AccessControlCache.getInstance().invalidate(roUri.toString());
             //@TODO this is an error. Think how to handle it.
         } else {
             LOGGER.error("The Research Object " + roUri.toString() + " doesn't have defined mode");
@@ -5,6 +5,7 @@ import java.util.List;
 
 import org.apache.log4j.Logger;
 
+import pl.psnc.dl.wf4ever.accesscontrol.AccessControlCache;
 import pl.psnc.dl.wf4ever.accesscontrol.model.Permission;
 import pl.psnc.dl.wf4ever.accesscontrol.model.dao.PermissionDAO;
 import pl.psnc.dl.wf4ever.db.dao.UserProfileDAO;
@@ -63,6 +64,7 @@ public class PermissionsListener {
                 permission.setRo(roUri.toString());
                 permission.setRole(pl.psnc.dl.wf4ever.accesscontrol.dicts.Role.OWNER);
                 dao.save(permission);
+                AccessControlCache.getInstance().invalidate(roUri.toString());
             } else {
                 //@TODO this is an error. Think how to handle it.
                 LOGGER.error("The Research Object " + roUri.toString()
@@ -86,6 +88,7 @@ public class PermissionsListener {
             for (Permission p : permissions) {
                 dao.delete(p);
             }
+            AccessControlCache.getInstance().invalidate(roUri.toString());
             //@TODO this is an error. Think how to handle it.
         } else {
             LOGGER.error("The Research Object " + roUri.toString() + " doesn't have any permissions");
@@ -0,0 +1,91 @@
+package pl.psnc.dl.wf4ever.eventbus.listeners;
+
+import pl.psnc.dl.wf4ever.eventbus.events.ROAfterDeleteEvent;
+import pl.psnc.dl.wf4ever.eventbus.events.ROAfterUpdateEvent;
+import pl.psnc.dl.wf4ever.eventbus.events.ROComponentAfterCreateEvent;
+import pl.psnc.dl.wf4ever.eventbus.events.ROComponentAfterDeleteEvent;
+import pl.psnc.dl.wf4ever.eventbus.events.ROComponentAfterUpdateEvent;
+import pl.psnc.dl.wf4ever.model.RO.ResearchObjectCache;
+
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+
+/**
+ * Listener removing modified research objects from the {@link ResearchObjectCache}. The cache would not return them
+ * anyway because the manifest version changes, this only releases the memory early.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public class ResearchObjectCacheListener {
+
+    /**
+     * Constructor.
+     * 
+     * @param eventBus
+     *            EventBus instance
+     */
+    public ResearchObjectCacheListener(EventBus eventBus) {
+        eventBus.register(this);
+    }
+
+
+    /**
+     * Subscription method.
+     * 
+     * @param event
+     *            processed event
+     */
+    @Subscribe
+    public void onAfterROComponentCreate(ROComponentAfterCreateEvent event) {
+        ResearchObjectCache.getInstance().invalidate(event.getResearchObjectComponent().getResearchObject().getUri());
+    }
+
+
+    /**
+     * Subscription method.
+     * 
+     * @param event
+     *            processed event
+     */
+    @Subscribe
+    public void onAfterROComponentDelete(ROComponentAfterDeleteEvent event) {
+        ResearchObjectCache.getInstance().invalidate(event.getResearchObjectComponent().getResearchObject().getUri());
+    }
+
+
+    /**
+     * Subscription method.
+     * 
+     * @param event
+     *            processed event
+     */
+    @Subscribe
+    public void onAfterROComponentUpdate(ROComponentAfterUpdateEvent event) {
+        ResearchObjectCache.getInstance().invalidate(event.getResearchObjectComponent().getResearchObject().getUri());
+    }
+
+
+    /**
+     * Subscription method.
+     * 
+     * @param event
+     *            processed event
+     */
+    @Subscribe
+    public void onAfterUpdate(ROAfterUpdateEvent event) {
+        ResearchObjectCache.getInstance().invalidate(event.getResearchObject().getUri());
+    }
+
+
+    /**
+     * Subscription method.
+     * 
+     * @param event
+     *            processed event
+     */
+    @Subscribe
+    public void onAfterRODelete(ROAfterDeleteEvent event) {
+        ResearchObjectCache.getInstance().invalidate(event.getResearchObject().getUri());
+    }
+}
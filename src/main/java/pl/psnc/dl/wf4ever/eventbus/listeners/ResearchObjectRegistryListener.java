@@ -0,0 +1,78 @@
+package pl.psnc.dl.wf4ever.eventbus.listeners;
+
+import java.net.URI;
+
+import org.apache.log4j.Logger;
+
+import pl.psnc.dl.wf4ever.db.ResearchObjectEntry;
+import pl.psnc.dl.wf4ever.db.dao.ResearchObjectEntryDAO;
+import pl.psnc.dl.wf4ever.eventbus.events.ROAfterCreateEvent;
+import pl.psnc.dl.wf4ever.eventbus.events.ROAfterDeleteEvent;
+import pl.psnc.dl.wf4ever.evo.EvoType;
+import pl.psnc.dl.wf4ever.model.RO.ResearchObject;
+
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+
+/**
+ * Listener adding new research objects to the registry of research objects and removing the deleted ones.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public class ResearchObjectRegistryListener {
+
+    /** Logger. */
+    private static final Logger LOGGER = Logger.getLogger(ResearchObjectRegistryListener.class);
+
+    /** Registry dao. */
+    private ResearchObjectEntryDAO dao;
+
+
+    /**
+     * Constructor.
+     * 
+     * @param eventBus
+     *            EventBus instance
+     */
+    public ResearchObjectRegistryListener(EventBus eventBus) {
+        eventBus.register(this);
+        dao = new ResearchObjectEntryDAO();
+    }
+
+
+    /**
+     * Subscription method.
+     * 
+     * @param event
+     *            processed event
+     */
+    @Subscribe
+    public void onAfterROCreate(ROAfterCreateEvent event) {
+        ResearchObject researchObject = event.getResearchObject();
+        if (dao.findByUri(researchObject.getUri()) != null) {
+            LOGGER.error("The Research Object " + researchObject.getUri() + " is already in the registry");
+        } else {
+            URI creator = researchObject.getCreator() != null ? researchObject.getCreator().getUri() : null;
+            dao.save(new ResearchObjectEntry(researchObject.getUri(), creator, researchObject.getCreated(),
+                    EvoType.LIVE));
+        }
+    }
+
+
+    /**
+     * Subscription method.
+     * 
+     * @param event
+     *            processed event
+     */
+    @Subscribe
+    public void onAfterRODelete(ROAfterDeleteEvent event) {
+        ResearchObjectEntry entry = dao.findByUri(event.getResearchObject().getUri());
+        if (entry != null) {
+            dao.delete(entry);
+        } else {
+            LOGGER.warn("The Research Object " + event.getResearchObject().getUri() + " is not in the registry");
+        }
+    }
+}
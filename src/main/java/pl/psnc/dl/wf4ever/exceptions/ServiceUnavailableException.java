@@ -0,0 +1,24 @@
+package pl.psnc.dl.wf4ever.exceptions;
+
+/**
+ * <p>
+ * A runtime exception thrown when the service is temporarily overloaded, or the resource is temporarily locked, and
+ * the request can be repeated later.
+ * </p>
+ * 
+ * @author piotrekhol
+ */
+@SuppressWarnings("serial")
+public class ServiceUnavailableException extends RuntimeException {
+
+    /**
+     * Constructor.
+     * 
+     * @param message
+     *            message
+     */
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+
+}
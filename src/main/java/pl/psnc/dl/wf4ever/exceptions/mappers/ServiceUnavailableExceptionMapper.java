@@ -0,0 +1,28 @@
+package pl.psnc.dl.wf4ever.exceptions.mappers;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.ext.ExceptionMapper;
+import javax.ws.rs.ext.Provider;
+
+import pl.psnc.dl.wf4ever.exceptions.ServiceUnavailableException;
+
+/**
+ * <p>
+ * Maps <code>ServiceUnavailableException</code> to a HTTP <code>503 (Service Unavailable)</code> response.
+ * </p>
+ */
+@Provider
+public class ServiceUnavailableExceptionMapper implements ExceptionMapper<ServiceUnavailableException> {
+
+    /** Number of seconds after which the client may try again. */
+    private static final int RETRY_AFTER = 30;
+
+
+    @Override
+    public Response toResponse(ServiceUnavailableException e) {
+        return Response.status(Status.SERVICE_UNAVAILABLE).header("Retry-After", RETRY_AFTER).type("text/plain")
+                .entity(e.getMessage()).build();
+    }
+
+}
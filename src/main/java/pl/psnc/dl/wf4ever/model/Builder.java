@@ -35,6 +35,7 @@ import pl.psnc.dl.wf4ever.model.ROEVO.LiveEvoInfo;
 import pl.psnc.dl.wf4ever.storage.DLibraFactory;
 import pl.psnc.dl.wf4ever.storage.DigitalLibraryFactory;
 import pl.psnc.dl.wf4ever.storage.FilesystemDLFactory;
+import pl.psnc.dl.wf4ever.storage.ObjectStoreDLFactory;
 import pl.psnc.dl.wf4ever.vocabulary.W4E;
 
 import com.hp.hpl.jena.query.Dataset;
@@ -59,6 +60,12 @@ public class Builder {
     /** Logger. */
     private static final Logger LOGGER = Logger.getLogger(Builder.class);
 
+    /**
+     * Process-wide dataset in the triple store location, shared by all builders using the default constructor. It is
+     * volatile, so that it is read without locking once it is open.
+     */
+    private static volatile Dataset defaultDataset;
+
     /** Jena dataset. */
     private final Dataset dataset;
 
@@ -74,6 +81,9 @@ public class Builder {
     /** Authenticated user. */
     private final UserMetadata user;
 
+    /** Transactions opened by this builder and all instances it builds. */
+    private final TransactionContext transactionContext;
+
     static {
         init();
     }
@@ -96,6 +106,7 @@ public class Builder {
         this.user = user;
         this.useTransactions = useTransactions;
         this.digitalLibrary = digitalLibrary;
+        this.transactionContext = new TransactionContext(dataset, useTransactions);
     }
 
 
@@ -114,17 +125,75 @@ public class Builder {
         this.user = user;
         this.useTransactions = useTransactions;
         this.digitalLibrary = DEFAULT_DL_FACTORY.getDigitalLibrary();
+        this.transactionContext = new TransactionContext(dataset, useTransactions);
     }
 
 
     /**
-     * Constructor of a builder that uses the default dataset with transactions.
+     * Constructor of a builder that uses the default dataset with transactions. The dataset is shared by all such
+     * builders, each of them only opens its own transactions on it.
      * 
      * @param user
      *            Authenticated user
      */
     public Builder(UserMetadata user) {
-        this(user, TDBFactory.createDataset(TRIPLE_STORE_DIR), true);
+        this(user, getDefaultDataset(), true);
+    }
+
+
+    /**
+     * Get the process-wide dataset stored in the triple store location, opening it if necessary. TDB keeps the
+     * transaction state per thread, so the same instance can be used by concurrent requests.
+     * 
+     * @return the default Jena dataset
+     */
+    public static Dataset getDefaultDataset() {
+        Dataset dataset = defaultDataset;
+        if (dataset == null) {
+            synchronized (Builder.class) {
+                dataset = defaultDataset;
+                if (dataset == null) {
+                    LOGGER.debug("Opening the triple store in " + TRIPLE_STORE_DIR);
+                    dataset = TDBFactory.createDataset(TRIPLE_STORE_DIR);
+                    defaultDataset = dataset;
+                }
+            }
+        }
+        return dataset;
+    }
+
+
+    /**
+     * Check if a dataset is the process-wide dataset, without opening it.
+     * 
+     * @param dataset
+     *            Jena dataset
+     * @return true if the dataset is the default dataset
+     */
+    public static boolean isDefaultDataset(Dataset dataset) {
+        return dataset != null && defaultDataset == dataset;
+    }
+
+
+    /**
+     * Open the default dataset so that the first request does not pay for it. Called on application startup.
+     */
+    public static void openDefaultDataset() {
+        getDefaultDataset();
+    }
+
+
+    /**
+     * Flush and close the default dataset. Called on application shutdown, the next call to
+     * {@link #getDefaultDataset()} will open it again.
+     */
+    public static synchronized void closeDefaultDataset() {
+        if (defaultDataset != null) {
+            LOGGER.debug("Closing the triple store in " + TRIPLE_STORE_DIR);
+            TDB.sync(defaultDataset);
+            defaultDataset.close();
+            defaultDataset = null;
+        }
     }
 
 
@@ -154,7 +223,8 @@ public class Builder {
      * 
      * @param filename
      *            properties file name
-     * @return the dLibra factory if dlibra=true, the filesystem factory otherwise
+     * @return the dLibra factory if dlibra=true, the object store factory if objectStoreBucket is set, the
+     *         filesystem factory otherwise
      */
     private static DigitalLibraryFactory getDLFactory(String filename) {
         try (InputStream is = Builder.class.getClassLoader().getResourceAsStream(filename)) {
@@ -162,6 +232,8 @@ public class Builder {
             properties.load(is);
             if ("true".equals(properties.getProperty("dlibra", "false"))) {
                 return new DLibraFactory(properties);
+            } else if (!properties.getProperty("objectStoreBucket", "").trim().isEmpty()) {
+                return new ObjectStoreDLFactory(properties);
             } else {
                 return new FilesystemDLFactory(properties);
             }
@@ -212,6 +284,11 @@ public class Builder {
     }
 
 
+    public TransactionContext getTransactionContext() {
+        return transactionContext;
+    }
+
+
     /**
      * Start a TDB transaction provided that the flag useTransactions is set, the dataset supports transactions and
      * there is no open transaction. According to TDB, many read or one write transactions are allowed.
@@ -221,12 +298,7 @@ public class Builder {
      * @return true if a new transaction has been started, false otherwise
      */
     public boolean beginTransaction(ReadWrite mode) {
-        boolean started = false;
-        if (useTransactions && dataset.supportsTransactions() && !dataset.isInTransaction()) {
-            dataset.begin(mode);
-            started = true;
-        }
-        return started;
+        return transactionContext.begin(mode);
     }
 
 
@@ -238,9 +310,7 @@ public class Builder {
      *            a convenience parameter to specify if the transaction should be committed
      */
     public void commitTransaction(boolean wasStarted) {
-        if (useTransactions && dataset.supportsTransactions() && wasStarted) {
-            dataset.commit();
-        }
+        transactionContext.commit(wasStarted);
     }
 
 
@@ -252,10 +322,7 @@ public class Builder {
      *            a convenience parameter to specify if the transaction should be ended
      */
     public void endTransaction(boolean wasStarted) {
-        if (useTransactions && dataset.supportsTransactions() && wasStarted) {
-            TDB.sync(dataset);
-            dataset.end();
-        }
+        transactionContext.end(wasStarted);
     }
 
 
@@ -267,9 +334,7 @@ public class Builder {
      *            a convenience parameter to specify if the transaction should be aborted
      */
     public void abortTransaction(boolean wasStarted) {
-        if (useTransactions && dataset.supportsTransactions() && wasStarted) {
-            dataset.abort();
-        }
+        transactionContext.abort(wasStarted);
     }
 
 
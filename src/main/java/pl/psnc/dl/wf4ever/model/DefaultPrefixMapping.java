@@ -1,8 +1,11 @@
 package pl.psnc.dl.wf4ever.model;
 
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.impl.WrappedGraph;
 import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
 import com.hp.hpl.jena.shared.PrefixMapping;
+import com.hp.hpl.jena.shared.impl.PrefixMappingImpl;
 
 /**
  * Utility class that creates a prefix mapping with commonly used prefixes.
@@ -12,6 +15,9 @@ import com.hp.hpl.jena.shared.PrefixMapping;
  */
 public final class DefaultPrefixMapping {
 
+    /** The namespace whose prefix indicates that a graph has the default prefixes. */
+    public static final String RO_NAMESPACE = "http://purl.org/wf4ever/ro#";
+
     /** the only instance. */
     private static PrefixMapping instance = null;
 
@@ -37,6 +43,42 @@ public final class DefaultPrefixMapping {
     }
 
 
+    /**
+     * Check if a graph has already been given the default prefixes.
+     * 
+     * @param mapping
+     *            prefix mapping of a graph
+     * @return true if the "ro" namespace has a prefix
+     */
+    public static boolean isSet(PrefixMapping mapping) {
+        return mapping.getNsURIPrefix(RO_NAMESPACE) != null;
+    }
+
+
+    /**
+     * Return a read-only view of a model that has the default prefixes, without modifying the prefixes of the model.
+     * Used when serializing graphs in read transactions.
+     * 
+     * @param model
+     *            the model
+     * @return the same model if it already has the default prefixes, a view of it otherwise
+     */
+    public static Model withDefaultPrefixes(Model model) {
+        if (isSet(model)) {
+            return model;
+        }
+        final PrefixMapping prefixes = new PrefixMappingImpl().setNsPrefixes(get()).setNsPrefixes(model);
+        Graph graph = new WrappedGraph(model.getGraph()) {
+
+            @Override
+            public PrefixMapping getPrefixMapping() {
+                return prefixes;
+            }
+        };
+        return ModelFactory.createModelForGraph(graph);
+    }
+
+
     /**
      * Create the prefix mapping.
      * 
@@ -44,7 +86,7 @@ public final class DefaultPrefixMapping {
      */
     private static PrefixMapping createInstance() {
         Model model = ModelFactory.createDefaultModel();
-        model.setNsPrefix("ro", "http://purl.org/wf4ever/ro#");
+        model.setNsPrefix("ro", RO_NAMESPACE);
         model.setNsPrefix("roevo", "http://purl.org/wf4ever/roevo#");
         model.setNsPrefix("foaf", "http://xmlns.com/foaf/0.1/");
         model.setNsPrefix("ore-owl", "http://purl.org/wf4ever/ore-owl");
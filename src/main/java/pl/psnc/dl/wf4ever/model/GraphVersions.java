@@ -0,0 +1,73 @@
+package pl.psnc.dl.wf4ever.model;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version counters of named graphs, incremented after each committed write to a graph. Anything that is derived from
+ * a named graph and kept between requests may be stored together with the version of the graph, and is up to date as
+ * long as the version has not changed.
+ * 
+ * The counters are kept in memory only and start from 0 after a restart. Writes that may have touched any graph, such
+ * as SPARQL updates, increment a common counter that is added to the versions of all graphs.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public final class GraphVersions {
+
+    /** Versions of the graphs modified since the start. */
+    private static final ConcurrentMap<String, AtomicLong> VERSIONS = new ConcurrentHashMap<>();
+
+    /** Number of writes that may have modified any graph. */
+    private static final AtomicLong ALL_GRAPHS = new AtomicLong();
+
+
+    /**
+     * Private constructor.
+     */
+    private GraphVersions() {
+        //nope
+    }
+
+
+    /**
+     * Get the current version of a named graph.
+     * 
+     * @param graphUri
+     *            named graph URI
+     * @return the version, 0 if the graph hasn't been modified since the start
+     */
+    public static long get(String graphUri) {
+        AtomicLong version = VERSIONS.get(graphUri);
+        return ALL_GRAPHS.get() + (version != null ? version.get() : 0);
+    }
+
+
+    /**
+     * Increment the version of a named graph.
+     * 
+     * @param graphUri
+     *            named graph URI
+     */
+    public static void increment(String graphUri) {
+        AtomicLong version = VERSIONS.get(graphUri);
+        if (version == null) {
+            AtomicLong newVersion = new AtomicLong();
+            version = VERSIONS.putIfAbsent(graphUri, newVersion);
+            if (version == null) {
+                version = newVersion;
+            }
+        }
+        version.incrementAndGet();
+    }
+
+
+    /**
+     * Increment the versions of all named graphs.
+     */
+    public static void incrementAll() {
+        ALL_GRAPHS.incrementAndGet();
+    }
+}
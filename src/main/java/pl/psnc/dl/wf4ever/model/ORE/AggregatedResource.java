@@ -12,6 +12,8 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
+import javax.ws.rs.core.StreamingOutput;
+
 import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
 import org.joda.time.DateTime;
@@ -28,10 +30,10 @@ import pl.psnc.dl.wf4ever.eventbus.events.ROComponentAfterUpdateEvent;
 import pl.psnc.dl.wf4ever.exceptions.BadRequestException;
 import pl.psnc.dl.wf4ever.model.Builder;
 import pl.psnc.dl.wf4ever.model.EvoBuilder;
+import pl.psnc.dl.wf4ever.model.ResearchObjectComponentStreamable;
 import pl.psnc.dl.wf4ever.model.RDF.Thing;
 import pl.psnc.dl.wf4ever.model.RO.FolderEntry;
 import pl.psnc.dl.wf4ever.model.RO.ResearchObject;
-import pl.psnc.dl.wf4ever.preservation.model.ResearchObjectComponentSerializable;
 
 import com.hp.hpl.jena.ontology.OntModel;
 import com.hp.hpl.jena.query.Dataset;
@@ -47,7 +49,7 @@ import com.hp.hpl.jena.rdf.model.Statement;
  * @author pejot
  * 
  */
-public class AggregatedResource extends Thing implements ResearchObjectComponentSerializable {
+public class AggregatedResource extends Thing implements ResearchObjectComponentStreamable {
 
     /** logger. */
     private static final Logger LOGGER = Logger.getLogger(AggregatedResource.class);
@@ -61,6 +63,9 @@ public class AggregatedResource extends Thing implements ResearchObjectComponent
     /** physical representation metadata. */
     private ResourceMetadata stats;
 
+    /** Is the content stored, null if not known yet. */
+    private Boolean internal;
+
 
     /**
      * Create and save a new ore:AggregatedResource.
@@ -292,6 +297,7 @@ public class AggregatedResource extends Thing implements ResearchObjectComponent
 
     public void setStats(ResourceMetadata stats) {
         this.stats = stats;
+        this.internal = null;
     }
 
 
@@ -351,12 +357,27 @@ public class AggregatedResource extends Thing implements ResearchObjectComponent
      */
     @Override
     public boolean isInternal() {
+        if (internal != null) {
+            return internal;
+        }
         String path = getPath();
         return path != null && !path.isEmpty()
                 && builder.getDigitalLibrary().fileExists(getResearchObject().getUri(), path);
     }
 
 
+    /**
+     * Set if the content is stored, when it is known from the stats loaded for the whole research object. The value
+     * is forgotten when the stats change.
+     * 
+     * @param internal
+     *            true if the resource content is stored
+     */
+    public void setInternal(boolean internal) {
+        this.internal = internal;
+    }
+
+
     /**
      * An existing aggregated resource is being used as an annotation body now.
      * 
@@ -550,4 +571,10 @@ public class AggregatedResource extends Thing implements ResearchObjectComponent
     public InputStream getPublicGraphAsInputStream(RDFFormat syntax) {
         return getGraphAsInputStream(syntax, researchObject.getUri());
     }
+
+
+    @Override
+    public StreamingOutput getPublicGraphAsStreamingOutput(RDFFormat syntax) {
+        return getGraphAsStreamingOutput(syntax, researchObject.getUri());
+    }
 }
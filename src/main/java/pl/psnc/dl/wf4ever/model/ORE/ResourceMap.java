@@ -3,6 +3,8 @@ package pl.psnc.dl.wf4ever.model.ORE;
 import java.io.InputStream;
 import java.net.URI;
 
+import javax.ws.rs.core.StreamingOutput;
+
 import org.apache.log4j.Logger;
 import org.openrdf.rio.RDFFormat;
 
@@ -13,8 +15,8 @@ import pl.psnc.dl.wf4ever.dl.NotFoundException;
 import pl.psnc.dl.wf4ever.dl.ResourceMetadata;
 import pl.psnc.dl.wf4ever.dl.UserMetadata;
 import pl.psnc.dl.wf4ever.exceptions.IncorrectModelException;
+import pl.psnc.dl.wf4ever.model.ResearchObjectComponentStreamable;
 import pl.psnc.dl.wf4ever.model.RDF.Thing;
-import pl.psnc.dl.wf4ever.preservation.model.ResearchObjectComponentSerializable;
 import pl.psnc.dl.wf4ever.vocabulary.ORE;
 
 import com.hp.hpl.jena.ontology.Individual;
@@ -27,7 +29,7 @@ import com.hp.hpl.jena.query.ReadWrite;
  * @author piotrekhol
  * 
  */
-public abstract class ResourceMap extends Thing implements ResearchObjectComponentSerializable {
+public abstract class ResourceMap extends Thing implements ResearchObjectComponentStreamable {
 
     /** logger. */
     private static final Logger LOGGER = Logger.getLogger(ResourceMap.class);
@@ -250,4 +252,10 @@ public abstract class ResourceMap extends Thing implements ResearchObjectCompone
         return getGraphAsInputStream(syntax, aggregation.getUri());
     }
 
+
+    @Override
+    public StreamingOutput getPublicGraphAsStreamingOutput(RDFFormat syntax) {
+        return getGraphAsStreamingOutput(syntax, aggregation.getUri());
+    }
+
 }
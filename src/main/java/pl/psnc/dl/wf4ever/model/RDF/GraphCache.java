@@ -0,0 +1,332 @@
+package pl.psnc.dl.wf4ever.model.RDF;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+import org.openrdf.rio.RDFFormat;
+
+import pl.psnc.dl.wf4ever.ApplicationProperties;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+
+/**
+ * Named graphs rendered in RDF formats, kept between requests. A serialization is identified by the graph URI, the
+ * RDF format, the base URI and whether user names have been added, and is valid as long as the version of the graph
+ * it was rendered from has not changed (see {@link pl.psnc.dl.wf4ever.model.GraphVersions}). The total size of the
+ * serializations is limited, the least recently used are removed first. The serializations can be kept in memory or
+ * in files in a subdirectory of a configured directory, which the cache empties when it starts.
+ * 
+ * The cache also remembers which versions of the graphs are known to exist, so that checking if a resource is a named
+ * graph doesn't require a transaction.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public final class GraphCache {
+
+    /** Logger. */
+    private static final Logger LOGGER = Logger.getLogger(GraphCache.class);
+
+    /** Maximum number of graphs known to exist. */
+    private static final int MAX_KNOWN_GRAPHS = 100000;
+
+    /** Name of the subdirectory of the configured directory in which the serialized graphs are stored. */
+    static final String SUBDIRECTORY = "rodl-graphs";
+
+    /** The only instance. */
+    private static GraphCache instance;
+
+    /** Serialized graphs. */
+    private final Cache<Key, SerializedGraph> graphs;
+
+    /** Versions of the graphs known to exist, by graph URI. */
+    private final Cache<URI, Long> existing;
+
+    /** Directory for the serialized graphs or null if they are kept in memory. */
+    private final File directory;
+
+    /** Is the cache enabled. */
+    private final boolean enabled;
+
+    /** Number of serializations found in the cache. */
+    private final AtomicLong hits = new AtomicLong();
+
+    /** Number of serializations not found in the cache. */
+    private final AtomicLong misses = new AtomicLong();
+
+
+    /**
+     * Constructor.
+     * 
+     * @param maximumBytes
+     *            maximum total size of the serializations, 0 to disable the cache
+     * @param directory
+     *            directory for the serialized graphs or null if they should be kept in memory
+     */
+    GraphCache(long maximumBytes, File directory) {
+        this.enabled = maximumBytes > 0;
+        this.directory = directory;
+        graphs = CacheBuilder.newBuilder().maximumWeight(Math.max(maximumBytes, 0))
+                .weigher(new Weigher<Key, SerializedGraph>() {
+
+                    @Override
+                    public int weigh(Key key, SerializedGraph graph) {
+                        return (int) Math.min(graph.getLength(), Integer.MAX_VALUE);
+                    }
+                }).removalListener(new RemovalListener<Key, SerializedGraph>() {
+
+                    @Override
+                    public void onRemoval(RemovalNotification<Key, SerializedGraph> notification) {
+                        notification.getValue().discard();
+                    }
+                }).build();
+        existing = CacheBuilder.newBuilder().maximumSize(MAX_KNOWN_GRAPHS).build();
+    }
+
+
+    /**
+     * Get the only instance, with the size and the directory set in the application properties.
+     * 
+     * @return the graph cache
+     */
+    public static synchronized GraphCache getInstance() {
+        if (instance == null) {
+            File directory = null;
+            if (ApplicationProperties.getGraphCacheDirectory() != null) {
+                File parent = new File(ApplicationProperties.getGraphCacheDirectory());
+                try {
+                    directory = createDirectory(parent);
+                } catch (IOException e) {
+                    LOGGER.error("Can't use " + parent + " for serialized graphs, keeping them in memory", e);
+                }
+            }
+            instance = new GraphCache(ApplicationProperties.getGraphCacheSize() * FileUtils.ONE_MB, directory);
+        }
+        return instance;
+    }
+
+
+    /**
+     * Create an empty subdirectory for the serialized graphs, removing the files left by a previous run. Other files
+     * in the configured directory are not touched.
+     * 
+     * @param parent
+     *            the configured directory
+     * @return the subdirectory
+     * @throws IOException
+     *             when the subdirectory can't be created or emptied
+     */
+    static File createDirectory(File parent)
+            throws IOException {
+        File directory = new File(parent, SUBDIRECTORY);
+        FileUtils.forceMkdir(directory);
+        FileUtils.cleanDirectory(directory);
+        return directory;
+    }
+
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+
+    /**
+     * Get a serialized graph if it has been rendered from the given version of the graph.
+     * 
+     * @param key
+     *            the serialization key
+     * @param version
+     *            the current version of the graph
+     * @return the serialized graph or null
+     */
+    public SerializedGraph get(Key key, long version) {
+        SerializedGraph graph = graphs.getIfPresent(key);
+        if (graph != null && graph.getVersion() == version) {
+            hits.incrementAndGet();
+            return graph;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+
+    /**
+     * Store a serialized graph.
+     * 
+     * @param key
+     *            the serialization key
+     * @param version
+     *            the version of the graph that was rendered, read before rendering
+     * @param data
+     *            the bytes
+     * @return the serialized graph
+     */
+    public SerializedGraph put(Key key, long version, byte[] data) {
+        SerializedGraph graph = null;
+        if (directory != null) {
+            File file = new File(directory, UUID.randomUUID().toString());
+            try {
+                FileUtils.writeByteArrayToFile(file, data);
+                graph = new SerializedGraph(version, DigestUtils.md5Hex(data), file);
+            } catch (IOException e) {
+                LOGGER.warn("Can't save the serialized graph " + key.getGraphUri() + " in " + file, e);
+                FileUtils.deleteQuietly(file);
+            }
+        }
+        if (graph == null) {
+            graph = new SerializedGraph(version, data);
+        }
+        graphs.put(key, graph);
+        markExisting(key.getGraphUri(), version);
+        return graph;
+    }
+
+
+    /**
+     * Remember that a version of a graph exists.
+     * 
+     * @param graphUri
+     *            graph URI
+     * @param version
+     *            the version of the graph
+     */
+    public void markExisting(URI graphUri, long version) {
+        existing.put(graphUri, version);
+    }
+
+
+    /**
+     * Check if a version of a graph is known to exist.
+     * 
+     * @param graphUri
+     *            graph URI
+     * @param version
+     *            the current version of the graph
+     * @return true if the graph existed when it had that version, false if it is not known
+     */
+    public boolean isExisting(URI graphUri, long version) {
+        Long existingVersion = existing.getIfPresent(graphUri);
+        return existingVersion != null && existingVersion == version;
+    }
+
+
+    /**
+     * Remove the serialized graphs to which user names have been added.
+     */
+    public void invalidateUserNames() {
+        Iterator<Key> it = graphs.asMap().keySet().iterator();
+        while (it.hasNext()) {
+            if (!it.next().raw) {
+                it.remove();
+            }
+        }
+    }
+
+
+    /**
+     * Remove all serialized graphs.
+     */
+    public void invalidateAll() {
+        graphs.invalidateAll();
+        existing.invalidateAll();
+    }
+
+
+    public long getHits() {
+        return hits.get();
+    }
+
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+
+    /**
+     * Get the number of serialized graphs in the cache.
+     * 
+     * @return the number of serialized graphs
+     */
+    public long getSize() {
+        return graphs.size();
+    }
+
+
+    /**
+     * Identifies a serialization of a named graph.
+     * 
+     * @author piotrekhol
+     * 
+     */
+    public static final class Key {
+
+        /** Graph URI. */
+        private final URI graphUri;
+
+        /** RDF format name. */
+        private final String format;
+
+        /** Base URI or null. */
+        private final URI baseUri;
+
+        /** True if no user names have been added. */
+        private final boolean raw;
+
+
+        /**
+         * Constructor.
+         * 
+         * @param graphUri
+         *            graph URI
+         * @param format
+         *            RDF format
+         * @param baseUri
+         *            base URI or null
+         * @param raw
+         *            true if no user names have been added
+         */
+        public Key(URI graphUri, RDFFormat format, URI baseUri, boolean raw) {
+            this.graphUri = graphUri;
+            this.format = format.getName();
+            this.baseUri = baseUri;
+            this.raw = raw;
+        }
+
+
+        public URI getGraphUri() {
+            return graphUri;
+        }
+
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(graphUri, format, baseUri, raw);
+        }
+
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return Objects.equals(graphUri, other.graphUri) && Objects.equals(format, other.format)
+                    && Objects.equals(baseUri, other.baseUri) && raw == other.raw;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package pl.psnc.dl.wf4ever.model.RDF;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.ProxyInputStream;
+import org.apache.log4j.Logger;
+
+/**
+ * A named graph rendered in one RDF format, kept in the {@link GraphCache}. The bytes are held in memory or in a file,
+ * and can be used directly as a response entity. A file removed from the cache is deleted only after all streams
+ * reading it have been closed.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public final class SerializedGraph implements StreamingOutput {
+
+    /** Logger. */
+    private static final Logger LOGGER = Logger.getLogger(SerializedGraph.class);
+
+    /** Version of the named graph that was rendered. */
+    private final long version;
+
+    /** MD5 checksum of the bytes, used as the entity tag. */
+    private final String checksum;
+
+    /** Number of bytes. */
+    private final long length;
+
+    /** The bytes, if kept in memory. */
+    private final byte[] data;
+
+    /** The file with the bytes, if kept on disk. */
+    private final File file;
+
+    /** Number of open streams reading the file. */
+    private int readers;
+
+    /** True if the serialization has been removed from the cache. */
+    private boolean discarded;
+
+
+    /**
+     * Constructor of a serialization kept in memory.
+     * 
+     * @param version
+     *            version of the named graph that was rendered
+     * @param data
+     *            the bytes
+     */
+    SerializedGraph(long version, byte[] data) {
+        this.version = version;
+        this.checksum = DigestUtils.md5Hex(data);
+        this.length = data.length;
+        this.data = data;
+        this.file = null;
+    }
+
+
+    /**
+     * Constructor of a serialization kept on disk.
+     * 
+     * @param version
+     *            version of the named graph that was rendered
+     * @param checksum
+     *            MD5 checksum of the file content
+     * @param file
+     *            the file with the bytes
+     */
+    SerializedGraph(long version, String checksum, File file) {
+        this.version = version;
+        this.checksum = checksum;
+        this.length = file.length();
+        this.data = null;
+        this.file = file;
+    }
+
+
+    public long getVersion() {
+        return version;
+    }
+
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+
+    public EntityTag getEntityTag() {
+        return new EntityTag(checksum);
+    }
+
+
+    public long getLength() {
+        return length;
+    }
+
+
+    /**
+     * Get the bytes as an input stream.
+     * 
+     * @return a new input stream
+     * @throws IOException
+     *             if the file has been removed from the cache in the meantime
+     */
+    public InputStream getInputStream()
+            throws IOException {
+        if (data != null) {
+            return new ByteArrayInputStream(data);
+        }
+        synchronized (this) {
+            if (discarded) {
+                throw new IOException("Serialized graph has been removed from the cache");
+            }
+            readers++;
+        }
+        try {
+            return new ProxyInputStream(new FileInputStream(file)) {
+
+                /** True if the stream has been closed. */
+                private boolean closed;
+
+
+                @Override
+                public void close()
+                        throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        if (!closed) {
+                            closed = true;
+                            release();
+                        }
+                    }
+                }
+            };
+        } catch (FileNotFoundException e) {
+            release();
+            throw new IOException("Serialized graph has been removed from the cache", e);
+        }
+    }
+
+
+    @Override
+    public void write(OutputStream output)
+            throws IOException {
+        if (data != null) {
+            output.write(data);
+        } else {
+            try (InputStream in = getInputStream()) {
+                IOUtils.copy(in, output);
+            }
+        }
+    }
+
+
+    /**
+     * Release the resources used by this serialization, called when it is removed from the cache. The file is deleted
+     * when the last stream reading it is closed.
+     */
+    void discard() {
+        synchronized (this) {
+            discarded = true;
+            if (readers > 0) {
+                return;
+            }
+        }
+        deleteFile();
+    }
+
+
+    /**
+     * Called when a stream reading the file is closed.
+     */
+    private void release() {
+        synchronized (this) {
+            readers--;
+            if (!discarded || readers > 0) {
+                return;
+            }
+        }
+        deleteFile();
+    }
+
+
+    /**
+     * Delete the file, if any.
+     */
+    private void deleteFile() {
+        if (file != null && !file.delete() && file.exists()) {
+            LOGGER.warn("Could not delete " + file);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package pl.psnc.dl.wf4ever.model.RDF;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
@@ -12,6 +13,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriBuilder;
 
 import org.apache.commons.lang.NotImplementedException;
@@ -32,6 +34,8 @@ import pl.psnc.dl.wf4ever.eventbus.events.ScheduleToSerializationEvent;
 import pl.psnc.dl.wf4ever.exceptions.IncorrectModelException;
 import pl.psnc.dl.wf4ever.model.Builder;
 import pl.psnc.dl.wf4ever.model.DefaultPrefixMapping;
+import pl.psnc.dl.wf4ever.model.GraphVersions;
+import pl.psnc.dl.wf4ever.model.TransactionContext;
 import pl.psnc.dl.wf4ever.sparql.RO_RDFXMLWriter;
 import pl.psnc.dl.wf4ever.sparql.RO_TurtleWriter;
 import pl.psnc.dl.wf4ever.sparql.ResearchObjectRelativeWriter;
@@ -56,9 +60,8 @@ import com.hp.hpl.jena.rdf.model.ModelFactory;
 import com.hp.hpl.jena.rdf.model.RDFNode;
 import com.hp.hpl.jena.rdf.model.Resource;
 import com.hp.hpl.jena.rdf.model.Statement;
-import com.hp.hpl.jena.tdb.TDB;
+import com.hp.hpl.jena.rdf.model.StmtIterator;
 import com.hp.hpl.jena.vocabulary.DCTerms;
-import com.hp.hpl.jena.vocabulary.RDF;
 
 /**
  * The root class for the model.
@@ -110,6 +113,9 @@ public class Thing {
     /** The original resource (if this resource has been shapshotted/archived). */
     protected Thing copyOf;
 
+    /** Transactions used when this instance has not been created by a builder. */
+    private TransactionContext transactionContext;
+
 
     /**
      * Constructor that allows to specify a custom dataset.
@@ -234,9 +240,18 @@ public class Thing {
      * @return true if the named graph exists, false otherwise
      */
     public boolean isNamedGraph() {
+        boolean cacheable = isGraphCacheable();
+        long version = GraphVersions.get(uri.toString());
+        if (cacheable && GraphCache.getInstance().isExisting(uri, version)) {
+            return true;
+        }
         boolean transactionStarted = beginTransaction(ReadWrite.READ);
         try {
-            return dataset.containsNamedModel(uri.toString());
+            boolean exists = dataset.containsNamedModel(uri.toString());
+            if (exists && cacheable) {
+                GraphCache.getInstance().markExisting(uri, version);
+            }
+            return exists;
         } finally {
             endTransaction(transactionStarted);
         }
@@ -352,12 +367,150 @@ public class Thing {
      * @return an input stream or null of no model is found
      */
     protected InputStream getGraphAsInputStream(RDFFormat syntax, boolean raw, URI baseUri) {
+        if (isGraphCacheable() && !syntax.supportsContexts()) {
+            SerializedGraph graph = getSerializedGraph(syntax, raw, baseUri);
+            if (graph == null) {
+                return null;
+            }
+            try {
+                return graph.getInputStream();
+            } catch (IOException e) {
+                LOGGER.debug("Serialized graph " + uri + " has been removed from the cache, rendering it again", e);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!writeGraph(out, syntax, raw, baseUri)) {
+            return null;
+        }
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+
+    /**
+     * Return this resource as a named graph in a selected RDF format, written directly to the response when the
+     * response is sent.
+     * 
+     * This method may add additional data, such as user names.
+     * 
+     * @param syntax
+     *            RDF format
+     * @param baseUri
+     *            base URI that MAY be used to reduce the size of the RDF file
+     * @return an output to be used as the response entity or null of no model is found
+     */
+    public StreamingOutput getGraphAsStreamingOutput(RDFFormat syntax, URI baseUri) {
+        return getGraphAsStreamingOutput(syntax, false, baseUri);
+    }
+
+
+    /**
+     * Return this resource as a named graph in a selected RDF format, to be used as a response entity. This method
+     * should be overridden by the research object components that implement
+     * {@link pl.psnc.dl.wf4ever.model.ResearchObjectComponentStreamable}.
+     * 
+     * This method may add additional data, such as user names.
+     * 
+     * @param syntax
+     *            RDF format
+     * @return an output to be used as the response entity or null of no model is found
+     */
+    public StreamingOutput getPublicGraphAsStreamingOutput(RDFFormat syntax) {
+        return getGraphAsStreamingOutput(syntax, false, null);
+    }
+
+
+    /**
+     * Return a graph in any RDF format, with or without additional data such as user names, written directly to the
+     * response when the response is sent. The graph is read in a separate transaction when writing.
+     * 
+     * @param syntax
+     *            RDF format
+     * @param raw
+     *            true if no additional data, false if user names should also be added
+     * @param baseUri
+     *            base URI that MAY be used to reduce the size of the RDF file
+     * @return an output to be used as the response entity or null of no model is found
+     */
+    protected StreamingOutput getGraphAsStreamingOutput(final RDFFormat syntax, final boolean raw, final URI baseUri) {
+        if (isGraphCacheable() && !syntax.supportsContexts()) {
+            return getSerializedGraph(syntax, raw, baseUri);
+        }
+        if (!isNamedGraph()) {
+            return null;
+        }
+        return new StreamingOutput() {
+
+            @Override
+            public void write(OutputStream output)
+                    throws IOException {
+                if (!writeGraph(output, syntax, raw, baseUri)) {
+                    LOGGER.warn("Named graph " + uri + " was deleted before it could be sent");
+                }
+            }
+        };
+    }
+
+
+    /**
+     * Return a graph rendered in an RDF format from the {@link GraphCache}, rendering it if the graph has changed since
+     * it was cached. Formats that support contexts are not cached because they include other graphs.
+     * 
+     * @param syntax
+     *            RDF format
+     * @param raw
+     *            true if no additional data, false if user names should also be added
+     * @param baseUri
+     *            base URI that MAY be used to reduce the size of the RDF file
+     * @return the serialized graph or null if no model is found
+     */
+    protected SerializedGraph getSerializedGraph(RDFFormat syntax, boolean raw, URI baseUri) {
+        GraphCache cache = GraphCache.getInstance();
+        GraphCache.Key key = new GraphCache.Key(uri, syntax, baseUri, raw);
+        // read the version before rendering, so that a concurrent write makes the new entry stale and not the opposite
+        long version = GraphVersions.get(uri.toString());
+        SerializedGraph graph = cache.get(key, version);
+        if (graph == null) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            if (!writeGraph(out, syntax, raw, baseUri)) {
+                return null;
+            }
+            graph = cache.put(key, version, out.toByteArray());
+        }
+        return graph;
+    }
+
+
+    /**
+     * Check if the graph of this resource can be kept in the {@link GraphCache}. Only graphs of the default dataset
+     * read outside of any transaction can be cached, since other transactions may see uncommitted changes.
+     * 
+     * @return true if the graph cache can be used
+     */
+    private boolean isGraphCacheable() {
+        return uri != null && Builder.isDefaultDataset(dataset) && !getTransactionContext().isInTransaction()
+                && GraphCache.getInstance().isEnabled();
+    }
+
+
+    /**
+     * Write a graph in any RDF format, with or without additional data such as user names.
+     * 
+     * @param out
+     *            the output stream, not closed by this method
+     * @param syntax
+     *            RDF format
+     * @param raw
+     *            true if no additional data, false if user names should also be added
+     * @param baseUri
+     *            base URI that MAY be used to reduce the size of the RDF file
+     * @return true if the graph has been written, false if no model is found
+     */
+    protected boolean writeGraph(OutputStream out, RDFFormat syntax, boolean raw, URI baseUri) {
         boolean transactionStarted = beginTransaction(ReadWrite.READ);
         try {
             if (!dataset.containsNamedModel(uri.toString())) {
-                return null;
+                return false;
             }
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
             if (syntax.supportsContexts()) {
                 Dataset tmpDataset = DatasetFactory.createMem();
                 addNamedModelsRecursively(tmpDataset, raw);
@@ -366,6 +519,8 @@ public class Thing {
                 Model tdbModel = dataset.getNamedModel(uri.toString());
                 if (!raw) {
                     tdbModel = addUserNames(tdbModel);
+                } else {
+                    tdbModel = DefaultPrefixMapping.withDefaultPrefixes(tdbModel);
                 }
                 if (syntax.equals(RDFFormat.TURTLE) && baseUri != null) {
                     // do it only for Turtle because for RDF/XML it would make the whole graph relative
@@ -374,7 +529,7 @@ public class Thing {
                     tdbModel.write(out, syntax.getName().toUpperCase());
                 }
             }
-            return new ByteArrayInputStream(out.toByteArray());
+            return true;
         } finally {
             endTransaction(transactionStarted);
         }
@@ -394,6 +549,52 @@ public class Thing {
      * @return an input stream or null of no model is found
      */
     public InputStream getGraphAsInputStream(RDFFormat syntax, Thing... resources) {
+        Model result = describe(resources);
+        if (result == null) {
+            return null;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        result.write(out, syntax.getName().toUpperCase());
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+
+    /**
+     * Return this resource as a named graph in a selected RDF format, to be used as a response entity. Only triples
+     * describing the resources given as parameters will be returned. The triples are read immediately, they are only
+     * written when the response is sent.
+     * 
+     * This method may add additional data, such as user names.
+     * 
+     * @param syntax
+     *            RDF format
+     * @param resources
+     *            resources which will be included
+     * @return an output to be used as the response entity or null of no model is found
+     */
+    public StreamingOutput getGraphAsStreamingOutput(final RDFFormat syntax, Thing... resources) {
+        final Model result = describe(resources);
+        if (result == null) {
+            return null;
+        }
+        return new StreamingOutput() {
+
+            @Override
+            public void write(OutputStream output) {
+                result.write(output, syntax.getName().toUpperCase());
+            }
+        };
+    }
+
+
+    /**
+     * Find the triples describing the resources given as parameters, with user names.
+     * 
+     * @param resources
+     *            resources which will be included
+     * @return an in-memory model or null if nothing is found
+     */
+    private Model describe(Thing... resources) {
         boolean transactionStarted = beginTransaction(ReadWrite.READ);
         try {
             Model result = ModelFactory.createDefaultModel();
@@ -409,11 +610,8 @@ public class Thing {
                 return null;
             }
             result = addUserNames(result);
-
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
             result.removeNsPrefix("xml");
-            result.write(out, syntax.getName().toUpperCase());
-            return new ByteArrayInputStream(out.toByteArray());
+            return result;
         } finally {
             endTransaction(transactionStarted);
         }
@@ -421,31 +619,15 @@ public class Thing {
 
 
     /**
-     * Add user names to all objects of dcterms:creator found. This method returns a new {@link Model} so that the
-     * original model is not affected.
+     * Add user names to all objects of dcterms:creator found. This method returns a read-only view of the model so
+     * that the original model is neither affected nor copied. The names of all authors are loaded at once.
      * 
      * @param model
-     *            an RDF model
-     * @return a new Jena {@link Model} with all the triples from the original one plus user names
+     *            an RDF model, which must remain readable as long as the result is used
+     * @return a Jena {@link Model} with all the triples from the original one plus user names
      */
     private Model addUserNames(Model model) {
-        Model model2 = ModelFactory.createDefaultModel();
-        model2.add(model);
-        model2.setNsPrefixes(DefaultPrefixMapping.get());
-        for (RDFNode author : model2.listObjectsOfProperty(DCTerms.creator).toList()) {
-            if (!author.isURIResource()) {
-                continue;
-            }
-            Resource autorResource = model2.createResource(author.asResource().getURI());
-            autorResource.addProperty(RDF.type, FOAF.Agent);
-            UserProfileDAO dao = new UserProfileDAO();
-            UserProfile profile = dao.findByLogin(autorResource.getURI());
-            if (profile != null && profile.getName() != null) {
-                autorResource.removeAll(FOAF.name);
-                autorResource.addProperty(FOAF.name, model2.createLiteral(profile.getName()));
-            }
-        }
-        return model2;
+        return UserNamesView.create(model);
     }
 
 
@@ -463,6 +645,30 @@ public class Thing {
      * @return an input stream or null of no model is found
      */
     public InputStream getGraphAsInputStreamWithRelativeURIs(URI filterUri, RDFFormat syntax) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!writeGraphWithRelativeURIs(out, filterUri, syntax)) {
+            return null;
+        }
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+
+    /**
+     * Write this resource as a named graph in a selected RDF format, with all URIs relativized against this resource's
+     * URI. Only RDF/XML and Turtle formats are supported.
+     * 
+     * This method doesn't add any additional data such as user names.
+     * 
+     * @param out
+     *            the output stream, not closed by this method
+     * @param filterUri
+     *            the URI used to determine which URIs will be relativized. Only URIs with the same host and paths
+     *            having the filter path as suffix will be relativized.
+     * @param syntax
+     *            RDF/XML or Turtle format
+     * @return true if the graph has been written, false if no model is found
+     */
+    public boolean writeGraphWithRelativeURIs(OutputStream out, URI filterUri, RDFFormat syntax) {
         boolean transactionStarted = beginTransaction(ReadWrite.READ);
         try {
             ResearchObjectRelativeWriter writer;
@@ -474,16 +680,14 @@ public class Thing {
                 writer = new RO_TurtleWriter();
             }
             if (model == null) {
-                return null;
+                return false;
             }
             writer.setResearchObjectURI(filterUri);
             writer.setBaseURI(uri);
             // URI validation in Jena 2.10.0 doesn't allow relative URIs
             writer.setProperty("allowBadURIs", true);
-
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            writer.write(model, out, "");
-            return new ByteArrayInputStream(out.toByteArray());
+            writer.write(DefaultPrefixMapping.withDefaultPrefixes(model), out, "");
+            return true;
         } finally {
             endTransaction(transactionStarted);
         }
@@ -559,57 +763,58 @@ public class Thing {
     }
 
 
+    /**
+     * Get the transactions shared with the builder that created this instance, so that all instances used in one
+     * request join the same transaction instead of competing for the dataset.
+     * 
+     * @return the builder's transaction context or a context of this instance if there is no builder
+     */
+    protected TransactionContext getTransactionContext() {
+        if (builder != null && builder.getDataset() == dataset) {
+            return builder.getTransactionContext();
+        }
+        if (transactionContext == null) {
+            transactionContext = new TransactionContext(dataset, useTransactions);
+        }
+        return transactionContext;
+    }
+
+
     /**
      * Start a TDB transaction provided that the flag useTransactions is set, the dataset supports transactions and
      * there is no open transaction. According to TDB, many read or one write transactions are allowed.
      * 
+     * Read transactions never modify the graph. Graphs that miss the default prefixes get them in the next write
+     * transaction or from the prefix migration, until then the prefixes are added when serializing.
+     * 
      * @param mode
      *            read or write
      * @return true if a new transaction has been started, false otherwise
      */
     protected boolean beginTransaction(ReadWrite mode) {
-        synchronized (dataset) {
-            boolean started = false;
-            if (useTransactions && dataset.supportsTransactions() && !dataset.isInTransaction()) {
-                dataset.begin(mode);
-                started = true;
-            }
-            if (mode == ReadWrite.WRITE || dataset.containsNamedModel(uri.toString())) {
-                model = ModelFactory.createOntologyModel(OntModelSpec.OWL_MEM, dataset.getNamedModel(uri.toString()));
-                if (mode == ReadWrite.WRITE) {
-                    model.setNsPrefixes(DefaultPrefixMapping.get());
-                } else if (model.getNsURIPrefix("http://purl.org/wf4ever/ro#") == null && started) {
-                    // the model misses the prefixes
-                    dataset.end();
-                    dataset.begin(ReadWrite.WRITE);
-                    model = ModelFactory.createOntologyModel(OntModelSpec.OWL_MEM,
-                        dataset.getNamedModel(uri.toString()));
-                    model.setNsPrefixes(DefaultPrefixMapping.get());
-                    dataset.commit();
-                    dataset.end();
-                    dataset.begin(mode);
-                    model = ModelFactory.createOntologyModel(OntModelSpec.OWL_MEM,
-                        dataset.getNamedModel(uri.toString()));
-                }
+        boolean started = getTransactionContext().begin(mode);
+        if (mode == ReadWrite.WRITE || dataset.containsNamedModel(uri.toString())) {
+            model = ModelFactory.createOntologyModel(OntModelSpec.OWL_MEM, dataset.getNamedModel(uri.toString()));
+            if (mode == ReadWrite.WRITE && !DefaultPrefixMapping.isSet(model)) {
+                model.setNsPrefixes(DefaultPrefixMapping.get());
             }
-            return started;
         }
+        return started;
     }
 
 
     /**
      * Commit the transaction provided that the flag useTransactions is set, the dataset supports transactions and the
-     * parameter is true.
+     * parameter is true. The named graph of this resource is marked as modified in any case.
      * 
      * @param wasStarted
      *            a convenience parameter to specify if the transaction should be committed
      */
     protected void commitTransaction(boolean wasStarted) {
-        synchronized (dataset) {
-            if (useTransactions && dataset.supportsTransactions() && wasStarted) {
-                dataset.commit();
-            }
+        if (uri != null) {
+            getTransactionContext().markModified(uri.toString());
         }
+        getTransactionContext().commit(wasStarted);
     }
 
 
@@ -621,15 +826,10 @@ public class Thing {
      *            a convenience parameter to specify if the transaction should be ended
      */
     protected void endTransaction(boolean wasStarted) {
-        synchronized (dataset) {
-            if (useTransactions && dataset.supportsTransactions() && wasStarted) {
-                if (model != null) {
-                    TDB.sync(model);
-                    model = null;
-                }
-                dataset.end();
-            }
+        if (wasStarted) {
+            model = null;
         }
+        getTransactionContext().end(wasStarted);
     }
 
 
@@ -641,11 +841,7 @@ public class Thing {
      *            a convenience parameter to specify if the transaction should be aborted
      */
     protected void abortTransaction(boolean wasStarted) {
-        synchronized (dataset) {
-            if (useTransactions && dataset.supportsTransactions() && wasStarted) {
-                dataset.abort();
-            }
-        }
+        getTransactionContext().abort(wasStarted);
     }
 
 
@@ -667,7 +863,7 @@ public class Thing {
                 LOGGER.warn("Could not find model for URI " + uri);
                 return;
             }
-            Model model2 = raw ? model : addUserNames(model);
+            Model model2 = raw ? DefaultPrefixMapping.withDefaultPrefixes(model) : addUserNames(model);
             tmpDataset.addNamedModel(uri.toString(), model2);
             List<RDFNode> it = model2.listObjectsOfProperty(AO.body).toList();
             it.addAll(model2.listObjectsOfProperty(ORE.isDescribedBy).toList());
@@ -858,27 +1054,34 @@ public class Thing {
 
 
     /**
-     * Get map of objects related to the pointed subject. The object are looked in the graph returned by
-     * getGraphAsInputStream method.
+     * Get map of objects related to the pointed subject. The statements are read directly from the named graph of
+     * this resource, without serializing it.
      * 
      * @param subject
      *            uri searched in the graph.
-     * @return the map of objects related to the pointed subject
-     * @see Thing#getGraphAsInputStream
+     * @return the map of objects ({@link RDFNode}s) related to the pointed subject, empty if there is no named graph
      */
     public Multimap<URI, Object> getDescriptionFor(URI subject) {
         Multimap<URI, Object> result = ArrayListMultimap.create();
-        InputStream is = getGraphAsInputStream(RDFFormat.RDFXML);
-        if (is == null) {
+        boolean transactionStarted = beginTransaction(ReadWrite.READ);
+        try {
+            if (model == null) {
+                return result;
+            }
+            Model graph = model.getBaseModel();
+            StmtIterator it = graph.listStatements(graph.getResource(subject.toString()), null, (RDFNode) null);
+            try {
+                while (it.hasNext()) {
+                    Statement s = it.next();
+                    result.put(URI.create(s.getPredicate().getURI()), s.getObject());
+                }
+            } finally {
+                it.close();
+            }
             return result;
+        } finally {
+            endTransaction(transactionStarted);
         }
-        Model tmpModel = ModelFactory.createDefaultModel();
-        tmpModel.read(is, null);
-        Resource r = tmpModel.getResource(subject.toString());
-        for (Statement s : r.listProperties().toList()) {
-            result.put(URI.create(s.getPredicate().getURI()), s.getObject());
-        }
-        return result;
     }
 
 
@@ -926,51 +1129,39 @@ public class Thing {
      *            The format in which in thing should be written
      */
     public void addAuthorsName(OutputStream output, URI filterUri, RDFFormat format) {
-        OntModel exportedModel = ModelFactory.createOntologyModel();
-
-        exportedModel.read(getGraphAsInputStream(RDFFormat.RDFXML), null);
-        if (!exportedModel.listSubjectsWithProperty(DCTerms.creator).hasNext()) {
-            exportedModel.write(output);
-            return;
-        }
-        for (RDFNode author : exportedModel.listObjectsOfProperty(DCTerms.creator).toList()) {
-            if (!author.isURIResource()) {
-                continue;
-            }
-            Resource autorResource = exportedModel.createIndividual(author.asResource().getURI(), FOAF.Agent);
-            UserProfileDAO dao = new UserProfileDAO();
-            UserProfile profile = dao.findByLogin(autorResource.getURI());
-            if (profile != null && profile.getName() != null) {
-                autorResource.removeAll(FOAF.name);
-                autorResource.addProperty(FOAF.name, exportedModel.createLiteral(profile.getName()));
-            }
-        }
-        //there is nothing to filter
-        if (filterUri == null) {
-            if (format == null || format == RDFFormat.RDFXML) {
-                exportedModel.write(output, "RDF/XML");
-            } else if (format == RDFFormat.N3) {
-                exportedModel.write(output, "N-TRIPLE");
+        boolean transactionStarted = beginTransaction(ReadWrite.READ);
+        try {
+            // the names are added to a view of the graph, which is written before the transaction ends
+            Model exportedModel = addUserNames(dataset.containsNamedModel(uri.toString()) ? dataset
+                    .getNamedModel(uri.toString()) : ModelFactory.createDefaultModel());
+            //there is nothing to filter
+            if (filterUri == null) {
+                if (format == null || format == RDFFormat.RDFXML) {
+                    exportedModel.write(output, "RDF/XML");
+                } else if (format == RDFFormat.N3) {
+                    exportedModel.write(output, "N-TRIPLE");
+                } else if (format == RDFFormat.TURTLE) {
+                    exportedModel.write(output, "TTL");
+                } else {
+                    throw new IllegalArgumentException("Format " + format + " is not supported");
+                }
+                return;
+            }
+            //there is something to filter
+            ResearchObjectRelativeWriter writer = new RO_RDFXMLWriter();
+            if (format == RDFFormat.RDFXML) {
+                writer = new RO_RDFXMLWriter();
             } else if (format == RDFFormat.TURTLE) {
-                exportedModel.write(output, "TTL");
+                writer = new RO_TurtleWriter();
             } else {
                 throw new IllegalArgumentException("Format " + format + " is not supported");
             }
-            return;
-        }
-        //there is something to filter
-        ResearchObjectRelativeWriter writer = new RO_RDFXMLWriter();
-        if (format == RDFFormat.RDFXML) {
-            writer = new RO_RDFXMLWriter();
-        } else if (format == RDFFormat.TURTLE) {
-            writer = new RO_TurtleWriter();
-        } else {
-            throw new IllegalArgumentException("Format " + format + " is not supported");
+            writer.setResearchObjectURI(filterUri);
+            writer.setBaseURI(getUri());
+            writer.write(exportedModel, output, null);
+        } finally {
+            endTransaction(transactionStarted);
         }
-        writer.setResearchObjectURI(filterUri);
-        writer.setBaseURI(getUri());
-        writer.write(exportedModel, output, null);
-        return;
     }
 
 
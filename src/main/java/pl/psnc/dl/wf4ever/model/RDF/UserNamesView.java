@@ -0,0 +1,129 @@
+package pl.psnc.dl.wf4ever.model.RDF;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import pl.psnc.dl.wf4ever.model.DefaultPrefixMapping;
+import pl.psnc.dl.wf4ever.model.UserNameResolver;
+import pl.psnc.dl.wf4ever.vocabulary.FOAF;
+
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.graph.TripleMatch;
+import com.hp.hpl.jena.graph.compose.Union;
+import com.hp.hpl.jena.graph.impl.WrappedGraph;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.NodeIterator;
+import com.hp.hpl.jena.rdf.model.RDFNode;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.shared.PrefixMapping;
+import com.hp.hpl.jena.shared.impl.PrefixMappingImpl;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+import com.hp.hpl.jena.util.iterator.Filter;
+import com.hp.hpl.jena.vocabulary.DCTerms;
+import com.hp.hpl.jena.vocabulary.RDF;
+
+/**
+ * A read-only view of a model with the names of the authors (objects of dcterms:creator) added, as foaf:Agents with
+ * foaf:name. The model is not copied, the few triples with the names are kept in a separate small model and any
+ * foaf:name the model has for the same authors is hidden. The view has the default prefixes.
+ * 
+ * @author piotrekhol
+ * 
+ */
+final class UserNamesView {
+
+    /**
+     * Private constructor.
+     */
+    private UserNamesView() {
+        //nope
+    }
+
+
+    /**
+     * Create a view of a model with user names.
+     * 
+     * @param model
+     *            the model, which must remain readable as long as the view is used
+     * @return a read-only view
+     */
+    static Model create(Model model) {
+        Set<String> authors = new HashSet<>();
+        NodeIterator it = model.listObjectsOfProperty(DCTerms.creator);
+        try {
+            while (it.hasNext()) {
+                RDFNode author = it.next();
+                if (author.isURIResource()) {
+                    authors.add(author.asResource().getURI());
+                }
+            }
+        } finally {
+            it.close();
+        }
+        Graph graph = model.getGraph();
+        if (!authors.isEmpty()) {
+            Map<String, String> names = UserNameResolver.getInstance().resolve(authors);
+            Model namesModel = ModelFactory.createDefaultModel();
+            final Set<Node> named = new HashSet<>();
+            for (String author : authors) {
+                Resource authorR = namesModel.createResource(author);
+                authorR.addProperty(RDF.type, FOAF.Agent);
+                if (names.containsKey(author)) {
+                    authorR.addProperty(FOAF.name, names.get(author));
+                    named.add(authorR.asNode());
+                }
+            }
+            // the small model goes first because the union remembers the triples of its left side
+            graph = new Union(namesModel.getGraph(), withoutNames(graph, named));
+        }
+        final PrefixMapping prefixes = new PrefixMappingImpl().setNsPrefixes(DefaultPrefixMapping.get());
+        Graph view = new WrappedGraph(graph) {
+
+            @Override
+            public PrefixMapping getPrefixMapping() {
+                return prefixes;
+            }
+        };
+        return ModelFactory.createModelForGraph(view);
+    }
+
+
+    /**
+     * Hide the foaf:name triples of some resources.
+     * 
+     * @param graph
+     *            the graph
+     * @param named
+     *            the resources
+     * @return a read-only view of the graph
+     */
+    private static Graph withoutNames(Graph graph, final Set<Node> named) {
+        if (named.isEmpty()) {
+            return graph;
+        }
+        final Filter<Triple> isHiddenName = new Filter<Triple>() {
+
+            @Override
+            public boolean accept(Triple triple) {
+                return triple.getPredicate().equals(FOAF.name.asNode()) && named.contains(triple.getSubject());
+            }
+        };
+        return new WrappedGraph(graph) {
+
+            @Override
+            public ExtendedIterator<Triple> find(TripleMatch m) {
+                return super.find(m).filterDrop(isHiddenName);
+            }
+
+
+            @Override
+            public ExtendedIterator<Triple> find(Node s, Node p, Node o) {
+                return super.find(s, p, o).filterDrop(isHiddenName);
+            }
+        };
+    }
+}
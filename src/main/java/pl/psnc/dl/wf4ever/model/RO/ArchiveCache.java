@@ -0,0 +1,260 @@
+package pl.psnc.dl.wf4ever.model.RO;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.input.TeeInputStream;
+import org.apache.log4j.Logger;
+
+import pl.psnc.dl.wf4ever.ApplicationProperties;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+
+/**
+ * ZIP archives of finalized snapshots and archives, kept on disk between requests. An archive is identified by the
+ * research object URI and the checksum of its manifest, so it is not used any more if the manifest changes. An archive
+ * is saved while it is sent to the first client that downloads it, and only if it has been read to the end. The total
+ * size of the archives is limited, the least recently used are removed first. The archives are kept in a subdirectory
+ * of the configured directory, which the cache empties when it starts.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public final class ArchiveCache {
+
+    /** Logger. */
+    private static final Logger LOGGER = Logger.getLogger(ArchiveCache.class);
+
+    /** Name of the subdirectory of the configured directory in which the archives are stored. */
+    static final String SUBDIRECTORY = "rodl-archives";
+
+    /** The only instance. */
+    private static ArchiveCache instance;
+
+    /** Archive files by key. */
+    private final Cache<String, File> archives;
+
+    /** Directory for the archives or null if the cache is disabled. */
+    private final File directory;
+
+    /** Number of archives found in the cache. */
+    private final AtomicLong hits = new AtomicLong();
+
+    /** Number of archives not found in the cache. */
+    private final AtomicLong misses = new AtomicLong();
+
+
+    /**
+     * Constructor.
+     * 
+     * @param maximumKilobytes
+     *            maximum total size of the archives
+     * @param directory
+     *            directory for the archives or null to disable the cache
+     */
+    ArchiveCache(long maximumKilobytes, File directory) {
+        this.directory = directory;
+        archives = CacheBuilder.newBuilder().maximumWeight(Math.max(maximumKilobytes, 0))
+                .weigher(new Weigher<String, File>() {
+
+                    @Override
+                    public int weigh(String key, File file) {
+                        return (int) Math.min(file.length() / FileUtils.ONE_KB + 1, Integer.MAX_VALUE);
+                    }
+                }).removalListener(new RemovalListener<String, File>() {
+
+                    @Override
+                    public void onRemoval(RemovalNotification<String, File> notification) {
+                        FileUtils.deleteQuietly(notification.getValue());
+                    }
+                }).build();
+    }
+
+
+    /**
+     * Get the only instance, with the size and the directory set in the application properties.
+     * 
+     * @return the archive cache
+     */
+    public static synchronized ArchiveCache getInstance() {
+        if (instance == null) {
+            File directory = null;
+            if (ApplicationProperties.getArchiveCacheDirectory() != null) {
+                File parent = new File(ApplicationProperties.getArchiveCacheDirectory());
+                try {
+                    directory = createDirectory(parent);
+                } catch (IOException e) {
+                    LOGGER.error("Can't use " + parent + " for ZIP archives, they will not be kept", e);
+                }
+            }
+            instance = new ArchiveCache(ApplicationProperties.getArchiveCacheSize() * FileUtils.ONE_KB, directory);
+        }
+        return instance;
+    }
+
+
+    /**
+     * Create an empty subdirectory for the archives, removing the files left by a previous run. Other files in the
+     * configured directory are not touched.
+     * 
+     * @param parent
+     *            the configured directory
+     * @return the subdirectory
+     * @throws IOException
+     *             when the subdirectory can't be created or emptied
+     */
+    static File createDirectory(File parent)
+            throws IOException {
+        File directory = new File(parent, SUBDIRECTORY);
+        FileUtils.forceMkdir(directory);
+        FileUtils.cleanDirectory(directory);
+        return directory;
+    }
+
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+
+    /**
+     * Get a cached archive.
+     * 
+     * @param researchObjectUri
+     *            research object URI
+     * @param manifestChecksum
+     *            checksum of the manifest
+     * @return the archive or null if it is not in the cache
+     */
+    public InputStream get(URI researchObjectUri, String manifestChecksum) {
+        File file = archives.getIfPresent(getKey(researchObjectUri, manifestChecksum));
+        if (file != null) {
+            try {
+                InputStream in = new FileInputStream(file);
+                hits.incrementAndGet();
+                return in;
+            } catch (FileNotFoundException e) {
+                LOGGER.warn("Archive " + file + " has been removed in the meantime");
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+
+    /**
+     * Save an archive while it is being read. If the returned stream is closed before it has been read to the end, the
+     * archive is not saved.
+     * 
+     * @param researchObjectUri
+     *            research object URI
+     * @param manifestChecksum
+     *            checksum of the manifest
+     * @param archive
+     *            the archive
+     * @return a stream with the same content, or the original stream if the archive can't be saved
+     */
+    public InputStream put(URI researchObjectUri, String manifestChecksum, InputStream archive) {
+        if (!isEnabled()) {
+            return archive;
+        }
+        final String key = getKey(researchObjectUri, manifestChecksum);
+        // every copy has its own file, so that a replaced copy can be deleted when it is still being read
+        final File file = new File(directory, key + "-" + UUID.randomUUID());
+        try {
+            return new TeeInputStream(archive, new FileOutputStream(file), true) {
+
+                /** Has the end of the archive been reached. */
+                private boolean complete = false;
+
+                /** Has the stream been closed. */
+                private boolean closed = false;
+
+
+                @Override
+                protected void afterRead(int n) {
+                    if (n == -1) {
+                        complete = true;
+                    }
+                }
+
+
+                @Override
+                public void close()
+                        throws IOException {
+                    if (closed) {
+                        return;
+                    }
+                    closed = true;
+                    try {
+                        super.close();
+                    } finally {
+                        if (complete) {
+                            archives.put(key, file);
+                        } else {
+                            FileUtils.deleteQuietly(file);
+                        }
+                    }
+                }
+            };
+        } catch (FileNotFoundException e) {
+            LOGGER.warn("Can't save the archive in " + file, e);
+            return archive;
+        }
+    }
+
+
+    /**
+     * Create a key of an archive.
+     * 
+     * @param researchObjectUri
+     *            research object URI
+     * @param manifestChecksum
+     *            checksum of the manifest
+     * @return the key, which can be used as a file name
+     */
+    private static String getKey(URI researchObjectUri, String manifestChecksum) {
+        return DigestUtils.md5Hex(researchObjectUri.toString() + " " + manifestChecksum);
+    }
+
+
+    /**
+     * Remove all archives.
+     */
+    public void invalidateAll() {
+        archives.invalidateAll();
+    }
+
+
+    public long getHits() {
+        return hits.get();
+    }
+
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+
+    /**
+     * Get the number of archives in the cache.
+     * 
+     * @return the number of archives
+     */
+    public long getSize() {
+        return archives.size();
+    }
+}
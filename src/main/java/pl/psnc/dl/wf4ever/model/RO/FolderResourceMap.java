@@ -5,21 +5,21 @@ import java.net.URI;
 import java.util.HashMap;
 import java.util.Map;
 
+import javax.ws.rs.core.StreamingOutput;
+
 import org.openrdf.rio.RDFFormat;
 
 import pl.psnc.dl.wf4ever.dl.UserMetadata;
 import pl.psnc.dl.wf4ever.model.Builder;
 import pl.psnc.dl.wf4ever.model.ORE.AggregatedResource;
 import pl.psnc.dl.wf4ever.model.ORE.ResourceMap;
+import pl.psnc.dl.wf4ever.sparql.PreparedQueries;
 import pl.psnc.dl.wf4ever.vocabulary.ORE;
 import pl.psnc.dl.wf4ever.vocabulary.RO;
 
 import com.hp.hpl.jena.ontology.Individual;
 import com.hp.hpl.jena.query.Dataset;
-import com.hp.hpl.jena.query.Query;
 import com.hp.hpl.jena.query.QueryExecution;
-import com.hp.hpl.jena.query.QueryExecutionFactory;
-import com.hp.hpl.jena.query.QueryFactory;
 import com.hp.hpl.jena.query.QuerySolution;
 import com.hp.hpl.jena.query.ReadWrite;
 import com.hp.hpl.jena.query.ResultSet;
@@ -115,13 +115,8 @@ public class FolderResourceMap extends ResourceMap {
         boolean transactionStarted = beginTransaction(ReadWrite.READ);
         try {
             Map<URI, FolderEntry> entries = new HashMap<>();
-            String queryString = String
-                    .format(
-                        "PREFIX ore: <%s> PREFIX ro: <%s> SELECT ?entry ?resource ?name WHERE { ?entry a ro:FolderEntry ; ro:entryName ?name ; ore:proxyFor ?resource ; ore:proxyIn <%s> . }",
-                        ORE.NAMESPACE, RO.NAMESPACE, aggregation.getUri().toString());
-
-            Query query = QueryFactory.create(queryString);
-            QueryExecution qe = QueryExecutionFactory.create(query, model);
+            QueryExecution qe = PreparedQueries.create(PreparedQueries.FOLDER_ENTRIES, model, "folder",
+                aggregation.getUri());
             try {
                 ResultSet results = qe.execSelect();
                 while (results.hasNext()) {
@@ -229,4 +224,10 @@ public class FolderResourceMap extends ResourceMap {
     public InputStream getPublicGraphAsInputStream(RDFFormat syntax) {
         return getGraphAsInputStream(syntax);
     }
+
+
+    @Override
+    public StreamingOutput getPublicGraphAsStreamingOutput(RDFFormat syntax) {
+        return getGraphAsStreamingOutput(syntax, false, null);
+    }
 }
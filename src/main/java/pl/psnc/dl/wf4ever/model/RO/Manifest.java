@@ -1,9 +1,11 @@
 package pl.psnc.dl.wf4ever.model.RO;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -14,10 +16,13 @@ import org.joda.time.DateTime;
 import pl.psnc.dl.wf4ever.db.UserProfile;
 import pl.psnc.dl.wf4ever.dl.UserMetadata;
 import pl.psnc.dl.wf4ever.model.Builder;
+import pl.psnc.dl.wf4ever.model.GraphVersions;
 import pl.psnc.dl.wf4ever.model.AO.Annotation;
 import pl.psnc.dl.wf4ever.model.ORE.AggregatedResource;
+import pl.psnc.dl.wf4ever.model.ORE.Proxy;
 import pl.psnc.dl.wf4ever.model.ORE.ResourceMap;
 import pl.psnc.dl.wf4ever.model.RDF.Thing;
+import pl.psnc.dl.wf4ever.sparql.PreparedQueries;
 import pl.psnc.dl.wf4ever.vocabulary.AO;
 import pl.psnc.dl.wf4ever.vocabulary.FOAF;
 import pl.psnc.dl.wf4ever.vocabulary.ORE;
@@ -25,15 +30,15 @@ import pl.psnc.dl.wf4ever.vocabulary.RO;
 
 import com.hp.hpl.jena.ontology.Individual;
 import com.hp.hpl.jena.query.Dataset;
-import com.hp.hpl.jena.query.Query;
 import com.hp.hpl.jena.query.QueryExecution;
-import com.hp.hpl.jena.query.QueryExecutionFactory;
-import com.hp.hpl.jena.query.QueryFactory;
 import com.hp.hpl.jena.query.QuerySolution;
 import com.hp.hpl.jena.query.ReadWrite;
 import com.hp.hpl.jena.query.ResultSet;
 import com.hp.hpl.jena.rdf.model.RDFNode;
+import com.hp.hpl.jena.rdf.model.Statement;
+import com.hp.hpl.jena.rdf.model.StmtIterator;
 import com.hp.hpl.jena.vocabulary.DCTerms;
+import com.hp.hpl.jena.vocabulary.RDF;
 
 /**
  * ro:Manifest.
@@ -204,6 +209,190 @@ public class Manifest extends ResourceMap {
 		}
 	}
 
+	/**
+	 * Read all aggregated resources, folders, annotations and their proxies in
+	 * one pass over the manifest graph and create the model instances.
+	 * 
+	 * @return the index of the manifest content
+	 */
+	public ManifestIndex extractIndex() {
+		return buildIndex(extractView());
+	}
+
+	/**
+	 * Read all aggregated resources, folders, annotations and their proxies in
+	 * one pass over the manifest graph.
+	 * 
+	 * @return the content of the manifest, not bound to this builder
+	 */
+	public ResearchObjectView extractView() {
+		// the version is read before the transaction starts, so that a write
+		// committed in between makes the view outdated and not the opposite
+		long version = GraphVersions.get(uri.toString());
+		boolean transactionStarted = beginTransaction(ReadWrite.READ);
+		try {
+			List<ResearchObjectView.Entry> entries = new ArrayList<>();
+			if (model == null) {
+				return new ResearchObjectView(aggregation.getUri(), version, entries);
+			}
+			Map<RDFNode, URI> blankNodes = new HashMap<>();
+
+			Map<RDFNode, URI> proxyUris = new HashMap<>();
+			StmtIterator it = model.listStatements(null, ORE.proxyFor, (RDFNode) null);
+			try {
+				while (it.hasNext()) {
+					Statement s = it.next();
+					if (s.getSubject().isURIResource() && !proxyUris.containsKey(s.getObject())) {
+						proxyUris.put(s.getObject(), URI.create(s.getSubject().getURI()));
+					}
+				}
+			} finally {
+				it.close();
+			}
+
+			com.hp.hpl.jena.rdf.model.Resource aggregationR = model.createResource(aggregation
+					.getUri().toString());
+			com.hp.hpl.jena.rdf.model.Resource manifestR = model.createResource(uri.toString());
+			for (Statement aggregatesS : aggregationR.listProperties(ORE.aggregates).toList()) {
+				RDFNode r = aggregatesS.getObject();
+				if (!r.isResource()) {
+					continue;
+				}
+				com.hp.hpl.jena.rdf.model.Resource resourceR = r.asResource();
+				boolean isAnnotation = model.contains(resourceR, RDF.type, RO.AggregatedAnnotation);
+				URI rUri;
+				if (resourceR.isURIResource()) {
+					rUri = URI.create(resourceR.getURI());
+				} else if (isAnnotation) {
+					rUri = getUri().resolve(UUID.randomUUID().toString());
+					blankNodes.put(r, rUri);
+				} else {
+					continue;
+				}
+				URI pUri = proxyUris.get(r);
+
+				URI creatorUri = null;
+				String creatorName = null;
+				Statement creatorS = resourceR.getProperty(DCTerms.creator);
+				if (creatorS != null && creatorS.getObject().isResource()) {
+					com.hp.hpl.jena.rdf.model.Resource creatorR = creatorS.getResource();
+					creatorUri = creatorR.isURIResource() ? URI.create(creatorR.getURI()) : null;
+					Statement nameS = creatorR.getProperty(FOAF.name);
+					if (nameS != null && nameS.getObject().isLiteral()) {
+						creatorName = nameS.getString();
+					}
+				}
+				Statement createdS = resourceR.getProperty(DCTerms.created);
+				DateTime resCreated = createdS != null && createdS.getObject().isLiteral() ? DateTime
+						.parse(createdS.getString()) : null;
+
+				boolean isFolder = model.contains(resourceR, RDF.type, RO.Folder);
+				URI rmUri = null;
+				boolean isRootFolder = false;
+				com.hp.hpl.jena.rdf.model.Resource rm = resourceR
+						.getPropertyResourceValue(ORE.isDescribedBy);
+				if (isFolder && rm != null && rm.isURIResource()) {
+					rmUri = URI.create(rm.getURI());
+					isRootFolder = model.contains(manifestR, RO.rootFolder, resourceR);
+				}
+				boolean isRoResource = !isFolder && pUri != null
+						&& model.contains(resourceR, RDF.type, RO.Resource);
+
+				URI bUri = null;
+				Set<URI> targets = new HashSet<>();
+				if (isAnnotation) {
+					for (Statement targetS : resourceR.listProperties(RO.annotatesAggregatedResource)
+							.toList()) {
+						if (targetS.getObject().isURIResource()) {
+							targets.add(URI.create(targetS.getResource().getURI()));
+						}
+					}
+					com.hp.hpl.jena.rdf.model.Resource b = resourceR.getPropertyResourceValue(AO.body);
+					bUri = b != null && b.isURIResource() ? URI.create(b.getURI()) : null;
+				}
+				entries.add(new ResearchObjectView.Entry(rUri, pUri, creatorUri, creatorName,
+						resCreated, isRoResource, rmUri, isRootFolder, bUri, targets));
+			}
+			for (Entry<RDFNode, URI> e : blankNodes.entrySet()) {
+				changeBlankNodeToUriResources(e.getValue(), e.getKey());
+			}
+			return new ResearchObjectView(aggregation.getUri(), version, entries);
+		} finally {
+			endTransaction(transactionStarted);
+		}
+	}
+
+	/**
+	 * Create the model instances of the aggregated resources, folders,
+	 * annotations and their proxies using the builder of this manifest.
+	 * 
+	 * @param view
+	 *            the content of the manifest
+	 * @return the index of the manifest content
+	 */
+	public ManifestIndex buildIndex(ResearchObjectView view) {
+		ResourceFactory resourceFactory = new ResourceFactory(builder);
+		Map<URI, Resource> resources2 = new HashMap<>();
+		Map<URI, Folder> folders2 = new HashMap<>();
+		Map<URI, Annotation> annotations2 = new HashMap<>();
+		Map<URI, AggregatedResource> aggregated = new HashMap<>();
+		Map<URI, Proxy> proxies2 = new HashMap<>();
+		Map<URI, UserMetadata> creators = new HashMap<>();
+		Map<URI, DateTime> created2 = new HashMap<>();
+		for (ResearchObjectView.Entry entry : view.getEntries()) {
+			URI rUri = entry.getUri();
+			UserProfile profile = null;
+			if (entry.getCreatorName() != null || entry.getCreatorUri() != null) {
+				profile = new UserProfile(entry.getCreatorName(), entry.getCreatorName(), null,
+						entry.getCreatorUri());
+				creators.put(rUri, profile);
+			}
+			if (entry.getCreated() != null) {
+				created2.put(rUri, entry.getCreated());
+			}
+
+			AggregatedResource resource = null;
+			if (entry.isFolder()) {
+				Folder folder = builder.buildFolder(rUri, getResearchObject(), profile,
+						entry.getCreated(), entry.getResourceMapUri());
+				folder.setRootFolder(entry.isRootFolder());
+				folders2.put(rUri, folder);
+				resource = folder;
+			}
+			if (entry.isRoResource()) {
+				Resource ro = resourceFactory.buildResource(rUri, getResearchObject(), profile,
+						entry.getCreated());
+				resources2.put(rUri, ro);
+				resource = resource != null ? resource : ro;
+			}
+			if (entry.isAnnotation()) {
+				Set<Thing> targets = new HashSet<>();
+				for (URI target : entry.getTargets()) {
+					// FIXME don't build things, look for them
+					targets.add(builder.buildThing(target));
+				}
+				Thing body = entry.getBodyUri() != null ? builder.buildThing(entry.getBodyUri())
+						: new Thing(null, null, false, null);
+				Annotation annotation = builder.buildAnnotation(rUri, getResearchObject(), body,
+						targets, profile, entry.getCreated());
+				annotations2.put(rUri, annotation);
+				resource = resource != null ? resource : annotation;
+			}
+			if (resource == null) {
+				resource = builder.buildAggregatedResource(rUri, getResearchObject(), profile,
+						entry.getCreated());
+			}
+			if (entry.getProxyUri() != null) {
+				Proxy proxy = builder.buildProxy(entry.getProxyUri(), resource, getResearchObject());
+				resource.setProxy(proxy);
+				proxies2.put(proxy.getUri(), proxy);
+			}
+			aggregated.put(rUri, resource);
+		}
+		return new ManifestIndex(resources2, folders2, annotations2, aggregated, proxies2, creators,
+				created2);
+	}
+
 	/**
 	 * Identify all aggregated resource, reusing the existing instances where
 	 * possible.
@@ -221,13 +410,8 @@ public class Manifest extends ResourceMap {
 		boolean transactionStarted = beginTransaction(ReadWrite.READ);
 		try {
 			Map<URI, AggregatedResource> aggregated = new HashMap<>();
-			String queryString = String
-					.format("PREFIX ore: <%s> PREFIX dcterms: <%s> PREFIX foaf: <%s> SELECT ?resource ?proxy ?created ?creator ?creatorname WHERE { <%s> ore:aggregates ?resource . OPTIONAL { ?resource a ore:AggregatedResource . } OPTIONAL { ?proxy ore:proxyFor ?resource . } OPTIONAL { ?resource dcterms:creator ?creator . OPTIONAL { ?creator foaf:name ?creatorname . } } OPTIONAL { ?resource dcterms:created ?created . } }",
-							ORE.NAMESPACE, DCTerms.NS, FOAF.NAMESPACE, aggregation.getUri()
-									.toString());
-
-			Query query = QueryFactory.create(queryString);
-			QueryExecution qe = QueryExecutionFactory.create(query, model);
+			QueryExecution qe = PreparedQueries.create(PreparedQueries.AGGREGATED_RESOURCES, model,
+					"aggregation", aggregation.getUri());
 			try {
 				ResultSet results = qe.execSelect();
 				while (results.hasNext()) {
@@ -291,13 +475,8 @@ public class Manifest extends ResourceMap {
 		boolean transactionStarted = beginTransaction(ReadWrite.READ);
 		try {
 			Map<URI, Resource> resources2 = new HashMap<>();
-			String queryString = String
-					.format("PREFIX ore: <%s> PREFIX dcterms: <%s> PREFIX ro: <%s> PREFIX foaf: <%s> SELECT ?resource ?proxy ?created ?creator ?creatorname WHERE { <%s> ore:aggregates ?resource . ?resource a ro:Resource . ?proxy ore:proxyFor ?resource . OPTIONAL { ?resource dcterms:creator ?creator . OPTIONAL { ?creator foaf:name ?creatorname . } } OPTIONAL { ?resource dcterms:created ?created . } }",
-							ORE.NAMESPACE, DCTerms.NS, RO.NAMESPACE, FOAF.NAMESPACE, aggregation
-									.getUri().toString());
-
-			Query query = QueryFactory.create(queryString);
-			QueryExecution qe = QueryExecutionFactory.create(query, model);
+			QueryExecution qe = PreparedQueries.create(PreparedQueries.RESOURCES, model, "aggregation",
+					aggregation.getUri());
 			try {
 				ResultSet results = qe.execSelect();
 				while (results.hasNext()) {
@@ -347,13 +526,11 @@ public class Manifest extends ResourceMap {
 		boolean transactionStarted = beginTransaction(ReadWrite.READ);
 		try {
 			Map<URI, Folder> folders2 = new HashMap<>();
-			String queryString = String
-					.format("PREFIX ore: <%s> PREFIX dcterms: <%s> PREFIX ro: <%s> PREFIX foaf: <%s> SELECT ?folder ?proxy ?resourcemap ?created ?creator ?creatorname WHERE { <%s> ore:aggregates ?folder . ?folder a ro:Folder ; ore:isDescribedBy ?resourcemap . OPTIONAL { ?proxy ore:proxyFor ?folder . } OPTIONAL { ?folder dcterms:creator ?creator . OPTIONAL { ?creator foaf:name ?creatorname . } } OPTIONAL { ?folder dcterms:created ?created . } }",
-							ORE.NAMESPACE, DCTerms.NS, RO.NAMESPACE, FOAF.NAMESPACE, aggregation
-									.getUri().toString());
-
-			Query query = QueryFactory.create(queryString);
-			QueryExecution qe = QueryExecutionFactory.create(query, model);
+			com.hp.hpl.jena.rdf.model.Resource aggregationR = model.createResource(aggregation
+					.getUri().toString());
+			com.hp.hpl.jena.rdf.model.Resource manifestR = model.createResource(uri.toString());
+			QueryExecution qe = PreparedQueries.create(PreparedQueries.FOLDERS, model, "aggregation",
+					aggregationR);
 			try {
 				ResultSet results = qe.execSelect();
 				while (results.hasNext()) {
@@ -377,18 +554,7 @@ public class Manifest extends ResourceMap {
 					RDFNode createdNode = solution.get("created");
 					DateTime resCreated = createdNode != null && createdNode.isLiteral() ? DateTime
 							.parse(createdNode.asLiteral().getString()) : null;
-
-					String queryString2 = String.format(
-							"PREFIX ro: <%s> ASK { <%s> ro:rootFolder <%s> }", RO.NAMESPACE,
-							uri.toString(), fURI.toString());
-					Query query2 = QueryFactory.create(queryString2);
-					QueryExecution qe2 = QueryExecutionFactory.create(query2, model);
-					boolean isRootFolder = false;
-					try {
-						isRootFolder = qe2.execAsk();
-					} finally {
-						qe2.close();
-					}
+					boolean isRootFolder = model.contains(manifestR, RO.rootFolder, f);
 
 					Folder folder = builder.buildFolder(fURI, getResearchObject(), profile,
 							resCreated, rmUri);
@@ -416,13 +582,8 @@ public class Manifest extends ResourceMap {
 		boolean transactionStarted = beginTransaction(ReadWrite.READ);
 		try {
 			Map<URI, Annotation> annotationsByUri = new HashMap<>();
-			String queryString = String
-					.format("PREFIX ore: <%s> PREFIX dcterms: <%s> PREFIX ao: <%s> PREFIX foaf: <%s> PREFIX ro: <%s> SELECT ?annotation ?body ?target ?created ?creator ?creatorname WHERE { <%s> ore:aggregates ?annotation . ?annotation a ro:AggregatedAnnotation ; ro:annotatesAggregatedResource ?target . OPTIONAL {?annotation ao:body ?body. }  OPTIONAL { ?proxy ore:proxyFor ?annotation . } OPTIONAL { ?annotation dcterms:creator ?creator . OPTIONAL { ?creator foaf:name ?creatorname . } } OPTIONAL { ?annotation dcterms:created ?created . } }",
-							ORE.NAMESPACE, DCTerms.NS, AO.NAMESPACE, FOAF.NAMESPACE, RO.NAMESPACE,
-							aggregation.getUri().toString());
-
-			Query query = QueryFactory.create(queryString);
-			QueryExecution qe = QueryExecutionFactory.create(query, model);
+			QueryExecution qe = PreparedQueries.create(PreparedQueries.ANNOTATIONS, model,
+					"aggregation", aggregation.getUri());
 			try {
 				Map<RDFNode, URI> blankNodes = new HashMap<>();
 				ResultSet results = qe.execSelect();
@@ -506,12 +667,9 @@ public class Manifest extends ResourceMap {
 	public URI extractAlternativeFormat(String mimeType) {
 		boolean transactionStarted = beginTransaction(ReadWrite.READ);
 		try {
-			String queryString = String
-					.format("PREFIX dcterms: <%s> SELECT ?format WHERE { <%s> dcterms:hasFormat ?format . ?format dcterms:format \"%s\" . }",
-							DCTerms.NS, aggregation.getUri().toString(), mimeType);
-
-			Query query = QueryFactory.create(queryString);
-			QueryExecution qe = QueryExecutionFactory.create(query, model);
+			QueryExecution qe = PreparedQueries.create(PreparedQueries.ALTERNATIVE_FORMAT, model,
+					"aggregation", model.createResource(aggregation.getUri().toString()), "mimetype",
+					model.createLiteral(mimeType));
 			try {
 				ResultSet results = qe.execSelect();
 				if (results.hasNext()) {
@@ -559,12 +717,8 @@ public class Manifest extends ResourceMap {
 		Set<URI> uris = new HashSet<>();
 		boolean transactionStarted = beginTransaction(ReadWrite.READ);
 		try {
-			String queryString = String
-					.format("PREFIX ore: <%s> PREFIX ro: <%s> SELECT ?parent WHERE { ?parent a ro:ResearchObject; ore:aggregates <%s> . }",
-							ORE.NAMESPACE, RO.NAMESPACE, aggregation.getUri().toString());
-
-			Query query = QueryFactory.create(queryString);
-			QueryExecution qe = QueryExecutionFactory.create(query, model);
+			QueryExecution qe = PreparedQueries.create(PreparedQueries.AGGREGATING_RESEARCH_OBJECTS,
+					model, "aggregation", aggregation.getUri());
 			try {
 				ResultSet results = qe.execSelect();
 				while (results.hasNext()) {
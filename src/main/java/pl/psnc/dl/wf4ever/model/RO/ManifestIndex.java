@@ -0,0 +1,111 @@
+package pl.psnc.dl.wf4ever.model.RO;
+
+import java.net.URI;
+import java.util.Map;
+
+import org.joda.time.DateTime;
+
+import pl.psnc.dl.wf4ever.dl.UserMetadata;
+import pl.psnc.dl.wf4ever.model.AO.Annotation;
+import pl.psnc.dl.wf4ever.model.ORE.AggregatedResource;
+import pl.psnc.dl.wf4ever.model.ORE.Proxy;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * The content of a manifest, read in one pass over the manifest graph. All maps are immutable and share the same
+ * instances, i.e. a folder in {@link #getFolders()} is the same object as in {@link #getAggregatedResources()}.
+ * 
+ * @see Manifest#extractIndex()
+ * @author piotrekhol
+ * 
+ */
+public final class ManifestIndex {
+
+    /** aggregated ro:Resources, excluding ro:Folders. */
+    private final Map<URI, Resource> resources;
+
+    /** aggregated ro:Folders. */
+    private final Map<URI, Folder> folders;
+
+    /** aggregated annotations. */
+    private final Map<URI, Annotation> annotations;
+
+    /** all aggregated resources, including annotations, resources and folders. */
+    private final Map<URI, AggregatedResource> aggregatedResources;
+
+    /** proxies of the aggregated resources. */
+    private final Map<URI, Proxy> proxies;
+
+    /** authors of the aggregated resources, if known. */
+    private final Map<URI, UserMetadata> creators;
+
+    /** creation dates of the aggregated resources, if known. */
+    private final Map<URI, DateTime> created;
+
+
+    /**
+     * Constructor.
+     * 
+     * @param resources
+     *            aggregated ro:Resources, excluding ro:Folders
+     * @param folders
+     *            aggregated ro:Folders
+     * @param annotations
+     *            aggregated annotations
+     * @param aggregatedResources
+     *            all aggregated resources
+     * @param proxies
+     *            proxies of the aggregated resources
+     * @param creators
+     *            authors of the aggregated resources
+     * @param created
+     *            creation dates of the aggregated resources
+     */
+    ManifestIndex(Map<URI, Resource> resources, Map<URI, Folder> folders, Map<URI, Annotation> annotations,
+            Map<URI, AggregatedResource> aggregatedResources, Map<URI, Proxy> proxies, Map<URI, UserMetadata> creators,
+            Map<URI, DateTime> created) {
+        this.resources = ImmutableMap.copyOf(resources);
+        this.folders = ImmutableMap.copyOf(folders);
+        this.annotations = ImmutableMap.copyOf(annotations);
+        this.aggregatedResources = ImmutableMap.copyOf(aggregatedResources);
+        this.proxies = ImmutableMap.copyOf(proxies);
+        this.creators = ImmutableMap.copyOf(creators);
+        this.created = ImmutableMap.copyOf(created);
+    }
+
+
+    public Map<URI, Resource> getResources() {
+        return resources;
+    }
+
+
+    public Map<URI, Folder> getFolders() {
+        return folders;
+    }
+
+
+    public Map<URI, Annotation> getAnnotations() {
+        return annotations;
+    }
+
+
+    public Map<URI, AggregatedResource> getAggregatedResources() {
+        return aggregatedResources;
+    }
+
+
+    public Map<URI, Proxy> getProxies() {
+        return proxies;
+    }
+
+
+    public Map<URI, UserMetadata> getCreators() {
+        return creators;
+    }
+
+
+    public Map<URI, DateTime> getCreated() {
+        return created;
+    }
+}
@@ -34,6 +34,7 @@ import pl.psnc.dl.wf4ever.db.ResearchObjectId;
 import pl.psnc.dl.wf4ever.db.dao.ResearchObjectIdDAO;
 import pl.psnc.dl.wf4ever.dl.ConflictException;
 import pl.psnc.dl.wf4ever.dl.NotFoundException;
+import pl.psnc.dl.wf4ever.dl.ResourceMetadata;
 import pl.psnc.dl.wf4ever.dl.UserMetadata;
 import pl.psnc.dl.wf4ever.dl.UserMetadata.Role;
 import pl.psnc.dl.wf4ever.eventbus.events.ROAfterCreateEvent;
@@ -57,10 +58,12 @@ import pl.psnc.dl.wf4ever.preservation.model.ResearchObjectComponentSerializable
 import pl.psnc.dl.wf4ever.preservation.model.ResearchObjectSerializable;
 import pl.psnc.dl.wf4ever.searchserver.SearchServer;
 import pl.psnc.dl.wf4ever.searchserver.solr.SolrSearchServer;
+import pl.psnc.dl.wf4ever.storage.BatchDigitalLibrary;
 import pl.psnc.dl.wf4ever.util.MemoryZipFile;
 import pl.psnc.dl.wf4ever.util.MimeTypeUtil;
 import pl.psnc.dl.wf4ever.vocabulary.ORE;
 import pl.psnc.dl.wf4ever.vocabulary.RO;
+import pl.psnc.dl.wf4ever.vocabulary.ROEVO;
 import pl.psnc.dl.wf4ever.zip.ROFromZipJobStatus;
 
 import com.google.common.collect.HashMultimap;
@@ -75,9 +78,11 @@ import com.hp.hpl.jena.query.QuerySolution;
 import com.hp.hpl.jena.query.ReadWrite;
 import com.hp.hpl.jena.query.ResultSet;
 import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.Literal;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
 import com.hp.hpl.jena.rdf.model.RDFNode;
 import com.hp.hpl.jena.vocabulary.DCTerms;
+import com.hp.hpl.jena.vocabulary.RDF;
 
 /**
  * A research object, live by default.
@@ -129,6 +134,9 @@ public class ResearchObject extends Thing implements Aggregation, ResearchObject
     /** Manifest. */
     private Manifest manifest;
 
+    /** Content of the manifest, read once when any of the aggregated resources is needed. */
+    private ManifestIndex manifestIndex;
+
     /** Evolution information annotation body. */
     private LiveEvoInfo evoInfo;
 
@@ -944,7 +952,7 @@ public class ResearchObject extends Thing implements Aggregation, ResearchObject
      */
     public Map<URI, Resource> getResources() {
         if (resources == null) {
-            this.resources = getManifest().extractResources();
+            loadManifestIndex();
         }
         return resources;
     }
@@ -957,7 +965,7 @@ public class ResearchObject extends Thing implements Aggregation, ResearchObject
      */
     public Map<URI, Folder> getFolders() {
         if (folders == null) {
-            this.folders = getManifest().extractFolders();
+            loadManifestIndex();
         }
         return folders;
     }
@@ -1026,7 +1034,7 @@ public class ResearchObject extends Thing implements Aggregation, ResearchObject
      */
     public Map<URI, Annotation> getAnnotations() {
         if (annotations == null) {
-            this.annotations = getManifest().extractAnnotations();
+            loadManifestIndex();
         }
         return annotations;
     }
@@ -1074,13 +1082,55 @@ public class ResearchObject extends Thing implements Aggregation, ResearchObject
     @Override
     public Map<URI, AggregatedResource> getAggregatedResources() {
         if (aggregatedResources == null) {
-            this.aggregatedResources = getManifest().extractAggregatedResources(getResources(), getFolders(),
-                getAnnotations());
+            loadManifestIndex();
         }
         return aggregatedResources;
     }
 
 
+    /**
+     * Check if this research object can't be modified, i.e. it is a snapshot or an archive.
+     * 
+     * @return false for live research objects
+     */
+    public boolean isImmutable() {
+        return false;
+    }
+
+
+    /**
+     * Get the content of the manifest, loaded lazily in one pass over the manifest. The index is not updated when
+     * resources are added or removed, use {@link #getAggregatedResources()} and other getters instead.
+     * 
+     * @return the manifest index
+     */
+    public ManifestIndex getManifestIndex() {
+        if (manifestIndex == null) {
+            loadManifestIndex();
+        }
+        return manifestIndex;
+    }
+
+
+    /**
+     * Read the manifest and initialize the aggregated resources, ro:Resources, ro:Folders and annotations with the
+     * same instances. Research objects in the default dataset are read from {@link ResearchObjectCache} if possible.
+     */
+    private void loadManifestIndex() {
+        ResearchObjectView view;
+        if (Builder.isDefaultDataset(dataset)) {
+            view = ResearchObjectCache.getInstance().get(getManifest(), isImmutable());
+        } else {
+            view = getManifest().extractView();
+        }
+        this.manifestIndex = getManifest().buildIndex(view);
+        this.resources = new HashMap<>(manifestIndex.getResources());
+        this.folders = new HashMap<>(manifestIndex.getFolders());
+        this.annotations = new HashMap<>(manifestIndex.getAnnotations());
+        this.aggregatedResources = new HashMap<>(manifestIndex.getAggregatedResources());
+    }
+
+
     @Override
     public ResourceMap getResourceMap() {
         return getManifest();
@@ -1104,6 +1154,39 @@ public class ResearchObject extends Thing implements Aggregation, ResearchObject
     }
 
 
+    /**
+     * Load the stats of all aggregated resources and resource maps at once, if the digital library supports it, and
+     * use them to check which aggregated resources are internal. Otherwise, or for the resources without stats, the
+     * stats are loaded and the content is checked separately for each resource when needed.
+     */
+    public void loadStats() {
+        if (!(builder.getDigitalLibrary() instanceof BatchDigitalLibrary)) {
+            return;
+        }
+        BatchDigitalLibrary dl = (BatchDigitalLibrary) builder.getDigitalLibrary();
+        Map<String, ResourceMetadata> stats = dl.getFileInfos(uri);
+        for (AggregatedResource resource : getAggregatedResources().values()) {
+            String path = resource.getPath();
+            if (path == null || path.isEmpty()) {
+                continue;
+            }
+            ResourceMetadata resourceStats = stats.get(path);
+            if (resourceStats != null) {
+                resource.setStats(resourceStats);
+                // no other query is needed to check if the content is stored
+                resource.setInternal(dl.hasContent(resourceStats));
+            }
+            // without stats the library is asked when needed, files stored before the stats were kept have none
+        }
+        for (ResourceMap resourceMap : getResourceMaps().values()) {
+            String path = resourceMap.getPath();
+            if (path != null && stats.containsKey(path)) {
+                resourceMap.setStats(stats.get(path));
+            }
+        }
+    }
+
+
     @Override
     public DateTime getCreated() {
         if (created == null) {
@@ -1136,8 +1219,47 @@ public class ResearchObject extends Thing implements Aggregation, ResearchObject
     }
 
 
+    /**
+     * Get the ZIP archive with the content of this research object. The archives of finalized snapshots and archives
+     * are read from {@link ArchiveCache} if possible.
+     * 
+     * @return an input stream with the archive
+     */
     public InputStream getAsZipArchive() {
-        return builder.getDigitalLibrary().getZippedResearchObject(uri);
+        ArchiveCache cache = ArchiveCache.getInstance();
+        String manifestChecksum = getManifest().getStats() != null ? getManifest().getStats().getChecksum() : null;
+        if (!cache.isEnabled() || manifestChecksum == null || !isFinalizedCopy()) {
+            return builder.getDigitalLibrary().getZippedResearchObject(uri);
+        }
+        InputStream archive = cache.get(uri, manifestChecksum);
+        if (archive == null) {
+            archive = cache.put(uri, manifestChecksum, builder.getDigitalLibrary().getZippedResearchObject(uri));
+        }
+        return archive;
+    }
+
+
+    /**
+     * Check if this research object is a snapshot or an archive that has been finalized, so its content can't change.
+     * 
+     * @return true if this is a finalized snapshot or archive
+     */
+    private boolean isFinalizedCopy() {
+        EvoInfo evoInfo = getEvoInfo();
+        if (evoInfo == null) {
+            return false;
+        }
+        Multimap<URI, Object> description = evoInfo.getDescriptionFor(uri);
+        Collection<Object> types = description.get(URI.create(RDF.type.getURI()));
+        if (!types.contains(ROEVO.SnapshotRO) && !types.contains(ROEVO.ArchivedRO)) {
+            return false;
+        }
+        for (Object finalized : description.get(URI.create(ROEVO.NAMESPACE + "isFinalized"))) {
+            if (finalized instanceof Literal && !((Literal) finalized).getBoolean()) {
+                return false;
+            }
+        }
+        return true;
     }
 
 
@@ -1193,7 +1315,7 @@ public class ResearchObject extends Thing implements Aggregation, ResearchObject
     @Override
     public Map<URI, ResearchObjectComponentSerializable> getSerializables() {
         HashMap<URI, ResearchObjectComponentSerializable> result = new HashMap<>();
-
+        loadStats();
         for (URI uri : getAggregatedResources().keySet()) {
             if (getAggregatedResources().get(uri).isInternal()) {
                 result.put(uri, getAggregatedResources().get(uri));
@@ -0,0 +1,134 @@
+package pl.psnc.dl.wf4ever.model.RO;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import pl.psnc.dl.wf4ever.ApplicationProperties;
+import pl.psnc.dl.wf4ever.model.GraphVersions;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Views of research objects loaded from the shared dataset, kept between requests. A view is valid as long as the
+ * version of the manifest graph it was read from has not changed. Views of live research objects are kept in an LRU
+ * cache of a limited size, views of snapshots and archives, which don't change, are kept as long as there is enough
+ * memory.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public final class ResearchObjectCache {
+
+    /** Logger. */
+    private static final Logger LOGGER = Logger.getLogger(ResearchObjectCache.class);
+
+    /** The only instance. */
+    private static ResearchObjectCache instance;
+
+    /** Views of live research objects, by research object URI. */
+    private final Cache<URI, ResearchObjectView> liveViews;
+
+    /** Views of snapshots and archives, by research object URI. */
+    private final Cache<URI, ResearchObjectView> immutableViews;
+
+    /** Number of views found in the cache. */
+    private final AtomicLong hits = new AtomicLong();
+
+    /** Number of views read from the manifest. */
+    private final AtomicLong misses = new AtomicLong();
+
+
+    /**
+     * Constructor.
+     * 
+     * @param maximumSize
+     *            maximum number of live research objects
+     */
+    ResearchObjectCache(int maximumSize) {
+        liveViews = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+        immutableViews = CacheBuilder.newBuilder().softValues().build();
+    }
+
+
+    /**
+     * Get the only instance, with the size set in the application properties.
+     * 
+     * @return the research object cache
+     */
+    public static synchronized ResearchObjectCache getInstance() {
+        if (instance == null) {
+            instance = new ResearchObjectCache(ApplicationProperties.getResearchObjectCacheSize());
+        }
+        return instance;
+    }
+
+
+    /**
+     * Get the view of a research object, reading it from the manifest if it is not in the cache or if the manifest has
+     * changed.
+     * 
+     * @param manifest
+     *            the manifest of the research object
+     * @param immutable
+     *            true if the research object is a snapshot or an archive
+     * @return the research object view
+     */
+    public ResearchObjectView get(Manifest manifest, boolean immutable) {
+        URI researchObjectUri = manifest.getResearchObject().getUri();
+        Cache<URI, ResearchObjectView> views = immutable ? immutableViews : liveViews;
+        ResearchObjectView view = views.getIfPresent(researchObjectUri);
+        if (view != null && view.getVersion() == GraphVersions.get(manifest.getUri().toString())) {
+            hits.incrementAndGet();
+            return view;
+        }
+        misses.incrementAndGet();
+        view = manifest.extractView();
+        views.put(researchObjectUri, view);
+        return view;
+    }
+
+
+    /**
+     * Remove the view of a research object.
+     * 
+     * @param researchObjectUri
+     *            research object URI
+     */
+    public void invalidate(URI researchObjectUri) {
+        LOGGER.debug("Removing from cache: " + researchObjectUri);
+        liveViews.invalidate(researchObjectUri);
+        immutableViews.invalidate(researchObjectUri);
+    }
+
+
+    /**
+     * Remove all views.
+     */
+    public void invalidateAll() {
+        liveViews.invalidateAll();
+        immutableViews.invalidateAll();
+    }
+
+
+    public long getHits() {
+        return hits.get();
+    }
+
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+
+    /**
+     * Get the number of views in the cache.
+     * 
+     * @return the number of live and immutable research objects
+     */
+    public long getSize() {
+        return liveViews.size() + immutableViews.size();
+    }
+}
@@ -0,0 +1,201 @@
+package pl.psnc.dl.wf4ever.model.RO;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Set;
+
+import org.joda.time.DateTime;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * The resources aggregated by a research object as described in its manifest, independent of any builder or dataset.
+ * Instances are immutable and may be shared by many requests, see {@link ResearchObjectCache}. The model objects are
+ * created from the view by {@link Manifest#buildIndex(ResearchObjectView)}.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public final class ResearchObjectView {
+
+    /** Research object URI. */
+    private final URI uri;
+
+    /** Version of the manifest named graph that was read. */
+    private final long version;
+
+    /** Aggregated resources. */
+    private final List<Entry> entries;
+
+
+    /**
+     * Constructor.
+     * 
+     * @param uri
+     *            research object URI
+     * @param version
+     *            version of the manifest named graph that was read
+     * @param entries
+     *            aggregated resources
+     */
+    public ResearchObjectView(URI uri, long version, List<Entry> entries) {
+        this.uri = uri;
+        this.version = version;
+        this.entries = ImmutableList.copyOf(entries);
+    }
+
+
+    public URI getUri() {
+        return uri;
+    }
+
+
+    public long getVersion() {
+        return version;
+    }
+
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+
+    /**
+     * An aggregated resource.
+     * 
+     * @author piotrekhol
+     * 
+     */
+    public static final class Entry {
+
+        /** Resource URI. */
+        private final URI uri;
+
+        /** Proxy URI or null. */
+        private final URI proxyUri;
+
+        /** Author URI or null. */
+        private final URI creatorUri;
+
+        /** Author name or null. */
+        private final String creatorName;
+
+        /** Creation date or null. */
+        private final DateTime created;
+
+        /** Is it an ro:Resource that has a proxy and is not an ro:Folder. */
+        private final boolean roResource;
+
+        /** Resource map URI if it is an ro:Folder, null otherwise. */
+        private final URI resourceMapUri;
+
+        /** Is it the root folder. */
+        private final boolean rootFolder;
+
+        /** Annotation body URI or null. */
+        private final URI bodyUri;
+
+        /** Annotation targets, empty if it is not an ro:AggregatedAnnotation. */
+        private final Set<URI> targets;
+
+
+        /**
+         * Constructor.
+         * 
+         * @param uri
+         *            resource URI
+         * @param proxyUri
+         *            proxy URI or null
+         * @param creatorUri
+         *            author URI or null
+         * @param creatorName
+         *            author name or null
+         * @param created
+         *            creation date or null
+         * @param roResource
+         *            is it an ro:Resource that has a proxy and is not an ro:Folder
+         * @param resourceMapUri
+         *            resource map URI if it is an ro:Folder, null otherwise
+         * @param rootFolder
+         *            is it the root folder
+         * @param bodyUri
+         *            annotation body URI or null
+         * @param targets
+         *            annotation targets, empty if it is not an ro:AggregatedAnnotation
+         */
+        public Entry(URI uri, URI proxyUri, URI creatorUri, String creatorName, DateTime created,
+                boolean roResource, URI resourceMapUri, boolean rootFolder, URI bodyUri, Set<URI> targets) {
+            this.uri = uri;
+            this.proxyUri = proxyUri;
+            this.creatorUri = creatorUri;
+            this.creatorName = creatorName;
+            this.created = created;
+            this.roResource = roResource;
+            this.resourceMapUri = resourceMapUri;
+            this.rootFolder = rootFolder;
+            this.bodyUri = bodyUri;
+            this.targets = ImmutableSet.copyOf(targets);
+        }
+
+
+        public URI getUri() {
+            return uri;
+        }
+
+
+        public URI getProxyUri() {
+            return proxyUri;
+        }
+
+
+        public URI getCreatorUri() {
+            return creatorUri;
+        }
+
+
+        public String getCreatorName() {
+            return creatorName;
+        }
+
+
+        public DateTime getCreated() {
+            return created;
+        }
+
+
+        public boolean isRoResource() {
+            return roResource;
+        }
+
+
+        public boolean isFolder() {
+            return resourceMapUri != null;
+        }
+
+
+        public URI getResourceMapUri() {
+            return resourceMapUri;
+        }
+
+
+        public boolean isRootFolder() {
+            return rootFolder;
+        }
+
+
+        public boolean isAnnotation() {
+            return !targets.isEmpty();
+        }
+
+
+        public URI getBodyUri() {
+            return bodyUri;
+        }
+
+
+        public Set<URI> getTargets() {
+            return targets;
+        }
+    }
+}
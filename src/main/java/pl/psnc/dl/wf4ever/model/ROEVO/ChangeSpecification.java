@@ -73,6 +73,8 @@ public class ChangeSpecification extends Thing {
 
     public Set<Change> createChanges(ImmutableResearchObject previousRO) {
         //FIXME this could use the "copyOf" property instead of URI lookup
+        researchObject.loadStats();
+        previousRO.loadStats();
         for (AggregatedResource resource : researchObject.getAggregatedResources().values()) {
             URI previousUri = previousRO.getUri().resolve(resource.getRawPath());
             if (!resource.isSpecialResource() && !previousRO.isUriUsed(previousUri)) {
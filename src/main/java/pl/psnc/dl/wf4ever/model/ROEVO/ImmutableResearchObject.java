@@ -7,7 +7,9 @@ import java.util.List;
 import org.apache.log4j.Logger;
 import org.joda.time.DateTime;
 
+import pl.psnc.dl.wf4ever.db.ResearchObjectEntry;
 import pl.psnc.dl.wf4ever.db.ResearchObjectId;
+import pl.psnc.dl.wf4ever.db.dao.ResearchObjectEntryDAO;
 import pl.psnc.dl.wf4ever.db.dao.ResearchObjectIdDAO;
 import pl.psnc.dl.wf4ever.dl.ConflictException;
 import pl.psnc.dl.wf4ever.dl.UserMetadata;
@@ -58,12 +60,18 @@ public class ImmutableResearchObject extends ResearchObject implements Comparabl
     }
 
 
+    @Override
+    public boolean isImmutable() {
+        return true;
+    }
+
+
     /**
      * Create a new immutable research object as a copy of a live one. Copies all aggregated resources, changes URIs in
      * annotation bodies.
      * 
      * @param uri
-     *            URI of the copy
+     *            URI of the copy, already reserved with {@link ResearchObjectIdDAO#assignId(ResearchObjectId)}
      * @param researchObject
      *            live research object
      * @param builder
@@ -74,8 +82,6 @@ public class ImmutableResearchObject extends ResearchObject implements Comparabl
      */
     public static ImmutableResearchObject create(URI uri, ResearchObject researchObject, Builder builder,
             EvoType evoType) {
-        ResearchObjectIdDAO idDAO = new ResearchObjectIdDAO();
-        uri = idDAO.assignId(new ResearchObjectId(uri)).getId();
         if (ResearchObject.get(builder, uri) != null) {
             throw new ConflictException("Research Object already exists: " + uri);
         }
@@ -87,6 +93,9 @@ public class ImmutableResearchObject extends ResearchObject implements Comparabl
         EvoBuilder evoBuilder = EvoBuilder.get(evoType);
         immutableResearchObject.copy(researchObject.getManifest(), evoBuilder);
         immutableResearchObject.save(evoType);
+        // snapshots and archives don't post the creation event, which would also give them their own access mode
+        URI creator = researchObject.getCreator() != null ? researchObject.getCreator().getUri() : null;
+        new ResearchObjectEntryDAO().save(new ResearchObjectEntry(uri, creator, researchObject.getCreated(), evoType));
         // copy the ro:Resources
         for (pl.psnc.dl.wf4ever.model.RO.Resource resource : researchObject.getResources().values()) {
             try {
@@ -0,0 +1,26 @@
+package pl.psnc.dl.wf4ever.model;
+
+import javax.ws.rs.core.StreamingOutput;
+
+import org.openrdf.rio.RDFFormat;
+
+import pl.psnc.dl.wf4ever.preservation.model.ResearchObjectComponentSerializable;
+
+/**
+ * A research object component that can also be written directly to a response.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public interface ResearchObjectComponentStreamable extends ResearchObjectComponentSerializable {
+
+    /**
+     * Return this resource as a named graph in a selected RDF format, to be used as a response entity. The graph is
+     * written the same way as {@link #getPublicGraphAsInputStream(RDFFormat)} returns it.
+     * 
+     * @param syntax
+     *            RDF format
+     * @return an output to be used as the response entity or null of no model is found
+     */
+    StreamingOutput getPublicGraphAsStreamingOutput(RDFFormat syntax);
+}
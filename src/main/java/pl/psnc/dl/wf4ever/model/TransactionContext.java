@@ -0,0 +1,226 @@
+package pl.psnc.dl.wf4ever.model;
+
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.hp.hpl.jena.query.Dataset;
+import com.hp.hpl.jena.query.ReadWrite;
+import com.hp.hpl.jena.tdb.TDB;
+
+/**
+ * Transactions opened on a Jena dataset on behalf of one builder and all model instances it creates.
+ * 
+ * TDB keeps the transaction state per thread and allows many read transactions or one write transaction at a time, so
+ * no additional locking is done here. Only the first call to {@link #begin(ReadWrite)} in a thread opens a
+ * transaction, nested calls join it and get false, so that they don't commit or end it.
+ * 
+ * The named graphs written in a transaction get a new version in {@link GraphVersions} once the transaction is
+ * committed. Without transactions, the version changes immediately. The written graphs are recorded per thread and
+ * dataset, not per context, so that they get a new version whichever context commits the transaction. A write
+ * transaction that commits without any graph marked as written increments the versions of all graphs.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public class TransactionContext {
+
+    /** Writes done in the transactions open in the current thread, by dataset. */
+    private static final ThreadLocal<Map<Dataset, Modifications>> MODIFICATIONS
+            = new ThreadLocal<Map<Dataset, Modifications>>() {
+
+        @Override
+        protected Map<Dataset, Modifications> initialValue() {
+            return new IdentityHashMap<>();
+        }
+    };
+
+    /** Jena dataset. */
+    private final Dataset dataset;
+
+    /** Use transactions on the Jena dataset. */
+    private final boolean useTransactions;
+
+
+    /**
+     * Constructor.
+     * 
+     * @param dataset
+     *            Jena dataset
+     * @param useTransactions
+     *            Use transactions on the Jena dataset
+     */
+    public TransactionContext(Dataset dataset, boolean useTransactions) {
+        this.dataset = dataset;
+        this.useTransactions = useTransactions;
+    }
+
+
+    public Dataset getDataset() {
+        return dataset;
+    }
+
+
+    public boolean isUseTransactions() {
+        return useTransactions;
+    }
+
+
+    /**
+     * Check if transactions are used and there is a transaction open in the current thread.
+     * 
+     * @return true if there is an open transaction
+     */
+    public boolean isInTransaction() {
+        return isTransactional() && dataset.isInTransaction();
+    }
+
+
+    /**
+     * Start a TDB transaction provided that the flag useTransactions is set, the dataset supports transactions and
+     * there is no open transaction.
+     * 
+     * @param mode
+     *            read or write
+     * @return true if a new transaction has been started, false otherwise
+     */
+    public boolean begin(ReadWrite mode) {
+        if (isTransactional() && !dataset.isInTransaction()) {
+            dataset.begin(mode);
+            if (mode == ReadWrite.WRITE) {
+                MODIFICATIONS.get().put(dataset, new Modifications());
+            }
+            return true;
+        }
+        return false;
+    }
+
+
+    /**
+     * Commit the transaction provided that it has been started by the caller.
+     * 
+     * @param wasStarted
+     *            a convenience parameter to specify if the transaction should be committed
+     */
+    public void commit(boolean wasStarted) {
+        if (isTransactional() && wasStarted) {
+            dataset.commit();
+            Modifications modifications = MODIFICATIONS.get().remove(dataset);
+            if (modifications != null) {
+                modifications.apply();
+            }
+        }
+    }
+
+
+    /**
+     * Mark a named graph as written in the current transaction, or increment its version if there is no transaction.
+     * 
+     * @param graphUri
+     *            named graph URI
+     */
+    public void markModified(String graphUri) {
+        if (isInTransaction()) {
+            getModifications().graphs.add(graphUri);
+        } else {
+            GraphVersions.increment(graphUri);
+        }
+    }
+
+
+    /**
+     * Mark all named graphs as written in the current transaction, or increment their versions if there is no
+     * transaction. Used for writes that may touch any graph, such as SPARQL updates.
+     */
+    public void markAllModified() {
+        if (isInTransaction()) {
+            getModifications().all = true;
+        } else {
+            GraphVersions.incrementAll();
+        }
+    }
+
+
+    /**
+     * End the transaction provided that it has been started by the caller.
+     * 
+     * @param wasStarted
+     *            a convenience parameter to specify if the transaction should be ended
+     */
+    public void end(boolean wasStarted) {
+        if (isTransactional() && wasStarted) {
+            MODIFICATIONS.get().remove(dataset);
+            TDB.sync(dataset);
+            dataset.end();
+        }
+    }
+
+
+    /**
+     * Abort the transaction provided that it has been started by the caller.
+     * 
+     * @param wasStarted
+     *            a convenience parameter to specify if the transaction should be aborted
+     */
+    public void abort(boolean wasStarted) {
+        if (isTransactional() && wasStarted) {
+            MODIFICATIONS.get().remove(dataset);
+            dataset.abort();
+        }
+    }
+
+
+    /**
+     * Check if transactions should be used on this dataset.
+     * 
+     * @return true if the flag useTransactions is set and the dataset supports transactions
+     */
+    private boolean isTransactional() {
+        return useTransactions && dataset.supportsTransactions();
+    }
+
+
+    /**
+     * Get the writes recorded for the transaction open on this dataset in the current thread.
+     * 
+     * @return the writes, never null
+     */
+    private Modifications getModifications() {
+        Modifications modifications = MODIFICATIONS.get().get(dataset);
+        if (modifications == null) {
+            modifications = new Modifications();
+            MODIFICATIONS.get().put(dataset, modifications);
+        }
+        return modifications;
+    }
+
+
+    /**
+     * Named graphs written in a transaction.
+     * 
+     * @author piotrekhol
+     * 
+     */
+    private static class Modifications {
+
+        /** Named graphs written. */
+        private final Set<String> graphs = new HashSet<>();
+
+        /** True if any graph may have been written. */
+        private boolean all;
+
+
+        /**
+         * Increment the versions of the written graphs, or of all graphs if none is known.
+         */
+        void apply() {
+            if (all || graphs.isEmpty()) {
+                GraphVersions.incrementAll();
+            }
+            for (String graph : graphs) {
+                GraphVersions.increment(graph);
+            }
+        }
+    }
+}
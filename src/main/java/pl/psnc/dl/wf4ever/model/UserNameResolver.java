@@ -0,0 +1,143 @@
+package pl.psnc.dl.wf4ever.model;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import pl.psnc.dl.wf4ever.ApplicationProperties;
+import pl.psnc.dl.wf4ever.db.UserProfile;
+import pl.psnc.dl.wf4ever.db.dao.UserProfileDAO;
+import pl.psnc.dl.wf4ever.model.RDF.GraphCache;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Iterables;
+
+/**
+ * Display names of users, used when adding user names to RDF graphs. The names of all authors of a graph are loaded
+ * from the database in one query and kept for a limited time, also if the user has no name or doesn't exist. A name
+ * is removed when the user is updated or deleted.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public final class UserNameResolver {
+
+    /** Maximum number of logins in one query. */
+    private static final int BATCH_SIZE = 500;
+
+    /** Maximum number of names kept. */
+    private static final int MAX_NAMES = 10000;
+
+    /** The only instance. */
+    private static UserNameResolver instance;
+
+    /** Names by user login, absent if the user has no name. */
+    private final Cache<String, Optional<String>> names;
+
+
+    /**
+     * Constructor.
+     * 
+     * @param timeToLive
+     *            how many seconds a name is kept
+     */
+    UserNameResolver(long timeToLive) {
+        names = CacheBuilder.newBuilder().maximumSize(MAX_NAMES).expireAfterWrite(timeToLive, TimeUnit.SECONDS)
+                .build();
+    }
+
+
+    /**
+     * Get the only instance, with the time to live set in the application properties.
+     * 
+     * @return the user name resolver
+     */
+    public static synchronized UserNameResolver getInstance() {
+        if (instance == null) {
+            instance = new UserNameResolver(ApplicationProperties.getUserNameCacheTimeToLive());
+        }
+        return instance;
+    }
+
+
+    /**
+     * Find the names of users.
+     * 
+     * @param logins
+     *            user logins, usually URIs
+     * @return names of the users that have a name, by login
+     */
+    public Map<String, String> resolve(Collection<String> logins) {
+        Map<String, String> result = new HashMap<>();
+        Set<String> missing = new HashSet<>();
+        for (String login : logins) {
+            Optional<String> name = names.getIfPresent(login);
+            if (name == null) {
+                missing.add(login);
+            } else if (name.isPresent()) {
+                result.put(login, name.get());
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+        UserProfileDAO dao = new UserProfileDAO();
+        for (List<String> batch : Iterables.partition(missing, BATCH_SIZE)) {
+            List<UserProfile> profiles = dao.findByLogins(batch);
+            if (profiles == null) {
+                // the database can't be used now, try again next time
+                continue;
+            }
+            Set<String> notFound = new HashSet<>(batch);
+            for (UserProfile profile : profiles) {
+                notFound.remove(profile.getLogin());
+                names.put(profile.getLogin(), Optional.fromNullable(profile.getName()));
+                if (profile.getName() != null) {
+                    result.put(profile.getLogin(), profile.getName());
+                }
+            }
+            for (String login : notFound) {
+                names.put(login, Optional.<String> absent());
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * Forget the name of a user, because the user has been updated or deleted. Serialized graphs with user names are
+     * forgotten as well.
+     * 
+     * @param login
+     *            user login
+     */
+    public void invalidate(String login) {
+        names.invalidate(login);
+        GraphCache.getInstance().invalidateUserNames();
+    }
+
+
+    /**
+     * Forget all names.
+     */
+    public void invalidateAll() {
+        names.invalidateAll();
+    }
+
+
+    /**
+     * Get the number of names kept.
+     * 
+     * @return the number of users
+     */
+    public long getSize() {
+        return names.size();
+    }
+}
+
@@ -59,6 +59,7 @@ public class ChecksumVerificationJob implements Job {
             ResearchObject researchObject = ResearchObject.get(builder, researchObjectUri);
             if (researchObject != null) {
                 Result result = new Result(researchObject);
+                researchObject.loadStats();
                 for (AggregatedResource resource : researchObject.getAggregatedResources().values()) {
                     if (resource.isInternal() && resource.getStats() != null) {
                         String checksumStored = resource.getStats().getChecksum();
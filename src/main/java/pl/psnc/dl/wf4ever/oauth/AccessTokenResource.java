@@ -4,6 +4,7 @@ import javax.ws.rs.DELETE;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 
+import pl.psnc.dl.wf4ever.auth.AccessTokenCache;
 import pl.psnc.dl.wf4ever.auth.RequestAttribute;
 import pl.psnc.dl.wf4ever.db.AccessToken;
 import pl.psnc.dl.wf4ever.db.UserProfile;
@@ -45,5 +46,6 @@ public class AccessTokenResource {
             throw new NotFoundException();
         }
         accessTokenDAO.delete(accessToken);
+        AccessTokenCache.getInstance().invalidate(token);
     }
 }
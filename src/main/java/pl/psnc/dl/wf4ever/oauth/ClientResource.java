@@ -7,6 +7,7 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.UriInfo;
 
+import pl.psnc.dl.wf4ever.auth.AccessTokenCache;
 import pl.psnc.dl.wf4ever.auth.RequestAttribute;
 import pl.psnc.dl.wf4ever.db.OAuthClient;
 import pl.psnc.dl.wf4ever.db.UserProfile;
@@ -70,5 +71,7 @@ public class ClientResource {
             throw new NotFoundException();
         }
         oAuthClientDAO.delete(client);
+        // the tokens of the client can't be used any more
+        AccessTokenCache.getInstance().invalidateAll();
     }
 }
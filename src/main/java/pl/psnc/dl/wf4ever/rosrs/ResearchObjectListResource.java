@@ -1,29 +1,42 @@
 package pl.psnc.dl.wf4ever.rosrs;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URI;
-import java.util.Set;
+import java.nio.charset.StandardCharsets;
 import java.util.UUID;
 
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
+import org.hibernate.ScrollableResults;
 import org.openrdf.rio.RDFFormat;
 
 import pl.psnc.dl.wf4ever.auth.RequestAttribute;
+import pl.psnc.dl.wf4ever.db.ResearchObjectEntry;
+import pl.psnc.dl.wf4ever.db.dao.ResearchObjectEntryDAO;
+import pl.psnc.dl.wf4ever.dl.UserMetadata;
+import pl.psnc.dl.wf4ever.dl.UserMetadata.Role;
+import pl.psnc.dl.wf4ever.evo.EvoType;
 import pl.psnc.dl.wf4ever.exceptions.BadRequestException;
 import pl.psnc.dl.wf4ever.model.Builder;
 import pl.psnc.dl.wf4ever.model.RO.ResearchObject;
@@ -55,21 +68,84 @@ public class ResearchObjectListResource {
 
 
     /**
-     * Returns list of relative links to research objects.
+     * Returns list of links to research objects, read from the registry of research objects. An authenticated user
+     * gets only the research objects that the user has created or has a permission for. The list is written while the
+     * URIs are read, and can be split into pages by passing the last URI of the previous page as the "after"
+     * parameter.
      * 
+     * @param sort
+     *            "uri" (default) or "created"
+     * @param order
+     *            "asc" (default) or "desc"
+     * @param after
+     *            URI of the last research object of the previous page
+     * @param limit
+     *            maximum number of research objects, 0 (default) for no limit
+     * @param evo
+     *            "live", "snapshot" or "archive" to list only research objects of this evolution type
      * @return 200 OK
+     * @throws BadRequestException
+     *             the parameters are incorrect
      */
     @GET
-    @Produces("text/plain")
-    public Response getResearchObjectList() {
-        Set<ResearchObject> list = ResearchObject.getAll(builder, builder.getUser());
-        StringBuilder sb = new StringBuilder();
-        for (ResearchObject id : list) {
-            sb.append(id.getUri().toString());
-            sb.append("\r\n");
+    @Produces({ "text/plain", "text/uri-list" })
+    public Response getResearchObjectList(@QueryParam("sort") @DefaultValue("uri") String sort,
+            @QueryParam("order") @DefaultValue("asc") String order, @QueryParam("after") String after,
+            @QueryParam("limit") @DefaultValue("0") int limit, @QueryParam("evo") String evo)
+            throws BadRequestException {
+        ResearchObjectEntryDAO.Sort sortBy;
+        EvoType evoType = null;
+        URI afterUri = null;
+        try {
+            sortBy = ResearchObjectEntryDAO.Sort.valueOf(sort.toUpperCase());
+            if (evo != null) {
+                evoType = EvoType.valueOf(evo.toUpperCase());
+            }
+            if (after != null) {
+                afterUri = URI.create(after);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Incorrect sort, evo or after parameter");
+        }
+        if (!order.equalsIgnoreCase("asc") && !order.equalsIgnoreCase("desc")) {
+            throw new BadRequestException("Incorrect order parameter: " + order);
+        }
+        if (limit < 0) {
+            throw new BadRequestException("Incorrect limit parameter: " + limit);
+        }
+        ResearchObjectEntryDAO dao = new ResearchObjectEntryDAO();
+        ResearchObjectEntry afterEntry = null;
+        if (afterUri != null) {
+            afterEntry = dao.findByUri(afterUri);
+            if (afterEntry == null) {
+                throw new BadRequestException("Research object " + after + " doesn't exist, start from the beginning");
+            }
+        }
+        UserMetadata user = builder.getUser();
+        if (user != null && user.getRole() == Role.PUBLIC) {
+            user = null;
         }
+        final ScrollableResults uris = dao.scrollUris(user, evoType, sortBy, order.equalsIgnoreCase("desc"),
+            afterEntry, limit);
+        StreamingOutput output = new StreamingOutput() {
+
+            @Override
+            public void write(OutputStream out)
+                    throws IOException {
+                try {
+                    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+                    while (uris.next()) {
+                        writer.write(uris.getString(0));
+                        writer.write("\r\n");
+                    }
+                    writer.flush();
+                } finally {
+                    uris.close();
+                }
+            }
+        };
         ContentDisposition cd = ContentDisposition.type("attachment").fileName("ROs.txt").build();
-        return Response.ok().entity(sb.toString()).header("Content-disposition", cd).type("text/plain").build();
+        return Response.ok().entity(output).header("Content-disposition", cd).build();
     }
 
 
@@ -1,8 +1,7 @@
 package pl.psnc.dl.wf4ever.rosrs;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Collection;
@@ -24,6 +23,7 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 
@@ -288,7 +288,7 @@ public class ResearchObjectResource {
             Annotation annotation = researchObject.annotate(resourceUri, annotationTargets);
             String annotationBodyHeader = String.format(Constants.LINK_HEADER_TEMPLATE, annotation.getBody().getUri()
                     .toString(), AO.body);
-            InputStream annotationDesc = researchObject.getManifest().getGraphAsInputStream(responseSyntax,
+            StreamingOutput annotationDesc = researchObject.getManifest().getGraphAsStreamingOutput(responseSyntax,
                 roResource.getProxy(), roResource, annotation);
             ResponseBuilder response = Response.created(annotation.getUri()).entity(annotationDesc)
                     .type(responseSyntax.getDefaultMIMEType()).header(Constants.LINK_HEADER, annotationBodyHeader);
@@ -302,8 +302,8 @@ public class ResearchObjectResource {
             pl.psnc.dl.wf4ever.model.RO.Resource resource = researchObject.aggregate(path, content, contentType);
             String proxyForHeader = String.format(Constants.LINK_HEADER_TEMPLATE, resource.getUri().toString(),
                 ORE.proxyFor.getURI());
-            InputStream proxyAndResourceDesc = researchObject.getManifest().getGraphAsInputStream(responseSyntax,
-                resource.getProxy(), resource);
+            StreamingOutput proxyAndResourceDesc = researchObject.getManifest().getGraphAsStreamingOutput(
+                responseSyntax, resource.getProxy(), resource);
             ResponseBuilder rb = Response.created(resource.getProxy().getUri()).entity(proxyAndResourceDesc)
                     .type(responseSyntax.getDefaultMIMEType()).header(Constants.LINK_HEADER, proxyForHeader);
             if (resource.getStats() != null) {
@@ -359,7 +359,7 @@ public class ResearchObjectResource {
         RDFFormat syntax = accept != null ? RDFFormat.forMIMEType(accept, RDFFormat.RDFXML) : RDFFormat.RDFXML;
         String proxyForHeader = String.format(Constants.LINK_HEADER_TEMPLATE, proxyFor.toString(),
             ORE.proxyFor.getURI());
-        InputStream proxyDesc = researchObject.getManifest().getGraphAsInputStream(syntax, resource.getProxy());
+        StreamingOutput proxyDesc = researchObject.getManifest().getGraphAsStreamingOutput(syntax, resource.getProxy());
         return Response.created(resource.getProxy().getUri()).entity(proxyDesc).type(syntax.getDefaultMIMEType())
                 .header(Constants.LINK_HEADER, proxyForHeader).build();
     }
@@ -392,7 +392,7 @@ public class ResearchObjectResource {
         String annotationBodyHeader = String.format(Constants.LINK_HEADER_TEMPLATE, annotation.getBody().getUri()
                 .toString(), AO.body);
         RDFFormat syntax = accept != null ? RDFFormat.forMIMEType(accept, RDFFormat.RDFXML) : RDFFormat.RDFXML;
-        InputStream annotationDesc = researchObject.getManifest().getGraphAsInputStream(syntax, annotation);
+        StreamingOutput annotationDesc = researchObject.getManifest().getGraphAsStreamingOutput(syntax, annotation);
         ResponseBuilder response = Response.created(annotation.getUri()).entity(annotationDesc)
                 .type(syntax.getDefaultMIMEType()).header(Constants.LINK_HEADER, annotationBodyHeader);
         for (Thing target : annotation.getAnnotated()) {
@@ -440,18 +440,23 @@ public class ResearchObjectResource {
         Folder folder = researchObject.aggregateFolder(folderUri, content);
 
         RDFFormat syntax = accept != null ? RDFFormat.forMIMEType(accept, RDFFormat.RDFXML) : RDFFormat.RDFXML;
-        Model folderDesc = ModelFactory.createDefaultModel();
+        final Model folderDesc = ModelFactory.createDefaultModel();
         folderDesc.read(folder.getResourceMap().getGraphAsInputStream(syntax), null);
         folderDesc.read(researchObject.getManifest().getGraphAsInputStream(syntax, folder, folder.getProxy()), null);
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        folderDesc.write(out);
+        StreamingOutput out = new StreamingOutput() {
+
+            @Override
+            public void write(OutputStream output) {
+                folderDesc.write(output);
+            }
+        };
 
         ResponseBuilder rb = Response.created(folder.getProxy().getUri()).type(Constants.FOLDER_MIME_TYPE);
         rb = rb.header(Constants.LINK_HEADER,
             String.format(Constants.LINK_HEADER_TEMPLATE, folder.getUri().toString(), ORE.proxyFor.getURI()));
         rb = rb.header(Constants.LINK_HEADER, String.format(Constants.LINK_HEADER_TEMPLATE, folder.getResourceMap()
                 .getUri().toString().toString(), ORE.isDescribedBy.getURI()));
-        rb = rb.entity(new ByteArrayInputStream(out.toByteArray())).type(syntax.getDefaultMIMEType());
+        rb = rb.entity(out).type(syntax.getDefaultMIMEType());
         return rb.build();
     }
 
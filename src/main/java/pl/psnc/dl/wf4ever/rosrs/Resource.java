@@ -1,7 +1,11 @@
 package pl.psnc.dl.wf4ever.rosrs;
 
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.util.Date;
+import java.util.List;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
@@ -12,6 +16,7 @@ import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.CacheControl;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.EntityTag;
@@ -19,9 +24,11 @@ import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpStatus;
 import org.apache.log4j.Logger;
 import org.openrdf.rio.RDFFormat;
@@ -32,14 +39,18 @@ import pl.psnc.dl.wf4ever.dl.NotFoundException;
 import pl.psnc.dl.wf4ever.exceptions.BadRequestException;
 import pl.psnc.dl.wf4ever.exceptions.ForbiddenException;
 import pl.psnc.dl.wf4ever.model.Builder;
+import pl.psnc.dl.wf4ever.model.ResearchObjectComponentStreamable;
 import pl.psnc.dl.wf4ever.model.AO.Annotation;
 import pl.psnc.dl.wf4ever.model.ORE.AggregatedResource;
 import pl.psnc.dl.wf4ever.model.ORE.Proxy;
+import pl.psnc.dl.wf4ever.model.RDF.GraphCache;
+import pl.psnc.dl.wf4ever.model.RDF.SerializedGraph;
 import pl.psnc.dl.wf4ever.model.RDF.Thing;
 import pl.psnc.dl.wf4ever.model.RO.Folder;
 import pl.psnc.dl.wf4ever.model.RO.FolderEntry;
 import pl.psnc.dl.wf4ever.model.RO.ResearchObject;
-import pl.psnc.dl.wf4ever.preservation.model.ResearchObjectComponentSerializable;
+import pl.psnc.dl.wf4ever.util.ByteRange;
+import pl.psnc.dl.wf4ever.util.FileRangesOutput;
 import pl.psnc.dl.wf4ever.vocabulary.AO;
 import pl.psnc.dl.wf4ever.vocabulary.ORE;
 
@@ -130,8 +141,8 @@ public class Resource {
             AggregatedResource resource = researchObject.aggregate(filePath, entity, contentType);
             String proxyForHeader = String.format(Constants.LINK_HEADER_TEMPLATE, resource.getUri().toString(),
                 ORE.proxyFor.getURI());
-            InputStream proxyAndResourceDesc = researchObject.getManifest().getGraphAsInputStream(responseSyntax,
-                resource.getProxy(), resource);
+            StreamingOutput proxyAndResourceDesc = researchObject.getManifest().getGraphAsStreamingOutput(
+                responseSyntax, resource.getProxy(), resource);
             ResponseBuilder rb = Response.created(resource.getProxy().getUri()).entity(proxyAndResourceDesc)
                     .type(responseSyntax.getDefaultMIMEType()).header(Constants.LINK_HEADER, proxyForHeader);
             if (resource.getStats() != null) {
@@ -266,13 +277,18 @@ public class Resource {
      *            original resource in case of a format-specific URI
      * @param accept
      *            Accept header
+     * @param range
+     *            Range header, used for files only
+     * @param ifRange
+     *            If-Range header
      * @param request
      *            HTTP request for cacheing
-     * @return 200 OK or 303 See Other
+     * @return 200 OK, 206 Partial Content or 303 See Other
      */
     @GET
     public Response getResource(@PathParam("ro_id") String researchObjectId, @PathParam("filePath") String filePath,
-            @QueryParam("original") String original, @HeaderParam("Accept") String accept, @Context Request request) {
+            @QueryParam("original") String original, @HeaderParam("Accept") String accept,
+            @HeaderParam("Range") String range, @HeaderParam("If-Range") String ifRange, @Context Request request) {
         URI uri = uriInfo.getBaseUriBuilder().path("ROs").path(researchObjectId).path("/").build();
         ResearchObject researchObject = ResearchObject.get(builder, uri);
         if (researchObject == null) {
@@ -300,7 +316,7 @@ public class Resource {
             return getFolder(researchObject.getFolders().get(resourceUri), format);
         }
 
-        ResearchObjectComponentSerializable resource;
+        ResearchObjectComponentStreamable resource;
         if (researchObject.getAggregatedResources().containsKey(resourceUri)) {
             resource = researchObject.getAggregatedResources().get(resourceUri);
         } else if (researchObject.getResourceMaps().containsKey(resourceUri)) {
@@ -308,18 +324,24 @@ public class Resource {
         } else {
             throw new NotFoundException("Resource not found");
         }
-        ResponseBuilder rb = resource.getStats() != null ? request.evaluatePreconditions(resource.getStats()
-                .getLastModified().toDate(), new EntityTag(resource.getStats().getChecksum())) : null;
-        if (rb != null) {
-            return rb.build();
-        }
-        InputStream data = null;
-        String mimeType;
-        String filename = resource.getName();
         if (!resource.isInternal()) {
             throw new NotFoundException("Resource has no content");
         }
-        if (resource.isNamedGraph()) {
+        // cached serializations of named graphs have their own entity tags, checked when the format is known
+        boolean namedGraph = resource.isNamedGraph();
+        boolean cachedGraph = namedGraph && GraphCache.getInstance().isEnabled();
+        if (!cachedGraph && resource.getStats() != null) {
+            ResponseBuilder rb = request.evaluatePreconditions(resource.getStats().getLastModified().toDate(),
+                new EntityTag(resource.getStats().getChecksum()));
+            if (rb != null) {
+                return rb.build();
+            }
+        }
+        // RDF graphs are written directly to the response, files are copied from the storage
+        Object data = null;
+        String mimeType;
+        String filename = resource.getName();
+        if (namedGraph) {
             // check if request is for a specific format
             if (specificName != null) {
                 URI specificResourceUri = UriBuilder.fromUri(resource.getUri().resolve(".")).path(specificName).build();
@@ -327,7 +349,7 @@ public class Resource {
                     format = specificResourceUri.getPath() != null ? RDFFormat.forFileName(
                         specificResourceUri.getPath(), RDFFormat.RDFXML) : RDFFormat.RDFXML;
                 }
-                data = resource.getPublicGraphAsInputStream(format);
+                data = resource.getPublicGraphAsStreamingOutput(format);
                 mimeType = format.getDefaultMIMEType();
                 filename = specificName;
             } else {
@@ -335,7 +357,7 @@ public class Resource {
                 if (extensionFormat != null && (format == null || extensionFormat == format)) {
                     // 1. GET manifest.rdf Accept: application/rdf+xml
                     // 2. GET manifest.rdf
-                    data = resource.getPublicGraphAsInputStream(extensionFormat);
+                    data = resource.getPublicGraphAsStreamingOutput(extensionFormat);
                     mimeType = extensionFormat.getDefaultMIMEType();
                 } else {
                     // 3. GET manifest.rdf Accept: text/turtle
@@ -355,17 +377,109 @@ public class Resource {
         if (data == null) {
             throw new NotFoundException("Resource has no content");
         }
+        EntityTag tag = null;
+        if (data instanceof SerializedGraph) {
+            // a cached serialization, the graph has not been read if it hasn't changed
+            tag = ((SerializedGraph) data).getEntityTag();
+            ResponseBuilder rb = resource.getStats() != null ? request.evaluatePreconditions(resource.getStats()
+                    .getLastModified().toDate(), tag) : request.evaluatePreconditions(tag);
+            if (rb != null) {
+                return rb.build();
+            }
+        } else if (resource.getStats() != null) {
+            tag = new EntityTag(resource.getStats().getChecksum());
+            if (cachedGraph) {
+                // a graph streamed although the cache is enabled, for example in a format with contexts
+                ResponseBuilder rb = request.evaluatePreconditions(resource.getStats().getLastModified().toDate(), tag);
+                if (rb != null) {
+                    return rb.build();
+                }
+            }
+        }
 
+        Date lastModified = resource.getStats() != null ? resource.getStats().getLastModified().toDate() : null;
+        ResponseBuilder rb;
+        if (data instanceof FileInputStream) {
+            // files from the filesystem storage are read by position and can be requested in ranges
+            FileInputStream file = (FileInputStream) data;
+            long length = getLength(file);
+            rb = getFileResponse(file, length, mimeType, range, ifRange, tag, lastModified);
+            if (rb == null) {
+                return Response.status(HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header("Content-Range", "bytes */" + length).build();
+            }
+        } else {
+            rb = Response.ok(data).type(mimeType);
+        }
         ContentDisposition cd = ContentDisposition.type("attachment").fileName(filename).build();
         CacheControl cache = new CacheControl();
         cache.setMustRevalidate(true);
-        if (resource.getStats() != null) {
-            return Response.ok(data).type(mimeType).header("Content-disposition", cd).cacheControl(cache)
-                    .tag(resource.getStats().getChecksum())
-                    .lastModified(resource.getStats().getLastModified().toDate()).build();
+        rb = rb.header("Content-disposition", cd).cacheControl(cache).tag(tag);
+        if (lastModified != null) {
+            rb = rb.lastModified(lastModified);
+        }
+        // no entity tag and last modified date for backwards compatibility if there are no stats
+        return rb.build();
+    }
+
+
+    /**
+     * Prepare a response with a file or with the ranges of a file requested.
+     * 
+     * @param file
+     *            the file
+     * @param length
+     *            file length
+     * @param mimeType
+     *            file MIME type
+     * @param range
+     *            Range header or null
+     * @param ifRange
+     *            If-Range header or null
+     * @param tag
+     *            file entity tag or null
+     * @param lastModified
+     *            file last modification date or null
+     * @return a response builder or null if none of the ranges can be satisfied
+     */
+    private ResponseBuilder getFileResponse(FileInputStream file, long length, String mimeType, String range,
+            String ifRange, EntityTag tag, Date lastModified) {
+        List<ByteRange> ranges = null;
+        if (range != null && ByteRange.isIfRangeMatched(ifRange, tag, lastModified)) {
+            ranges = ByteRange.parse(range, length);
+        }
+        if (ranges != null && ranges.isEmpty()) {
+            IOUtils.closeQuietly(file);
+            return null;
+        }
+        FileRangesOutput output = new FileRangesOutput(file, length, ranges, mimeType);
+        ResponseBuilder rb;
+        if (ranges == null) {
+            rb = Response.ok(output);
         } else {
-            // backwards compatibility
-            return Response.ok(data).type(mimeType).header("Content-disposition", cd).cacheControl(cache).build();
+            rb = Response.status(HttpStatus.SC_PARTIAL_CONTENT).entity(output);
+            if (!output.isMultipart()) {
+                rb = rb.header("Content-Range", output.getContentRange());
+            }
+        }
+        return rb.type(output.getContentType()).header("Accept-Ranges", "bytes")
+                .header("Content-Length", output.getContentLength());
+    }
+
+
+    /**
+     * Get the length of a file.
+     * 
+     * @param file
+     *            the file
+     * @return the length in bytes
+     */
+    private long getLength(FileInputStream file) {
+        try {
+            return file.getChannel().size();
+        } catch (IOException e) {
+            IOUtils.closeQuietly(file);
+            throw new WebApplicationException(e);
         }
     }
 
@@ -15,7 +15,6 @@ import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.HttpSolrServer;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.common.SolrInputDocument;
-import org.openrdf.rio.RDFFormat;
 
 import pl.psnc.dl.wf4ever.evo.EvoType;
 import pl.psnc.dl.wf4ever.model.RDF.Thing;
@@ -24,9 +23,6 @@ import pl.psnc.dl.wf4ever.searchserver.SearchServer;
 import pl.psnc.dl.wf4ever.vocabulary.ROEVO;
 
 import com.google.common.collect.Multimap;
-import com.hp.hpl.jena.rdf.model.Model;
-import com.hp.hpl.jena.rdf.model.ModelFactory;
-import com.hp.hpl.jena.rdf.model.Resource;
 import com.hp.hpl.jena.vocabulary.RDF;
 
 /**
@@ -121,14 +117,12 @@ public final class SolrSearchServer implements SearchServer {
             document.addField("creator", ro.getCreator().getName());
         }
         document.addField("created", ro.getCreated().toDate());
-        Model model = ModelFactory.createDefaultModel();
-        model.read(ro.getEvoInfo().getGraphAsInputStream(RDFFormat.RDFXML), null);
-        Resource r = model.getResource(ro.getUri().toString());
-        if (r.hasProperty(RDF.type, ROEVO.LiveRO)) {
+        Collection<Object> types = ro.getEvoInfo().getDescriptionFor(ro.getUri()).get(URI.create(RDF.type.getURI()));
+        if (types.contains(ROEVO.LiveRO)) {
             document.addField("evo_type", EvoType.LIVE);
-        } else if (r.hasProperty(RDF.type, ROEVO.ArchivedRO)) {
+        } else if (types.contains(ROEVO.ArchivedRO)) {
             document.addField("evo_type", EvoType.ARCHIVE);
-        } else if (r.hasProperty(RDF.type, ROEVO.SnapshotRO)) {
+        } else if (types.contains(ROEVO.SnapshotRO)) {
             document.addField("evo_type", EvoType.SNAPSHOT);
         }
         if (ro.getAggregatedResources() != null) {
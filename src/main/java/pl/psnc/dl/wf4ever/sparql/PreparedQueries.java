@@ -0,0 +1,143 @@
+package pl.psnc.dl.wf4ever.sparql;
+
+import java.net.URI;
+
+import pl.psnc.dl.wf4ever.vocabulary.AO;
+import pl.psnc.dl.wf4ever.vocabulary.FOAF;
+import pl.psnc.dl.wf4ever.vocabulary.ORE;
+import pl.psnc.dl.wf4ever.vocabulary.RO;
+
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QueryExecution;
+import com.hp.hpl.jena.query.QueryExecutionFactory;
+import com.hp.hpl.jena.query.QueryFactory;
+import com.hp.hpl.jena.query.QuerySolutionMap;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.RDFNode;
+import com.hp.hpl.jena.vocabulary.DCTerms;
+
+/**
+ * SPARQL queries used for loading the model, parsed once when the class is loaded. The variables that identify the
+ * described resources are left unbound in the query text and bound for each execution, so that the same parsed query
+ * serves all research objects.
+ * 
+ * The queries must not be modified, they are shared by all threads.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public final class PreparedQueries {
+
+    /** Prefixes used by all queries. */
+    private static final String PREFIXES = String.format(
+        "PREFIX ore: <%s> PREFIX dcterms: <%s> PREFIX ro: <%s> PREFIX foaf: <%s> PREFIX ao: <%s> ", ORE.NAMESPACE,
+        DCTerms.NS, RO.NAMESPACE, FOAF.NAMESPACE, AO.NAMESPACE);
+
+    /** All resources aggregated by ?aggregation, with their proxies and authors. */
+    public static final Query AGGREGATED_RESOURCES = prepare("SELECT ?resource ?proxy ?created ?creator ?creatorname WHERE { ?aggregation ore:aggregates ?resource . OPTIONAL { ?resource a ore:AggregatedResource . } OPTIONAL { ?proxy ore:proxyFor ?resource . } OPTIONAL { ?resource dcterms:creator ?creator . OPTIONAL { ?creator foaf:name ?creatorname . } } OPTIONAL { ?resource dcterms:created ?created . } }");
+
+    /** ro:Resources aggregated by ?aggregation, with their proxies and authors. */
+    public static final Query RESOURCES = prepare("SELECT ?resource ?proxy ?created ?creator ?creatorname WHERE { ?aggregation ore:aggregates ?resource . ?resource a ro:Resource . ?proxy ore:proxyFor ?resource . OPTIONAL { ?resource dcterms:creator ?creator . OPTIONAL { ?creator foaf:name ?creatorname . } } OPTIONAL { ?resource dcterms:created ?created . } }");
+
+    /** ro:Folders aggregated by ?aggregation, with their resource maps, proxies and authors. */
+    public static final Query FOLDERS = prepare("SELECT ?folder ?proxy ?resourcemap ?created ?creator ?creatorname WHERE { ?aggregation ore:aggregates ?folder . ?folder a ro:Folder ; ore:isDescribedBy ?resourcemap . OPTIONAL { ?proxy ore:proxyFor ?folder . } OPTIONAL { ?folder dcterms:creator ?creator . OPTIONAL { ?creator foaf:name ?creatorname . } } OPTIONAL { ?folder dcterms:created ?created . } }");
+
+    /** ro:AggregatedAnnotations aggregated by ?aggregation, with their bodies, targets, proxies and authors. */
+    public static final Query ANNOTATIONS = prepare("SELECT ?annotation ?body ?target ?created ?creator ?creatorname WHERE { ?aggregation ore:aggregates ?annotation . ?annotation a ro:AggregatedAnnotation ; ro:annotatesAggregatedResource ?target . OPTIONAL {?annotation ao:body ?body. }  OPTIONAL { ?proxy ore:proxyFor ?annotation . } OPTIONAL { ?annotation dcterms:creator ?creator . OPTIONAL { ?creator foaf:name ?creatorname . } } OPTIONAL { ?annotation dcterms:created ?created . } }");
+
+    /** Alternative formats of ?aggregation with the MIME type ?mimetype. */
+    public static final Query ALTERNATIVE_FORMAT = prepare("SELECT ?format WHERE { ?aggregation dcterms:hasFormat ?format . ?format dcterms:format ?mimetype . }");
+
+    /** Research objects aggregating ?aggregation. */
+    public static final Query AGGREGATING_RESEARCH_OBJECTS = prepare("SELECT ?parent WHERE { ?parent a ro:ResearchObject; ore:aggregates ?aggregation . }");
+
+    /** ro:FolderEntries in ?folder. */
+    public static final Query FOLDER_ENTRIES = prepare("SELECT ?entry ?resource ?name WHERE { ?entry a ro:FolderEntry ; ro:entryName ?name ; ore:proxyFor ?resource ; ore:proxyIn ?folder . }");
+
+
+    /**
+     * Private constructor.
+     */
+    private PreparedQueries() {
+        //nope
+    }
+
+
+    /**
+     * Parse a query.
+     * 
+     * @param queryString
+     *            query without prefixes
+     * @return the parsed query
+     */
+    private static Query prepare(String queryString) {
+        Query query = QueryFactory.create(PREFIXES + queryString);
+        // make sure that the query is not modified lazily by concurrent executions
+        query.setResultVars();
+        return query;
+    }
+
+
+    /**
+     * Create an execution of a prepared query with one variable bound.
+     * 
+     * @param query
+     *            one of the prepared queries
+     * @param model
+     *            the model to query
+     * @param var
+     *            variable name
+     * @param value
+     *            variable value
+     * @return a query execution that the caller must close
+     */
+    public static QueryExecution create(Query query, Model model, String var, RDFNode value) {
+        QuerySolutionMap binding = new QuerySolutionMap();
+        binding.add(var, value);
+        return QueryExecutionFactory.create(query, model, binding);
+    }
+
+
+    /**
+     * Create an execution of a prepared query with one variable bound to a URI resource.
+     * 
+     * @param query
+     *            one of the prepared queries
+     * @param model
+     *            the model to query
+     * @param var
+     *            variable name
+     * @param uri
+     *            URI of the resource
+     * @return a query execution that the caller must close
+     */
+    public static QueryExecution create(Query query, Model model, String var, URI uri) {
+        return create(query, model, var, model.createResource(uri.toString()));
+    }
+
+
+    /**
+     * Create an execution of a prepared query with two variables bound.
+     * 
+     * @param query
+     *            one of the prepared queries
+     * @param model
+     *            the model to query
+     * @param var1
+     *            first variable name
+     * @param value1
+     *            first variable value
+     * @param var2
+     *            second variable name
+     * @param value2
+     *            second variable value
+     * @return a query execution that the caller must close
+     */
+    public static QueryExecution create(Query query, Model model, String var1, RDFNode value1, String var2,
+            RDFNode value2) {
+        QuerySolutionMap binding = new QuerySolutionMap();
+        binding.add(var1, value1);
+        binding.add(var2, value2);
+        return QueryExecutionFactory.create(query, model, binding);
+    }
+}
@@ -178,6 +178,7 @@ public class SparqlEngine {
             }
             GraphStore graphStore = GraphStoreFactory.create(builder.getDataset());
             UpdateAction.parseExecute(queryS, graphStore);
+            builder.getTransactionContext().markAllModified();
             builder.commitTransaction(transactionStarted);
         } finally {
             builder.endTransaction(transactionStarted);
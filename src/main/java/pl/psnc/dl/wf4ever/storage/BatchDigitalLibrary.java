@@ -0,0 +1,37 @@
+package pl.psnc.dl.wf4ever.storage;
+
+import java.net.URI;
+import java.util.Map;
+
+import pl.psnc.dl.wf4ever.dl.DigitalLibrary;
+import pl.psnc.dl.wf4ever.dl.ResourceMetadata;
+
+/**
+ * A digital library that can load the metadata of all files of a research object at once, instead of asking for each
+ * file separately.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public interface BatchDigitalLibrary extends DigitalLibrary {
+
+    /**
+     * Get the metadata of all files of a research object.
+     * 
+     * @param ro
+     *            research object URI
+     * @return file metadata by file path relative to the research object, empty if there are no files
+     */
+    Map<String, ResourceMetadata> getFileInfos(URI ro);
+
+
+    /**
+     * Check if the metadata returned by {@link #getFileInfos(URI)} describe a file with content, with the same result
+     * as {@link #fileExists(URI, String)} but without querying the storage again.
+     * 
+     * @param info
+     *            file metadata
+     * @return true if the file content is stored
+     */
+    boolean hasContent(ResourceMetadata info);
+}
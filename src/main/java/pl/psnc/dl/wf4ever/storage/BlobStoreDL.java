@@ -0,0 +1,477 @@
+package pl.psnc.dl.wf4ever.storage;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.log4j.Logger;
+import org.joda.time.DateTime;
+
+import pl.psnc.dl.wf4ever.db.Blob;
+import pl.psnc.dl.wf4ever.db.ResourceInfo;
+import pl.psnc.dl.wf4ever.db.dao.BlobDAO;
+import pl.psnc.dl.wf4ever.db.dao.ResourceInfoDAO;
+import pl.psnc.dl.wf4ever.db.hibernate.HibernateUtil;
+import pl.psnc.dl.wf4ever.dl.AccessDeniedException;
+import pl.psnc.dl.wf4ever.dl.DigitalLibraryException;
+import pl.psnc.dl.wf4ever.dl.NotFoundException;
+import pl.psnc.dl.wf4ever.dl.ResourceMetadata;
+
+/**
+ * Filesystem-based digital library that keeps identical content once. The content of each file is stored in a blob
+ * named after its SHA-256 checksum and the resource infos of a research object work as its manifest, mapping the
+ * resource paths to the blobs. A blob is deleted when no resource refers to it any more.
+ * 
+ * Copying a file from this store, for example when a snapshot is created, only adds a reference to the existing blob,
+ * without reading or writing the content.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public class BlobStoreDL extends FilesystemDL {
+
+    /** logger. */
+    private static final Logger LOGGER = Logger.getLogger(BlobStoreDL.class);
+
+    /** digest method of the checksums that identify the blobs. */
+    public static final String CONTENT_DIGEST_METHOD = "SHA-256";
+
+    /** name of the folder with blobs in the base path, it can't be a host name. */
+    private static final String BLOBS_FOLDER = ".blobs";
+
+    /** folder with the blobs. */
+    private final Path blobsPath;
+
+    /** folder for files being written. */
+    private final Path tmpPath;
+
+
+    /**
+     * Constructor.
+     * 
+     * @param basePath
+     *            file path under which the files will be stored
+     * @param additionalDigestMethods
+     *            digest methods of the checksums calculated for each file in addition to MD5 and SHA-256
+     */
+    public BlobStoreDL(String basePath, Collection<String> additionalDigestMethods) {
+        this(basePath, additionalDigestMethods, 0);
+    }
+
+
+    /**
+     * Constructor.
+     * 
+     * @param basePath
+     *            file path under which the files will be stored
+     * @param additionalDigestMethods
+     *            digest methods of the checksums calculated for each file in addition to MD5 and SHA-256
+     * @param shardLevels
+     *            number of levels of shard folders in the paths of new research objects, 0 for the flat layout
+     */
+    public BlobStoreDL(String basePath, Collection<String> additionalDigestMethods, int shardLevels) {
+        super(basePath, withContentDigestMethod(additionalDigestMethods), shardLevels);
+        this.blobsPath = this.basePath.resolve(BLOBS_FOLDER);
+        this.tmpPath = blobsPath.resolve("tmp");
+    }
+
+
+    /**
+     * Add the digest method of the blob checksums to the configured ones.
+     * 
+     * @param digestMethods
+     *            configured digest methods
+     * @return the digest methods including SHA-256
+     */
+    private static Collection<String> withContentDigestMethod(Collection<String> digestMethods) {
+        List<String> result = new ArrayList<>(digestMethods);
+        if (!result.contains(CONTENT_DIGEST_METHOD)) {
+            result.add(CONTENT_DIGEST_METHOD);
+        }
+        return result;
+    }
+
+
+    /**
+     * Get the path of a blob.
+     * 
+     * @param hash
+     *            SHA-256 checksum of the content, hex encoded
+     * @return the blob path
+     */
+    Path getBlobPath(String hash) {
+        return blobsPath.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+
+    @Override
+    public InputStream getZippedFolder(URI ro, String folder)
+            throws DigitalLibraryException, NotFoundException {
+        return getZippedFileInfos(ro, folder);
+    }
+
+
+    @Override
+    protected ZipExporter.Content getZipEntry(final String name, ResourceInfo res) {
+        String hash = res.getDigests().get(CONTENT_DIGEST_METHOD);
+        if (hash == null) {
+            return null;
+        }
+        final Path blobPath = getBlobPath(hash);
+        final String mimeType = res.getMimeType();
+        return new ZipExporter.Content() {
+
+            @Override
+            public void addTo(ZipExporter.Archive archive)
+                    throws IOException {
+                archive.add(name, blobPath, mimeType);
+            }
+        };
+    }
+
+
+    @Override
+    public InputStream getFileContents(URI ro, String filePath)
+            throws DigitalLibraryException, NotFoundException {
+        ResourceInfo res = getFileInfo(ro, filePath);
+        String hash = res != null ? res.getDigests().get(CONTENT_DIGEST_METHOD) : null;
+        if (hash == null) {
+            throw new NotFoundException("File doesn't exist: " + filePath);
+        }
+        try {
+            return new BlobInputStream(blobsPath, hash, res, getBlobPath(hash).toFile());
+        } catch (FileNotFoundException e) {
+            throw new DigitalLibraryException("Blob " + hash + " of " + res.getPath() + " is missing");
+        }
+    }
+
+
+    @Override
+    public boolean fileExists(URI ro, String filePath)
+            throws DigitalLibraryException {
+        ResourceInfo res = getFileInfo(ro, filePath);
+        return res != null && res.getDigests().containsKey(CONTENT_DIGEST_METHOD);
+    }
+
+
+    @Override
+    public boolean hasContent(ResourceMetadata info) {
+        return info instanceof ResourceInfo && ((ResourceInfo) info).getDigests().containsKey(CONTENT_DIGEST_METHOD);
+    }
+
+
+    @Override
+    public ResourceInfo createOrUpdateFile(URI ro, String filePath, InputStream inputStream, String mimeType)
+            throws DigitalLibraryException {
+        Path path = getPathForWrite(ro, filePath);
+        String hash;
+        long size;
+        Map<String, String> checksums;
+        if (inputStream instanceof BlobInputStream && ((BlobInputStream) inputStream).blobsPath.equals(blobsPath)) {
+            // the content is already in this store
+            BlobInputStream blob = (BlobInputStream) inputStream;
+            hash = blob.hash;
+            size = blob.size;
+            checksums = blob.checksums;
+            try {
+                if (addReference(hash, size)) {
+                    // the blob has been deleted since the stream was opened, it is written again from the stream
+                    Files.createDirectories(tmpPath);
+                    Path tmp = Files.createTempFile(tmpPath, null, null);
+                    try {
+                        Files.copy(blob, tmp, StandardCopyOption.REPLACE_EXISTING);
+                        storeBlob(tmp, hash);
+                    } finally {
+                        Files.deleteIfExists(tmp);
+                    }
+                }
+            } catch (IOException e) {
+                throw new DigitalLibraryException(e);
+            } finally {
+                try {
+                    blob.close();
+                } catch (IOException e) {
+                    LOGGER.warn("Could not close the blob " + hash, e);
+                }
+            }
+        } else {
+            Map<String, MessageDigest> digests = createDigests();
+            InputStream digestStream = inputStream;
+            for (MessageDigest digest : digests.values()) {
+                digestStream = new DigestInputStream(digestStream, digest);
+            }
+            try {
+                Files.createDirectories(tmpPath);
+                Path tmp = Files.createTempFile(tmpPath, null, null);
+                try {
+                    Files.copy(digestStream, tmp, StandardCopyOption.REPLACE_EXISTING);
+                    size = Files.size(tmp);
+                    checksums = getChecksums(digests);
+                    hash = checksums.get(CONTENT_DIGEST_METHOD);
+                    // a new blob row means that no file is known to have this content, even if a blob file exists
+                    // because it is about to be deleted, so the file is always written
+                    if (addReference(hash, size)) {
+                        storeBlob(tmp, hash);
+                    }
+                } finally {
+                    Files.deleteIfExists(tmp);
+                }
+            } catch (IOException e) {
+                throw new DigitalLibraryException(e);
+            }
+        }
+        ResourceInfo previous = new ResourceInfoDAO().findByPath(path.toString());
+        String previousHash = previous != null ? previous.getDigests().get(CONTENT_DIGEST_METHOD) : null;
+        if (previousHash != null) {
+            removeReference(previousHash, 1);
+        }
+        return saveFileInfo(path, size, DateTime.now(), checksums, mimeType);
+    }
+
+
+    @Override
+    public ResourceInfo updateFileInfo(URI ro, String filePath, String mimeType)
+            throws NotFoundException, DigitalLibraryException, AccessDeniedException {
+        Path path = getPathForWrite(ro, filePath);
+        ResourceInfoDAO dao = new ResourceInfoDAO();
+        ResourceInfo res = dao.findByPath(path.toString());
+        if (res != null && res.getDigests().containsKey(CONTENT_DIGEST_METHOD)) {
+            res.setMimeType(mimeType);
+            dao.save(res);
+            return res;
+        }
+        if (getFileInfos(path).isEmpty()) {
+            throw new NotFoundException("File doesn't exist: " + path);
+        }
+        LOGGER.warn(path.toString() + " is not a regular file, the checksum will not be calculated.");
+        return saveFileInfo(path, 0, DateTime.now(), Collections.<String, String> emptyMap(), mimeType);
+    }
+
+
+    @Override
+    public void deleteFile(URI ro, String filePath)
+            throws DigitalLibraryException, NotFoundException {
+        Path path = getPathForWrite(ro, filePath);
+        ResourceInfoDAO dao = new ResourceInfoDAO();
+        ResourceInfo res = dao.findByPath(path.toString());
+        if (res == null) {
+            throw new NotFoundException("File doesn't exist: " + path);
+        }
+        String hash = res.getDigests().get(CONTENT_DIGEST_METHOD);
+        if (hash != null) {
+            removeReference(hash, 1);
+        }
+        dao.delete(res);
+    }
+
+
+    @Override
+    public void deleteResearchObject(URI ro)
+            throws DigitalLibraryException, NotFoundException {
+        Path path = getPathForWrite(ro, null);
+        ResourceInfoDAO dao = new ResourceInfoDAO();
+        List<ResourceInfo> files = getFileInfos(path);
+        if (files.isEmpty() && dao.findByPath(path.toString()) == null) {
+            throw new NotFoundException("RO doesn't exist: " + ro.toString());
+        }
+        forgetLayout(ro);
+        Map<String, Integer> references = new HashMap<>();
+        for (ResourceInfo res : files) {
+            String hash = res.getDigests().get(CONTENT_DIGEST_METHOD);
+            if (hash != null) {
+                references.put(hash, references.containsKey(hash) ? references.get(hash) + 1 : 1);
+            }
+        }
+        for (Map.Entry<String, Integer> reference : references.entrySet()) {
+            removeReference(reference.getKey(), reference.getValue());
+        }
+        dao.deleteFolder(path.toString(), path.getFileSystem().getSeparator());
+    }
+
+
+    @Override
+    protected boolean isStored(Path path) {
+        return isStoredInDatabase(path);
+    }
+
+
+    @Override
+    protected void moveFiles(Path source, Path target) {
+        // the content is in the blobs, which don't depend on the research object path
+    }
+
+
+    /**
+     * Move a file with new content to the blob path, replacing any file left there.
+     * 
+     * @param tmp
+     *            the file with the content
+     * @param hash
+     *            the content checksum
+     * @throws IOException
+     *             the file could not be moved
+     */
+    private void storeBlob(Path tmp, String hash)
+            throws IOException {
+        Path blobPath = getBlobPath(hash);
+        Files.createDirectories(blobPath.getParent());
+        Files.move(tmp, blobPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+
+    /**
+     * Increase the number of files referring to a blob. The blob row is locked until the end of the transaction. The
+     * row is inserted first, so that of two transactions storing the same new content only one creates it and the
+     * other one waits for it and adds its reference.
+     * 
+     * @param hash
+     *            the blob checksum
+     * @param size
+     *            the blob size in bytes
+     * @return true if the blob row has been created, in which case the caller must write the blob file
+     */
+    private boolean addReference(String hash, long size) {
+        BlobDAO dao = new BlobDAO();
+        while (!dao.insert(hash, size)) {
+            Blob blob = dao.findByHashForUpdate(hash);
+            // null if the blob has been deleted after the insert failed
+            if (blob != null) {
+                blob.setRefs(blob.getRefs() + 1);
+                dao.save(blob);
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Decrease the number of files referring to a blob. The blob row is locked until the end of the transaction, so
+     * that no other transaction can add a reference to a blob that is being deleted. The file of a blob that is not
+     * referred to any more is moved away while the row is locked and deleted once the transaction is committed, or
+     * moved back if it is rolled back.
+     * 
+     * @param hash
+     *            the blob checksum
+     * @param count
+     *            the number of references removed
+     * @throws DigitalLibraryException
+     *             the blob file could not be moved
+     */
+    private void removeReference(String hash, int count)
+            throws DigitalLibraryException {
+        BlobDAO dao = new BlobDAO();
+        Blob blob = dao.findByHashForUpdate(hash);
+        if (blob == null) {
+            LOGGER.warn("Blob not found in database: " + hash);
+            return;
+        }
+        blob.setRefs(blob.getRefs() - count);
+        if (blob.getRefs() > 0) {
+            dao.save(blob);
+            return;
+        }
+        dao.delete(blob);
+        final Path blobPath = getBlobPath(hash);
+        final Path removedPath = tmpPath.resolve(hash + "-" + UUID.randomUUID());
+        try {
+            Files.createDirectories(tmpPath);
+            Files.move(blobPath, removedPath, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            LOGGER.warn("Blob file not found: " + blobPath);
+            return;
+        } catch (IOException e) {
+            throw new DigitalLibraryException(e);
+        }
+        HibernateUtil.afterCompletion(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    Files.deleteIfExists(removedPath);
+                } catch (IOException e) {
+                    LOGGER.warn("Could not delete the blob " + blobPath, e);
+                }
+            }
+        }, new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    if (!Files.exists(blobPath)) {
+                        Files.move(removedPath, blobPath, StandardCopyOption.ATOMIC_MOVE);
+                    } else {
+                        Files.deleteIfExists(removedPath);
+                    }
+                } catch (IOException e) {
+                    LOGGER.warn("Could not restore the blob " + blobPath, e);
+                }
+            }
+        });
+    }
+
+
+    /**
+     * A stream of a blob, which this store recognizes when the content is stored again.
+     * 
+     * @author piotrekhol
+     * 
+     */
+    static final class BlobInputStream extends FileInputStream {
+
+        /** folder with the blobs of the store. */
+        private final Path blobsPath;
+
+        /** SHA-256 checksum of the content. */
+        private final String hash;
+
+        /** size in bytes. */
+        private final long size;
+
+        /** checksums of the content by digest method. */
+        private final Map<String, String> checksums;
+
+
+        /**
+         * Constructor.
+         * 
+         * @param blobsPath
+         *            folder with the blobs of the store
+         * @param hash
+         *            SHA-256 checksum of the content
+         * @param res
+         *            resource info of a file with this content
+         * @param file
+         *            the blob
+         * @throws FileNotFoundException
+         *             the blob doesn't exist
+         */
+        BlobInputStream(Path blobsPath, String hash, ResourceInfo res, File file)
+                throws FileNotFoundException {
+            super(file);
+            this.blobsPath = blobsPath;
+            this.hash = hash;
+            this.size = res.getSizeInBytes();
+            this.checksums = new HashMap<>(res.getDigests());
+            if (res.getChecksum() != null) {
+                this.checksums.put(MAIN_DIGEST_METHOD, res.getChecksum());
+            }
+        }
+    }
+}
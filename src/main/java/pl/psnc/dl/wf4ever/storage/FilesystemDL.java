@@ -1,33 +1,45 @@
 package pl.psnc.dl.wf4ever.storage;
 
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
 import java.net.URI;
-import java.nio.file.DirectoryIteratorException;
 import java.nio.file.DirectoryNotEmptyException;
-import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystems;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.LinkOption;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.Map;
+import java.util.Set;
 
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
 import org.apache.log4j.Logger;
+import org.hibernate.Transaction;
 import org.joda.time.DateTime;
 
+import pl.psnc.dl.wf4ever.auth.AccessTokenCache;
 import pl.psnc.dl.wf4ever.db.ResourceInfo;
 import pl.psnc.dl.wf4ever.db.UserProfile;
 import pl.psnc.dl.wf4ever.db.dao.ResourceInfoDAO;
@@ -35,12 +47,17 @@ import pl.psnc.dl.wf4ever.db.dao.UserProfileDAO;
 import pl.psnc.dl.wf4ever.db.hibernate.HibernateUtil;
 import pl.psnc.dl.wf4ever.dl.AccessDeniedException;
 import pl.psnc.dl.wf4ever.dl.ConflictException;
-import pl.psnc.dl.wf4ever.dl.DigitalLibrary;
 import pl.psnc.dl.wf4ever.dl.DigitalLibraryException;
 import pl.psnc.dl.wf4ever.dl.NotFoundException;
+import pl.psnc.dl.wf4ever.dl.ResourceMetadata;
 import pl.psnc.dl.wf4ever.dl.UserMetadata;
 import pl.psnc.dl.wf4ever.dl.UserMetadata.Role;
+import pl.psnc.dl.wf4ever.exceptions.ServiceUnavailableException;
+import pl.psnc.dl.wf4ever.model.UserNameResolver;
+import pl.psnc.dl.wf4ever.util.MimeTypeUtil;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Multimap;
 
 /**
@@ -49,13 +66,43 @@ import com.google.common.collect.Multimap;
  * @author piotrekhol
  * 
  */
-public class FilesystemDL implements DigitalLibrary {
+public class FilesystemDL implements BatchDigitalLibrary {
 
     /** logger. */
     private static final Logger LOGGER = Logger.getLogger(FilesystemDL.class);
 
+    /** digest method of the main checksum of files, used for example as ETags and for checksum verification. */
+    public static final String MAIN_DIGEST_METHOD = "MD5";
+
     /** base path under which the files will be stored. */
-    private Path basePath;
+    protected Path basePath;
+
+    /** folder in which the research objects are kept in the sharded layout, next to the flat layout folders. */
+    public static final String SHARDS_FOLDER = ".shards";
+
+    /** number of hex characters of the names of shard folders. */
+    private static final int SHARD_NAME_LENGTH = 2;
+
+    /** maximum number of shard levels, limited by the length of the MD5 hash. */
+    public static final int MAX_SHARD_LEVELS = 32 / SHARD_NAME_LENGTH;
+
+    /** maximum number of research objects of which the layout is remembered. */
+    private static final int MAX_KNOWN_LAYOUTS = 100000;
+
+    /**
+     * folders of research objects by their folders in the sharded layout, so that the layout is checked once. The
+     * layout changes only when a research object is moved to the sharded layout, which updates the cache.
+     */
+    private static final Cache<Path, Path> LAYOUTS = CacheBuilder.newBuilder().maximumSize(MAX_KNOWN_LAYOUTS).build();
+
+    /** transactions writing to or moving research objects, by research object folders in the flat layout. */
+    private static final Map<Path, ResearchObjectLock> LOCKS = new HashMap<>();
+
+    /** digest methods of the additional checksums calculated for each file. */
+    private final List<String> additionalDigestMethods = new ArrayList<>();
+
+    /** number of levels of shard folders above research object folders, 0 for the flat layout. */
+    private final int shardLevels;
 
 
     /**
@@ -65,39 +112,56 @@ public class FilesystemDL implements DigitalLibrary {
      *            file path under which the files will be stored
      */
     public FilesystemDL(String basePath) {
-        if (basePath.endsWith("/")) {
-            this.basePath = FileSystems.getDefault().getPath(basePath);
-        } else {
-            this.basePath = FileSystems.getDefault().getPath(basePath.concat("/"));
-        }
+        this(basePath, Collections.<String> emptyList());
     }
 
 
     /**
-     * Get resource paths for a folder path.
+     * Constructor.
      * 
-     * @param path
-     *            path to the folder
-     * @return list of resources, excluding folders
-     * @throws DigitalLibraryException
-     *             an error while traversing the filesystem
+     * @param basePath
+     *            file path under which the files will be stored
+     * @param additionalDigestMethods
+     *            digest methods, such as SHA-256, of the checksums calculated for each file in addition to MD5
      */
-    private List<Path> getResourcePaths(Path path)
-            throws DigitalLibraryException {
-        List<Path> result = new ArrayList<>();
-        try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
-            for (Path entry : stream) {
-                if (entry.toFile().isDirectory()) {
-                    result.addAll(getResourcePaths(entry));
-                } else {
-                    result.add(entry);
+    public FilesystemDL(String basePath, Collection<String> additionalDigestMethods) {
+        this(basePath, additionalDigestMethods, 0);
+    }
+
+
+    /**
+     * Constructor.
+     * 
+     * @param basePath
+     *            file path under which the files will be stored
+     * @param additionalDigestMethods
+     *            digest methods, such as SHA-256, of the checksums calculated for each file in addition to MD5
+     * @param shardLevels
+     *            number of levels of folders, named after the hash of the research object ID, above new research
+     *            object folders, 0 to keep all research objects in one folder
+     */
+    public FilesystemDL(String basePath, Collection<String> additionalDigestMethods, int shardLevels) {
+        if (basePath.endsWith("/")) {
+            this.basePath = FileSystems.getDefault().getPath(basePath);
+        } else {
+            this.basePath = FileSystems.getDefault().getPath(basePath.concat("/"));
+        }
+        for (String method : additionalDigestMethods) {
+            try {
+                MessageDigest.getInstance(method);
+                if (!method.equalsIgnoreCase(MAIN_DIGEST_METHOD) && !this.additionalDigestMethods.contains(method)) {
+                    this.additionalDigestMethods.add(method);
                 }
+            } catch (NoSuchAlgorithmException e) {
+                LOGGER.warn("Digest method " + method + " is not supported, the checksums will not be calculated");
             }
-        } catch (DirectoryIteratorException | IOException e) {
-            // I/O error encounted during the iteration, the cause is an IOException
-            throw new DigitalLibraryException(e);
         }
-        return result;
+        this.shardLevels = Math.max(0, Math.min(shardLevels, MAX_SHARD_LEVELS));
+    }
+
+
+    public int getShardLevels() {
+        return shardLevels;
     }
 
 
@@ -105,49 +169,97 @@ public class FilesystemDL implements DigitalLibrary {
     public InputStream getZippedFolder(URI ro, String folder)
             throws DigitalLibraryException, NotFoundException {
         final Path roPath = getPath(ro, null);
-        Path path = getPath(ro, folder);
-        final List<Path> paths = getResourcePaths(path);
-
-        PipedInputStream in = new PipedInputStream();
-        final PipedOutputStream out;
-        try {
-            out = new PipedOutputStream(in);
-        } catch (IOException e) {
-            throw new RuntimeException("This should never happen", e);
+        final Path path = getPath(ro, folder);
+        if (!Files.isDirectory(path)) {
+            throw new NotFoundException("Folder doesn't exist: " + path);
         }
-        final ZipOutputStream zipOut = new ZipOutputStream(out);
-        new Thread("edition zip downloader (" + path.toString() + ")") {
+        return ZipExporter.getInstance().export(path.toString(), new ZipExporter.Content() {
 
             @Override
-            public void run() {
-                try {
-                    for (Path filePath : paths) {
-                        ZipEntry entry = new ZipEntry(roPath.relativize(filePath).normalize().toString());
-                        zipOut.putNextEntry(entry);
-                        InputStream in = Files.newInputStream(filePath);
-                        try {
-                            IOUtils.copy(in, zipOut);
-                        } finally {
-                            in.close();
-                        }
-                    }
-                } catch (IOException e) {
-                    LOGGER.error("Zip transmission failed", e);
-                } finally {
-                    try {
-                        zipOut.close();
-                    } catch (Exception e) {
-                        LOGGER.warn("Could not close the ZIP file: " + e.getMessage());
-                        try {
-                            out.close();
-                        } catch (IOException e1) {
-                            LOGGER.error("Could not close the ZIP output stream", e1);
-                        }
+            public void addTo(final ZipExporter.Archive archive)
+                    throws IOException {
+                Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+                            throws IOException {
+                        archive.add(roPath.relativize(file).normalize().toString(), file,
+                            MimeTypeUtil.getContentType(file.getFileName().toString()));
+                        return FileVisitResult.CONTINUE;
                     }
+                });
+            }
+        });
+    }
+
+
+    /**
+     * Zip a folder using the metadata of its files, for the libraries that keep the content outside of the research
+     * object folders. The files are listed before the archive is written, because the database can't be used in the
+     * thread writing the archive.
+     * 
+     * @param ro
+     *            research object
+     * @param folder
+     *            folder path
+     * @return the archive
+     * @throws NotFoundException
+     *             the folder has no files
+     */
+    protected InputStream getZippedFileInfos(URI ro, String folder)
+            throws NotFoundException {
+        Path roPath = getPath(ro, null);
+        Path path = getPath(ro, folder);
+        List<ResourceInfo> files = getFileInfos(path);
+        if (files.isEmpty()) {
+            throw new NotFoundException("Folder doesn't exist: " + path);
+        }
+        final List<ZipExporter.Content> entries = new ArrayList<>();
+        for (ResourceInfo res : files) {
+            Path file = Paths.get(res.getPath());
+            String name = roPath.relativize(file).normalize().toString()
+                    .replace(file.getFileSystem().getSeparator(), "/");
+            ZipExporter.Content entry = getZipEntry(name, res);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        return ZipExporter.getInstance().export(path.toString(), new ZipExporter.Content() {
+
+            @Override
+            public void addTo(ZipExporter.Archive archive)
+                    throws IOException {
+                for (ZipExporter.Content entry : entries) {
+                    entry.addTo(archive);
                 }
-            };
-        }.start();
-        return in;
+            }
+        });
+    }
+
+
+    /**
+     * Prepare adding a file listed by {@link #getZippedFileInfos(URI, String)} to the archive.
+     * 
+     * @param name
+     *            the name of the file in the archive
+     * @param res
+     *            the file metadata
+     * @return the file content or null if the file has no content
+     */
+    protected ZipExporter.Content getZipEntry(final String name, final ResourceInfo res) {
+        if (!hasContent(res)) {
+            return null;
+        }
+        final Path file = Paths.get(res.getPath());
+        final String mimeType = res.getMimeType();
+        return new ZipExporter.Content() {
+
+            @Override
+            public void addTo(ZipExporter.Archive archive)
+                    throws IOException {
+                archive.add(name, file, mimeType);
+            }
+        };
     }
 
 
@@ -155,12 +267,14 @@ public class FilesystemDL implements DigitalLibrary {
     public InputStream getFileContents(URI ro, String filePath)
             throws DigitalLibraryException, NotFoundException {
         Path path = getPath(ro, filePath);
+        if (!Files.isRegularFile(path)) {
+            throw new NotFoundException("File doesn't exist: " + path);
+        }
         try {
-            return Files.newInputStream(path);
-        } catch (NoSuchFileException e) {
+            // a file stream, so that ranges of the file can be read by position when sending the file
+            return new StoredFileInputStream(basePath, path);
+        } catch (FileNotFoundException e) {
             throw new NotFoundException("File doesn't exist", e);
-        } catch (IOException e) {
-            throw new DigitalLibraryException(e);
         }
     }
 
@@ -176,45 +290,173 @@ public class FilesystemDL implements DigitalLibrary {
     @Override
     public ResourceInfo createOrUpdateFile(URI ro, String filePath, InputStream inputStream, String mimeType)
             throws DigitalLibraryException {
-        Path path = getPath(ro, filePath);
+        Path path = getPathForWrite(ro, filePath);
+        if (inputStream instanceof StoredFileInputStream
+                && ((StoredFileInputStream) inputStream).basePath.equals(basePath)) {
+            // the content is already in this library, for example when a snapshot is created
+            ResourceInfo res = linkFile((StoredFileInputStream) inputStream, path, mimeType);
+            if (res != null) {
+                return res;
+            }
+        }
+        Map<String, MessageDigest> digests = createDigests();
+        // the checksums are calculated while the file is written
+        InputStream digestStream = inputStream;
+        for (MessageDigest digest : digests.values()) {
+            digestStream = new DigestInputStream(digestStream, digest);
+        }
         try {
             Files.createDirectories(path.getParent());
-            Files.copy(inputStream, path, StandardCopyOption.REPLACE_EXISTING);
-            return updateFileInfo(ro, filePath, mimeType);
+            // the existing file is deleted, not overwritten, so its hard links keep the old content
+            Files.copy(digestStream, path, StandardCopyOption.REPLACE_EXISTING);
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return saveFileInfo(path, attributes.size(), new DateTime(attributes.lastModifiedTime().toMillis()),
+                getChecksums(digests), mimeType);
         } catch (IOException e) {
             throw new DigitalLibraryException(e);
         }
     }
 
 
+    /**
+     * Store a file of this library under another path without copying the content, by creating a hard link. The
+     * files are never modified in place, a file being updated is deleted and written again, so the link is not
+     * affected when either of the files changes later. The checksums of the source file are reused.
+     * 
+     * @param source
+     *            stream of the source file, closed if the link is created
+     * @param path
+     *            path of the new file
+     * @param mimeType
+     *            MIME type of the new file
+     * @return the new file metadata or null if the link could not be created and the content must be copied
+     */
+    private ResourceInfo linkFile(StoredFileInputStream source, Path path, String mimeType) {
+        ResourceInfo sourceInfo = new ResourceInfoDAO().findByPath(source.path.toString());
+        if (sourceInfo == null || sourceInfo.getChecksum() == null
+                || !sourceInfo.getDigests().keySet().containsAll(additionalDigestMethods)) {
+            return null;
+        }
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(source.path, BasicFileAttributes.class);
+            if (attributes.size() != sourceInfo.getSizeInBytes()
+                    || (Files.exists(path) && Files.isSameFile(source.path, path))) {
+                return null;
+            }
+            Files.createDirectories(path.getParent());
+            Files.deleteIfExists(path);
+            Files.createLink(path, source.path);
+        } catch (IOException | UnsupportedOperationException | SecurityException e) {
+            LOGGER.debug("Could not link " + path + " to " + source.path + ", the file will be copied: " + e);
+            return null;
+        }
+        IOUtils.closeQuietly(source);
+        Map<String, String> checksums = new HashMap<>(sourceInfo.getDigests());
+        checksums.put(MAIN_DIGEST_METHOD, sourceInfo.getChecksum());
+        return saveFileInfo(path, attributes.size(), new DateTime(attributes.lastModifiedTime().toMillis()),
+            checksums, mimeType);
+    }
+
+
     @Override
     public ResourceInfo updateFileInfo(URI ro, String filePath, String mimeType)
             throws NotFoundException, DigitalLibraryException, AccessDeniedException {
         try {
-            Path path = getPath(ro, filePath);
+            Path path = getPathForWrite(ro, filePath);
             BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
-            String md5;
+            Map<String, MessageDigest> digests;
             if (attributes.isRegularFile()) {
-                FileInputStream fis = new FileInputStream(path.toFile());
-                md5 = DigestUtils.md5Hex(fis);
+                digests = createDigests();
+                InputStream in = Files.newInputStream(path);
+                for (MessageDigest digest : digests.values()) {
+                    in = new DigestInputStream(in, digest);
+                }
+                try {
+                    IOUtils.copy(in, new NullOutputStream());
+                } finally {
+                    in.close();
+                }
             } else {
                 LOGGER.warn(path.toString() + " is not a regular file, the checksum will not be calculated.");
-                md5 = null;
+                digests = Collections.emptyMap();
             }
-
-            DateTime lastModified = new DateTime(attributes.lastModifiedTime().toMillis());
-            ResourceInfoDAO dao = new ResourceInfoDAO();
-            ResourceInfo res = dao.create(path.toString(), path.getFileName().toString(), md5, attributes.size(),
-                "MD5", lastModified, mimeType);
-            dao.save(res);
-            LOGGER.debug("Saved stats for resource " + path.toString());
-            return res;
+            return saveFileInfo(path, attributes.size(), new DateTime(attributes.lastModifiedTime().toMillis()),
+                getChecksums(digests), mimeType);
         } catch (IOException e) {
             throw new DigitalLibraryException(e);
         }
     }
 
 
+    /**
+     * Create the message digests of the main and additional checksums.
+     * 
+     * @return message digests by digest method, the main one first
+     */
+    protected Map<String, MessageDigest> createDigests() {
+        List<String> methods = new ArrayList<>();
+        methods.add(MAIN_DIGEST_METHOD);
+        methods.addAll(additionalDigestMethods);
+        Map<String, MessageDigest> digests = new LinkedHashMap<>();
+        for (String method : methods) {
+            try {
+                digests.put(method, MessageDigest.getInstance(method));
+            } catch (NoSuchAlgorithmException e) {
+                // checked in the constructor
+                throw new IllegalStateException(e);
+            }
+        }
+        return digests;
+    }
+
+
+    /**
+     * Get the checksums calculated by message digests.
+     * 
+     * @param digests
+     *            message digests that have read the whole file, by digest method
+     * @return hex encoded checksums by digest method
+     */
+    protected static Map<String, String> getChecksums(Map<String, MessageDigest> digests) {
+        Map<String, String> checksums = new HashMap<>();
+        for (Map.Entry<String, MessageDigest> entry : digests.entrySet()) {
+            checksums.put(entry.getKey(), Hex.encodeHexString(entry.getValue().digest()));
+        }
+        return checksums;
+    }
+
+
+    /**
+     * Save the file metadata with the checksums calculated.
+     * 
+     * @param path
+     *            file path
+     * @param size
+     *            file size in bytes
+     * @param lastModified
+     *            last modification date
+     * @param checksums
+     *            checksums by digest method, empty if there are no checksums
+     * @param mimeType
+     *            MIME type
+     * @return the file metadata
+     */
+    protected ResourceInfo saveFileInfo(Path path, long size, DateTime lastModified, Map<String, String> checksums,
+            String mimeType) {
+        Map<String, String> additionalChecksums = new HashMap<>(checksums);
+        String md5 = additionalChecksums.remove(MAIN_DIGEST_METHOD);
+        ResourceInfoDAO dao = new ResourceInfoDAO();
+        ResourceInfo res = dao.create(path.toString(), path.getFileName().toString(), md5, size, MAIN_DIGEST_METHOD,
+            lastModified, mimeType);
+        res.getDigests().clear();
+        res.getDigests().putAll(additionalChecksums);
+        dao.save(res);
+        LOGGER.debug("Saved stats for resource " + path.toString());
+        return res;
+    }
+
+
     @Override
     public ResourceInfo getFileInfo(URI ro, String filePath) {
         Path path = getPath(ro, filePath);
@@ -224,10 +466,52 @@ public class FilesystemDL implements DigitalLibrary {
     }
 
 
+    @Override
+    public Map<String, ResourceMetadata> getFileInfos(URI ro) {
+        Path roPath = getPath(ro, null);
+        String separator = roPath.getFileSystem().getSeparator();
+        Map<String, ResourceMetadata> result = new HashMap<>();
+        // one query for all files instead of one for each file
+        for (ResourceInfo info : new ResourceInfoDAO().findByPathPrefix(roPath.toString() + separator)) {
+            Path path = roPath.getFileSystem().getPath(info.getPath());
+            result.put(roPath.relativize(path).toString().replace(separator, "/"), info);
+        }
+        return result;
+    }
+
+
+    @Override
+    public boolean hasContent(ResourceMetadata info) {
+        // only regular files get a checksum
+        return info.getChecksum() != null;
+    }
+
+
+    /**
+     * Get the resource infos of all files in a folder, sorted by path.
+     * 
+     * @param folder
+     *            folder path
+     * @return a modifiable list of resource infos
+     */
+    protected List<ResourceInfo> getFileInfos(Path folder) {
+        String prefix = folder.toString() + folder.getFileSystem().getSeparator();
+        List<ResourceInfo> files = new ResourceInfoDAO().findByPathPrefix(prefix);
+        Collections.sort(files, new Comparator<ResourceInfo>() {
+
+            @Override
+            public int compare(ResourceInfo o1, ResourceInfo o2) {
+                return o1.getPath().compareTo(o2.getPath());
+            }
+        });
+        return files;
+    }
+
+
     @Override
     public void deleteFile(URI ro, String filePath)
             throws DigitalLibraryException, NotFoundException {
-        Path path = getPath(ro, filePath);
+        Path path = getPathForWrite(ro, filePath);
         try {
             try {
                 Files.delete(path);
@@ -241,7 +525,6 @@ public class FilesystemDL implements DigitalLibrary {
             } else {
                 LOGGER.warn("Resource info not found in database: " + path);
             }
-            HibernateUtil.getSessionFactory().getCurrentSession().flush();
         } catch (NoSuchFileException e) {
             throw new NotFoundException("File doesn't exist: " + path, e);
         } catch (IOException e) {
@@ -272,7 +555,14 @@ public class FilesystemDL implements DigitalLibrary {
     @Override
     public void deleteResearchObject(URI ro)
             throws DigitalLibraryException, NotFoundException {
-        Path path = getPath(ro, null);
+        Path path = getPathForWrite(ro, null);
+        if (!Files.isDirectory(path)) {
+            throw new NotFoundException("RO doesn't exist: " + ro.toString());
+        }
+        forgetLayout(ro);
+        // the metadata of all files is deleted at once, then the files
+        int deleted = new ResourceInfoDAO().deleteFolder(path.toString(), path.getFileSystem().getSeparator());
+        LOGGER.debug("Deleted stats for " + deleted + " resources of " + ro);
         try {
             Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
 
@@ -280,10 +570,6 @@ public class FilesystemDL implements DigitalLibrary {
                 public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
                         throws IOException {
                     Files.delete(file);
-                    ResourceInfoDAO dao = new ResourceInfoDAO();
-                    ResourceInfo res = dao.findByPath(file.toString());
-                    dao.delete(res);
-                    HibernateUtil.getSessionFactory().getCurrentSession().flush();
                     return FileVisitResult.CONTINUE;
                 }
 
@@ -325,11 +611,14 @@ public class FilesystemDL implements DigitalLibrary {
             updatedUser.setName(username);
             dao.save(updatedUser);
             HibernateUtil.getSessionFactory().getCurrentSession().flush();
+            UserNameResolver.getInstance().invalidate(login);
+            AccessTokenCache.getInstance().invalidateUser(login);
             return false;
         }
         UserProfile user2 = dao.create(login, username, role);
         dao.save(user2);
         HibernateUtil.getSessionFactory().getCurrentSession().flush();
+        UserNameResolver.getInstance().invalidate(login);
         return true;
     }
 
@@ -359,6 +648,8 @@ public class FilesystemDL implements DigitalLibrary {
         } else {
             dao.delete(user2);
             HibernateUtil.getSessionFactory().getCurrentSession().flush();
+            UserNameResolver.getInstance().invalidate(userId);
+            AccessTokenCache.getInstance().invalidateUser(userId);
         }
     }
 
@@ -378,6 +669,137 @@ public class FilesystemDL implements DigitalLibrary {
     }
 
 
+    /**
+     * Move a research object from the flat layout to the sharded layout. The metadata of the files is moved in the
+     * current transaction and the files are moved back if it is rolled back. If the research object has been partly
+     * written in both layouts, the files in the sharded layout are kept. The research object can be read while it is
+     * moved, but it can't be written until the transaction ends, and the research object is not moved until the other
+     * transactions writing to it end.
+     * 
+     * @param ro
+     *            research object
+     * @return true if the research object has been moved, false if it was not in the flat layout or sharding is
+     *         disabled
+     * @throws DigitalLibraryException
+     *             the files could not be moved
+     */
+    public boolean migrateResearchObject(URI ro)
+            throws DigitalLibraryException {
+        Path flatPath = getFlatPath(ro);
+        Path shardedPath = getShardedPath(flatPath);
+        if (shardedPath.equals(flatPath) || !isStored(flatPath)) {
+            return false;
+        }
+        startMigration(flatPath, shardedPath);
+        if (!isStored(flatPath)) {
+            // moved by another transaction in the meantime
+            return false;
+        }
+        int moved = new ResourceInfoDAO().moveFolder(flatPath.toString(), shardedPath.toString(), flatPath
+                .getFileSystem().getSeparator());
+        try {
+            moveFiles(flatPath, shardedPath);
+        } catch (IOException e) {
+            throw new DigitalLibraryException(e);
+        }
+        LOGGER.debug("Moved " + ro + " to " + shardedPath + " with stats of " + moved + " resources");
+        return true;
+    }
+
+
+    /**
+     * Move the files of a research object to another folder. The files are moved back if the current transaction is
+     * rolled back. The files left in the current folder because they already exist in the new folder are deleted only
+     * once the transaction is committed.
+     * 
+     * @param source
+     *            the current folder
+     * @param target
+     *            the new folder
+     * @throws IOException
+     *             a file could not be moved
+     */
+    protected void moveFiles(final Path source, final Path target)
+            throws IOException {
+        final Map<Path, Path> moved = new LinkedHashMap<>();
+        HibernateUtil.afterCompletion(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    if (Files.exists(source)) {
+                        FileUtils.deleteDirectory(source.toFile());
+                    }
+                } catch (IOException e) {
+                    LOGGER.warn("Could not delete " + source + " moved to " + target, e);
+                }
+            }
+        }, new Runnable() {
+
+            @Override
+            public void run() {
+                List<Map.Entry<Path, Path>> moves = new ArrayList<>(moved.entrySet());
+                Collections.reverse(moves);
+                try {
+                    for (Map.Entry<Path, Path> move : moves) {
+                        Files.createDirectories(move.getKey().getParent());
+                        Files.move(move.getValue(), move.getKey(), StandardCopyOption.ATOMIC_MOVE);
+                    }
+                } catch (IOException e) {
+                    LOGGER.warn("Could not move " + target + " back to " + source, e);
+                }
+            }
+        });
+        if (!Files.exists(target)) {
+            Files.createDirectories(target.getParent());
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+            moved.put(source, target);
+            return;
+        }
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+                    throws IOException {
+                Path newFile = target.resolve(source.relativize(file).toString());
+                if (Files.exists(newFile)) {
+                    LOGGER.warn("Keeping " + newFile + " instead of " + file);
+                } else {
+                    Files.createDirectories(newFile.getParent());
+                    Files.move(file, newFile);
+                    moved.put(file, newFile);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+
+    /**
+     * Check if anything is stored in a research object folder.
+     * 
+     * @param path
+     *            research object folder
+     * @return true if the folder exists
+     */
+    protected boolean isStored(Path path) {
+        return Files.isDirectory(path);
+    }
+
+
+    /**
+     * Check if anything is stored in a research object folder using the metadata of its files, for the libraries in
+     * which the research object folders exist only in the database.
+     * 
+     * @param path
+     *            research object folder
+     * @return true if any file is stored in the folder
+     */
+    protected boolean isStoredInDatabase(Path path) {
+        return new ResourceInfoDAO().existsFolder(path.toString(), path.getFileSystem().getSeparator());
+    }
+
+
     /**
      * Calculate path from a resource URI.
      * 
@@ -387,7 +809,197 @@ public class FilesystemDL implements DigitalLibrary {
      *            path or null
      * @return filesystem path
      */
-    private Path getPath(URI ro, String resourcePath) {
+    protected Path getPath(URI ro, String resourcePath) {
+        Path flatPath = getFlatPath(ro);
+        Path shardedPath = getShardedPath(flatPath);
+        Path path = shardedPath;
+        if (!shardedPath.equals(flatPath)) {
+            Path knownPath = LAYOUTS.getIfPresent(shardedPath);
+            if (knownPath != null) {
+                path = knownPath;
+            } else if (isStored(shardedPath)) {
+                rememberLayout(flatPath, shardedPath, shardedPath);
+            } else if (isStored(flatPath)) {
+                // research objects that have not been migrated yet are still in the flat layout
+                path = flatPath;
+                rememberLayout(flatPath, shardedPath, flatPath);
+            }
+        }
+        if (resourcePath != null) {
+            path = path.resolve(resourcePath);
+        }
+        return path.normalize();
+    }
+
+
+    /**
+     * Calculate path from a resource URI of a resource that will be modified. The research object can't be moved
+     * until the current transaction ends.
+     * 
+     * @param ro
+     *            research object
+     * @param resourcePath
+     *            path or null
+     * @return filesystem path
+     * @throws ServiceUnavailableException
+     *             the research object is being moved to the sharded layout by another transaction
+     */
+    protected Path getPathForWrite(URI ro, String resourcePath) {
+        final Path flatPath = getFlatPath(ro);
+        final Transaction transaction = HibernateUtil.getSessionFactory().getCurrentSession().getTransaction();
+        synchronized (LOCKS) {
+            ResearchObjectLock lock = getLock(flatPath);
+            if (lock.migration != null && lock.migration != transaction) {
+                throw new ServiceUnavailableException("Research object " + ro + " is being moved, try again later");
+            }
+            // without a transaction nothing would release the lock
+            if (transaction.isActive() && lock.writers.add(transaction)) {
+                HibernateUtil.afterCompletion(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        synchronized (LOCKS) {
+                            LOCKS.get(flatPath).writers.remove(transaction);
+                            release(flatPath);
+                        }
+                    }
+                });
+            }
+        }
+        return getPath(ro, resourcePath);
+    }
+
+
+    /**
+     * Wait until no other transaction writes to or moves a research object and prevent other transactions from
+     * writing to it until the current transaction ends. The layout of the research object is checked again once it
+     * has been moved.
+     * 
+     * @param flatPath
+     *            research object folder in the flat layout
+     * @param shardedPath
+     *            research object folder in the sharded layout
+     * @throws DigitalLibraryException
+     *             interrupted while waiting
+     */
+    private void startMigration(final Path flatPath, final Path shardedPath)
+            throws DigitalLibraryException {
+        final Transaction transaction = HibernateUtil.getSessionFactory().getCurrentSession().getTransaction();
+        synchronized (LOCKS) {
+            ResearchObjectLock lock = getLock(flatPath);
+            if (lock.migration == transaction) {
+                return;
+            }
+            while (lock.migration != null || lock.isWrittenByOtherThan(transaction)) {
+                try {
+                    LOCKS.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    release(flatPath);
+                    throw new DigitalLibraryException(e);
+                }
+                // the lock is forgotten when it is released by all transactions
+                lock = getLock(flatPath);
+            }
+            lock.migration = transaction;
+            LAYOUTS.invalidate(shardedPath);
+        }
+        HibernateUtil.afterCompletion(new Runnable() {
+
+            @Override
+            public void run() {
+                synchronized (LOCKS) {
+                    LOCKS.get(flatPath).migration = null;
+                    LAYOUTS.put(shardedPath, shardedPath);
+                    release(flatPath);
+                }
+            }
+        }, new Runnable() {
+
+            @Override
+            public void run() {
+                synchronized (LOCKS) {
+                    LOCKS.get(flatPath).migration = null;
+                    release(flatPath);
+                }
+            }
+        });
+    }
+
+
+    /**
+     * Remember the layout of a research object, unless it is being moved.
+     * 
+     * @param flatPath
+     *            research object folder in the flat layout
+     * @param shardedPath
+     *            research object folder in the sharded layout
+     * @param path
+     *            the research object folder
+     */
+    private static void rememberLayout(Path flatPath, Path shardedPath, Path path) {
+        synchronized (LOCKS) {
+            ResearchObjectLock lock = LOCKS.get(flatPath);
+            if (lock == null || lock.migration == null) {
+                // the layout found before a migration ended doesn't replace the layout after it
+                LAYOUTS.asMap().putIfAbsent(shardedPath, path);
+            }
+        }
+    }
+
+
+    /**
+     * Forget the layout of a research object, for example when it is deleted, so that it is checked again.
+     * 
+     * @param ro
+     *            research object
+     */
+    protected void forgetLayout(URI ro) {
+        LAYOUTS.invalidate(getShardedPath(getFlatPath(ro)));
+    }
+
+
+    /**
+     * Get the transactions using a research object. Must be called with the lock of {@link #LOCKS}.
+     * 
+     * @param flatPath
+     *            research object folder in the flat layout
+     * @return the transactions using the research object, created if no transaction used it
+     */
+    private static ResearchObjectLock getLock(Path flatPath) {
+        ResearchObjectLock lock = LOCKS.get(flatPath);
+        if (lock == null) {
+            lock = new ResearchObjectLock();
+            LOCKS.put(flatPath, lock);
+        }
+        return lock;
+    }
+
+
+    /**
+     * Wake up the transactions waiting to move research objects and forget the research object if no transaction uses
+     * it. Must be called with the lock of {@link #LOCKS}.
+     * 
+     * @param flatPath
+     *            research object folder in the flat layout
+     */
+    private static void release(Path flatPath) {
+        ResearchObjectLock lock = LOCKS.get(flatPath);
+        if (lock != null && lock.migration == null && lock.writers.isEmpty()) {
+            LOCKS.remove(flatPath);
+        }
+        LOCKS.notifyAll();
+    }
+
+
+    /**
+     * Calculate the path of a research object in the flat layout, in which all research objects are in one folder.
+     * 
+     * @param ro
+     *            research object
+     * @return filesystem path
+     */
+    private Path getFlatPath(URI ro) {
         Path path = basePath;
         if (ro.getHost() != null) {
             path = path.resolve(ro.getHost());
@@ -399,10 +1011,93 @@ public class FilesystemDL implements DigitalLibrary {
                 path = path.resolve(ro.getPath());
             }
         }
-        if (resourcePath != null) {
-            path = path.resolve(resourcePath);
-        }
         return path.normalize();
     }
 
+
+    /**
+     * Calculate the path of a research object in the sharded layout, for example ROs/.shards/3f/a0/myro for two
+     * levels. The shard folders are named after the MD5 hash of the research object folder name.
+     * 
+     * @param flatPath
+     *            research object path in the flat layout
+     * @return filesystem path, the same as in the flat layout if sharding is disabled or the research object has no
+     *         parent folder
+     */
+    private Path getShardedPath(Path flatPath) {
+        Path parent = flatPath.getParent();
+        if (shardLevels == 0 || parent == null || !parent.startsWith(basePath.normalize())
+                || parent.getNameCount() <= basePath.normalize().getNameCount()) {
+            return flatPath;
+        }
+        String name = flatPath.getFileName().toString();
+        String hash = DigestUtils.md5Hex(name);
+        Path path = parent.resolve(SHARDS_FOLDER);
+        for (int i = 0; i < shardLevels; i++) {
+            path = path.resolve(hash.substring(i * SHARD_NAME_LENGTH, (i + 1) * SHARD_NAME_LENGTH));
+        }
+        return path.resolve(name);
+    }
+
+
+    /**
+     * A stream of a file, which this library recognizes when the content is stored again.
+     * 
+     * @author piotrekhol
+     * 
+     */
+    static final class StoredFileInputStream extends FileInputStream {
+
+        /** base path of the library. */
+        private final Path basePath;
+
+        /** the file. */
+        private final Path path;
+
+
+        /**
+         * Constructor.
+         * 
+         * @param basePath
+         *            base path of the library
+         * @param path
+         *            the file
+         * @throws FileNotFoundException
+         *             the file doesn't exist
+         */
+        StoredFileInputStream(Path basePath, Path path)
+                throws FileNotFoundException {
+            super(path.toFile());
+            this.basePath = basePath;
+            this.path = path;
+        }
+    }
+
+
+    /**
+     * Transactions using a research object.
+     * 
+     * @author piotrekhol
+     * 
+     */
+    private static final class ResearchObjectLock {
+
+        /** transactions writing to the research object. */
+        private final Set<Transaction> writers = Collections.newSetFromMap(new IdentityHashMap<Transaction, Boolean>());
+
+        /** transaction moving the research object to the sharded layout, or null. */
+        private Transaction migration;
+
+
+        /**
+         * Check if the research object is written to by another transaction.
+         * 
+         * @param transaction
+         *            the transaction
+         * @return true if any other transaction writes to the research object
+         */
+        private boolean isWrittenByOtherThan(Transaction transaction) {
+            return writers.size() > (writers.contains(transaction) ? 1 : 0);
+        }
+    }
 }
@@ -1,5 +1,9 @@
 package pl.psnc.dl.wf4ever.storage;
 
+import static pl.psnc.dl.wf4ever.util.PropertiesUtil.getInt;
+
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 import org.apache.log4j.Logger;
@@ -20,6 +24,15 @@ public class FilesystemDLFactory implements DigitalLibraryFactory {
     /** the root folder for filesystem storage. */
     private static String filesystemBase;
 
+    /** digest methods of the checksums calculated in addition to MD5. */
+    private static List<String> digestMethods;
+
+    /** true if identical content should be kept once, in a content-addressable store. */
+    private static boolean blobStore;
+
+    /** number of levels of shard folders above research object folders. */
+    private static int shardLevels;
+
 
     /**
      * Constructor.
@@ -30,12 +43,25 @@ public class FilesystemDLFactory implements DigitalLibraryFactory {
     public FilesystemDLFactory(Properties properties) {
         filesystemBase = properties.getProperty("filesystemBase", "/tmp/dl/");
         LOGGER.debug("Filesystem base: " + filesystemBase);
+        digestMethods = new ArrayList<>();
+        for (String method : properties.getProperty("filesystemDigests", "").split(",")) {
+            if (!method.trim().isEmpty()) {
+                digestMethods.add(method.trim());
+            }
+        }
+        blobStore = properties.getProperty("filesystemStorage", "files").trim().equalsIgnoreCase("blobs");
+        LOGGER.debug("Blob store: " + blobStore);
+        shardLevels = getInt(properties, "filesystemShardLevels", 0);
+        LOGGER.debug("Shard levels: " + shardLevels);
     }
 
 
     @Override
     public DigitalLibrary getDigitalLibrary() {
-        return new FilesystemDL(filesystemBase);
+        if (blobStore) {
+            return new BlobStoreDL(filesystemBase, digestMethods, shardLevels);
+        }
+        return new FilesystemDL(filesystemBase, digestMethods, shardLevels);
     }
 
 }
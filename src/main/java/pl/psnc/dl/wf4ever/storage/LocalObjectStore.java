@@ -0,0 +1,222 @@
+package pl.psnc.dl.wf4ever.storage;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * An object store keeping the objects as files in a local folder, a stand-in for a remote object store in tests and
+ * development installations. Objects being written are kept in a temporary folder and moved into place when they are
+ * complete, so readers never see partly written objects.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public class LocalObjectStore implements ObjectStore {
+
+    /** name of the folder with uploads in progress, it can't be the first segment of a key. */
+    private static final String UPLOADS_FOLDER = ".uploads";
+
+    /** folder with the objects. */
+    private final Path root;
+
+    /** folder with uploads in progress. */
+    private final Path uploads;
+
+
+    /**
+     * Constructor.
+     * 
+     * @param root
+     *            folder with the objects
+     */
+    public LocalObjectStore(Path root) {
+        this.root = root.toAbsolutePath().normalize();
+        this.uploads = this.root.resolve(UPLOADS_FOLDER);
+    }
+
+
+    @Override
+    public void putObject(String key, InputStream content, long length, String contentType)
+            throws IOException {
+        Path tmp = createTempFile();
+        try {
+            Files.copy(content, tmp, StandardCopyOption.REPLACE_EXISTING);
+            moveIntoPlace(tmp, key);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+
+    @Override
+    public String initiateMultipartUpload(String key, String contentType)
+            throws IOException {
+        String uploadId = UUID.randomUUID().toString();
+        Files.createDirectories(uploads.resolve(uploadId));
+        return uploadId;
+    }
+
+
+    @Override
+    public String uploadPart(String key, String uploadId, int partNumber, byte[] data, int length)
+            throws IOException {
+        byte[] part = Arrays.copyOf(data, length);
+        Files.write(getUpload(uploadId).resolve(Integer.toString(partNumber)), part);
+        return DigestUtils.md5Hex(part);
+    }
+
+
+    @Override
+    public void completeMultipartUpload(String key, String uploadId, List<String> partETags)
+            throws IOException {
+        Path upload = getUpload(uploadId);
+        Path tmp = createTempFile();
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                for (int i = 1; i <= partETags.size(); i++) {
+                    Path part = upload.resolve(Integer.toString(i));
+                    if (!Files.isRegularFile(part)) {
+                        throw new IOException("Part " + i + " of upload " + uploadId + " is missing");
+                    }
+                    Files.copy(part, out);
+                }
+            }
+            moveIntoPlace(tmp, key);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        FileUtils.deleteDirectory(upload.toFile());
+    }
+
+
+    @Override
+    public void abortMultipartUpload(String key, String uploadId)
+            throws IOException {
+        FileUtils.deleteDirectory(getUpload(uploadId).toFile());
+    }
+
+
+    @Override
+    public InputStream getObject(String key)
+            throws IOException {
+        Path path = getPath(key);
+        if (!Files.isRegularFile(path)) {
+            throw new FileNotFoundException("Object doesn't exist: " + key);
+        }
+        return new FileInputStream(path.toFile());
+    }
+
+
+    @Override
+    public void copyObject(String sourceKey, String targetKey)
+            throws IOException {
+        Path tmp = createTempFile();
+        try {
+            Files.copy(getPath(sourceKey), tmp, StandardCopyOption.REPLACE_EXISTING);
+            moveIntoPlace(tmp, targetKey);
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException("Object doesn't exist: " + sourceKey);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+
+    @Override
+    public void deleteObject(String key)
+            throws IOException {
+        Path path = getPath(key);
+        Files.deleteIfExists(path);
+        // remove the empty parent folders, like keys that no longer exist
+        try {
+            for (path = path.getParent(); !path.equals(root); path = path.getParent()) {
+                Files.delete(path);
+            }
+        } catch (IOException e) {
+            // not empty, or deleted in the meantime
+        }
+    }
+
+
+    /**
+     * Get the file of an object.
+     * 
+     * @param key
+     *            object key
+     * @return the file path
+     * @throws IOException
+     *             the key points outside of the store
+     */
+    private Path getPath(String key)
+            throws IOException {
+        Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root) || path.equals(root) || path.startsWith(uploads)) {
+            throw new IOException("Invalid object key: " + key);
+        }
+        return path;
+    }
+
+
+    /**
+     * Get the folder of an upload.
+     * 
+     * @param uploadId
+     *            the upload ID
+     * @return the folder path
+     * @throws IOException
+     *             the upload doesn't exist
+     */
+    private Path getUpload(String uploadId)
+            throws IOException {
+        Path upload = uploads.resolve(uploadId).normalize();
+        if (!upload.getParent().equals(uploads) || !Files.isDirectory(upload)) {
+            throw new IOException("No such upload: " + uploadId);
+        }
+        return upload;
+    }
+
+
+    /**
+     * Create a file for an object being written.
+     * 
+     * @return the file path
+     * @throws IOException
+     *             the file could not be created
+     */
+    private Path createTempFile()
+            throws IOException {
+        Files.createDirectories(uploads);
+        return Files.createTempFile(uploads, null, null);
+    }
+
+
+    /**
+     * Move a complete object into place, replacing the previous version.
+     * 
+     * @param tmp
+     *            the object file
+     * @param key
+     *            object key
+     * @throws IOException
+     *             the file could not be moved
+     */
+    private void moveIntoPlace(Path tmp, String key)
+            throws IOException {
+        Path path = getPath(key);
+        Files.createDirectories(path.getParent());
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
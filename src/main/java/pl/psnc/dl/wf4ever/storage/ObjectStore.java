@@ -0,0 +1,144 @@
+package pl.psnc.dl.wf4ever.storage;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * A bucket of an object store, such as Amazon S3 or a compatible service. Objects are identified by keys, which are
+ * paths separated with slashes.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public interface ObjectStore {
+
+    /**
+     * Store an object in one request.
+     * 
+     * @param key
+     *            object key
+     * @param content
+     *            object content
+     * @param length
+     *            content length in bytes
+     * @param contentType
+     *            MIME type or null
+     * @throws IOException
+     *             the object could not be stored
+     */
+    void putObject(String key, InputStream content, long length, String contentType)
+            throws IOException;
+
+
+    /**
+     * Start storing an object in parts.
+     * 
+     * @param key
+     *            object key
+     * @param contentType
+     *            MIME type or null
+     * @return the upload ID
+     * @throws IOException
+     *             the upload could not be started
+     */
+    String initiateMultipartUpload(String key, String contentType)
+            throws IOException;
+
+
+    /**
+     * Store a part of an object. Parts can be stored at the same time, all of them except for the last one must have
+     * at least the minimum part size of the store. The part is not stored if the content received by the store is
+     * different.
+     * 
+     * @param key
+     *            object key
+     * @param uploadId
+     *            the upload ID
+     * @param partNumber
+     *            part number, starting with 1
+     * @param data
+     *            buffer with the part content
+     * @param length
+     *            number of bytes of the buffer to store
+     * @return the part ETag
+     * @throws IOException
+     *             the part could not be stored
+     */
+    String uploadPart(String key, String uploadId, int partNumber, byte[] data, int length)
+            throws IOException;
+
+
+    /**
+     * Finish storing an object in parts.
+     * 
+     * @param key
+     *            object key
+     * @param uploadId
+     *            the upload ID
+     * @param partETags
+     *            the ETags of all parts, in order
+     * @throws IOException
+     *             the object could not be stored
+     */
+    void completeMultipartUpload(String key, String uploadId, List<String> partETags)
+            throws IOException;
+
+
+    /**
+     * Cancel storing an object in parts and remove the parts stored.
+     * 
+     * @param key
+     *            object key
+     * @param uploadId
+     *            the upload ID
+     * @throws IOException
+     *             the upload could not be cancelled
+     */
+    void abortMultipartUpload(String key, String uploadId)
+            throws IOException;
+
+
+    /**
+     * Read an object. The content is streamed from the store while it is read.
+     * 
+     * @param key
+     *            object key
+     * @return object content, to be closed by the caller
+     * @throws FileNotFoundException
+     *             the object doesn't exist
+     * @throws IOException
+     *             the object could not be read
+     */
+    InputStream getObject(String key)
+            throws IOException;
+
+
+    /**
+     * Copy an object within the store, without sending its content to the client.
+     * 
+     * @param sourceKey
+     *            key of the object to copy
+     * @param targetKey
+     *            key of the copy
+     * @throws FileNotFoundException
+     *             the object doesn't exist
+     * @throws IOException
+     *             the object could not be copied
+     */
+    void copyObject(String sourceKey, String targetKey)
+            throws IOException;
+
+
+    /**
+     * Delete an object, if it exists.
+     * 
+     * @param key
+     *            object key
+     * @throws IOException
+     *             the object could not be deleted
+     */
+    void deleteObject(String key)
+            throws IOException;
+}
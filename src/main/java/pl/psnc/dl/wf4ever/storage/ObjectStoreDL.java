@@ -0,0 +1,567 @@
+package pl.psnc.dl.wf4ever.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.log4j.Logger;
+import org.joda.time.DateTime;
+
+import pl.psnc.dl.wf4ever.db.ResourceInfo;
+import pl.psnc.dl.wf4ever.db.dao.ResourceInfoDAO;
+import pl.psnc.dl.wf4ever.db.hibernate.HibernateUtil;
+import pl.psnc.dl.wf4ever.dl.AccessDeniedException;
+import pl.psnc.dl.wf4ever.dl.DigitalLibraryException;
+import pl.psnc.dl.wf4ever.dl.NotFoundException;
+
+/**
+ * Digital library keeping the files in an object store, such as Amazon S3, so that the storage doesn't depend on the
+ * servlet node. The resource infos are kept in the database like in the filesystem storage, with the base path as a
+ * prefix of all paths, and the object keys are the paths relative to the base path.
+ * 
+ * Large files are stored in parts uploaded at the same time. Files are streamed from the store when they are read,
+ * also when they are added to ZIP archives. Copying a file from the same store, for example when a snapshot is
+ * created, is done by the store without reading the content.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public class ObjectStoreDL extends FilesystemDL {
+
+    /** logger. */
+    private static final Logger LOGGER = Logger.getLogger(ObjectStoreDL.class);
+
+    /** minimum size of a part of a multipart upload, except for the last one. */
+    public static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    /** maximum size of an object that can be copied by the store in one request. */
+    public static final long MAX_COPY_SIZE = 5L * 1024 * 1024 * 1024;
+
+    /** the object store. */
+    private final ObjectStore store;
+
+    /** size of the parts of multipart uploads in bytes, files smaller than that are stored in one request. */
+    private final int partSize;
+
+    /** threads uploading the parts. */
+    private final ExecutorService uploadExecutor;
+
+    /** maximum number of parts of one file uploaded at the same time. */
+    private final int parallelParts;
+
+
+    /**
+     * Constructor.
+     * 
+     * @param basePath
+     *            path used as the prefix of all resource info paths, usually named after the bucket
+     * @param additionalDigestMethods
+     *            digest methods of the checksums calculated for each file in addition to MD5
+     * @param shardLevels
+     *            number of levels of shard folders in the paths of new research objects, 0 for the flat layout
+     * @param store
+     *            the object store
+     * @param partSize
+     *            size of the parts of multipart uploads in bytes, at least 5 MB
+     * @param uploadExecutor
+     *            threads uploading the parts
+     * @param parallelParts
+     *            maximum number of parts of one file uploaded at the same time, which are kept in memory
+     */
+    public ObjectStoreDL(String basePath, Collection<String> additionalDigestMethods, int shardLevels,
+            ObjectStore store, int partSize, ExecutorService uploadExecutor, int parallelParts) {
+        super(basePath, additionalDigestMethods, shardLevels);
+        this.store = store;
+        this.partSize = Math.max(partSize, MIN_PART_SIZE);
+        this.uploadExecutor = uploadExecutor;
+        this.parallelParts = Math.max(parallelParts, 1);
+    }
+
+
+    /**
+     * Get the key of the object of a file.
+     * 
+     * @param path
+     *            file path
+     * @return object key
+     */
+    String getKey(Path path) {
+        return basePath.normalize().relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/");
+    }
+
+
+    @Override
+    public InputStream getZippedFolder(URI ro, String folder)
+            throws DigitalLibraryException, NotFoundException {
+        return getZippedFileInfos(ro, folder);
+    }
+
+
+    @Override
+    protected ZipExporter.Content getZipEntry(final String name, ResourceInfo res) {
+        if (res.getChecksum() == null) {
+            return null;
+        }
+        final String key = getKey(Paths.get(res.getPath()));
+        return new ZipExporter.Content() {
+
+            @Override
+            public void addTo(ZipExporter.Archive archive)
+                    throws IOException {
+                try (InputStream in = store.getObject(key)) {
+                    archive.add(name, in);
+                }
+            }
+        };
+    }
+
+
+    @Override
+    public InputStream getFileContents(URI ro, String filePath)
+            throws DigitalLibraryException, NotFoundException {
+        ResourceInfo res = getFileInfo(ro, filePath);
+        if (res == null || res.getChecksum() == null) {
+            throw new NotFoundException("File doesn't exist: " + filePath);
+        }
+        return new StoredObjectInputStream(store, getKey(Paths.get(res.getPath())), res);
+    }
+
+
+    @Override
+    public boolean fileExists(URI ro, String filePath)
+            throws DigitalLibraryException {
+        ResourceInfo res = getFileInfo(ro, filePath);
+        return res != null && res.getChecksum() != null;
+    }
+
+
+    @Override
+    public ResourceInfo createOrUpdateFile(URI ro, String filePath, InputStream inputStream, String mimeType)
+            throws DigitalLibraryException {
+        Path path = getPathForWrite(ro, filePath);
+        String key = getKey(path);
+        long size;
+        Map<String, String> checksums;
+        try {
+            if (inputStream instanceof StoredObjectInputStream
+                    && ((StoredObjectInputStream) inputStream).store == store) {
+                // the content is already in this store
+                StoredObjectInputStream object = (StoredObjectInputStream) inputStream;
+                copyObject(object.key, key, object.size, mimeType);
+                size = object.size;
+                checksums = object.checksums;
+                object.close();
+            } else {
+                Map<String, MessageDigest> digests = createDigests();
+                InputStream digestStream = inputStream;
+                for (MessageDigest digest : digests.values()) {
+                    digestStream = new DigestInputStream(digestStream, digest);
+                }
+                size = upload(key, digestStream, mimeType);
+                checksums = getChecksums(digests);
+            }
+        } catch (IOException e) {
+            throw new DigitalLibraryException(e);
+        }
+        return saveFileInfo(path, size, DateTime.now(), checksums, mimeType);
+    }
+
+
+    @Override
+    public ResourceInfo updateFileInfo(URI ro, String filePath, String mimeType)
+            throws NotFoundException, DigitalLibraryException, AccessDeniedException {
+        Path path = getPathForWrite(ro, filePath);
+        ResourceInfo res = new ResourceInfoDAO().findByPath(path.toString());
+        if (res == null || res.getChecksum() == null) {
+            if (getFileInfos(path).isEmpty()) {
+                throw new NotFoundException("File doesn't exist: " + path);
+            }
+            LOGGER.warn(path.toString() + " is not a regular file, the checksum will not be calculated.");
+            return saveFileInfo(path, 0, DateTime.now(), Collections.<String, String> emptyMap(), mimeType);
+        }
+        // the checksums are calculated again from the stored content
+        Map<String, MessageDigest> digests = createDigests();
+        CountingInputStream counter;
+        try (InputStream object = store.getObject(getKey(path))) {
+            counter = new CountingInputStream(object);
+            InputStream in = counter;
+            for (MessageDigest digest : digests.values()) {
+                in = new DigestInputStream(in, digest);
+            }
+            IOUtils.copy(in, new NullOutputStream());
+        } catch (FileNotFoundException e) {
+            throw new NotFoundException("File doesn't exist: " + path, e);
+        } catch (IOException e) {
+            throw new DigitalLibraryException(e);
+        }
+        return saveFileInfo(path, counter.getByteCount(), res.getLastModified(), getChecksums(digests), mimeType);
+    }
+
+
+    @Override
+    public void deleteFile(URI ro, String filePath)
+            throws DigitalLibraryException, NotFoundException {
+        Path path = getPathForWrite(ro, filePath);
+        ResourceInfoDAO dao = new ResourceInfoDAO();
+        ResourceInfo res = dao.findByPath(path.toString());
+        if (res == null) {
+            throw new NotFoundException("File doesn't exist: " + path);
+        }
+        dao.delete(res);
+        if (res.getChecksum() != null) {
+            deleteObjectsOnCommit(Collections.singletonList(getKey(path)));
+        }
+    }
+
+
+    @Override
+    public void deleteResearchObject(URI ro)
+            throws DigitalLibraryException, NotFoundException {
+        Path path = getPathForWrite(ro, null);
+        ResourceInfoDAO dao = new ResourceInfoDAO();
+        List<ResourceInfo> files = getFileInfos(path);
+        if (files.isEmpty() && dao.findByPath(path.toString()) == null) {
+            throw new NotFoundException("RO doesn't exist: " + ro.toString());
+        }
+        forgetLayout(ro);
+        List<String> keys = new ArrayList<>();
+        for (ResourceInfo res : files) {
+            if (res.getChecksum() != null) {
+                keys.add(getKey(Paths.get(res.getPath())));
+            }
+        }
+        dao.deleteFolder(path.toString(), path.getFileSystem().getSeparator());
+        deleteObjectsOnCommit(keys);
+    }
+
+
+    @Override
+    protected boolean isStored(Path path) {
+        return isStoredInDatabase(path);
+    }
+
+
+    @Override
+    protected void moveFiles(Path source, Path target)
+            throws IOException {
+        // the resource infos have already been moved
+        List<String> keys = new ArrayList<>();
+        for (ResourceInfo res : getFileInfos(target)) {
+            if (res.getChecksum() != null) {
+                Path file = Paths.get(res.getPath());
+                String sourceKey = getKey(source.resolve(target.relativize(file).toString()));
+                try {
+                    copyObject(sourceKey, getKey(file), res.getSizeInBytes(), res.getMimeType());
+                    keys.add(sourceKey);
+                } catch (FileNotFoundException e) {
+                    LOGGER.debug("Object " + sourceKey + " has already been moved");
+                }
+            }
+        }
+        deleteObjectsOnCommit(keys);
+    }
+
+
+    /**
+     * Copy an object within the store. Objects too large to be copied by the store are read and stored again.
+     * 
+     * @param sourceKey
+     *            key of the object to copy
+     * @param targetKey
+     *            key of the copy
+     * @param size
+     *            object size in bytes
+     * @param mimeType
+     *            MIME type
+     * @throws IOException
+     *             the object could not be copied
+     */
+    private void copyObject(String sourceKey, String targetKey, long size, String mimeType)
+            throws IOException {
+        if (sourceKey.equals(targetKey)) {
+            return;
+        }
+        if (size <= MAX_COPY_SIZE) {
+            store.copyObject(sourceKey, targetKey);
+        } else {
+            try (InputStream in = store.getObject(sourceKey)) {
+                upload(targetKey, in, mimeType);
+            }
+        }
+    }
+
+
+    /**
+     * Store an object, in parts if it is larger than the part size. At most the configured number of parts is kept
+     * in memory and uploaded at the same time.
+     * 
+     * @param key
+     *            object key
+     * @param in
+     *            object content
+     * @param mimeType
+     *            MIME type
+     * @return the object size in bytes
+     * @throws IOException
+     *             the content could not be read or the object could not be stored
+     */
+    private long upload(final String key, InputStream in, String mimeType)
+            throws IOException {
+        byte[] buffer = new byte[partSize];
+        int length = read(in, buffer);
+        if (length < partSize) {
+            store.putObject(key, new ByteArrayInputStream(buffer, 0, length), length, mimeType);
+            return length;
+        }
+        final String uploadId = store.initiateMultipartUpload(key, mimeType);
+        final Semaphore slots = new Semaphore(parallelParts);
+        List<Future<String>> parts = new ArrayList<>();
+        long size = 0;
+        boolean completed = false;
+        try {
+            while (length > 0) {
+                slots.acquire();
+                checkParts(parts);
+                final byte[] data = buffer;
+                final int dataLength = length;
+                final int partNumber = parts.size() + 1;
+                parts.add(uploadExecutor.submit(new Callable<String>() {
+
+                    @Override
+                    public String call()
+                            throws IOException {
+                        try {
+                            return store.uploadPart(key, uploadId, partNumber, data, dataLength);
+                        } finally {
+                            slots.release();
+                        }
+                    }
+                }));
+                size += length;
+                buffer = new byte[partSize];
+                length = read(in, buffer);
+            }
+            List<String> etags = new ArrayList<>();
+            for (Future<String> part : parts) {
+                etags.add(part.get());
+            }
+            store.completeMultipartUpload(key, uploadId, etags);
+            completed = true;
+            LOGGER.debug("Stored " + key + " in " + parts.size() + " parts");
+            return size;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while storing " + key);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } finally {
+            if (!completed) {
+                for (Future<String> part : parts) {
+                    part.cancel(true);
+                }
+                try {
+                    store.abortMultipartUpload(key, uploadId);
+                } catch (IOException e) {
+                    LOGGER.warn("Could not abort the upload of " + key, e);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Stop reading the content as soon as a part has failed.
+     * 
+     * @param parts
+     *            parts being uploaded
+     * @throws InterruptedException
+     *             never, all checked parts are done
+     * @throws ExecutionException
+     *             a part has failed
+     */
+    private static void checkParts(List<Future<String>> parts)
+            throws InterruptedException, ExecutionException {
+        for (Future<String> part : parts) {
+            if (part.isDone()) {
+                part.get();
+            }
+        }
+    }
+
+
+    /**
+     * Read as many bytes as the buffer can take, unless the stream ends.
+     * 
+     * @param in
+     *            input stream
+     * @param buffer
+     *            the buffer
+     * @return number of bytes read
+     * @throws IOException
+     *             the stream could not be read
+     */
+    private static int read(InputStream in, byte[] buffer)
+            throws IOException {
+        int length = 0;
+        while (length < buffer.length) {
+            int n = in.read(buffer, length, buffer.length - length);
+            if (n == -1) {
+                break;
+            }
+            length += n;
+        }
+        return length;
+    }
+
+
+    /**
+     * Delete objects once the transaction is committed, so that they are kept if the resource infos are not deleted.
+     * 
+     * @param keys
+     *            object keys
+     */
+    private void deleteObjectsOnCommit(final List<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        HibernateUtil.afterCompletion(new Runnable() {
+
+            @Override
+            public void run() {
+                for (String key : keys) {
+                    try {
+                        store.deleteObject(key);
+                    } catch (IOException e) {
+                        LOGGER.warn("Could not delete the object " + key, e);
+                    }
+                }
+            }
+        }, null);
+    }
+
+
+    /**
+     * A stream of an object, which this store recognizes when the content is stored again. The object is requested
+     * from the store when the stream is read for the first time, so a stream that is only stored again is never read.
+     * 
+     * @author piotrekhol
+     * 
+     */
+    static final class StoredObjectInputStream extends InputStream {
+
+        /** the store of the object. */
+        private final ObjectStore store;
+
+        /** object key. */
+        private final String key;
+
+        /** size in bytes. */
+        private final long size;
+
+        /** checksums of the content by digest method. */
+        private final Map<String, String> checksums;
+
+        /** the object content, or null if it has not been requested yet. */
+        private InputStream in;
+
+        /** has the stream been closed. */
+        private boolean closed = false;
+
+
+        /**
+         * Constructor.
+         * 
+         * @param store
+         *            the store of the object
+         * @param key
+         *            object key
+         * @param res
+         *            resource info of a file with this content
+         */
+        StoredObjectInputStream(ObjectStore store, String key, ResourceInfo res) {
+            this.store = store;
+            this.key = key;
+            this.size = res.getSizeInBytes();
+            this.checksums = new HashMap<>(res.getDigests());
+            this.checksums.put(MAIN_DIGEST_METHOD, res.getChecksum());
+        }
+
+
+        /**
+         * Get the object content, requesting it if necessary.
+         * 
+         * @return the object content
+         * @throws IOException
+         *             the object could not be read
+         */
+        private InputStream getContent()
+                throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            if (in == null) {
+                in = store.getObject(key);
+            }
+            return in;
+        }
+
+
+        @Override
+        public int read()
+                throws IOException {
+            return getContent().read();
+        }
+
+
+        @Override
+        public int read(byte[] b, int off, int len)
+                throws IOException {
+            return getContent().read(b, off, len);
+        }
+
+
+        @Override
+        public long skip(long n)
+                throws IOException {
+            return getContent().skip(n);
+        }
+
+
+        @Override
+        public int available()
+                throws IOException {
+            return in != null ? in.available() : 0;
+        }
+
+
+        @Override
+        public void close()
+                throws IOException {
+            closed = true;
+            if (in != null) {
+                in.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package pl.psnc.dl.wf4ever.storage;
+
+import static pl.psnc.dl.wf4ever.util.PropertiesUtil.getInt;
+
+import java.net.URI;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import pl.psnc.dl.wf4ever.dl.DigitalLibrary;
+
+/**
+ * A factory creating an object store backend, an S3 compatible service or, for tests and development, a local folder.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public class ObjectStoreDLFactory implements DigitalLibraryFactory {
+
+    /** logger. */
+    private static final Logger LOGGER = Logger.getLogger(ObjectStoreDLFactory.class);
+
+    /** the object store, shared so that copies within the store are recognized. */
+    private static ObjectStore store;
+
+    /** prefix of the resource info paths. */
+    private static String basePath;
+
+    /** digest methods of the checksums calculated in addition to MD5. */
+    private static List<String> digestMethods;
+
+    /** number of levels of shard folders above research object folders. */
+    private static int shardLevels;
+
+    /** size of the parts of multipart uploads in bytes. */
+    private static int partSize;
+
+    /** number of parts of one file uploaded at the same time. */
+    private static int uploadThreads;
+
+    /** threads uploading the parts. */
+    private static ExecutorService uploadExecutor;
+
+
+    /**
+     * Constructor.
+     * 
+     * @param properties
+     *            a properties file to load any necessary properties
+     */
+    public ObjectStoreDLFactory(Properties properties) {
+        URI endpoint = URI.create(properties.getProperty("objectStoreEndpoint", "http://localhost:9000").trim());
+        String bucket = properties.getProperty("objectStoreBucket").trim();
+        if ("file".equals(endpoint.getScheme())) {
+            store = new LocalObjectStore(Paths.get(endpoint).resolve(bucket));
+        } else {
+            String accessKey = properties.getProperty("objectStoreAccessKey", "").trim();
+            store = new S3ObjectStore(endpoint, bucket, properties.getProperty("objectStoreRegion", "us-east-1")
+                    .trim(), accessKey.isEmpty() ? null : accessKey, properties.getProperty("objectStoreSecretKey",
+                "").trim());
+        }
+        LOGGER.debug("Object store: " + endpoint + ", bucket " + bucket);
+        basePath = "/" + bucket + "/";
+        digestMethods = new ArrayList<>();
+        for (String method : properties.getProperty("filesystemDigests", "").split(",")) {
+            if (!method.trim().isEmpty()) {
+                digestMethods.add(method.trim());
+            }
+        }
+        shardLevels = getInt(properties, "filesystemShardLevels", 0);
+        partSize = Math.max(getInt(properties, "objectStorePartSize", 16), 5) * 1024 * 1024;
+        uploadThreads = Math.max(getInt(properties, "objectStoreUploadThreads", 4), 1);
+        int poolSize = Math.max(getInt(properties, "objectStoreUploadPoolSize", 16), 1);
+        if (uploadExecutor != null) {
+            uploadExecutor.shutdown();
+        }
+        final AtomicInteger counter = new AtomicInteger();
+        // when all threads are busy and the queue is full, the request thread uploads the part itself
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 1, TimeUnit.MINUTES,
+                new ArrayBlockingQueue<Runnable>(poolSize), new ThreadFactory() {
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "object store upload " + counter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        uploadExecutor = executor;
+    }
+
+
+    @Override
+    public DigitalLibrary getDigitalLibrary() {
+        return new ObjectStoreDL(basePath, digestMethods, shardLevels, store, partSize, uploadExecutor, uploadThreads);
+    }
+
+}
@@ -0,0 +1,449 @@
+package pl.psnc.dl.wf4ever.storage;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.apache.log4j.Logger;
+import org.joda.time.DateTime;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+/**
+ * A bucket of Amazon S3 or a compatible object store, such as MinIO or Ceph, used through the REST API with path-style
+ * URLs. Requests are signed with AWS Signature Version 4, or sent anonymously if no access key is set. Content is
+ * streamed without being signed, so that it doesn't have to be read twice.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public class S3ObjectStore implements ObjectStore {
+
+    /** logger. */
+    private static final Logger LOGGER = Logger.getLogger(S3ObjectStore.class);
+
+    /** Payload hash of requests with streamed content. */
+    private static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+
+    /** Payload hash of requests without content. */
+    private static final String EMPTY_PAYLOAD = DigestUtils.sha256Hex("");
+
+    /** Format of the request time. */
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormat.forPattern("yyyyMMdd'T'HHmmss'Z'")
+            .withZoneUTC();
+
+    /** Format of the request date in the credential scope. */
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormat.forPattern("yyyyMMdd").withZoneUTC();
+
+    /** Connection timeout in milliseconds. */
+    private static final int CONNECT_TIMEOUT = 10 * 1000;
+
+    /** Read timeout in milliseconds. */
+    private static final int READ_TIMEOUT = 5 * 60 * 1000;
+
+    /** Upload ID in the response to a multipart upload request. */
+    private static final Pattern UPLOAD_ID = Pattern.compile("<UploadId>([^<]*)</UploadId>");
+
+    /** Error in a response with status 200. */
+    private static final Pattern ERROR = Pattern.compile("<Error>.*?<Code>([^<]*)</Code>", Pattern.DOTALL);
+
+    /** Scheme, host and port of the endpoint. */
+    private final String origin;
+
+    /** Encoded bucket name. */
+    private final String bucket;
+
+    /** Path of the bucket, with the endpoint path. */
+    private final String bucketPath;
+
+    /** Region of the bucket. */
+    private final String region;
+
+    /** Access key or null for anonymous requests. */
+    private final String accessKey;
+
+    /** Secret key. */
+    private final String secretKey;
+
+
+    /**
+     * Constructor.
+     * 
+     * @param endpoint
+     *            the service URL, for example https://s3.eu-west-1.amazonaws.com or http://localhost:9000
+     * @param bucket
+     *            bucket name
+     * @param region
+     *            region of the bucket, us-east-1 for most other services than Amazon S3
+     * @param accessKey
+     *            access key or null for anonymous requests
+     * @param secretKey
+     *            secret key
+     */
+    public S3ObjectStore(URI endpoint, String bucket, String region, String accessKey, String secretKey) {
+        this.origin = endpoint.getScheme() + "://" + endpoint.getRawAuthority();
+        String path = endpoint.getRawPath() != null ? endpoint.getRawPath() : "";
+        if (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        this.bucket = encode(bucket, false);
+        this.bucketPath = path + "/" + this.bucket;
+        this.region = region;
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+    }
+
+
+    @Override
+    public void putObject(String key, InputStream content, long length, String contentType)
+            throws IOException {
+        HttpURLConnection connection = request("PUT", key, Collections.<String, String> emptyMap(),
+            contentType != null ? Collections.singletonMap("Content-Type", contentType) : Collections
+                    .<String, String> emptyMap(), UNSIGNED_PAYLOAD);
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(length);
+        try (OutputStream out = connection.getOutputStream()) {
+            IOUtils.copy(content, out);
+        }
+        readResponse(connection, key);
+    }
+
+
+    @Override
+    public String initiateMultipartUpload(String key, String contentType)
+            throws IOException {
+        HttpURLConnection connection = request("POST", key, Collections.singletonMap("uploads", ""),
+            contentType != null ? Collections.singletonMap("Content-Type", contentType) : Collections
+                    .<String, String> emptyMap(), EMPTY_PAYLOAD);
+        String response = readResponse(connection, key);
+        Matcher matcher = UPLOAD_ID.matcher(response);
+        if (!matcher.find()) {
+            throw new IOException("No upload ID for " + key + " in " + response);
+        }
+        return StringEscapeUtils.unescapeXml(matcher.group(1));
+    }
+
+
+    @Override
+    public String uploadPart(String key, String uploadId, int partNumber, byte[] data, int length)
+            throws IOException {
+        Map<String, String> query = new TreeMap<>();
+        query.put("partNumber", Integer.toString(partNumber));
+        query.put("uploadId", uploadId);
+        MessageDigest md5;
+        try {
+            md5 = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        md5.update(data, 0, length);
+        // the store rejects the part if the content it has received is different
+        HttpURLConnection connection = request("PUT", key, query,
+            Collections.singletonMap("Content-MD5", Base64.encodeBase64String(md5.digest())), UNSIGNED_PAYLOAD);
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(length);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(data, 0, length);
+        }
+        readResponse(connection, key);
+        String etag = connection.getHeaderField("ETag");
+        if (etag == null) {
+            throw new IOException("No ETag of part " + partNumber + " of " + key);
+        }
+        return etag;
+    }
+
+
+    @Override
+    public void completeMultipartUpload(String key, String uploadId, List<String> partETags)
+            throws IOException {
+        StringBuilder body = new StringBuilder("<CompleteMultipartUpload>");
+        for (int i = 0; i < partETags.size(); i++) {
+            body.append("<Part><PartNumber>").append(i + 1).append("</PartNumber><ETag>")
+                    .append(StringEscapeUtils.escapeXml(partETags.get(i))).append("</ETag></Part>");
+        }
+        body.append("</CompleteMultipartUpload>");
+        byte[] content = body.toString().getBytes(StandardCharsets.UTF_8);
+        HttpURLConnection connection = request("POST", key, Collections.singletonMap("uploadId", uploadId),
+            Collections.singletonMap("Content-Type", "application/xml"), DigestUtils.sha256Hex(content));
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(content.length);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(content);
+        }
+        readResponse(connection, key);
+    }
+
+
+    @Override
+    public void abortMultipartUpload(String key, String uploadId)
+            throws IOException {
+        HttpURLConnection connection = request("DELETE", key, Collections.singletonMap("uploadId", uploadId),
+            Collections.<String, String> emptyMap(), EMPTY_PAYLOAD);
+        readResponse(connection, key);
+    }
+
+
+    @Override
+    public InputStream getObject(String key)
+            throws IOException {
+        HttpURLConnection connection = request("GET", key, Collections.<String, String> emptyMap(),
+            Collections.<String, String> emptyMap(), EMPTY_PAYLOAD);
+        checkStatus(connection, key);
+        return connection.getInputStream();
+    }
+
+
+    @Override
+    public void copyObject(String sourceKey, String targetKey)
+            throws IOException {
+        HttpURLConnection connection = request("PUT", targetKey, Collections.<String, String> emptyMap(),
+            Collections.singletonMap("x-amz-copy-source", "/" + bucket + "/" + encode(sourceKey, true)), EMPTY_PAYLOAD);
+        readResponse(connection, sourceKey);
+    }
+
+
+    @Override
+    public void deleteObject(String key)
+            throws IOException {
+        HttpURLConnection connection = request("DELETE", key, Collections.<String, String> emptyMap(),
+            Collections.<String, String> emptyMap(), EMPTY_PAYLOAD);
+        try {
+            readResponse(connection, key);
+        } catch (FileNotFoundException e) {
+            LOGGER.debug("Object " + key + " has already been deleted");
+        }
+    }
+
+
+    /**
+     * Prepare a signed request.
+     * 
+     * @param method
+     *            HTTP method
+     * @param key
+     *            object key
+     * @param query
+     *            query parameters
+     * @param headers
+     *            additional headers
+     * @param payloadHash
+     *            SHA-256 hash of the content, or {@link #UNSIGNED_PAYLOAD}
+     * @return a connection, not connected yet
+     * @throws IOException
+     *             the connection could not be opened
+     */
+    private HttpURLConnection request(String method, String key, Map<String, String> query,
+            Map<String, String> headers, String payloadHash)
+            throws IOException {
+        String path = bucketPath + "/" + encode(key, true);
+        StringBuilder queryString = new StringBuilder();
+        for (Map.Entry<String, String> parameter : new TreeMap<>(query).entrySet()) {
+            if (queryString.length() > 0) {
+                queryString.append("&");
+            }
+            queryString.append(encode(parameter.getKey(), false)).append("=")
+                    .append(encode(parameter.getValue(), false));
+        }
+        URL url = new URL(origin + path + (queryString.length() > 0 ? "?" + queryString : ""));
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
+        connection.setUseCaches(false);
+
+        DateTime now = DateTime.now();
+        SortedMap<String, String> signedHeaders = new TreeMap<>();
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            signedHeaders.put(header.getKey().toLowerCase(), header.getValue().trim());
+        }
+        // the same value as set by HttpURLConnection
+        signedHeaders.put("host", url.getPort() != -1 && url.getPort() != url.getDefaultPort() ? url.getHost()
+                + ":" + url.getPort() : url.getHost());
+        signedHeaders.put("x-amz-content-sha256", payloadHash);
+        signedHeaders.put("x-amz-date", TIME_FORMAT.print(now));
+        for (Map.Entry<String, String> header : signedHeaders.entrySet()) {
+            if (!header.getKey().equals("host")) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+        }
+        if (accessKey != null) {
+            connection.setRequestProperty("Authorization",
+                getAuthorization(method, path, queryString.toString(), signedHeaders, payloadHash, now));
+        }
+        return connection;
+    }
+
+
+    /**
+     * Calculate the Authorization header of AWS Signature Version 4.
+     * 
+     * @param method
+     *            HTTP method
+     * @param path
+     *            encoded request path
+     * @param queryString
+     *            encoded query string with sorted parameters
+     * @param headers
+     *            signed headers with lower case names, sorted
+     * @param payloadHash
+     *            SHA-256 hash of the content, or {@link #UNSIGNED_PAYLOAD}
+     * @param time
+     *            request time
+     * @return the header value
+     */
+    private String getAuthorization(String method, String path, String queryString,
+            SortedMap<String, String> headers, String payloadHash, DateTime time) {
+        StringBuilder canonicalHeaders = new StringBuilder();
+        StringBuilder headerNames = new StringBuilder();
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            canonicalHeaders.append(header.getKey()).append(":").append(header.getValue()).append("\n");
+            if (headerNames.length() > 0) {
+                headerNames.append(";");
+            }
+            headerNames.append(header.getKey());
+        }
+        String canonicalRequest = method + "\n" + path + "\n" + queryString + "\n" + canonicalHeaders + "\n"
+                + headerNames + "\n" + payloadHash;
+        String scope = DATE_FORMAT.print(time) + "/" + region + "/s3/aws4_request";
+        String stringToSign = "AWS4-HMAC-SHA256\n" + TIME_FORMAT.print(time) + "\n" + scope + "\n"
+                + DigestUtils.sha256Hex(canonicalRequest.getBytes(StandardCharsets.UTF_8));
+        byte[] key = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), DATE_FORMAT.print(time));
+        key = hmac(key, region);
+        key = hmac(key, "s3");
+        key = hmac(key, "aws4_request");
+        String signature = Hex.encodeHexString(hmac(key, stringToSign));
+        return "AWS4-HMAC-SHA256 Credential=" + accessKey + "/" + scope + ", SignedHeaders=" + headerNames
+                + ", Signature=" + signature;
+    }
+
+
+    /**
+     * Calculate HMAC-SHA256.
+     * 
+     * @param key
+     *            the key
+     * @param data
+     *            the data
+     * @return the MAC
+     */
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            throw new RuntimeException("This should never happen", e);
+        }
+    }
+
+
+    /**
+     * Encode a URI component the way AWS Signature Version 4 requires, leaving only unreserved characters.
+     * 
+     * @param value
+     *            the value
+     * @param path
+     *            true to leave the slashes
+     * @return the encoded value
+     */
+    static String encode(String value, boolean path) {
+        StringBuilder result = new StringBuilder();
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xff);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-' || c == '_'
+                    || c == '.' || c == '~' || (path && c == '/')) {
+                result.append(c);
+            } else {
+                result.append('%').append(Character.toUpperCase(Character.forDigit((b >> 4) & 0xf, 16)))
+                        .append(Character.toUpperCase(Character.forDigit(b & 0xf, 16)));
+            }
+        }
+        return result.toString();
+    }
+
+
+    /**
+     * Check the response status.
+     * 
+     * @param connection
+     *            the connection
+     * @param key
+     *            object key, for the error messages
+     * @throws FileNotFoundException
+     *             the object or the upload doesn't exist
+     * @throws IOException
+     *             the request failed
+     */
+    private static void checkStatus(HttpURLConnection connection, String key)
+            throws IOException {
+        int status = connection.getResponseCode();
+        if (status / 100 == 2) {
+            return;
+        }
+        String error = "";
+        InputStream errorStream = connection.getErrorStream();
+        if (errorStream != null) {
+            try {
+                error = IOUtils.toString(errorStream, "UTF-8");
+            } finally {
+                errorStream.close();
+            }
+        }
+        if (status == HttpURLConnection.HTTP_NOT_FOUND) {
+            throw new FileNotFoundException("Object doesn't exist: " + key + " " + error);
+        }
+        throw new IOException(connection.getRequestMethod() + " " + key + " failed with status " + status + " "
+                + error);
+    }
+
+
+    /**
+     * Read the response. Some operations report errors in responses with status 200.
+     * 
+     * @param connection
+     *            the connection
+     * @param key
+     *            object key, for the error messages
+     * @return the response body
+     * @throws IOException
+     *             the request failed
+     */
+    private static String readResponse(HttpURLConnection connection, String key)
+            throws IOException {
+        checkStatus(connection, key);
+        String response;
+        try (InputStream in = connection.getInputStream()) {
+            response = IOUtils.toString(in, "UTF-8");
+        }
+        Matcher matcher = ERROR.matcher(response);
+        if (matcher.find()) {
+            throw new IOException(connection.getRequestMethod() + " " + key + " failed with error "
+                    + matcher.group(1));
+        }
+        return response;
+    }
+}
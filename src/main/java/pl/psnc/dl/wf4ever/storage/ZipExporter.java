@@ -0,0 +1,273 @@
+package pl.psnc.dl.wf4ever.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+
+import pl.psnc.dl.wf4ever.ApplicationProperties;
+import pl.psnc.dl.wf4ever.exceptions.ServiceUnavailableException;
+
+/**
+ * Creates ZIP archives of folders in a bounded pool of threads. Each archive is written to a pipe read by the client,
+ * so a slow client slows down the thread writing its archive, and when all threads are busy new archives wait in a
+ * bounded queue. When the queue is full too, the request fails and the client should try again later. The files are
+ * listed while the archive is written, not in advance. Files of MIME types that are already compressed are added
+ * without compression.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public final class ZipExporter {
+
+    /** Logger. */
+    private static final Logger LOGGER = Logger.getLogger(ZipExporter.class);
+
+    /** Size of the pipe buffer. */
+    private static final int PIPE_SIZE = 64 * 1024;
+
+    /** MIME types of compressed files, in addition to video. */
+    private static final Set<String> COMPRESSED_TYPES = new HashSet<>(Arrays.asList("application/zip",
+        "application/gzip", "application/x-gzip", "application/x-bzip2", "application/x-xz",
+        "application/x-7z-compressed", "application/x-rar-compressed", "application/java-archive", "image/jpeg",
+        "image/png", "image/gif", "audio/mpeg", "audio/ogg"));
+
+    /** The only instance. */
+    private static ZipExporter instance;
+
+    /** Threads writing the archives. */
+    private final ThreadPoolExecutor executor;
+
+
+    /**
+     * Constructor.
+     * 
+     * @param threads
+     *            maximum number of archives written at the same time
+     * @param queueSize
+     *            maximum number of archives waiting to be written
+     */
+    ZipExporter(int threads, int queueSize) {
+        final AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.MINUTES, new ArrayBlockingQueue<Runnable>(
+                queueSize), new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "zip exporter " + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+
+    /**
+     * Get the only instance, with the limits set in the application properties.
+     * 
+     * @return the ZIP exporter
+     */
+    public static synchronized ZipExporter getInstance() {
+        if (instance == null) {
+            instance = new ZipExporter(ApplicationProperties.getZipThreads(), ApplicationProperties.getZipQueueSize());
+        }
+        return instance;
+    }
+
+
+    /**
+     * Stop the threads, if they have been started.
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.stop();
+            instance = null;
+        }
+    }
+
+
+    /**
+     * Stop the threads, interrupting the archives being written.
+     */
+    void stop() {
+        executor.shutdownNow();
+    }
+
+
+    /**
+     * Create a ZIP archive.
+     * 
+     * @param name
+     *            a name used for logging
+     * @param content
+     *            adds the files to the archive, called in the thread writing the archive
+     * @return an input stream with the archive
+     * @throws ServiceUnavailableException
+     *             too many archives are being created
+     */
+    public InputStream export(final String name, final Content content) {
+        PipedInputStream in = new PipedInputStream(PIPE_SIZE);
+        final PipedOutputStream out;
+        try {
+            out = new PipedOutputStream(in);
+        } catch (IOException e) {
+            throw new RuntimeException("This should never happen", e);
+        }
+        try {
+            executor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    ZipOutputStream zipOut = new ZipOutputStream(out);
+                    try {
+                        content.addTo(new Archive(zipOut));
+                    } catch (IOException e) {
+                        LOGGER.error("Zip transmission failed: " + name, e);
+                    } finally {
+                        try {
+                            zipOut.close();
+                        } catch (Exception e) {
+                            LOGGER.warn("Could not close the ZIP file: " + e.getMessage());
+                            IOUtils.closeQuietly(out);
+                        }
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            IOUtils.closeQuietly(in);
+            throw new ServiceUnavailableException("Too many archives are being created, try again later");
+        }
+        return in;
+    }
+
+
+    /**
+     * Check if files of a MIME type are compressed, so that compressing them again is a waste of time.
+     * 
+     * @param mimeType
+     *            MIME type or null
+     * @return true if the files should be stored without compression
+     */
+    static boolean isCompressed(String mimeType) {
+        if (mimeType == null) {
+            return false;
+        }
+        String type = mimeType.split(";")[0].trim().toLowerCase();
+        return type.startsWith("video/") || COMPRESSED_TYPES.contains(type);
+    }
+
+
+    /**
+     * Files of an archive.
+     * 
+     * @author piotrekhol
+     * 
+     */
+    public interface Content {
+
+        /**
+         * Add the files to the archive.
+         * 
+         * @param archive
+         *            the archive
+         * @throws IOException
+         *             a file could not be read or the archive could not be written
+         */
+        void addTo(Archive archive)
+                throws IOException;
+    }
+
+
+    /**
+     * An archive being written.
+     * 
+     * @author piotrekhol
+     * 
+     */
+    public static final class Archive {
+
+        /** The ZIP stream. */
+        private final ZipOutputStream zipOut;
+
+
+        /**
+         * Constructor.
+         * 
+         * @param zipOut
+         *            the ZIP stream
+         */
+        Archive(ZipOutputStream zipOut) {
+            this.zipOut = zipOut;
+        }
+
+
+        /**
+         * Add a file.
+         * 
+         * @param entryName
+         *            the name of the file in the archive
+         * @param file
+         *            the file
+         * @param mimeType
+         *            the file MIME type or null
+         * @throws IOException
+         *             the file could not be read or the archive could not be written
+         */
+        public void add(String entryName, Path file, String mimeType)
+                throws IOException {
+            // stored entries would need the checksum in advance and the file read twice, so compressed files are
+            // deflated without compression, which computes the checksum while the file is written
+            boolean compressed = isCompressed(mimeType);
+            if (compressed) {
+                zipOut.setLevel(Deflater.NO_COMPRESSION);
+            }
+            try {
+                zipOut.putNextEntry(new ZipEntry(entryName));
+                try (InputStream in = Files.newInputStream(file)) {
+                    IOUtils.copy(in, zipOut);
+                }
+                zipOut.closeEntry();
+            } finally {
+                if (compressed) {
+                    zipOut.setLevel(Deflater.DEFAULT_COMPRESSION);
+                }
+            }
+        }
+
+
+        /**
+         * Add a file that is read while it is added, for example from a remote store. The file is always compressed.
+         * 
+         * @param entryName
+         *            the name of the file in the archive
+         * @param content
+         *            the file content, not closed by this method
+         * @throws IOException
+         *             the file could not be read or the archive could not be written
+         */
+        public void add(String entryName, InputStream content)
+                throws IOException {
+            zipOut.putNextEntry(new ZipEntry(entryName));
+            IOUtils.copy(content, zipOut);
+            zipOut.closeEntry();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package pl.psnc.dl.wf4ever.util;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import javax.ws.rs.core.EntityTag;
+
+/**
+ * A range of bytes requested with the HTTP Range header (RFC 2616, section 14.35).
+ * 
+ * @author piotrekhol
+ * 
+ */
+public final class ByteRange {
+
+    /** Maximum number of ranges in one request, the header is ignored if there are more. */
+    public static final int MAX_RANGES = 64;
+
+    /** First byte position. */
+    private final long first;
+
+    /** Last byte position, inclusive. */
+    private final long last;
+
+
+    /**
+     * Constructor.
+     * 
+     * @param first
+     *            first byte position
+     * @param last
+     *            last byte position, inclusive
+     */
+    public ByteRange(long first, long last) {
+        this.first = first;
+        this.last = last;
+    }
+
+
+    public long getFirst() {
+        return first;
+    }
+
+
+    public long getLast() {
+        return last;
+    }
+
+
+    public long getLength() {
+        return last - first + 1;
+    }
+
+
+    /**
+     * Get the Content-Range header value of this range.
+     * 
+     * @param completeLength
+     *            the length of the whole entity
+     * @return i.e. "bytes 0-499/1234"
+     */
+    public String getContentRange(long completeLength) {
+        return "bytes " + first + "-" + last + "/" + completeLength;
+    }
+
+
+    /**
+     * Parse the Range header.
+     * 
+     * @param header
+     *            the header value, i.e. "bytes=0-499,-500"
+     * @param length
+     *            the length of the entity
+     * @return the satisfiable ranges, empty if there are none, or null if the header should be ignored because it is
+     *         missing, invalid or has too many ranges
+     */
+    public static List<ByteRange> parse(String header, long length) {
+        if (header == null || !header.trim().startsWith("bytes=")) {
+            return null;
+        }
+        String[] specs = header.trim().substring("bytes=".length()).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+        List<ByteRange> ranges = new ArrayList<>();
+        for (String spec : specs) {
+            spec = spec.trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            try {
+                String firstPos = spec.substring(0, dash).trim();
+                String lastPos = spec.substring(dash + 1).trim();
+                if (firstPos.isEmpty()) {
+                    // the final bytes
+                    long suffixLength = Long.parseLong(lastPos);
+                    if (suffixLength < 0) {
+                        return null;
+                    }
+                    if (suffixLength > 0 && length > 0) {
+                        ranges.add(new ByteRange(Math.max(length - suffixLength, 0), length - 1));
+                    }
+                } else {
+                    long first = Long.parseLong(firstPos);
+                    long last = lastPos.isEmpty() ? length - 1 : Long.parseLong(lastPos);
+                    if (first < 0 || last < first) {
+                        return null;
+                    }
+                    if (first < length) {
+                        ranges.add(new ByteRange(first, Math.min(last, length - 1)));
+                    }
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return ranges;
+    }
+
+
+    /**
+     * Check the If-Range header. The ranges should be sent only if the entity has not changed, otherwise the whole
+     * entity should be sent.
+     * 
+     * @param header
+     *            the If-Range header value or null
+     * @param tag
+     *            the current entity tag or null
+     * @param lastModified
+     *            the current last modification date or null
+     * @return true if there is no If-Range header or it matches the entity
+     */
+    public static boolean isIfRangeMatched(String header, EntityTag tag, Date lastModified) {
+        if (header == null) {
+            return true;
+        }
+        header = header.trim();
+        if (header.startsWith("\"") || header.startsWith("W/")) {
+            // only strong entity tags can be used
+            try {
+                EntityTag requested = EntityTag.valueOf(header);
+                return tag != null && !tag.isWeak() && !requested.isWeak()
+                        && requested.getValue().equals(tag.getValue());
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+        if (lastModified == null) {
+            return false;
+        }
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            return format.parse(header).getTime() / 1000 == lastModified.getTime() / 1000;
+        } catch (ParseException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package pl.psnc.dl.wf4ever.util;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import javax.ws.rs.core.StreamingOutput;
+
+/**
+ * A file, or ranges of a file, written to the response. Each range is read from the file channel at its position and
+ * copied to the response stream through a buffer; the servlet output stream exposes no channel, so the copy is not
+ * done by the kernel. Several ranges are sent as multipart/byteranges. The file is closed when it has been written.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public final class FileRangesOutput implements StreamingOutput {
+
+    /** CRLF. */
+    private static final String CRLF = "\r\n";
+
+    /** Size of the buffer used to copy the file. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** The file. */
+    private final FileInputStream file;
+
+    /** File length. */
+    private final long length;
+
+    /** Ranges to write. */
+    private final List<ByteRange> ranges;
+
+    /** File MIME type. */
+    private final String mimeType;
+
+    /** Multipart boundary, if there are many ranges. */
+    private final String boundary;
+
+
+    /**
+     * Constructor.
+     * 
+     * @param file
+     *            the file
+     * @param length
+     *            file length
+     * @param ranges
+     *            ranges to write, null to write the whole file
+     * @param mimeType
+     *            file MIME type
+     */
+    public FileRangesOutput(FileInputStream file, long length, List<ByteRange> ranges, String mimeType) {
+        this.file = file;
+        this.length = length;
+        this.ranges = ranges != null ? new ArrayList<>(ranges) : Collections.singletonList(new ByteRange(0,
+            length - 1));
+        this.mimeType = mimeType;
+        this.boundary = this.ranges.size() > 1 ? UUID.randomUUID().toString() : null;
+    }
+
+
+    public boolean isMultipart() {
+        return boundary != null;
+    }
+
+
+    /**
+     * Get the MIME type of the response.
+     * 
+     * @return the file MIME type or multipart/byteranges
+     */
+    public String getContentType() {
+        return isMultipart() ? "multipart/byteranges; boundary=" + boundary : mimeType;
+    }
+
+
+    /**
+     * Get the Content-Range header of a single range.
+     * 
+     * @return the header value
+     */
+    public String getContentRange() {
+        return ranges.get(0).getContentRange(length);
+    }
+
+
+    /**
+     * Get the number of bytes that will be written.
+     * 
+     * @return the response length
+     */
+    public long getContentLength() {
+        if (!isMultipart()) {
+            return length > 0 ? ranges.get(0).getLength() : 0;
+        }
+        long result = getClosingDelimiter().length();
+        for (ByteRange range : ranges) {
+            result += getPartHeader(range).length() + range.getLength();
+        }
+        return result;
+    }
+
+
+    @Override
+    public void write(OutputStream output)
+            throws IOException {
+        try {
+            FileChannel channel = file.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            if (!isMultipart()) {
+                if (length > 0) {
+                    copy(channel, ranges.get(0), buffer, output);
+                }
+            } else {
+                for (ByteRange range : ranges) {
+                    output.write(getPartHeader(range).getBytes(StandardCharsets.US_ASCII));
+                    copy(channel, range, buffer, output);
+                }
+                output.write(getClosingDelimiter().getBytes(StandardCharsets.US_ASCII));
+            }
+            output.flush();
+        } finally {
+            file.close();
+        }
+    }
+
+
+    /**
+     * Write a range of the file.
+     * 
+     * @param channel
+     *            file channel
+     * @param range
+     *            the range
+     * @param buffer
+     *            the buffer to copy through
+     * @param output
+     *            the response
+     * @throws IOException
+     *             the file could not be read or the response could not be written
+     */
+    private void copy(FileChannel channel, ByteRange range, ByteBuffer buffer, OutputStream output)
+            throws IOException {
+        long position = range.getFirst();
+        long remaining = range.getLength();
+        while (remaining > 0) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), remaining));
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                throw new IOException("The file has been truncated at " + position);
+            }
+            output.write(buffer.array(), 0, read);
+            position += read;
+            remaining -= read;
+        }
+    }
+
+
+    /**
+     * Get the delimiter and headers preceding a part.
+     * 
+     * @param range
+     *            the range sent in the part
+     * @return the part header
+     */
+    private String getPartHeader(ByteRange range) {
+        return CRLF + "--" + boundary + CRLF + "Content-Type: " + mimeType + CRLF + "Content-Range: "
+                + range.getContentRange(length) + CRLF + CRLF;
+    }
+
+
+    /**
+     * Get the delimiter closing a multipart response.
+     * 
+     * @return the closing delimiter
+     */
+    private String getClosingDelimiter() {
+        return CRLF + "--" + boundary + "--" + CRLF;
+    }
+}
@@ -0,0 +1,50 @@
+package pl.psnc.dl.wf4ever.util;
+
+import java.util.Properties;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A utility class reading the values of configuration properties.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public final class PropertiesUtil {
+
+    /** logger. */
+    private static final Logger LOGGER = Logger.getLogger(PropertiesUtil.class);
+
+
+    /**
+     * Private constructor.
+     */
+    private PropertiesUtil() {
+        //nope
+    }
+
+
+    /**
+     * Read an integer property.
+     * 
+     * @param properties
+     *            properties
+     * @param key
+     *            property name
+     * @param defaultValue
+     *            value used if the property is missing or not a number
+     * @return the property value
+     */
+    public static int getInt(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            LOGGER.warn("Property " + key + " is not a number: " + value + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package pl.psnc.dl.wf4ever.accesscontrol;
+
+import java.net.URI;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import pl.psnc.dl.wf4ever.AbstractUnitTest;
+import pl.psnc.dl.wf4ever.accesscontrol.dicts.Mode;
+import pl.psnc.dl.wf4ever.accesscontrol.dicts.Role;
+import pl.psnc.dl.wf4ever.accesscontrol.model.AccessMode;
+import pl.psnc.dl.wf4ever.accesscontrol.model.Permission;
+import pl.psnc.dl.wf4ever.accesscontrol.model.dao.ModeDAO;
+import pl.psnc.dl.wf4ever.accesscontrol.model.dao.PermissionDAO;
+import pl.psnc.dl.wf4ever.db.UserProfile;
+import pl.psnc.dl.wf4ever.db.dao.UserProfileDAO;
+
+/**
+ * Test class for the cache of access control lists.
+ * 
+ * @author pejot
+ * 
+ */
+public class AccessControlCacheTest extends AbstractUnitTest {
+
+    /** Research object. */
+    private String roUri;
+
+    /** Owner of the research object. */
+    private UserProfile owner;
+
+    /** Reader of the research object. */
+    private UserProfile reader;
+
+    /** Access mode. */
+    private AccessMode mode;
+
+    /** The instance under test. */
+    private AccessControlCache cache;
+
+    /** Permission DAO. */
+    private PermissionDAO permissionDAO = new PermissionDAO();
+
+    /** User profile DAO. */
+    private UserProfileDAO userProfileDAO = new UserProfileDAO();
+
+
+    @Override
+    @Before
+    public void setUp()
+            throws Exception {
+        super.setUp();
+        roUri = "http://www.example.com/ROs/" + UUID.randomUUID() + "/";
+        owner = createUser();
+        reader = createUser();
+        mode = new AccessMode();
+        mode.setRo(roUri);
+        mode.setMode(Mode.PRIVATE);
+        new ModeDAO().save(mode);
+        grant(owner, Role.OWNER);
+        grant(reader, Role.READER);
+        cache = new AccessControlCache(100, 600);
+    }
+
+
+    @Override
+    @After
+    public void tearDown()
+            throws Exception {
+        for (Permission permission : permissionDAO.findByResearchObject(roUri)) {
+            permissionDAO.delete(permission);
+        }
+        new ModeDAO().delete(mode);
+        userProfileDAO.delete(owner);
+        userProfileDAO.delete(reader);
+        super.tearDown();
+    }
+
+
+    /**
+     * Create and save a user.
+     * 
+     * @return the user profile
+     */
+    private UserProfile createUser() {
+        URI userUri = URI.create("http://testuser.myopenid.com/" + UUID.randomUUID());
+        UserProfile profile = new UserProfile(userUri.toString(), "name",
+                pl.psnc.dl.wf4ever.dl.UserMetadata.Role.AUTHENTICATED, userUri);
+        userProfileDAO.save(profile);
+        return profile;
+    }
+
+
+    /**
+     * Grant a role to a user.
+     * 
+     * @param user
+     *            the user
+     * @param role
+     *            the role
+     */
+    private void grant(UserProfile user, Role role) {
+        Permission permission = new Permission();
+        permission.setRo(roUri);
+        permission.setRole(role);
+        permission.setUser(user);
+        permissionDAO.save(permission);
+    }
+
+
+    @Test
+    public void testGet() {
+        AccessControlList acl = cache.get(roUri);
+        Assert.assertTrue(acl.isKnown());
+        Assert.assertEquals(Mode.PRIVATE, acl.getMode());
+        Assert.assertTrue(acl.hasRole(owner.getLogin(), Role.OWNER));
+        Assert.assertEquals(1, acl.countPermissions(owner.getLogin(), Role.OWNER));
+        Assert.assertFalse(acl.hasRole(owner.getLogin(), Role.READER));
+        Assert.assertTrue(acl.hasRole(reader.getLogin(), Role.READER));
+        Assert.assertFalse(acl.hasRole(reader.getLogin(), Role.EDITOR));
+        Assert.assertSame(acl, cache.get(roUri));
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(1, cache.getMisses());
+    }
+
+
+    @Test
+    public void testUnknownResearchObject() {
+        Assert.assertSame(AccessControlList.UNKNOWN, cache.get("http://www.example.com/ROs/unknown/"));
+    }
+
+
+    @Test
+    public void testExpire() {
+        AccessControlCache expiringCache = new AccessControlCache(100, 0);
+        expiringCache.get(roUri);
+        expiringCache.get(roUri);
+        Assert.assertEquals(0, expiringCache.getHits());
+        Assert.assertEquals(2, expiringCache.getMisses());
+    }
+
+
+    @Test
+    public void testInvalidate() {
+        cache.get(roUri);
+        UserProfile editor = createUser();
+        try {
+            grant(editor, Role.EDITOR);
+            Assert.assertFalse(cache.get(roUri).hasRole(editor.getLogin(), Role.EDITOR));
+            cache.invalidate(roUri);
+            Assert.assertTrue(cache.get(roUri).hasRole(editor.getLogin(), Role.EDITOR));
+        } finally {
+            for (Permission permission : permissionDAO.findByUserROAndPermission(editor, roUri, Role.EDITOR)) {
+                permissionDAO.delete(permission);
+            }
+            userProfileDAO.delete(editor);
+        }
+    }
+}
@@ -2,12 +2,16 @@ package pl.psnc.dl.wf4ever.accesscontrol.model.dao;
 
 import java.util.UUID;
 
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.Statistics;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Test;
 
 import pl.psnc.dl.wf4ever.AbstractUnitTest;
 import pl.psnc.dl.wf4ever.accesscontrol.model.AccessMode;
+import pl.psnc.dl.wf4ever.db.hibernate.HibernateUtil;
 
 public class ModeDAOTest extends AbstractUnitTest {
 
@@ -45,4 +49,23 @@ public class ModeDAOTest extends AbstractUnitTest {
         Assert.assertNull(dao.findByResearchObject(mode.getRo()));
     }
 
+
+    @Test
+    public void testGetModeByROIsCached() {
+        // the cache and the statistics are enabled in the local hibernate.cfg.xml
+        SessionFactoryImplementor sessionFactory = (SessionFactoryImplementor) HibernateUtil.getSessionFactory();
+        Assume.assumeTrue(sessionFactory.getSettings().isQueryCacheEnabled());
+        Assume.assumeTrue(sessionFactory.getStatistics().isStatisticsEnabled());
+        dao.save(mode);
+        HibernateUtil.getSessionFactory().getCurrentSession().getTransaction().commit();
+        HibernateUtil.getSessionFactory().getCurrentSession().getTransaction().begin();
+        Statistics statistics = sessionFactory.getStatistics();
+        Assert.assertNotNull(dao.findByResearchObject(roUri));
+        long hits = statistics.getQueryCacheHitCount();
+        Assert.assertNotNull(dao.findByResearchObject(roUri));
+        Assert.assertEquals(hits + 1, statistics.getQueryCacheHitCount());
+        dao.delete(dao.findByResearchObject(roUri));
+        Assert.assertNull(dao.findByResearchObject(roUri));
+    }
+
 }
@@ -0,0 +1,69 @@
+package pl.psnc.dl.wf4ever.admin;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import pl.psnc.dl.wf4ever.job.OperationFailedException;
+import pl.psnc.dl.wf4ever.model.Builder;
+import pl.psnc.dl.wf4ever.model.DefaultPrefixMapping;
+
+import com.hp.hpl.jena.query.Dataset;
+import com.hp.hpl.jena.query.DatasetFactory;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.vocabulary.DCTerms;
+
+/**
+ * Test the namespace prefix migration.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public class PrefixMigrationOperationTest {
+
+    /** Graph without prefixes. */
+    private static final String GRAPH_1 = "http://example.org/ro-1/.ro/manifest.rdf";
+
+    /** Graph with prefixes. */
+    private static final String GRAPH_2 = "http://example.org/ro-2/.ro/manifest.rdf";
+
+    /** In-memory dataset. */
+    private Dataset dataset;
+
+
+    @Before
+    public void setUp() {
+        dataset = DatasetFactory.createMem();
+        Model model = ModelFactory.createDefaultModel();
+        model.add(model.createResource("http://example.org/ro-1/"), DCTerms.title, "RO 1");
+        dataset.addNamedModel(GRAPH_1, model);
+        model = ModelFactory.createDefaultModel();
+        model.setNsPrefixes(DefaultPrefixMapping.get());
+        model.add(model.createResource("http://example.org/ro-2/"), DCTerms.title, "RO 2");
+        dataset.addNamedModel(GRAPH_2, model);
+    }
+
+
+    @Test
+    public void testExecute()
+            throws OperationFailedException {
+        PrefixMigrationJobStatus status = new PrefixMigrationJobStatus();
+        new PrefixMigrationOperation(new Builder(null, dataset, false)).execute(status);
+        Assert.assertEquals(2, status.getTotalGraphs());
+        Assert.assertEquals(1, status.getSkippedGraphs());
+        Assert.assertEquals(1, status.getMigratedGraphs());
+        Assert.assertEquals(GRAPH_1, status.getLastGraph());
+        Assert.assertTrue(DefaultPrefixMapping.isSet(dataset.getNamedModel(GRAPH_1)));
+    }
+
+
+    @Test
+    public void testWithDefaultPrefixesDoesNotModifyTheGraph() {
+        Model model = dataset.getNamedModel(GRAPH_1);
+        Model view = DefaultPrefixMapping.withDefaultPrefixes(model);
+        Assert.assertTrue(DefaultPrefixMapping.isSet(view));
+        Assert.assertFalse(DefaultPrefixMapping.isSet(model));
+        Assert.assertEquals(model.size(), view.size());
+    }
+}
@@ -0,0 +1,126 @@
+package pl.psnc.dl.wf4ever.auth;
+
+import java.net.URI;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import pl.psnc.dl.wf4ever.AbstractUnitTest;
+import pl.psnc.dl.wf4ever.db.AccessToken;
+import pl.psnc.dl.wf4ever.db.OAuthClient;
+import pl.psnc.dl.wf4ever.db.UserProfile;
+import pl.psnc.dl.wf4ever.db.dao.AccessTokenDAO;
+import pl.psnc.dl.wf4ever.db.dao.OAuthClientDAO;
+import pl.psnc.dl.wf4ever.db.dao.UserProfileDAO;
+import pl.psnc.dl.wf4ever.db.hibernate.HibernateUtil;
+import pl.psnc.dl.wf4ever.dl.UserMetadata.Role;
+
+/**
+ * Test class for the access token cache.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public class AccessTokenCacheTest extends AbstractUnitTest {
+
+    /** Token owner. */
+    private UserProfile profile;
+
+    /** Client of the token. */
+    private OAuthClient client;
+
+    /** The token. */
+    private AccessToken token;
+
+    /** The instance under test. */
+    private AccessTokenCache cache;
+
+
+    @Override
+    @Before
+    public void setUp()
+            throws Exception {
+        super.setUp();
+        profile = new UserProfile("http://example.org/users/carol", "Carol", Role.AUTHENTICATED,
+                URI.create("http://example.org/users/carol"));
+        new UserProfileDAO().save(profile);
+        client = new OAuthClient("token cache test", "http://example.org/callback");
+        new OAuthClientDAO().save(client);
+        token = new AccessToken(client, profile);
+        new AccessTokenDAO().save(token);
+        commitAndBegin();
+        cache = new AccessTokenCache(100, 60, 0);
+    }
+
+
+    @Override
+    @After
+    public void tearDown()
+            throws Exception {
+        AccessTokenDAO accessTokenDAO = new AccessTokenDAO();
+        AccessToken saved = accessTokenDAO.findByValue(token.getToken());
+        if (saved != null) {
+            accessTokenDAO.delete(saved);
+        }
+        OAuthClientDAO clientDAO = new OAuthClientDAO();
+        clientDAO.delete(clientDAO.findById(client.getClientId()));
+        UserProfileDAO userProfileDAO = new UserProfileDAO();
+        userProfileDAO.delete(userProfileDAO.findByLogin(profile.getLogin()));
+        super.tearDown();
+    }
+
+
+    /**
+     * Commit the current transaction and begin a new one.
+     */
+    private void commitAndBegin() {
+        HibernateUtil.getSessionFactory().getCurrentSession().getTransaction().commit();
+        HibernateUtil.getSessionFactory().getCurrentSession().getTransaction().begin();
+    }
+
+
+    @Test
+    public void testGetUser() {
+        UserProfile user = cache.getUser(token.getToken());
+        Assert.assertEquals(profile.getLogin(), user.getLogin());
+        Assert.assertEquals("Carol", user.getName());
+        Assert.assertEquals(Role.AUTHENTICATED, user.getRole());
+        Assert.assertEquals(user, cache.getUser(token.getToken()));
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(1, cache.getMisses());
+        Assert.assertNull(cache.getUser("no such token"));
+    }
+
+
+    @Test
+    public void testInvalidate() {
+        cache.getUser(token.getToken());
+        Assert.assertEquals(1, cache.getSize());
+        cache.invalidate(token.getToken());
+        Assert.assertEquals(0, cache.getSize());
+
+        cache.getUser(token.getToken());
+        UserProfileDAO userProfileDAO = new UserProfileDAO();
+        UserProfile saved = userProfileDAO.findByLogin(profile.getLogin());
+        saved.setName("Dave");
+        userProfileDAO.save(saved);
+        Assert.assertEquals("Carol", cache.getUser(token.getToken()).getName());
+        cache.invalidateUser(profile.getLogin());
+        Assert.assertEquals("Dave", cache.getUser(token.getToken()).getName());
+    }
+
+
+    @Test
+    public void testLastUsedIsSavedLater() {
+        cache.getUser(token.getToken());
+        commitAndBegin();
+        Assert.assertNull(new AccessTokenDAO().findByValue(token.getToken()).getLastUsed());
+        HibernateUtil.getSessionFactory().getCurrentSession().getTransaction().commit();
+        Assert.assertEquals(1, cache.flush());
+        Assert.assertEquals(0, cache.flush());
+        HibernateUtil.getSessionFactory().getCurrentSession().getTransaction().begin();
+        Assert.assertNotNull(new AccessTokenDAO().findByValue(token.getToken()).getLastUsed());
+    }
+}
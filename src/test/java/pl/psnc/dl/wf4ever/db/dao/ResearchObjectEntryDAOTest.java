@@ -0,0 +1,136 @@
+package pl.psnc.dl.wf4ever.db.dao;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.hibernate.ScrollableResults;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import pl.psnc.dl.wf4ever.AbstractUnitTest;
+import pl.psnc.dl.wf4ever.accesscontrol.model.Permission;
+import pl.psnc.dl.wf4ever.accesscontrol.model.dao.PermissionDAO;
+import pl.psnc.dl.wf4ever.db.ResearchObjectEntry;
+import pl.psnc.dl.wf4ever.db.UserProfile;
+import pl.psnc.dl.wf4ever.db.dao.ResearchObjectEntryDAO.Sort;
+import pl.psnc.dl.wf4ever.dl.UserMetadata;
+import pl.psnc.dl.wf4ever.dl.UserMetadata.Role;
+import pl.psnc.dl.wf4ever.evo.EvoType;
+
+public class ResearchObjectEntryDAOTest extends AbstractUnitTest {
+
+    ResearchObjectEntryDAO dao;
+    UserMetadata creator;
+    String base = "http://example.org/registry/" + UUID.randomUUID() + "/";
+    ResearchObjectEntry a;
+    ResearchObjectEntry b;
+    ResearchObjectEntry c;
+
+
+    @Override
+    @Before
+    public void setUp()
+            throws Exception {
+        super.setUp();
+        dao = new ResearchObjectEntryDAO();
+        creator = new UserMetadata("registry", "Registry", Role.AUTHENTICATED, URI.create(base + "creator"));
+        DateTime now = DateTime.now();
+        a = new ResearchObjectEntry(URI.create(base + "a/"), creator.getUri(), now, EvoType.LIVE);
+        b = new ResearchObjectEntry(URI.create(base + "b/"), creator.getUri(), now.plusHours(1), EvoType.SNAPSHOT);
+        c = new ResearchObjectEntry(URI.create(base + "c/"), creator.getUri(), now.minusHours(1), EvoType.LIVE);
+        dao.save(a);
+        dao.save(b);
+        dao.save(c);
+    }
+
+
+    @Override
+    @After
+    public void tearDown()
+            throws Exception {
+        dao.delete(a);
+        dao.delete(b);
+        dao.delete(c);
+        super.tearDown();
+    }
+
+
+    @Test
+    public void testSortByUri() {
+        Assert.assertEquals(Arrays.asList(base + "a/", base + "b/", base + "c/"),
+            list(dao.scrollUris(creator, null, Sort.URI, false, null, 0)));
+        Assert.assertEquals(Arrays.asList(base + "b/", base + "a/"),
+            list(dao.scrollUris(creator, null, Sort.URI, true, c, 0)));
+    }
+
+
+    @Test
+    public void testPagesByCreated() {
+        Assert.assertEquals(Arrays.asList(base + "c/", base + "a/"),
+            list(dao.scrollUris(creator, null, Sort.CREATED, false, null, 2)));
+        Assert.assertEquals(Arrays.asList(base + "b/"), list(dao.scrollUris(creator, null, Sort.CREATED, false, a, 2)));
+        Assert.assertEquals(Arrays.asList(base + "b/", base + "a/", base + "c/"),
+            list(dao.scrollUris(creator, null, Sort.CREATED, true, null, 0)));
+    }
+
+
+    @Test
+    public void testFilterByEvoType() {
+        Assert.assertEquals(Arrays.asList(base + "b/"),
+            list(dao.scrollUris(creator, EvoType.SNAPSHOT, Sort.URI, false, null, 0)));
+    }
+
+
+    @Test
+    public void testFilterByUser() {
+        UserMetadata other = new UserMetadata("other", "Other", Role.AUTHENTICATED, URI.create(base + "other"));
+        Assert.assertTrue(list(dao.scrollUris(other, null, Sort.URI, false, null, 0)).isEmpty());
+    }
+
+
+    @Test
+    public void testFilterByPermission() {
+        UserProfile reader = new UserProfile("reader-" + UUID.randomUUID(), "Reader", Role.AUTHENTICATED,
+                URI.create(base + "reader"));
+        UserProfileDAO userProfileDAO = new UserProfileDAO();
+        userProfileDAO.save(reader);
+        Permission permission = new Permission();
+        permission.setRo(b.getUri().toString());
+        permission.setRole(pl.psnc.dl.wf4ever.accesscontrol.dicts.Role.READER);
+        permission.setUser(reader);
+        PermissionDAO permissionDAO = new PermissionDAO();
+        permissionDAO.save(permission);
+        try {
+            Assert.assertEquals(Arrays.asList(base + "b/"),
+                list(dao.scrollUris(reader, null, Sort.URI, false, null, 0)));
+        } finally {
+            permissionDAO.delete(permission);
+            userProfileDAO.delete(reader);
+        }
+    }
+
+
+    @Test
+    public void testIsEmpty() {
+        Assert.assertFalse(dao.isEmpty());
+    }
+
+
+    private static List<String> list(ScrollableResults results) {
+        List<String> uris = new ArrayList<>();
+        try {
+            while (results.next()) {
+                uris.add(results.getString(0));
+            }
+        } finally {
+            results.close();
+        }
+        return uris;
+    }
+}
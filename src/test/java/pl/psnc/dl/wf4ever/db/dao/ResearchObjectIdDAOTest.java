@@ -75,6 +75,17 @@ public class ResearchObjectIdDAOTest {
     }
 
 
+    @Test
+    public void testFirstFreeFillsGaps() {
+        dao.save(new ResearchObjectId(idUri));
+        dao.save(new ResearchObjectId(idUri12));
+        Assert.assertEquals(idUri11, dao.firstFree(new ResearchObjectId(idUri)).getId());
+        Assert.assertEquals(idUri11, dao.assignId(new ResearchObjectId(idUri)).getId());
+        Assert.assertEquals(URI.create("http://www.example.com/ROs/ResearchObject-3/"),
+            dao.firstFree(new ResearchObjectId(idUri)).getId());
+    }
+
+
     @Test
     public void testSaftySave() {
         //not this same instance
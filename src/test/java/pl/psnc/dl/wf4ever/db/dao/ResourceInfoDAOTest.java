@@ -43,4 +43,20 @@ public class ResourceInfoDAOTest extends AbstractUnitTest {
         Assert.assertEquals(info, dao.findByPath(path));
         dao.delete(info);
     }
+
+
+    @Test
+    public void testDeleteFolder() {
+        ResourceInfo info = dao.create("/ro_1/folder/a.txt", name, checksum, sizeInBytes, digestMethod, lastModified,
+            mimeType);
+        info.getDigests().put("SHA-256", checksum);
+        dao.save(info);
+        ResourceInfo other = dao.create("/ro11/a.txt", name, checksum, sizeInBytes, digestMethod, lastModified,
+            mimeType);
+        dao.save(other);
+        Assert.assertEquals(1, dao.deleteFolder("/ro_1", "/"));
+        Assert.assertNull(dao.findByPath("/ro_1/folder/a.txt"));
+        Assert.assertNotNull(dao.findByPath("/ro11/a.txt"));
+        dao.delete(other);
+    }
 }
@@ -2,6 +2,7 @@ package pl.psnc.dl.wf4ever.db.dao;
 
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.After;
@@ -58,6 +59,14 @@ public class UserProfileDAOTest extends AbstractUnitTest {
     }
 
 
+    @Test
+    public void testFindByLogins() {
+        List<UserProfile> profiles = dao.findByLogins(Arrays.asList(profile.getLogin(), "no such login"));
+        Assert.assertEquals(1, profiles.size());
+        Assert.assertEquals(profile, profiles.get(0));
+    }
+
+
     @Test
     public void testDeleteCascade() {
         OAuthClientDAO oAuthClientDAO = new OAuthClientDAO();
@@ -0,0 +1,72 @@
+package pl.psnc.dl.wf4ever.db.hibernate;
+
+import java.util.Properties;
+
+import org.hibernate.cfg.Configuration;
+import org.hibernate.cfg.Environment;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test configuring the connection pool.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public class ConnectionPoolTest {
+
+    /** Hibernate configuration with a data source. */
+    private Configuration configuration;
+
+
+    /**
+     * Create the configuration.
+     */
+    @Before
+    public void setUp() {
+        configuration = new Configuration();
+        configuration.setProperty(Environment.DATASOURCE, "java:/comp/env/jdbc/rodl");
+    }
+
+
+    /**
+     * The data source is used when the database URL is not set.
+     */
+    @Test
+    public void testNoUrl() {
+        Properties properties = new Properties();
+        properties.setProperty("connection.url", " ");
+        properties.setProperty("pool.maxSize", "10");
+        ConnectionPool.configure(configuration, properties);
+        Assert.assertEquals("java:/comp/env/jdbc/rodl", configuration.getProperty(Environment.DATASOURCE));
+        Assert.assertNull(configuration.getProperty(Environment.C3P0_MAX_SIZE));
+    }
+
+
+    /**
+     * The pool replaces the data source when the database URL is set.
+     */
+    @Test
+    public void testPool() {
+        Properties properties = new Properties();
+        properties.setProperty("connection.url", "jdbc:h2:mem:pool");
+        properties.setProperty("connection.driver_class", "org.h2.Driver");
+        properties.setProperty("pool.minSize", "2");
+        properties.setProperty("pool.maxSize", "10");
+        properties.setProperty("pool.statements", "0");
+        properties.setProperty("pool.leakTimeout", "60");
+        properties.setProperty("pool.checkoutTimeout", "not a number");
+        ConnectionPool.configure(configuration, properties);
+        Assert.assertNull(configuration.getProperty(Environment.DATASOURCE));
+        Assert.assertEquals("jdbc:h2:mem:pool", configuration.getProperty(Environment.URL));
+        Assert.assertEquals("org.h2.Driver", configuration.getProperty(Environment.DRIVER));
+        Assert.assertNull(configuration.getProperty(Environment.USER));
+        Assert.assertEquals("2", configuration.getProperty(Environment.C3P0_MIN_SIZE));
+        Assert.assertEquals("10", configuration.getProperty(Environment.C3P0_MAX_SIZE));
+        Assert.assertEquals("0", configuration.getProperty(Environment.C3P0_MAX_STATEMENTS));
+        Assert.assertEquals("60", configuration.getProperty("hibernate.c3p0.unreturnedConnectionTimeout"));
+        Assert.assertEquals(Integer.toString(ConnectionPool.DEFAULT_CHECKOUT_TIMEOUT * 1000),
+            configuration.getProperty("hibernate.c3p0.checkoutTimeout"));
+    }
+}
@@ -15,22 +15,31 @@ import java.nio.file.DirectoryNotEmptyException;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.IOUtils;
+import org.hibernate.Transaction;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import pl.psnc.dl.wf4ever.db.ResourceInfo;
 import pl.psnc.dl.wf4ever.db.hibernate.HibernateUtil;
 import pl.psnc.dl.wf4ever.dl.AccessDeniedException;
 import pl.psnc.dl.wf4ever.dl.ConflictException;
 import pl.psnc.dl.wf4ever.dl.DigitalLibrary;
 import pl.psnc.dl.wf4ever.dl.DigitalLibraryException;
 import pl.psnc.dl.wf4ever.dl.NotFoundException;
+import pl.psnc.dl.wf4ever.dl.ResourceMetadata;
 import pl.psnc.dl.wf4ever.dl.UserMetadata;
 import pl.psnc.dl.wf4ever.dl.UserMetadata.Role;
+import pl.psnc.dl.wf4ever.exceptions.ServiceUnavailableException;
 import pl.psnc.dl.wf4ever.storage.FilesystemDL;
 
 import com.google.common.collect.HashMultimap;
@@ -138,6 +147,159 @@ public class BasicTest {
     }
 
 
+    @Test
+    public final void testChecksums()
+            throws DigitalLibraryException, ConflictException, NotFoundException, AccessDeniedException {
+        FilesystemDL dl = new FilesystemDL(BASE, Arrays.asList("SHA-256", "no such method"));
+        dl.createResearchObject(RO_URI, new ByteArrayInputStream(MAIN_FILE_CONTENT.getBytes()), MAIN_FILE_PATH,
+            MAIN_FILE_MIME_TYPE);
+        ResourceInfo info = dl.createOrUpdateFile(RO_URI, MAIN_FILE_PATH,
+            new ByteArrayInputStream(MAIN_FILE_CONTENT.getBytes()), MAIN_FILE_MIME_TYPE);
+        assertEquals(DigestUtils.md5Hex(MAIN_FILE_CONTENT), info.getChecksum());
+        assertEquals("MD5", info.getDigestMethod());
+        assertEquals(Collections.singletonMap("SHA-256", DigestUtils.sha256Hex(MAIN_FILE_CONTENT)),
+            info.getDigests());
+        // the same checksums when calculated from the stored file
+        info = dl.updateFileInfo(RO_URI, MAIN_FILE_PATH, MAIN_FILE_MIME_TYPE);
+        assertEquals(DigestUtils.md5Hex(MAIN_FILE_CONTENT), info.getChecksum());
+        assertEquals(DigestUtils.sha256Hex(MAIN_FILE_CONTENT), info.getDigests().get("SHA-256"));
+    }
+
+
+    @Test
+    public final void testGetFileInfos()
+            throws DigitalLibraryException, ConflictException, NotFoundException, AccessDeniedException {
+        FilesystemDL dl = new FilesystemDL(BASE);
+        dl.createResearchObject(RO_URI, new ByteArrayInputStream(MAIN_FILE_CONTENT.getBytes()), MAIN_FILE_PATH,
+            MAIN_FILE_MIME_TYPE);
+        dl.createOrUpdateFile(RO_URI, "folder/a b.txt", new ByteArrayInputStream(MAIN_FILE_CONTENT.getBytes()),
+            MAIN_FILE_MIME_TYPE);
+        dl.createOrUpdateFile(URI.create("http://example.org/ROs/foobar2/"), MAIN_FILE_PATH,
+            new ByteArrayInputStream(MAIN_FILE_CONTENT.getBytes()), MAIN_FILE_MIME_TYPE);
+        try {
+            Map<String, ResourceMetadata> infos = dl.getFileInfos(RO_URI);
+            assertEquals(2, infos.size());
+            assertEquals(dl.getFileInfo(RO_URI, MAIN_FILE_PATH), infos.get(MAIN_FILE_PATH));
+            assertEquals(DigestUtils.md5Hex(MAIN_FILE_CONTENT), infos.get("folder/a b.txt").getChecksum());
+            assertTrue(dl.hasContent(infos.get(MAIN_FILE_PATH)));
+        } finally {
+            dl.deleteResearchObject(URI.create("http://example.org/ROs/foobar2/"));
+        }
+    }
+
+
+    @Test
+    public final void testMigrateToShardedLayout()
+            throws DigitalLibraryException, ConflictException, NotFoundException, AccessDeniedException, IOException {
+        FilesystemDL flatDl = new FilesystemDL(BASE);
+        flatDl.createResearchObject(RO_URI, new ByteArrayInputStream(MAIN_FILE_CONTENT.getBytes()), MAIN_FILE_PATH,
+            MAIN_FILE_MIME_TYPE);
+        FilesystemDL dl = new FilesystemDL(BASE, Collections.<String> emptyList(), 2);
+        try {
+            // not migrated yet
+            assertTrue(dl.fileExists(RO_URI, MAIN_FILE_PATH));
+            assertEquals(flatDl.getFileInfo(RO_URI, MAIN_FILE_PATH), dl.getFileInfo(RO_URI, MAIN_FILE_PATH));
+
+            assertTrue(dl.migrateResearchObject(RO_URI));
+            assertFalse(dl.migrateResearchObject(RO_URI));
+            assertFalse(Files.exists(Paths.get(BASE, "example.org", "ROs", "foobar")));
+            String hash = DigestUtils.md5Hex("foobar");
+            assertTrue(Files.isRegularFile(Paths.get(BASE, "example.org", "ROs", FilesystemDL.SHARDS_FOLDER,
+                hash.substring(0, 2), hash.substring(2, 4), "foobar", MAIN_FILE_PATH)));
+            assertTrue(dl.fileExists(RO_URI, MAIN_FILE_PATH));
+            ResourceInfo info = dl.getFileInfo(RO_URI, MAIN_FILE_PATH);
+            Assert.assertNotNull(info);
+            assertEquals(DigestUtils.md5Hex(MAIN_FILE_CONTENT), info.getChecksum());
+            try (InputStream in = dl.getFileContents(RO_URI, MAIN_FILE_PATH)) {
+                assertEquals(MAIN_FILE_CONTENT, IOUtils.toString(in));
+            }
+        } finally {
+            dl.deleteResearchObject(RO_URI);
+        }
+    }
+
+
+    @Test
+    public final void testMigrationIsUndoneOnRollback()
+            throws DigitalLibraryException, ConflictException, NotFoundException {
+        new FilesystemDL(BASE).createResearchObject(RO_URI, new ByteArrayInputStream(MAIN_FILE_CONTENT.getBytes()),
+            MAIN_FILE_PATH, MAIN_FILE_MIME_TYPE);
+        HibernateUtil.getSessionFactory().getCurrentSession().getTransaction().commit();
+        HibernateUtil.getSessionFactory().getCurrentSession().getTransaction().begin();
+        FilesystemDL dl = new FilesystemDL(BASE, Collections.<String> emptyList(), 2);
+        assertTrue(dl.migrateResearchObject(RO_URI));
+        assertFalse(Files.exists(Paths.get(BASE, "example.org", "ROs", "foobar")));
+        HibernateUtil.getSessionFactory().getCurrentSession().getTransaction().rollback();
+        HibernateUtil.getSessionFactory().getCurrentSession().getTransaction().begin();
+        assertTrue(Files.isRegularFile(Paths.get(BASE, "example.org", "ROs", "foobar", MAIN_FILE_PATH)));
+        assertTrue(dl.fileExists(RO_URI, MAIN_FILE_PATH));
+        Assert.assertNotNull(dl.getFileInfo(RO_URI, MAIN_FILE_PATH));
+    }
+
+
+    @Test
+    public final void testWriteIsRejectedWhileMigrating()
+            throws DigitalLibraryException, ConflictException, NotFoundException, InterruptedException {
+        new FilesystemDL(BASE).createResearchObject(RO_URI, new ByteArrayInputStream(MAIN_FILE_CONTENT.getBytes()),
+            MAIN_FILE_PATH, MAIN_FILE_MIME_TYPE);
+        final FilesystemDL dl = new FilesystemDL(BASE, Collections.<String> emptyList(), 2);
+        assertTrue(dl.migrateResearchObject(RO_URI));
+        final AtomicReference<Exception> error = new AtomicReference<>();
+        Thread writer = new Thread() {
+
+            @Override
+            public void run() {
+                Transaction transaction = HibernateUtil.getSessionFactory().getCurrentSession().getTransaction();
+                transaction.begin();
+                try {
+                    dl.createOrUpdateFile(RO_URI, MAIN_FILE_PATH, new ByteArrayInputStream("changed".getBytes()),
+                        MAIN_FILE_MIME_TYPE);
+                } catch (Exception e) {
+                    error.set(e);
+                } finally {
+                    transaction.rollback();
+                }
+            }
+        };
+        writer.start();
+        writer.join();
+        assertTrue(error.get() instanceof ServiceUnavailableException);
+        // the transaction moving the research object can write to it
+        dl.createOrUpdateFile(RO_URI, MAIN_FILE_PATH, new ByteArrayInputStream("changed".getBytes()),
+            MAIN_FILE_MIME_TYPE);
+        dl.deleteResearchObject(RO_URI);
+    }
+
+
+    @Test
+    public final void testCopyIsLinked()
+            throws DigitalLibraryException, ConflictException, NotFoundException, AccessDeniedException, IOException {
+        URI copyUri = URI.create("http://example.org/ROs/foobar-copy/");
+        FilesystemDL dl = new FilesystemDL(BASE);
+        dl.createResearchObject(RO_URI, new ByteArrayInputStream(MAIN_FILE_CONTENT.getBytes()), MAIN_FILE_PATH,
+            MAIN_FILE_MIME_TYPE);
+        try {
+            ResourceInfo copy = dl.createOrUpdateFile(copyUri, MAIN_FILE_PATH,
+                dl.getFileContents(RO_URI, MAIN_FILE_PATH), MAIN_FILE_MIME_TYPE);
+            assertEquals(DigestUtils.md5Hex(MAIN_FILE_CONTENT), copy.getChecksum());
+            assertEquals(MAIN_FILE_CONTENT.length(), copy.getSizeInBytes());
+            assertTrue(Files.isSameFile(Paths.get(BASE, "example.org", "ROs", "foobar", MAIN_FILE_PATH),
+                Paths.get(BASE, "example.org", "ROs", "foobar-copy", MAIN_FILE_PATH)));
+
+            // updating the original doesn't change the copy
+            dl.createOrUpdateFile(RO_URI, MAIN_FILE_PATH, new ByteArrayInputStream("changed".getBytes()),
+                MAIN_FILE_MIME_TYPE);
+            try (InputStream in = dl.getFileContents(copyUri, MAIN_FILE_PATH)) {
+                assertEquals(MAIN_FILE_CONTENT, IOUtils.toString(in));
+            }
+            assertEquals(DigestUtils.md5Hex(MAIN_FILE_CONTENT), dl.getFileInfo(copyUri, MAIN_FILE_PATH)
+                    .getChecksum());
+        } finally {
+            dl.deleteResearchObject(copyUri);
+        }
+    }
+
+
     @Test
     public final void testStoreAttributes()
             throws DigitalLibraryException, IOException, ConflictException, NotFoundException, AccessDeniedException {
@@ -0,0 +1,162 @@
+package pl.psnc.dl.wf4ever.fs;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import pl.psnc.dl.wf4ever.db.Blob;
+import pl.psnc.dl.wf4ever.db.ResourceInfo;
+import pl.psnc.dl.wf4ever.db.dao.BlobDAO;
+import pl.psnc.dl.wf4ever.db.dao.ResourceInfoDAO;
+import pl.psnc.dl.wf4ever.db.hibernate.HibernateUtil;
+import pl.psnc.dl.wf4ever.dl.DigitalLibraryException;
+import pl.psnc.dl.wf4ever.dl.NotFoundException;
+import pl.psnc.dl.wf4ever.storage.BlobStoreDL;
+
+/**
+ * Test class for the content-addressable filesystem storage.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public class BlobStoreTest {
+
+    private static final String BASE = "/tmp/testblobs/";
+
+    private static final URI RO1 = URI.create("http://example.org/ROs/blobs1/");
+
+    private static final URI RO2 = URI.create("http://example.org/ROs/blobs2/");
+
+    private static final String CONTENT = "same content " + System.currentTimeMillis();
+
+    private static final String HASH = DigestUtils.sha256Hex(CONTENT);
+
+    private BlobStoreDL dl;
+
+
+    @Before
+    public void setUp()
+            throws IOException {
+        HibernateUtil.getSessionFactory().getCurrentSession().getTransaction().begin();
+        Files.createDirectories(Paths.get(BASE));
+        dl = new BlobStoreDL(BASE, Collections.<String> emptyList());
+    }
+
+
+    @After
+    public void tearDown() {
+        for (URI ro : new URI[] { RO1, RO2 }) {
+            try {
+                dl.deleteResearchObject(ro);
+            } catch (DigitalLibraryException | NotFoundException e) {
+                // already deleted
+            }
+        }
+        HibernateUtil.getSessionFactory().getCurrentSession().getTransaction().commit();
+        FileUtils.deleteQuietly(Paths.get(BASE).toFile());
+    }
+
+
+    @Test
+    public void testIdenticalContentIsStoredOnce()
+            throws DigitalLibraryException, NotFoundException, IOException {
+        ResourceInfo res = dl.createOrUpdateFile(RO1, "a.txt", new ByteArrayInputStream(CONTENT.getBytes()),
+            "text/plain");
+        Assert.assertEquals(DigestUtils.md5Hex(CONTENT), res.getChecksum());
+        Assert.assertEquals(HASH, res.getDigests().get(BlobStoreDL.CONTENT_DIGEST_METHOD));
+        dl.createOrUpdateFile(RO2, "b.txt", new ByteArrayInputStream(CONTENT.getBytes()), "text/plain");
+        Assert.assertEquals(2, new BlobDAO().findByHash(HASH).getRefs());
+        Assert.assertEquals(1, countBlobs());
+        try (InputStream in = dl.getFileContents(RO2, "b.txt")) {
+            Assert.assertEquals(CONTENT, IOUtils.toString(in));
+        }
+    }
+
+
+    @Test
+    public void testCopyAddsReferenceOnly()
+            throws DigitalLibraryException, NotFoundException, IOException {
+        dl.createOrUpdateFile(RO1, "a.txt", new ByteArrayInputStream(CONTENT.getBytes()), "text/plain");
+        ResourceInfo copy = dl.createOrUpdateFile(RO2, "folder/a.txt", dl.getFileContents(RO1, "a.txt"),
+            "text/plain");
+        Assert.assertEquals(DigestUtils.md5Hex(CONTENT), copy.getChecksum());
+        Assert.assertEquals(CONTENT.length(), copy.getSizeInBytes());
+        Assert.assertEquals(2, new BlobDAO().findByHash(HASH).getRefs());
+        Assert.assertTrue(dl.fileExists(RO2, "folder/a.txt"));
+        Assert.assertFalse(dl.fileExists(RO2, "folder"));
+    }
+
+
+    @Test
+    public void testBlobIsDeletedWithLastReference()
+            throws DigitalLibraryException, NotFoundException {
+        dl.createOrUpdateFile(RO1, "a.txt", new ByteArrayInputStream(CONTENT.getBytes()), "text/plain");
+        dl.createOrUpdateFile(RO2, "a.txt", new ByteArrayInputStream(CONTENT.getBytes()), "text/plain");
+        dl.deleteResearchObject(RO1);
+        Assert.assertFalse(dl.fileExists(RO1, "a.txt"));
+        Assert.assertEquals(1, new BlobDAO().findByHash(HASH).getRefs());
+        dl.deleteFile(RO2, "a.txt");
+        Blob blob = new BlobDAO().findByHash(HASH);
+        Assert.assertNull(blob);
+    }
+
+
+    @Test
+    public void testContentStoredAgainAfterLastReferenceIsWritten()
+            throws DigitalLibraryException, NotFoundException, IOException {
+        dl.createOrUpdateFile(RO1, "a.txt", new ByteArrayInputStream(CONTENT.getBytes()), "text/plain");
+        dl.deleteFile(RO1, "a.txt");
+        Assert.assertEquals(0, countBlobs());
+        dl.createOrUpdateFile(RO2, "a.txt", new ByteArrayInputStream(CONTENT.getBytes()), "text/plain");
+        Assert.assertEquals(1, new BlobDAO().findByHash(HASH).getRefs());
+        Assert.assertEquals(1, countBlobs());
+        try (InputStream in = dl.getFileContents(RO2, "a.txt")) {
+            Assert.assertEquals(CONTENT, IOUtils.toString(in));
+        }
+    }
+
+
+    @Test
+    public void testFindByPathPrefix() {
+        ResourceInfoDAO dao = new ResourceInfoDAO();
+        DateTime now = DateTime.now();
+        ResourceInfo info = dao.create("/ro_1/a.txt", "a.txt", "checksum", 100, "MD5", now, "text/plain");
+        dao.save(info);
+        ResourceInfo other = dao.create("/ro11/a.txt", "a.txt", "checksum", 100, "MD5", now, "text/plain");
+        dao.save(other);
+        Assert.assertEquals(1, dao.findByPathPrefix("/ro_1/").size());
+        dao.delete(info);
+        dao.delete(other);
+    }
+
+
+    /**
+     * Count the blob files in the store.
+     * 
+     * @return number of blobs
+     */
+    private int countBlobs() {
+        Path blobs = Paths.get(BASE, ".blobs");
+        int count = 0;
+        for (Object file : FileUtils.listFiles(blobs.toFile(), null, true)) {
+            if (!file.toString().contains("tmp")) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
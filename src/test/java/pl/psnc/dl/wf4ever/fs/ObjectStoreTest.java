@@ -0,0 +1,205 @@
+package pl.psnc.dl.wf4ever.fs;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import pl.psnc.dl.wf4ever.db.ResourceInfo;
+import pl.psnc.dl.wf4ever.db.hibernate.HibernateUtil;
+import pl.psnc.dl.wf4ever.dl.DigitalLibraryException;
+import pl.psnc.dl.wf4ever.dl.NotFoundException;
+import pl.psnc.dl.wf4ever.storage.LocalObjectStore;
+import pl.psnc.dl.wf4ever.storage.ObjectStoreDL;
+
+/**
+ * Test class for the object store backend, using a local folder as the object store.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public class ObjectStoreTest {
+
+    private static final String BASE = "/tmp/testobjects/";
+
+    private static final URI RO1 = URI.create("http://example.org/ROs/objects1/");
+
+    private static final URI RO2 = URI.create("http://example.org/ROs/objects2/");
+
+    private static final String CONTENT = "object content " + System.currentTimeMillis();
+
+    private ExecutorService executor;
+
+    private CountingObjectStore store;
+
+    private ObjectStoreDL dl;
+
+
+    @Before
+    public void setUp()
+            throws IOException {
+        HibernateUtil.getSessionFactory().getCurrentSession().getTransaction().begin();
+        Files.createDirectories(Paths.get(BASE));
+        executor = Executors.newFixedThreadPool(2);
+        store = new CountingObjectStore(Paths.get(BASE, "bucket"));
+        dl = new ObjectStoreDL("/bucket/", Collections.<String> emptyList(), 0, store, ObjectStoreDL.MIN_PART_SIZE,
+                executor, 2);
+    }
+
+
+    @After
+    public void tearDown() {
+        for (URI ro : new URI[] { RO1, RO2 }) {
+            try {
+                dl.deleteResearchObject(ro);
+            } catch (DigitalLibraryException | NotFoundException e) {
+                // already deleted
+            }
+        }
+        HibernateUtil.getSessionFactory().getCurrentSession().getTransaction().commit();
+        executor.shutdownNow();
+        FileUtils.deleteQuietly(Paths.get(BASE).toFile());
+    }
+
+
+    @Test
+    public void testSmallFile()
+            throws DigitalLibraryException, NotFoundException, IOException {
+        ResourceInfo res = dl.createOrUpdateFile(RO1, "folder/a b.txt", new ByteArrayInputStream(CONTENT.getBytes()),
+            "text/plain");
+        Assert.assertEquals(DigestUtils.md5Hex(CONTENT), res.getChecksum());
+        Assert.assertEquals(CONTENT.length(), res.getSizeInBytes());
+        Assert.assertTrue(Files.isRegularFile(Paths.get(BASE, "bucket", "example.org", "ROs", "objects1", "folder",
+            "a b.txt")));
+        Assert.assertTrue(dl.fileExists(RO1, "folder/a b.txt"));
+        Assert.assertFalse(dl.fileExists(RO1, "folder"));
+        try (InputStream in = dl.getFileContents(RO1, "folder/a b.txt")) {
+            Assert.assertEquals(CONTENT, IOUtils.toString(in));
+        }
+    }
+
+
+    @Test
+    public void testLargeFileIsStoredInParts()
+            throws DigitalLibraryException, NotFoundException, IOException {
+        byte[] content = new byte[ObjectStoreDL.MIN_PART_SIZE * 2 + 1000];
+        new Random().nextBytes(content);
+        ResourceInfo res = dl.createOrUpdateFile(RO1, "large.bin", new ByteArrayInputStream(content),
+            "application/octet-stream");
+        Assert.assertEquals(3, store.parts.get());
+        Assert.assertEquals(DigestUtils.md5Hex(content), res.getChecksum());
+        Assert.assertEquals(content.length, res.getSizeInBytes());
+        try (InputStream in = dl.getFileContents(RO1, "large.bin")) {
+            Assert.assertArrayEquals(content, IOUtils.toByteArray(in));
+        }
+    }
+
+
+    @Test
+    public void testCopyIsDoneByTheStore()
+            throws DigitalLibraryException, NotFoundException, IOException {
+        dl.createOrUpdateFile(RO1, "a.txt", new ByteArrayInputStream(CONTENT.getBytes()), "text/plain");
+        ResourceInfo copy = dl.createOrUpdateFile(RO2, "a.txt", dl.getFileContents(RO1, "a.txt"), "text/plain");
+        Assert.assertEquals(1, store.copies.get());
+        Assert.assertEquals(0, store.reads.get());
+        Assert.assertEquals(DigestUtils.md5Hex(CONTENT), copy.getChecksum());
+        Assert.assertEquals(CONTENT.length(), copy.getSizeInBytes());
+        try (InputStream in = dl.getFileContents(RO2, "a.txt")) {
+            Assert.assertEquals(CONTENT, IOUtils.toString(in));
+        }
+    }
+
+
+    @Test
+    public void testZippedFolder()
+            throws DigitalLibraryException, NotFoundException, IOException {
+        dl.createOrUpdateFile(RO1, "a.txt", new ByteArrayInputStream(CONTENT.getBytes()), "text/plain");
+        dl.createOrUpdateFile(RO1, "folder/b.txt", new ByteArrayInputStream("b".getBytes()), "text/plain");
+        try (ZipInputStream zip = new ZipInputStream(dl.getZippedResearchObject(RO1))) {
+            ZipEntry entry = zip.getNextEntry();
+            Assert.assertEquals("a.txt", entry.getName());
+            Assert.assertEquals(CONTENT, IOUtils.toString(zip));
+            entry = zip.getNextEntry();
+            Assert.assertEquals("folder/b.txt", entry.getName());
+            Assert.assertEquals("b", IOUtils.toString(zip));
+            Assert.assertNull(zip.getNextEntry());
+        }
+    }
+
+
+    @Test
+    public void testObjectsAreDeletedOnCommit()
+            throws DigitalLibraryException, NotFoundException {
+        dl.createOrUpdateFile(RO1, "a.txt", new ByteArrayInputStream(CONTENT.getBytes()), "text/plain");
+        Path object = Paths.get(BASE, "bucket", "example.org", "ROs", "objects1", "a.txt");
+        dl.deleteResearchObject(RO1);
+        Assert.assertFalse(dl.fileExists(RO1, "a.txt"));
+        Assert.assertTrue(Files.exists(object));
+        HibernateUtil.getSessionFactory().getCurrentSession().getTransaction().commit();
+        HibernateUtil.getSessionFactory().getCurrentSession().getTransaction().begin();
+        Assert.assertFalse(Files.exists(object));
+    }
+
+
+    /**
+     * A local object store counting the requests.
+     * 
+     * @author piotrekhol
+     * 
+     */
+    private static class CountingObjectStore extends LocalObjectStore {
+
+        private final AtomicInteger parts = new AtomicInteger();
+
+        private final AtomicInteger copies = new AtomicInteger();
+
+        private final AtomicInteger reads = new AtomicInteger();
+
+
+        public CountingObjectStore(Path root) {
+            super(root);
+        }
+
+
+        @Override
+        public String uploadPart(String key, String uploadId, int partNumber, byte[] data, int length)
+                throws IOException {
+            parts.incrementAndGet();
+            return super.uploadPart(key, uploadId, partNumber, data, length);
+        }
+
+
+        @Override
+        public void copyObject(String sourceKey, String targetKey)
+                throws IOException {
+            copies.incrementAndGet();
+            super.copyObject(sourceKey, targetKey);
+        }
+
+
+        @Override
+        public InputStream getObject(String key)
+                throws IOException {
+            reads.incrementAndGet();
+            return super.getObject(key);
+        }
+    }
+}
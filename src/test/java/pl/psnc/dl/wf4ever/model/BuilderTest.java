@@ -55,6 +55,16 @@ public class BuilderTest extends AbstractUnitTest {
     }
 
 
+    @Test
+    public void testDefaultDatasetIsShared() {
+        Builder builder2 = new Builder(userProfile);
+        Builder builder3 = new Builder(userM);
+        Assert.assertSame(Builder.getDefaultDataset(), builder2.getDataset());
+        Assert.assertSame(builder2.getDataset(), builder3.getDataset());
+        Assert.assertTrue(builder2.isUseTransactions());
+    }
+
+
     @Test
     public void testBuildThing() {
         Thing thing = builder.buildThing(exampleUri);
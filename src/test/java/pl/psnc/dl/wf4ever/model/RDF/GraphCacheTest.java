@@ -0,0 +1,140 @@
+package pl.psnc.dl.wf4ever.model.RDF;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openrdf.rio.RDFFormat;
+
+/**
+ * Test class for the cache of serialized named graphs.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public class GraphCacheTest {
+
+    /** A graph URI. */
+    private static final URI GRAPH = URI.create("http://example.org/ro/manifest.rdf");
+
+    /** A serialization. */
+    private static final byte[] DATA = "<rdf:RDF/>".getBytes();
+
+    /** A directory for serializations on disk. */
+    private File directory;
+
+
+    /**
+     * Create a temporary directory.
+     * 
+     * @throws IOException
+     *             when the directory can't be created
+     */
+    @Before
+    public void setUp()
+            throws IOException {
+        directory = Files.createTempDirectory("graphs").toFile();
+    }
+
+
+    /**
+     * Delete the temporary directory.
+     */
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(directory);
+    }
+
+
+    @Test
+    public void testSameVersionIsAHit() {
+        GraphCache cache = new GraphCache(FileUtils.ONE_MB, null);
+        GraphCache.Key key = new GraphCache.Key(GRAPH, RDFFormat.RDFXML, null, false);
+        Assert.assertNull(cache.get(key, 0));
+        SerializedGraph graph = cache.put(key, 0, DATA);
+        Assert.assertSame(graph, cache.get(new GraphCache.Key(GRAPH, RDFFormat.RDFXML, null, false), 0));
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(1, cache.getMisses());
+        Assert.assertTrue(cache.isExisting(GRAPH, 0));
+    }
+
+
+    @Test
+    public void testNewVersionIsAMiss() {
+        GraphCache cache = new GraphCache(FileUtils.ONE_MB, null);
+        GraphCache.Key key = new GraphCache.Key(GRAPH, RDFFormat.RDFXML, null, false);
+        cache.put(key, 0, DATA);
+        Assert.assertNull(cache.get(key, 1));
+        Assert.assertFalse(cache.isExisting(GRAPH, 1));
+    }
+
+
+    @Test
+    public void testFormatsAreSeparate() {
+        GraphCache cache = new GraphCache(FileUtils.ONE_MB, null);
+        cache.put(new GraphCache.Key(GRAPH, RDFFormat.RDFXML, null, false), 0, DATA);
+        Assert.assertNull(cache.get(new GraphCache.Key(GRAPH, RDFFormat.TURTLE, null, false), 0));
+        Assert.assertNull(cache.get(new GraphCache.Key(GRAPH, RDFFormat.RDFXML, null, true), 0));
+    }
+
+
+    @Test
+    public void testSizeIsLimited() {
+        GraphCache cache = new GraphCache(DATA.length, null);
+        cache.put(new GraphCache.Key(GRAPH, RDFFormat.RDFXML, null, false), 0, DATA);
+        cache.put(new GraphCache.Key(GRAPH, RDFFormat.TURTLE, null, false), 0, DATA);
+        Assert.assertEquals(1, cache.getSize());
+    }
+
+
+    @Test
+    public void testOnDisk()
+            throws IOException {
+        GraphCache cache = new GraphCache(FileUtils.ONE_MB, directory);
+        GraphCache.Key key = new GraphCache.Key(GRAPH, RDFFormat.RDFXML, null, false);
+        SerializedGraph graph = cache.put(key, 0, DATA);
+        Assert.assertEquals(1, directory.list().length);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        graph.write(out);
+        Assert.assertArrayEquals(DATA, out.toByteArray());
+        Assert.assertEquals(new SerializedGraph(0, DATA).getChecksum(), graph.getChecksum());
+        cache.invalidateAll();
+        Assert.assertEquals(0, directory.list().length);
+    }
+
+
+    @Test
+    public void testFileIsKeptWhileRead()
+            throws IOException {
+        GraphCache cache = new GraphCache(FileUtils.ONE_MB, directory);
+        GraphCache.Key key = new GraphCache.Key(GRAPH, RDFFormat.RDFXML, null, false);
+        SerializedGraph graph = cache.put(key, 0, DATA);
+        InputStream in = graph.getInputStream();
+        cache.invalidateAll();
+        Assert.assertEquals(1, directory.list().length);
+        Assert.assertEquals(DATA.length, in.skip(DATA.length));
+        in.close();
+        Assert.assertEquals(0, directory.list().length);
+    }
+
+
+    @Test
+    public void testOtherFilesAreKept()
+            throws IOException {
+        File other = new File(directory, "other");
+        FileUtils.writeByteArrayToFile(other, DATA);
+        File subdirectory = GraphCache.createDirectory(directory);
+        FileUtils.writeByteArrayToFile(new File(subdirectory, "left"), DATA);
+        Assert.assertEquals(subdirectory, GraphCache.createDirectory(directory));
+        Assert.assertTrue(other.exists());
+        Assert.assertEquals(0, subdirectory.list().length);
+    }
+}
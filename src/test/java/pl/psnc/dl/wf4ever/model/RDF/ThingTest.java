@@ -3,6 +3,9 @@ package pl.psnc.dl.wf4ever.model.RDF;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.hasItem;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.util.HashSet;
@@ -28,6 +31,7 @@ import com.hp.hpl.jena.query.Dataset;
 import com.hp.hpl.jena.query.DatasetFactory;
 import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.RDFNode;
 import com.hp.hpl.jena.vocabulary.DCTerms;
 
 /**
@@ -197,6 +201,34 @@ public class ThingTest extends AbstractUnitTest {
     }
 
 
+    /**
+     * Test that the streamed graph is the same as the buffered one.
+     * 
+     * @throws IOException
+     *             when writing to the buffer fails
+     */
+    @Test
+    public void testGetGraphAsStreamingOutput()
+            throws IOException {
+        Thing manifest = researchObject.getManifest();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        manifest.getPublicGraphAsStreamingOutput(RDFFormat.TURTLE).write(out);
+        Model streamed = ModelFactory.createDefaultModel();
+        streamed.read(new ByteArrayInputStream(out.toByteArray()), null, "TURTLE");
+        Model buffered = ModelFactory.createDefaultModel();
+        buffered.read(manifest.getPublicGraphAsInputStream(RDFFormat.TURTLE), null, "TURTLE");
+        Assert.assertFalse(streamed.isEmpty());
+        Assert.assertTrue(streamed.isIsomorphicWith(buffered));
+    }
+
+
+    @Test
+    public void testGetGraphAsStreamingOutputFromEmptyObject() {
+        Assert.assertNull(builder.buildThing(researchObject.getUri().resolve("a-fake-uri"))
+                .getPublicGraphAsStreamingOutput(RDFFormat.RDFXML));
+    }
+
+
     /**
      * Test the manifest can be retrieved together with the annotation body.
      */
@@ -248,12 +280,12 @@ public class ThingTest extends AbstractUnitTest {
     public void testGetDescriptionFor() {
         Thing manifest = researchObject.getManifest();
         Multimap<URI, Object> result = ((Thing) manifest).getDescriptionFor(researchObject.getUri());
-        /* verify description
-        for (Map.Entry<URI, Object> entry : result.entries()) {
-            System.out.println(entry.getKey());
-            System.out.println(entry.getValue());
+        Set<String> aggregated = new HashSet<>();
+        for (Object node : result.get(URI.create(ORE.aggregates.getURI()))) {
+            aggregated.add(((RDFNode) node).asResource().getURI());
         }
-        */
-
+        assertThat(aggregated, hasItem(RESOURCE1));
+        Assert.assertTrue(builder.buildThing(researchObject.getUri().resolve("a-fake-uri"))
+                .getDescriptionFor(researchObject.getUri()).isEmpty());
     }
 }
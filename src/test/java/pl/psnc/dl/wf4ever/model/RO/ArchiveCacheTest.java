@@ -0,0 +1,106 @@
+package pl.psnc.dl.wf4ever.model.RO;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for the cache of ZIP archives.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public class ArchiveCacheTest {
+
+    /** A research object URI. */
+    private static final URI RO = URI.create("http://example.org/ROs/snapshot/");
+
+    /** Archive content. */
+    private static final byte[] DATA = "zip".getBytes();
+
+    /** A directory for the archives. */
+    private File directory;
+
+
+    /**
+     * Create a temporary directory.
+     * 
+     * @throws IOException
+     *             when the directory can't be created
+     */
+    @Before
+    public void setUp()
+            throws IOException {
+        directory = Files.createTempDirectory("archives").toFile();
+    }
+
+
+    /**
+     * Delete the temporary directory.
+     */
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(directory);
+    }
+
+
+    @Test
+    public void testArchiveReadToTheEndIsKept()
+            throws IOException {
+        ArchiveCache cache = new ArchiveCache(FileUtils.ONE_KB, directory);
+        Assert.assertNull(cache.get(RO, "abc"));
+        try (InputStream in = cache.put(RO, "abc", new ByteArrayInputStream(DATA))) {
+            Assert.assertArrayEquals(DATA, IOUtils.toByteArray(in));
+        }
+        try (InputStream in = cache.get(RO, "abc")) {
+            Assert.assertArrayEquals(DATA, IOUtils.toByteArray(in));
+        }
+        Assert.assertNull(cache.get(RO, "def"));
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(2, cache.getMisses());
+    }
+
+
+    @Test
+    public void testIncompleteArchiveIsNotKept()
+            throws IOException {
+        ArchiveCache cache = new ArchiveCache(FileUtils.ONE_KB, directory);
+        InputStream in = cache.put(RO, "abc", new ByteArrayInputStream(DATA));
+        in.read();
+        in.close();
+        Assert.assertNull(cache.get(RO, "abc"));
+        Assert.assertEquals(0, directory.list().length);
+    }
+
+
+    @Test
+    public void testDisabled() {
+        ArchiveCache cache = new ArchiveCache(FileUtils.ONE_KB, null);
+        InputStream in = new ByteArrayInputStream(DATA);
+        Assert.assertFalse(cache.isEnabled());
+        Assert.assertSame(in, cache.put(RO, "abc", in));
+    }
+
+
+    @Test
+    public void testOtherFilesAreKept()
+            throws IOException {
+        File other = new File(directory, "other");
+        FileUtils.writeByteArrayToFile(other, DATA);
+        File subdirectory = ArchiveCache.createDirectory(directory);
+        FileUtils.writeByteArrayToFile(new File(subdirectory, "left"), DATA);
+        Assert.assertEquals(subdirectory, ArchiveCache.createDirectory(directory));
+        Assert.assertTrue(other.exists());
+        Assert.assertEquals(0, subdirectory.list().length);
+    }
+}
@@ -195,6 +195,19 @@ public class ManifestTest extends AbstractUnitTest {
     }
 
 
+    @Test
+    public void testExtractIndex() {
+        ManifestIndex index = manifest.extractIndex();
+        Assert.assertEquals(manifest.extractResources(), index.getResources());
+        Assert.assertEquals(manifest.extractFolders(), index.getFolders());
+        Assert.assertEquals(manifest.extractAnnotations(), index.getAnnotations());
+        Assert.assertEquals(manifest.extractAggregatedResources(index.getResources(), index.getFolders(),
+            index.getAnnotations()), index.getAggregatedResources());
+        URI folderUri = researchObject.getUri().resolve("afolder/");
+        Assert.assertSame(index.getFolders().get(folderUri), index.getAggregatedResources().get(folderUri));
+    }
+
+
     private void putAnnotation(Map<URI, Annotation> expected, URI uri) {
         Thing body = builder.buildThing(researchObject.getUri().resolve("body"));
         Set<Thing> targets = new HashSet<>();
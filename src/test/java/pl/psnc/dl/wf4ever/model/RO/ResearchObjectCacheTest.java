@@ -0,0 +1,77 @@
+package pl.psnc.dl.wf4ever.model.RO;
+
+import java.net.URI;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import pl.psnc.dl.wf4ever.AbstractUnitTest;
+import pl.psnc.dl.wf4ever.model.ORE.AggregatedResource;
+
+/**
+ * Test class for the cache of research object views.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public class ResearchObjectCacheTest extends AbstractUnitTest {
+
+    /** The instance under test. */
+    private ResearchObjectCache cache;
+
+
+    @Override
+    @Before
+    public void setUp()
+            throws Exception {
+        super.setUp();
+        cache = new ResearchObjectCache(10);
+    }
+
+
+    @Test
+    public void testSecondGetIsAHit() {
+        ResearchObjectView view = cache.get(researchObject.getManifest(), false);
+        Assert.assertSame(view, cache.get(researchObject.getManifest(), false));
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(1, cache.getMisses());
+        Assert.assertEquals(1, cache.getSize());
+    }
+
+
+    @Test
+    public void testManifestUpdateMakesTheViewOutdated() {
+        ResearchObjectView view = cache.get(researchObject.getManifest(), false);
+        AggregatedResource resource = builder.buildAggregatedResource(
+            researchObject.getUri().resolve("new-resource"), researchObject, userProfile, null);
+        researchObject.getManifest().saveRoResourceClass(resource);
+        Assert.assertNotSame(view, cache.get(researchObject.getManifest(), false));
+        Assert.assertEquals(0, cache.getHits());
+        Assert.assertEquals(2, cache.getMisses());
+    }
+
+
+    @Test
+    public void testInvalidate() {
+        cache.get(researchObject.getManifest(), false);
+        cache.invalidate(researchObject.getUri());
+        Assert.assertEquals(0, cache.getSize());
+        cache.get(researchObject.getManifest(), false);
+        Assert.assertEquals(2, cache.getMisses());
+    }
+
+
+    @Test
+    public void testViewMatchesTheManifest() {
+        ResearchObjectView view = cache.get(researchObject.getManifest(), false);
+        Assert.assertEquals(researchObject.getUri(), view.getUri());
+        for (ResearchObjectView.Entry entry : view.getEntries()) {
+            URI uri = entry.getUri();
+            Assert.assertTrue(researchObject.getAggregatedResources().containsKey(uri));
+            Assert.assertEquals(entry.isFolder(), researchObject.getFolders().containsKey(uri));
+            Assert.assertEquals(entry.isAnnotation(), researchObject.getAnnotations().containsKey(uri));
+        }
+        Assert.assertEquals(researchObject.getAggregatedResources().size(), view.getEntries().size());
+    }
+}
@@ -0,0 +1,138 @@
+package pl.psnc.dl.wf4ever.model;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.hp.hpl.jena.query.Dataset;
+import com.hp.hpl.jena.query.DatasetFactory;
+import com.hp.hpl.jena.query.ReadWrite;
+import com.hp.hpl.jena.tdb.TDBFactory;
+
+/**
+ * Test class for the transaction context.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public class TransactionContextTest {
+
+    /** An in-memory TDB dataset supporting transactions. */
+    private Dataset dataset;
+
+
+    @Before
+    public void setUp() {
+        dataset = TDBFactory.createDataset();
+    }
+
+
+    @After
+    public void tearDown() {
+        dataset.close();
+    }
+
+
+    @Test
+    public void testNestedTransactionsJoinTheOuterOne() {
+        TransactionContext context = new TransactionContext(dataset, true);
+        boolean outer = context.begin(ReadWrite.READ);
+        Assert.assertTrue(outer);
+        boolean inner = context.begin(ReadWrite.READ);
+        Assert.assertFalse(inner);
+        context.end(inner);
+        Assert.assertTrue(context.isInTransaction());
+        context.end(outer);
+        Assert.assertFalse(context.isInTransaction());
+    }
+
+
+    @Test
+    public void testBuilderSharesItsContext() {
+        Builder builder = new Builder(null, dataset, true);
+        Assert.assertSame(builder.getTransactionContext(), builder.getTransactionContext());
+        boolean started = builder.beginTransaction(ReadWrite.READ);
+        try {
+            Assert.assertTrue(builder.getTransactionContext().isInTransaction());
+        } finally {
+            builder.endTransaction(started);
+        }
+    }
+
+
+    @Test
+    public void testGraphVersionChangesAfterCommit() {
+        String graph = "http://example.org/versioned-graph";
+        TransactionContext context = new TransactionContext(dataset, true);
+        long before = GraphVersions.get(graph);
+        boolean started = context.begin(ReadWrite.WRITE);
+        try {
+            context.markModified(graph);
+            Assert.assertEquals(before, GraphVersions.get(graph));
+            context.commit(started);
+        } finally {
+            context.end(started);
+        }
+        Assert.assertEquals(before + 1, GraphVersions.get(graph));
+    }
+
+
+    @Test
+    public void testGraphVersionUnchangedAfterAbort() {
+        String graph = "http://example.org/aborted-graph";
+        TransactionContext context = new TransactionContext(dataset, true);
+        long before = GraphVersions.get(graph);
+        boolean started = context.begin(ReadWrite.WRITE);
+        try {
+            context.markModified(graph);
+            context.abort(started);
+        } finally {
+            context.end(started);
+        }
+        Assert.assertEquals(before, GraphVersions.get(graph));
+    }
+
+
+    @Test
+    public void testGraphMarkedInAJoinedTransactionChangesVersion() {
+        String graph = "http://example.org/joined-graph";
+        TransactionContext outer = new TransactionContext(dataset, true);
+        TransactionContext inner = new TransactionContext(dataset, true);
+        long before = GraphVersions.get(graph);
+        boolean started = outer.begin(ReadWrite.WRITE);
+        try {
+            boolean joined = inner.begin(ReadWrite.WRITE);
+            inner.markModified(graph);
+            inner.commit(joined);
+            inner.end(joined);
+            outer.commit(started);
+        } finally {
+            outer.end(started);
+        }
+        Assert.assertEquals(before + 1, GraphVersions.get(graph));
+    }
+
+
+    @Test
+    public void testUnmarkedWriteChangesAllVersions() {
+        String graph = "http://example.org/any-graph";
+        TransactionContext context = new TransactionContext(dataset, true);
+        long before = GraphVersions.get(graph);
+        boolean started = context.begin(ReadWrite.WRITE);
+        try {
+            context.commit(started);
+        } finally {
+            context.end(started);
+        }
+        Assert.assertTrue(GraphVersions.get(graph) > before);
+    }
+
+
+    @Test
+    public void testNoTransactionsIfDisabled() {
+        TransactionContext context = new TransactionContext(DatasetFactory.createMem(), false);
+        Assert.assertFalse(context.begin(ReadWrite.WRITE));
+        Assert.assertFalse(context.isInTransaction());
+    }
+}
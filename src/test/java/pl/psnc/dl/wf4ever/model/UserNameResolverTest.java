@@ -0,0 +1,71 @@
+package pl.psnc.dl.wf4ever.model;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import pl.psnc.dl.wf4ever.AbstractUnitTest;
+import pl.psnc.dl.wf4ever.db.UserProfile;
+import pl.psnc.dl.wf4ever.db.dao.UserProfileDAO;
+import pl.psnc.dl.wf4ever.dl.UserMetadata.Role;
+
+/**
+ * Test class for the user name resolver.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public class UserNameResolverTest extends AbstractUnitTest {
+
+    /** A user with a name. */
+    private UserProfile profile;
+
+    /** The instance under test. */
+    private UserNameResolver resolver;
+
+
+    @Override
+    @Before
+    public void setUp()
+            throws Exception {
+        super.setUp();
+        profile = new UserProfile("http://example.org/users/alice", "Alice", Role.AUTHENTICATED,
+                URI.create("http://example.org/users/alice"));
+        new UserProfileDAO().save(profile);
+        resolver = new UserNameResolver(60);
+    }
+
+
+    @Override
+    @After
+    public void tearDown()
+            throws Exception {
+        new UserProfileDAO().delete(profile);
+        super.tearDown();
+    }
+
+
+    @Test
+    public void testResolve() {
+        Map<String, String> names = resolver.resolve(Arrays.asList(profile.getLogin(), "http://example.org/nobody"));
+        Assert.assertEquals(1, names.size());
+        Assert.assertEquals("Alice", names.get(profile.getLogin()));
+        // unknown users are remembered too
+        Assert.assertEquals(2, resolver.getSize());
+    }
+
+
+    @Test
+    public void testNamesAreKept() {
+        resolver.resolve(Arrays.asList(profile.getLogin()));
+        profile.setName("Bob");
+        Assert.assertEquals("Alice", resolver.resolve(Arrays.asList(profile.getLogin())).get(profile.getLogin()));
+        resolver.invalidate(profile.getLogin());
+        Assert.assertEquals("Bob", resolver.resolve(Arrays.asList(profile.getLogin())).get(profile.getLogin()));
+    }
+}
@@ -0,0 +1,113 @@
+package pl.psnc.dl.wf4ever.sparql;
+
+import java.net.URI;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import pl.psnc.dl.wf4ever.AbstractUnitTest;
+import pl.psnc.dl.wf4ever.vocabulary.FOAF;
+import pl.psnc.dl.wf4ever.vocabulary.ORE;
+import pl.psnc.dl.wf4ever.vocabulary.RO;
+
+import com.hp.hpl.jena.query.QueryExecution;
+import com.hp.hpl.jena.query.QueryExecutionFactory;
+import com.hp.hpl.jena.query.QueryFactory;
+import com.hp.hpl.jena.query.ResultSet;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.vocabulary.DCTerms;
+
+/**
+ * Test the prepared queries and compare them with queries parsed for each execution.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public class PreparedQueriesTest extends AbstractUnitTest {
+
+    /** Logger. */
+    private static final Logger LOGGER = Logger.getLogger(PreparedQueriesTest.class);
+
+    /** How many times each query is executed in the benchmark. */
+    private static final int ITERATIONS = 500;
+
+
+    /**
+     * A prepared query with a bound variable should return the same resources as the query with the URI in the text.
+     */
+    @Test
+    public void testSameResultsAsParsedQuery() {
+        Model model = dataset.getNamedModel(MANIFEST);
+        Set<String> expected = execute(QueryExecutionFactory.create(QueryFactory.create(formatQuery()), model));
+        Set<String> actual = execute(PreparedQueries.create(PreparedQueries.RESOURCES, model, "aggregation",
+            URI.create(RESEARCH_OBJECT)));
+        Assert.assertFalse(expected.isEmpty());
+        Assert.assertEquals(expected, actual);
+    }
+
+
+    /**
+     * Compare the time of parsing the query for each execution with the time of executing the prepared query. Ignored
+     * in the regular build, because the times depend on the machine and are only logged; run it manually when
+     * changing the prepared queries.
+     */
+    @Ignore
+    @Test
+    public void testParsingCost() {
+        Model model = dataset.getNamedModel(MANIFEST);
+        Set<String> expected = null;
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            expected = execute(QueryExecutionFactory.create(QueryFactory.create(formatQuery()), model));
+        }
+        long parsed = System.nanoTime() - start;
+        Set<String> actual = null;
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            actual = execute(PreparedQueries.create(PreparedQueries.RESOURCES, model, "aggregation",
+                URI.create(RESEARCH_OBJECT)));
+        }
+        long prepared = System.nanoTime() - start;
+        LOGGER.info(String.format("%d executions: parsed each time %d ms, prepared %d ms", ITERATIONS,
+            parsed / 1000000, prepared / 1000000));
+        Assert.assertEquals(expected, actual);
+    }
+
+
+    /**
+     * The ro:Resources query as it was built before the queries were prepared.
+     * 
+     * @return the query text
+     */
+    private String formatQuery() {
+        return String
+                .format(
+                    "PREFIX ore: <%s> PREFIX dcterms: <%s> PREFIX ro: <%s> PREFIX foaf: <%s> SELECT ?resource ?proxy ?created ?creator ?creatorname WHERE { <%s> ore:aggregates ?resource . ?resource a ro:Resource . ?proxy ore:proxyFor ?resource . OPTIONAL { ?resource dcterms:creator ?creator . OPTIONAL { ?creator foaf:name ?creatorname . } } OPTIONAL { ?resource dcterms:created ?created . } }",
+                    ORE.NAMESPACE, DCTerms.NS, RO.NAMESPACE, FOAF.NAMESPACE, RESEARCH_OBJECT);
+    }
+
+
+    /**
+     * Execute a query and collect the resources found.
+     * 
+     * @param qe
+     *            query execution
+     * @return URIs of ?resource
+     */
+    private Set<String> execute(QueryExecution qe) {
+        Set<String> resources = new HashSet<>();
+        try {
+            ResultSet results = qe.execSelect();
+            while (results.hasNext()) {
+                resources.add(results.next().getResource("resource").getURI());
+            }
+        } finally {
+            qe.close();
+        }
+        return resources;
+    }
+}
@@ -0,0 +1,132 @@
+package pl.psnc.dl.wf4ever.storage;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static com.github.tomakehurst.wiremock.client.WireMock.delete;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.matching;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.put;
+import static com.github.tomakehurst.wiremock.client.WireMock.putRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Arrays;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+
+/**
+ * Test of the requests sent to an S3 compatible object store.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public class S3ObjectStoreTest {
+
+    /** A mock of the object store. */
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(8090);
+
+    /** Expected authorization header. */
+    private static final String AUTHORIZATION = "AWS4-HMAC-SHA256 Credential=key/\\d{8}/us-east-1/s3/aws4_request, "
+            + "SignedHeaders=.*host;x-amz-content-sha256;x-amz-date.*, Signature=[0-9a-f]{64}";
+
+    /** Tested store. */
+    private S3ObjectStore store;
+
+
+    @Before
+    public void setUp() {
+        store = new S3ObjectStore(URI.create("http://127.0.0.1:8090/"), "bucket", "us-east-1", "key", "secret");
+    }
+
+
+    @Test
+    public void testPutAndGetObject()
+            throws IOException {
+        stubFor(put(urlEqualTo("/bucket/ro/a%20b.txt")).willReturn(aResponse().withStatus(200)));
+        stubFor(get(urlEqualTo("/bucket/ro/a%20b.txt")).willReturn(aResponse().withStatus(200).withBody("content")));
+        store.putObject("ro/a b.txt", new ByteArrayInputStream("content".getBytes()), 7, "text/plain");
+        verify(putRequestedFor(urlEqualTo("/bucket/ro/a%20b.txt")).withHeader("Authorization", matching(AUTHORIZATION))
+                .withHeader("x-amz-content-sha256", equalTo("UNSIGNED-PAYLOAD"))
+                .withHeader("Content-Type", equalTo("text/plain")));
+        try (InputStream in = store.getObject("ro/a b.txt")) {
+            Assert.assertEquals("content", IOUtils.toString(in));
+        }
+    }
+
+
+    @Test(expected = FileNotFoundException.class)
+    public void testGetMissingObject()
+            throws IOException {
+        stubFor(get(urlEqualTo("/bucket/ro/missing.txt")).willReturn(aResponse().withStatus(404)));
+        store.getObject("ro/missing.txt");
+    }
+
+
+    @Test
+    public void testMultipartUpload()
+            throws IOException {
+        stubFor(post(urlEqualTo("/bucket/ro/large.bin?uploads=")).willReturn(
+            aResponse().withStatus(200).withBody(
+                "<InitiateMultipartUploadResult><UploadId>id-1</UploadId></InitiateMultipartUploadResult>")));
+        stubFor(put(urlEqualTo("/bucket/ro/large.bin?partNumber=1&uploadId=id-1")).willReturn(
+            aResponse().withStatus(200).withHeader("ETag", "\"etag1\"")));
+        stubFor(post(urlEqualTo("/bucket/ro/large.bin?uploadId=id-1")).willReturn(
+            aResponse().withStatus(200).withBody("<CompleteMultipartUploadResult/>")));
+        String uploadId = store.initiateMultipartUpload("ro/large.bin", "application/octet-stream");
+        Assert.assertEquals("id-1", uploadId);
+        String etag = store.uploadPart("ro/large.bin", uploadId, 1, "part".getBytes(), 4);
+        Assert.assertEquals("\"etag1\"", etag);
+        verify(putRequestedFor(urlEqualTo("/bucket/ro/large.bin?partNumber=1&uploadId=id-1")).withHeader(
+            "Content-MD5", equalTo("9Mk4XxkC9zNLALm07NFk3g==")));
+        store.completeMultipartUpload("ro/large.bin", uploadId, Arrays.asList(etag));
+        verify(postRequestedFor(urlEqualTo("/bucket/ro/large.bin?uploadId=id-1")).withHeader("Authorization",
+            matching(AUTHORIZATION)).withRequestBody(
+            containing("<Part><PartNumber>1</PartNumber><ETag>&quot;etag1&quot;</ETag></Part>")));
+    }
+
+
+    @Test(expected = IOException.class)
+    public void testErrorInSuccessfulResponse()
+            throws IOException {
+        stubFor(post(urlEqualTo("/bucket/ro/large.bin?uploadId=id-2")).willReturn(
+            aResponse().withStatus(200).withBody("<Error><Code>InternalError</Code></Error>")));
+        store.completeMultipartUpload("ro/large.bin", "id-2", Arrays.asList("\"etag1\""));
+    }
+
+
+    @Test
+    public void testCopyAndDeleteObject()
+            throws IOException {
+        stubFor(put(urlEqualTo("/bucket/ro2/a.txt")).willReturn(
+            aResponse().withStatus(200).withBody("<CopyObjectResult/>")));
+        stubFor(delete(urlEqualTo("/bucket/ro1/a.txt")).willReturn(aResponse().withStatus(404)));
+        store.copyObject("ro1/a.txt", "ro2/a.txt");
+        verify(putRequestedFor(urlEqualTo("/bucket/ro2/a.txt")).withHeader("x-amz-copy-source",
+            equalTo("/bucket/ro1/a.txt")));
+        // a missing object is not an error
+        store.deleteObject("ro1/a.txt");
+    }
+
+
+    @Test
+    public void testEncode() {
+        Assert.assertEquals("ro/a%20b%2Bc~d.txt", S3ObjectStore.encode("ro/a b+c~d.txt", true));
+        Assert.assertEquals("a%2Fb%3D", S3ObjectStore.encode("a/b=", false));
+    }
+}
@@ -0,0 +1,116 @@
+package pl.psnc.dl.wf4ever.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import pl.psnc.dl.wf4ever.exceptions.ServiceUnavailableException;
+
+/**
+ * Test class for creating ZIP archives in a bounded pool of threads.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public class ZipExporterTest {
+
+    /** Compressible text. */
+    private static final String TEXT = StringUtils.repeat("text ", 1000);
+
+    /** A temporary directory. */
+    private Path directory;
+
+    /** The exporter under test. */
+    private ZipExporter exporter;
+
+
+    @Before
+    public void setUp()
+            throws IOException {
+        directory = Files.createTempDirectory("zip");
+        FileUtils.writeStringToFile(directory.resolve("a.txt").toFile(), TEXT);
+        FileUtils.writeStringToFile(directory.resolve("b.jpg").toFile(), "not really a jpeg");
+    }
+
+
+    /**
+     * Stop the threads of the exporter, including those blocked on a pipe nobody reads, and delete the directory.
+     */
+    @After
+    public void tearDown() {
+        if (exporter != null) {
+            exporter.stop();
+        }
+        FileUtils.deleteQuietly(directory.toFile());
+    }
+
+
+    @Test
+    public void testCompressedTypesAreNotCompressed()
+            throws IOException {
+        exporter = new ZipExporter(1, 1);
+        InputStream in = exporter.export("test", new ZipExporter.Content() {
+
+            @Override
+            public void addTo(ZipExporter.Archive archive)
+                    throws IOException {
+                archive.add("a.txt", directory.resolve("a.txt"), "text/plain");
+                archive.add("folder/b.jpg", directory.resolve("b.jpg"), "image/jpeg");
+            }
+        });
+        try (ZipInputStream zip = new ZipInputStream(in)) {
+            ZipEntry entry = zip.getNextEntry();
+            Assert.assertEquals("a.txt", entry.getName());
+            Assert.assertEquals(TEXT, IOUtils.toString(zip));
+            Assert.assertTrue(entry.getCompressedSize() < entry.getSize());
+            entry = zip.getNextEntry();
+            Assert.assertEquals("folder/b.jpg", entry.getName());
+            Assert.assertEquals("not really a jpeg", IOUtils.toString(zip));
+            Assert.assertTrue(entry.getCompressedSize() >= entry.getSize());
+            Assert.assertNull(zip.getNextEntry());
+        }
+    }
+
+
+    @Test
+    public void testIsCompressed() {
+        Assert.assertTrue(ZipExporter.isCompressed("application/zip"));
+        Assert.assertTrue(ZipExporter.isCompressed("video/mp4"));
+        Assert.assertTrue(ZipExporter.isCompressed("IMAGE/PNG"));
+        Assert.assertFalse(ZipExporter.isCompressed("text/plain; charset=UTF-8"));
+        Assert.assertFalse(ZipExporter.isCompressed(null));
+    }
+
+
+    @Test(expected = ServiceUnavailableException.class)
+    public void testQueueIsBounded() {
+        exporter = new ZipExporter(1, 1);
+        final File file = directory.resolve("a.txt").toFile();
+        ZipExporter.Content content = new ZipExporter.Content() {
+
+            @Override
+            public void addTo(ZipExporter.Archive archive)
+                    throws IOException {
+                // nobody reads the archives, so the first one blocks the only thread once the pipe is full
+                for (int i = 0; i < 100000; i++) {
+                    archive.add(i + ".txt", file.toPath(), "text/plain");
+                }
+            }
+        };
+        exporter.export("first", content);
+        exporter.export("second", content);
+        exporter.export("third", content);
+    }
+}
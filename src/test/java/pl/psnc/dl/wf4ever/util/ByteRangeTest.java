@@ -0,0 +1,66 @@
+package pl.psnc.dl.wf4ever.util;
+
+import java.util.Date;
+import java.util.List;
+
+import javax.ws.rs.core.EntityTag;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for parsing the Range and If-Range headers.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public class ByteRangeTest {
+
+    @Test
+    public void testParse() {
+        List<ByteRange> ranges = ByteRange.parse("bytes=0-499, 500-, -100", 1000);
+        Assert.assertEquals(3, ranges.size());
+        Assert.assertEquals(0, ranges.get(0).getFirst());
+        Assert.assertEquals(499, ranges.get(0).getLast());
+        Assert.assertEquals(500, ranges.get(1).getFirst());
+        Assert.assertEquals(999, ranges.get(1).getLast());
+        Assert.assertEquals(900, ranges.get(2).getFirst());
+        Assert.assertEquals("bytes 900-999/1000", ranges.get(2).getContentRange(1000));
+    }
+
+
+    @Test
+    public void testLastPositionIsTruncated() {
+        List<ByteRange> ranges = ByteRange.parse("bytes=10-5000", 1000);
+        Assert.assertEquals(1, ranges.size());
+        Assert.assertEquals(990, ranges.get(0).getLength());
+    }
+
+
+    @Test
+    public void testUnsatisfiable() {
+        Assert.assertTrue(ByteRange.parse("bytes=1000-", 1000).isEmpty());
+    }
+
+
+    @Test
+    public void testInvalidHeaderIsIgnored() {
+        Assert.assertNull(ByteRange.parse(null, 1000));
+        Assert.assertNull(ByteRange.parse("items=0-1", 1000));
+        Assert.assertNull(ByteRange.parse("bytes=5-1", 1000));
+        Assert.assertNull(ByteRange.parse("bytes=a-b", 1000));
+    }
+
+
+    @Test
+    public void testIfRange() {
+        EntityTag tag = new EntityTag("abc");
+        Date date = new Date(1262304000000L);
+        Assert.assertTrue(ByteRange.isIfRangeMatched(null, tag, date));
+        Assert.assertTrue(ByteRange.isIfRangeMatched("\"abc\"", tag, date));
+        Assert.assertFalse(ByteRange.isIfRangeMatched("\"def\"", tag, date));
+        Assert.assertFalse(ByteRange.isIfRangeMatched("W/\"abc\"", tag, date));
+        Assert.assertTrue(ByteRange.isIfRangeMatched("Fri, 01 Jan 2010 00:00:00 GMT", tag, date));
+        Assert.assertFalse(ByteRange.isIfRangeMatched("Sat, 02 Jan 2010 00:00:00 GMT", tag, date));
+    }
+}
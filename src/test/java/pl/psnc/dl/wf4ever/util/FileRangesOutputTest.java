@@ -0,0 +1,82 @@
+package pl.psnc.dl.wf4ever.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for sending files and ranges of files.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public class FileRangesOutputTest {
+
+    /** File content. */
+    private static final String CONTENT = "0123456789";
+
+    /** The file. */
+    private File file;
+
+
+    @Before
+    public void setUp()
+            throws IOException {
+        file = File.createTempFile("ranges", ".txt");
+        FileUtils.writeStringToFile(file, CONTENT);
+    }
+
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(file);
+    }
+
+
+    @Test
+    public void testWholeFile()
+            throws IOException {
+        FileRangesOutput output = new FileRangesOutput(new FileInputStream(file), file.length(), null, "text/plain");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        output.write(out);
+        Assert.assertEquals(CONTENT, out.toString());
+        Assert.assertEquals(CONTENT.length(), output.getContentLength());
+        Assert.assertEquals("text/plain", output.getContentType());
+    }
+
+
+    @Test
+    public void testSingleRange()
+            throws IOException {
+        FileRangesOutput output = new FileRangesOutput(new FileInputStream(file), file.length(),
+                Arrays.asList(new ByteRange(2, 4)), "text/plain");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        output.write(out);
+        Assert.assertEquals("234", out.toString());
+        Assert.assertEquals("bytes 2-4/10", output.getContentRange());
+    }
+
+
+    @Test
+    public void testManyRanges()
+            throws IOException {
+        FileRangesOutput output = new FileRangesOutput(new FileInputStream(file), file.length(), Arrays.asList(
+            new ByteRange(0, 1), new ByteRange(8, 9)), "text/plain");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        output.write(out);
+        Assert.assertTrue(output.isMultipart());
+        Assert.assertTrue(output.getContentType().startsWith("multipart/byteranges; boundary="));
+        Assert.assertEquals(output.getContentLength(), out.size());
+        String body = out.toString();
+        Assert.assertTrue(body.contains("Content-Range: bytes 0-1/10\r\n\r\n01\r\n"));
+        Assert.assertTrue(body.contains("Content-Range: bytes 8-9/10\r\n\r\n89\r\n"));
+    }
+}